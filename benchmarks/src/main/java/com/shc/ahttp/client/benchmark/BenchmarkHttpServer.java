@@ -0,0 +1,112 @@
+package com.shc.ahttp.client.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server bound to the loopback interface, which serves a
+ * fixed JSON body on <code>/payload</code> and drains the posted body on
+ * <code>/post</code>, replying with a small JSON body. The bodies are
+ * prepared up front so that the server adds as little as possible to the
+ * measured time.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class BenchmarkHttpServer {
+
+    /** The small body returned for every post */
+    private static final byte[] POST_RESPONSE = "{\"id\":\"ok\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // without TCP_NODELAY the JDK server stalls every small response on
+        // the delayed ACK of the client, which would dominate the results
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Instantiates a new server on an ephemeral port of the loopback interface
+     *
+     * @param payload
+     *            the JSON body served on <code>/payload</code>
+     * @param threads
+     *            the number of threads handling requests
+     * @throws IOException
+     *             if the server could not be bound
+     */
+    public BenchmarkHttpServer(final byte[] payload, int threads)
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 1024);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/payload", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                respond(exchange, payload);
+            }
+        });
+        server.createContext("/post", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                respond(exchange, POST_RESPONSE);
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the full url of the given path on this server
+     *
+     * @param path
+     *            the path, starting with a slash
+     *
+     * @return the full url
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // discard the request body
+        }
+        in.close();
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+}
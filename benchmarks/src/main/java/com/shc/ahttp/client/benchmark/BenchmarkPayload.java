@@ -0,0 +1,126 @@
+package com.shc.ahttp.client.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.dslplatform.json.CompiledJson;
+
+/**
+ * A Jackson compatible payload of a configurable number of items, used as the
+ * request and response object of the benchmarks. It is annotated with
+ * {@link CompiledJson} so that DSL-JSON generates its converter at compile
+ * time, as an application would for its own DTOs.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+@CompiledJson
+public class BenchmarkPayload {
+
+    /** The approximate size in bytes of a single serialized item */
+    private static final int ITEM_SIZE = 96;
+
+    private String id;
+
+    private List<Item> items;
+
+    public BenchmarkPayload() {
+        super();
+    }
+
+    /**
+     * Creates a payload whose JSON form is approximately the given size
+     *
+     * @param size
+     *            the approximate size in bytes of the serialized payload
+     *
+     * @return the new {@link BenchmarkPayload}
+     */
+    public static BenchmarkPayload ofSize(int size) {
+        BenchmarkPayload payload = new BenchmarkPayload();
+        payload.setId("payload-" + size);
+        int itemCount = Math.max(1, size / ITEM_SIZE);
+        List<Item> items = new ArrayList<Item>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new Item(i, "item-" + i, i * 0.25d, Arrays.asList(
+                    "tag-a", "tag-b")));
+        }
+        payload.setItems(items);
+        return payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * A single item of the {@link BenchmarkPayload}
+     */
+    @CompiledJson
+    public static class Item {
+
+        private long id;
+
+        private String name;
+
+        private double price;
+
+        private List<String> tags;
+
+        public Item() {
+            super();
+        }
+
+        public Item(long id, String name, double price, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.tags = tags;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.shc.ahttp.client.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpMessage;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.request.ABasicAuthHttpRequestBase;
+
+/**
+ * Measures the view of the response headers returned by
+ * {@link ABasicAuthHttpRequestBase#getHeaders(HttpMessage)}, on its own and
+ * looking a header up, and the copying of request headers onto a request by
+ * {@link ABasicAuthHttpRequestBase#addRequestHeaders(Map, HttpRequest)}.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderBenchmark {
+
+    /** The number of headers on the response and request */
+    @Param({ "4", "16", "64" })
+    public int headerCount;
+
+    private HeaderRequest request;
+
+    private BasicHttpResponse httpResponse;
+
+    private Map<String, String> requestHeaders;
+
+    /** The last response header, in lower case */
+    private String lastHeaderName;
+
+    @Setup
+    public void setUp() {
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        request = new HeaderRequest(AHttpClientPool.create(config));
+
+        httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        requestHeaders = new LinkedHashMap<String, String>();
+        for (int i = 0; i < headerCount; i++) {
+            httpResponse.addHeader("X-Response-Header-" + i, "value-" + i);
+            requestHeaders.put("X-Request-Header-" + i, "value-" + i);
+        }
+        lastHeaderName = "x-response-header-" + (headerCount - 1);
+    }
+
+    @Benchmark
+    public Map<String, String> getHeaders() {
+        return request.getHeaders(httpResponse);
+    }
+
+    @Benchmark
+    public String getHeader() {
+        return request.getHeaders(httpResponse).get(lastHeaderName);
+    }
+
+    @Benchmark
+    public HttpGet addRequestHeaders() {
+        HttpGet httpGet = new HttpGet("http://127.0.0.1/");
+        request.addRequestHeaders(requestHeaders, httpGet);
+        return httpGet;
+    }
+
+    /**
+     * Exposes the protected header handling of
+     * {@link ABasicAuthHttpRequestBase} to the benchmark
+     */
+    static class HeaderRequest extends ABasicAuthHttpRequestBase {
+
+        HeaderRequest(AHttpClientPool clientPool) {
+            super(clientPool);
+        }
+
+        @Override
+        protected Map<String, String> getHeaders(HttpMessage httpMessage) {
+            return super.getHeaders(httpMessage);
+        }
+
+        @Override
+        protected void addRequestHeaders(Map<String, String> headersMap,
+                HttpRequest httpRequest) {
+            super.addRequestHeaders(headersMap, httpRequest);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.shc.ahttp.client.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.messageconverter.JacksonMessageConverter;
+import com.shc.ahttp.client.messageconverter.MessageConverter;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.request.AHttpEntityConsumer;
+import com.shc.ahttp.client.request.AHttpEntityProducer;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.request.AHttpPostRequest;
+import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * Measures the throughput and latency of
+ * {@link AHttpGetRequest#executeGet(String, String, int, java.util.Map, boolean)}
+ * and
+ * {@link AHttpPostRequest#executePost(String, String, String, int, java.util.Map, boolean)}
+ * against the embedded {@link BenchmarkHttpServer}, for both the buffered
+ * String bodies and the streamed {@link AHttpEntityConsumer} and
+ * {@link AHttpEntityProducer} bodies. The nested subclasses run the same
+ * benchmarks with 1, 8 and 32 concurrent threads.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class HttpRequestBenchmark {
+
+    private static final String ENCODING = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
+
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /** Reads and discards the small post response, returning its length */
+    private static final AHttpEntityConsumer<Long> DISCARDING_CONSUMER = (
+            content, encoding) -> {
+        byte[] buffer = new byte[8192];
+        long length = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            length += read;
+        }
+        return length;
+    };
+
+    /** The approximate size in bytes of the response and request bodies */
+    @Param({ "128", "16384", "1048576" })
+    public int payloadSize;
+
+    private BenchmarkHttpServer server;
+
+    private AHttpClientPool clientPool;
+
+    private AHttpGetRequest getRequest;
+
+    private AHttpPostRequest postRequest;
+
+    private MessageConverter messageConverter;
+
+    private BenchmarkPayload payload;
+
+    private String payloadMessage;
+
+    private String payloadUrl;
+
+    private String postUrl;
+
+    private AHttpEntityConsumer<BenchmarkPayload> payloadConsumer;
+
+    private AHttpEntityProducer payloadProducer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        messageConverter = new JacksonMessageConverter();
+        payload = BenchmarkPayload.ofSize(payloadSize);
+        payloadMessage = messageConverter.getMessageFrom(payload);
+
+        server = new BenchmarkHttpServer(
+                payloadMessage.getBytes(StandardCharsets.UTF_8), 64);
+        server.start();
+        payloadUrl = server.url("/payload");
+        postUrl = server.url("/post");
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setMaxTotalConnections(64);
+        config.setMaxConnectionsPerRoute(64);
+        config.setRegisterShutdownHook(false);
+        clientPool = AHttpClientPool.create(config);
+        getRequest = new AHttpGetRequest(clientPool);
+        postRequest = new AHttpPostRequest(clientPool);
+
+        payloadConsumer = (content, encoding) -> {
+            try {
+                return messageConverter.getObjectFromMessage(content,
+                        encoding, BenchmarkPayload.class);
+            } catch (Exception e) {
+                throw new AHttpClientCallException(e.getMessage(), e);
+            }
+        };
+        payloadProducer = (out, encoding) -> {
+            try {
+                messageConverter.writeMessageTo(payload, out, encoding);
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientPool.shutdown();
+        server.stop();
+    }
+
+    @Benchmark
+    public AHttpClientResponse getBuffered() throws AHttpClientCallException {
+        return getRequest.executeGet(payloadUrl, ENCODING, CONNECT_TIMEOUT,
+                null, false);
+    }
+
+    @Benchmark
+    public SClientResponse<BenchmarkPayload> getStreamed()
+            throws AHttpClientCallException {
+        return getRequest.executeGet(payloadUrl, ENCODING, CONNECT_TIMEOUT,
+                null, false, payloadConsumer);
+    }
+
+    @Benchmark
+    public AHttpClientResponse postBuffered() throws AHttpClientCallException {
+        return postRequest.executePost(postUrl, payloadMessage, ENCODING,
+                CONNECT_TIMEOUT, null, false);
+    }
+
+    @Benchmark
+    public SClientResponse<Long> postStreamed()
+            throws AHttpClientCallException {
+        return postRequest.executePost(postUrl, payloadProducer, ENCODING,
+                CONNECT_TIMEOUT, null, false, DISCARDING_CONSUMER);
+    }
+
+    /** Runs the request benchmarks on a single thread */
+    @Threads(1)
+    public static class SingleThreaded extends HttpRequestBenchmark {
+    }
+
+    /** Runs the request benchmarks on 8 concurrent threads */
+    @Threads(8)
+    public static class EightThreads extends HttpRequestBenchmark {
+    }
+
+    /** Runs the request benchmarks on 32 concurrent threads */
+    @Threads(32)
+    public static class ThirtyTwoThreads extends HttpRequestBenchmark {
+    }
+}
@@ -0,0 +1,105 @@
+package com.shc.ahttp.client.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.messageconverter.AfterburnerMessageConverter;
+import com.shc.ahttp.client.messageconverter.DslJsonMessageConverter;
+import com.shc.ahttp.client.messageconverter.JacksonMessageConverter;
+import com.shc.ahttp.client.messageconverter.MessageConverter;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * Measures the encoding and decoding of a {@link BenchmarkPayload} by the
+ * JSON converters, the plain {@link JacksonMessageConverter}, the
+ * {@link AfterburnerMessageConverter} and the {@link DslJsonMessageConverter},
+ * both to and from a String and directly to and from a stream.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+    private static final String ENCODING = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
+
+    /** The approximate size in bytes of the serialized payload */
+    @Param({ "128", "16384", "1048576" })
+    public int payloadSize;
+
+    /** The JSON converter measured */
+    @Param({ "jackson", "afterburner", "dslJson" })
+    public String converter;
+
+    private MessageConverter messageConverter;
+
+    private BenchmarkPayload payload;
+
+    private String message;
+
+    private byte[] messageBytes;
+
+    @Setup
+    public void setUp() throws SClientException {
+        messageConverter = createConverter(converter);
+        payload = BenchmarkPayload.ofSize(payloadSize);
+        message = messageConverter.getMessageFrom(payload);
+        messageBytes = message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String encodeToString() throws SClientException {
+        return messageConverter.getMessageFrom(payload);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encodeToStream() throws SClientException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                messageBytes.length);
+        messageConverter.writeMessageTo(payload, out, ENCODING);
+        return out;
+    }
+
+    @Benchmark
+    public BenchmarkPayload decodeFromString() throws SClientException {
+        return messageConverter.getObjectFromMessage(message,
+                BenchmarkPayload.class);
+    }
+
+    @Benchmark
+    public BenchmarkPayload decodeFromStream() throws SClientException {
+        return messageConverter.getObjectFromMessage(new ByteArrayInputStream(
+                messageBytes), ENCODING, BenchmarkPayload.class);
+    }
+
+    private static MessageConverter createConverter(String name) {
+        switch (name) {
+        case "afterburner":
+            return new AfterburnerMessageConverter();
+        case "dslJson":
+            return new DslJsonMessageConverter();
+        default:
+            return new JacksonMessageConverter();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the JMH benchmarks of the request/response hot path, which are run against the embedded {@link com.shc.ahttp.client.benchmark.BenchmarkHttpServer} so that no network is involved
+ */
+package com.shc.ahttp.client.benchmark;
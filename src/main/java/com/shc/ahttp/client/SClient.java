@@ -0,0 +1,2023 @@
+package com.shc.ahttp.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.ContentType;
+
+import com.shc.ahttp.client.auth.AHttpAuthProvider;
+import com.shc.ahttp.client.cache.SRequestCoalescer;
+import com.shc.ahttp.client.cache.SResponseCache;
+import com.shc.ahttp.client.encoding.AHttpRequestCompression;
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.executor.SCallExecutor;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.messageconverter.JacksonMessageConverter;
+import com.shc.ahttp.client.messageconverter.MessageConverter;
+import com.shc.ahttp.client.messageconverter.MessageConverterRegistry;
+import com.shc.ahttp.client.messageconverter.NdjsonMessageConverter;
+import com.shc.ahttp.client.metrics.AHttpClientMetrics;
+import com.shc.ahttp.client.pool.AHttpBufferPool;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.request.AHttpEntityConsumer;
+import com.shc.ahttp.client.request.AHttpEntityProducer;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.request.AHttpPostRequest;
+import com.shc.ahttp.client.response.AHttpStreamedResponse;
+import com.shc.ahttp.client.response.SClientResponse;
+
+/**
+ * An immutable, thread safe simple client, which holds the configuration
+ * shared by all the calls made to a service, such as the base url, basic auth
+ * credentials, default headers, timeouts and the {@link MessageConverter}.
+ * Everything specific to a single call, such as the url, the request object
+ * and the response class, is passed per call, so one {@link SClient} can be
+ * built once and used concurrently by any number of threads. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://httpbin.org&quot;)
+ *         .basicAuth(&quot;username&quot;, &quot;password&quot;).connectTimeout(5000).build();
+ *
+ * SClientResponse&lt;HttpBinGetResponse&gt; getResponse = sClient.get(&quot;/get&quot;,
+ *         HttpBinGetResponse.class);
+ * SClientResponse&lt;HttpBinPostResponse&gt; postResponse = sClient.post(&quot;/post&quot;,
+ *         postRequest, HttpBinPostResponse.class);
+ * </pre>
+ *
+ * Request objects are written and response bodies are parsed by the
+ * {@link MessageConverter} straight from and to the connection, unless
+ * {@link Builder#bufferRequestBody(boolean)} or
+ * {@link Builder#bufferResponseBody(boolean)} is set. <br/>
+ * <br/>
+ *
+ * Every call also has an asynchronous variant, such as
+ * {@link #getAsync(String, Class)}, which returns a {@link CompletableFuture}
+ * and is executed by the non blocking client of the {@link AHttpClientPool},
+ * so a few I/O threads can carry thousands of requests in flight. <br/>
+ * <br/>
+ *
+ * The simple client uses {@link AHttpGetRequest} and {@link AHttpPostRequest}
+ * to make the requests.
+ *
+ * @see Builder
+ * @see MessageConverter
+ * @see JacksonMessageConverter
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class SClient {
+
+    /**
+     * The base url against which the relative urls passed per call are
+     * resolved, may be null
+     */
+    private final String baseUrl;
+
+    /** The username to be used for basic auth */
+    private final String username;
+
+    /** The password to be used for basic auth */
+    private final String password;
+
+    /**
+     * Whether basic auth is used, true if credentials were set on the
+     * {@link Builder}
+     */
+    private final boolean basicAuthRequired;
+
+    /**
+     * The encoding of the request object to be posted and the expected
+     * encoding of response for ex UTF-8
+     */
+    private final String encoding;
+
+    /**
+     * An unmodifiable {@link Map<String, String>} of headers to be included in
+     * every request
+     */
+    private final Map<String, String> headers;
+
+    /**
+     * An unmodifiable, case insensitive {@link Map<String, String>} of the
+     * {@link #headers} over the Content-Type and Accept headers negotiating
+     * the media type of the {@link #messageConverter}, on which the per call
+     * headers are merged
+     */
+    private final Map<String, String> defaultHeaders;
+
+    /** The connect timeout in milliseconds to be used */
+    private final int connectTimeout;
+
+    /**
+     * A boolean value indicating whether to return the response headers also as
+     * part of the response object
+     */
+    private final boolean includeResponseHeaders;
+
+    /** The message converter used to convert the request and response */
+    private final MessageConverter messageConverter;
+
+    /**
+     * The registry picking the converter of a response whose Content-Type
+     * the {@link #messageConverter} does not read
+     */
+    private final MessageConverterRegistry converterRegistry;
+
+    /**
+     * Whether the response body is read into a String before being parsed,
+     * instead of being parsed straight from the connection, never set for a
+     * binary {@link #messageConverter}
+     */
+    private final boolean bufferResponseBody;
+
+    /**
+     * Whether the request object is serialized into a String before being
+     * sent, instead of being written straight to the connection, never set
+     * for a binary {@link #messageConverter}
+     */
+    private final boolean bufferRequestBody;
+
+    /**
+     * The executor on which the responses of asynchronous calls are converted,
+     * if null they are converted on the I/O dispatch thread
+     */
+    private final Executor asyncExecutor;
+
+    /**
+     * The cache of parsed get responses, if null every get is sent to the
+     * server
+     */
+    private final SResponseCache responseCache;
+
+    /**
+     * The coalescer sharing the result of a get with identical concurrent
+     * gets, if null every get is sent on its own
+     */
+    private final SRequestCoalescer requestCoalescer;
+
+    /**
+     * The executor running the asynchronous calls as blocking calls, and
+     * bounding the calls in flight to each route, if null the asynchronous
+     * calls are executed by the non blocking client
+     */
+    private final SCallExecutor callExecutor;
+
+    /** The shared, stateless get request used for all the get calls */
+    private final AHttpGetRequest aHttpGetRequest;
+
+    /** The shared, stateless post request used for all the post calls */
+    private final AHttpPostRequest aHttpPostRequest;
+
+    /**
+     * The entity consumer reading the whole response body into a String
+     * through the {@link AHttpBufferPool} of the client pool, used when
+     * {@link #bufferResponseBody} is set
+     */
+    private final AHttpEntityConsumer<String> bufferingEntityConsumer;
+
+    /**
+     * The target host the deserialization times were last recorded against,
+     * so that the urls of the same host are not parsed for every response
+     */
+    private volatile MetricsRoute metricsRoute;
+
+    /**
+     * Instantiates a new {@link SClient} from the given {@link Builder}
+     *
+     * @param builder
+     *            the {@link Builder} holding the client configuration
+     */
+    private SClient(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.basicAuthRequired = builder.basicAuthRequired;
+        this.encoding = builder.encoding;
+        this.headers = Collections.unmodifiableMap(new HashMap<String, String>(
+                builder.headers));
+        this.connectTimeout = builder.connectTimeout;
+        this.includeResponseHeaders = builder.includeResponseHeaders;
+        this.converterRegistry = builder.converterRegistry != null ? builder.converterRegistry
+                : MessageConverterRegistry.getDefault();
+        this.messageConverter = builder.messageConverter != null ? builder.messageConverter
+                : converterRegistry.getDefaultConverter();
+        this.defaultHeaders = negotiateHeaders(messageConverter, headers);
+        // binary messages have no String form to be buffered into
+        this.bufferResponseBody = builder.bufferResponseBody
+                && !messageConverter.isBinary();
+        this.bufferRequestBody = builder.bufferRequestBody
+                && !messageConverter.isBinary();
+        this.asyncExecutor = builder.asyncExecutor;
+        this.responseCache = builder.responseCache;
+        this.requestCoalescer = builder.requestCoalescer;
+        this.callExecutor = builder.callExecutor;
+        AHttpClientPool clientPool = builder.clientPool != null ? builder.clientPool
+                : AHttpClientPool.getDefault();
+        this.aHttpGetRequest = new AHttpGetRequest(clientPool);
+        this.aHttpPostRequest = new AHttpPostRequest(clientPool,
+                builder.requestCompression);
+        this.aHttpGetRequest.setAuthProvider(builder.authProvider);
+        this.aHttpPostRequest.setAuthProvider(builder.authProvider);
+        this.bufferingEntityConsumer = this::readString;
+    }
+
+    /**
+     * Creates a new {@link Builder} to configure a {@link SClient}
+     *
+     * @return the new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a new {@link Builder} pre populated with the configuration of
+     * this client, which can be used to derive a slightly different client.
+     *
+     * @return the new {@link Builder}
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder().baseUrl(baseUrl).encoding(encoding)
+                .headers(headers).connectTimeout(connectTimeout)
+                .includeResponseHeaders(includeResponseHeaders)
+                .messageConverter(messageConverter)
+                .converterRegistry(converterRegistry)
+                .clientPool(aHttpGetRequest.getClientPool())
+                .bufferResponseBody(bufferResponseBody)
+                .bufferRequestBody(bufferRequestBody)
+                .asyncExecutor(asyncExecutor)
+                .responseCache(responseCache)
+                .requestCoalescer(requestCoalescer)
+                .requestCompression(aHttpPostRequest.getRequestCompression())
+                .authProvider(aHttpGetRequest.getAuthProvider())
+                .callExecutor(callExecutor);
+        if (basicAuthRequired) {
+            builder.basicAuth(username, password);
+        }
+        return builder;
+    }
+
+    /**
+     * Executes a get request to the given url and parses the response into
+     * the given response class
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     */
+    public <RES> SClientResponse<RES> get(String url, Class<RES> responseClass)
+            throws SClientException {
+        return get(url, responseClass, null);
+    }
+
+    /**
+     * Executes a get request to the given url and parses the response into
+     * the given response class
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     */
+    public <RES> SClientResponse<RES> get(String url, Class<RES> responseClass,
+            Map<String, String> requestHeaders) throws SClientException {
+        final String requestUrl = resolveUrl(url);
+        final Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        if (requestCoalescer != null) {
+            return requestCoalescer.execute(HttpGet.METHOD_NAME, requestUrl,
+                    mergedHeaders, basicAuthRequired ? username : null,
+                    basicAuthRequired ? password : null,
+                    basicAuthRequired ? null : getAuthProvider(), responseClass,
+                    () -> get(requestUrl, mergedHeaders, responseClass));
+        }
+        return get(requestUrl, mergedHeaders, responseClass);
+    }
+
+    /**
+     * Executes a get request to the given full url, holding a permit of the
+     * {@link #callExecutor} for its route if one is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param mergedHeaders
+     *            the headers to be included in the request
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    private <RES> SClientResponse<RES> get(final String requestUrl,
+            final Map<String, String> mergedHeaders,
+            final Class<RES> responseClass) throws SClientException {
+        if (callExecutor != null) {
+            return callExecutor.execute(requestUrl,
+                    () -> fetch(requestUrl, mergedHeaders, responseClass));
+        }
+        return fetch(requestUrl, mergedHeaders, responseClass);
+    }
+
+    /**
+     * Executes a get request to the given full url, answering it from the
+     * {@link #responseCache} if one is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param mergedHeaders
+     *            the headers to be included in the request
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    private <RES> SClientResponse<RES> fetch(String requestUrl,
+            Map<String, String> mergedHeaders, Class<RES> responseClass)
+            throws SClientException {
+        try {
+            if (responseCache != null) {
+                return getCached(requestUrl, mergedHeaders, responseClass);
+            }
+            return executeGet(requestUrl, mergedHeaders, responseClass,
+                    includeResponseHeaders);
+        } catch (AHttpClientCallException clientCallException) {
+            throw toClientException(clientCallException);
+        }
+    }
+
+    /**
+     * Executes a get request to the given url and streams the elements of the
+     * response, such as a JSON array, as they are parsed from the connection
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param elementClass
+     *            the class in which each element of the response should be
+     *            constructed into
+     *
+     * @return the {@link Stream} of the elements, which must be closed *
+     *         @throws SClientException During the client call if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     * @see #getStream(String, Class, Map)
+     */
+    public <T> Stream<T> getStream(String url, Class<T> elementClass)
+            throws SClientException {
+        return getStream(url, elementClass, null);
+    }
+
+    /**
+     * Executes a get request to the given url and streams the elements of the
+     * response, such as a JSON array, as they are parsed from the connection.
+     * An element is only read from the connection when the returned
+     * {@link Stream} asks for it, so however large the response is, only the
+     * element being consumed is held in memory and a slow consumer holds back
+     * the server through TCP flow control. <br/>
+     * <br/>
+     *
+     * The returned {@link Stream} holds the connection until it is closed,
+     * which is best done with a try-with-resources block. Closing it before
+     * all the elements are read aborts the connection. A failure to read or
+     * parse an element is thrown by the {@link Stream} as an
+     * {@link java.io.UncheckedIOException}. The {@link #responseCache},
+     * {@link #requestCoalescer} and {@link #callExecutor} do not apply to
+     * streamed gets.
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param elementClass
+     *            the class in which each element of the response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}
+     *
+     * @return the sequential {@link Stream} of the elements, which must be
+     *         closed * @throws SClientException During the client call if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    public <T> Stream<T> getStream(String url, Class<T> elementClass,
+            Map<String, String> requestHeaders) throws SClientException {
+        String requestUrl = resolveUrl(url);
+        Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        final AHttpStreamedResponse streamedResponse;
+        try {
+            if (basicAuthRequired) {
+                streamedResponse = aHttpGetRequest.executeGetStream(requestUrl,
+                        encoding, username, password, connectTimeout,
+                        mergedHeaders, false);
+            } else {
+                streamedResponse = aHttpGetRequest.executeGetStream(requestUrl,
+                        encoding, connectTimeout, mergedHeaders, false);
+            }
+        } catch (AHttpClientCallException clientCallException) {
+            throw toClientException(clientCallException);
+        }
+        try {
+            return responseConverter(streamedResponse.getContentType(),
+                    elementClass, false).getObjectsFromMessage(
+                    streamedResponse.getContent(),
+                    streamedResponse.getEncoding(), elementClass).onClose(
+                    streamedResponse::close);
+        } catch (SClientException | RuntimeException e) {
+            streamedResponse.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Posts the given request object to the given url and parses the response
+     * into the given response class
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param request
+     *            the request object to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     */
+    public <REQ, RES> SClientResponse<RES> post(String url, REQ request,
+            Class<RES> responseClass) throws SClientException {
+        return post(url, request, responseClass, null);
+    }
+
+    /**
+     * Posts the given request object to the given url and parses the response
+     * into the given response class
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param request
+     *            the request object to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     */
+    public <REQ, RES> SClientResponse<RES> post(String url, final REQ request,
+            final Class<RES> responseClass, Map<String, String> requestHeaders)
+            throws SClientException {
+        final String requestUrl = resolveUrl(url);
+        final Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        if (callExecutor != null) {
+            return callExecutor.execute(requestUrl,
+                    () -> post(requestUrl, mergedHeaders, request, responseClass));
+        }
+        return post(requestUrl, mergedHeaders, request, responseClass);
+    }
+
+    /**
+     * Posts the request objects taken from the given iterator to the given url
+     * and parses the response into the given response class
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param requests
+     *            the iterator of the request objects to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     * @see #postStream(String, Iterator, Class, Map)
+     */
+    public <REQ, RES> SClientResponse<RES> postStream(String url,
+            Iterator<? extends REQ> requests, Class<RES> responseClass)
+            throws SClientException {
+        return postStream(url, requests, responseClass, null);
+    }
+
+    /**
+     * Posts the request objects taken from the given iterator to the given url
+     * as a single message holding a sequence of objects, such as a JSON array,
+     * or one line per object with a {@link NdjsonMessageConverter}. The
+     * objects are taken from the iterator and written straight to the
+     * connection one at a time using chunked transfer encoding, so a batch of
+     * any size is sent through constant memory. The request body is always
+     * streamed, whatever {@link #bufferRequestBody} is, and as the iterator
+     * can only be read once the request is never retried.
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param requests
+     *            the iterator of the request objects to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}, for
+     *            ex the Content-Type of the sequence
+     *
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     */
+    public <REQ, RES> SClientResponse<RES> postStream(String url,
+            Iterator<? extends REQ> requests, final Class<RES> responseClass,
+            Map<String, String> requestHeaders) throws SClientException {
+        final String requestUrl = resolveUrl(url);
+        final Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        final AHttpEntityProducer requestProducer = sequenceProducer(requests);
+        if (callExecutor != null) {
+            return callExecutor.execute(requestUrl, () -> post(requestUrl,
+                    mergedHeaders, requestProducer, responseClass));
+        }
+        return post(requestUrl, mergedHeaders, requestProducer, responseClass);
+    }
+
+    /**
+     * Posts the given request object to the given full url and parses the
+     * response into the given response class
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param mergedHeaders
+     *            the headers to be included in the request
+     * @param request
+     *            the request object to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    private <REQ, RES> SClientResponse<RES> post(String requestUrl,
+            Map<String, String> mergedHeaders, REQ request,
+            Class<RES> responseClass) throws SClientException {
+        try {
+            if (bufferResponseBody) {
+                return toClientResponse(executePost(requestUrl, request,
+                        mergedHeaders, bufferingEntityConsumer),
+                        responseClass, requestUrl);
+            }
+            return executePost(requestUrl, request, mergedHeaders,
+                    entityConsumer(responseClass));
+        } catch (AHttpClientCallException clientCallException) {
+            throw toClientException(clientCallException);
+        }
+    }
+
+    /**
+     * Posts the request body written by the given producer to the given full
+     * url and parses the response into the given response class
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param mergedHeaders
+     *            the headers to be included in the request
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the request body
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    private <RES> SClientResponse<RES> post(String requestUrl,
+            Map<String, String> mergedHeaders,
+            AHttpEntityProducer requestProducer, Class<RES> responseClass)
+            throws SClientException {
+        try {
+            if (bufferResponseBody) {
+                return toClientResponse(executePost(requestUrl,
+                        requestProducer, mergedHeaders,
+                        bufferingEntityConsumer), responseClass, requestUrl);
+            }
+            return executePost(requestUrl, requestProducer, mergedHeaders,
+                    entityConsumer(responseClass));
+        } catch (AHttpClientCallException clientCallException) {
+            throw toClientException(clientCallException);
+        }
+    }
+
+    /**
+     * Executes a get request to the given url asynchronously and parses the
+     * response into the given response class, without blocking the calling
+     * thread
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return a {@link CompletableFuture} of the {@link SClientResponse},
+     *         completed exceptionally with a {@link SClientException} if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    public <RES> CompletableFuture<SClientResponse<RES>> getAsync(String url,
+            Class<RES> responseClass) {
+        return getAsync(url, responseClass, null);
+    }
+
+    /**
+     * Executes a get request to the given url asynchronously and parses the
+     * response into the given response class, without blocking the calling
+     * thread
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}
+     *
+     * @return a {@link CompletableFuture} of the {@link SClientResponse},
+     *         completed exceptionally with a {@link SClientException} if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    public <RES> CompletableFuture<SClientResponse<RES>> getAsync(
+            final String url, final Class<RES> responseClass,
+            final Map<String, String> requestHeaders) {
+        if (callExecutor != null) {
+            return callExecutor.submit(() -> get(url, responseClass,
+                    requestHeaders));
+        }
+        String requestUrl = resolveUrl(url);
+        Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        if (bufferResponseBody) {
+            return toClientResponseAsync(executeGetAsync(requestUrl,
+                    mergedHeaders, bufferingEntityConsumer), responseClass,
+                    requestUrl);
+        }
+        return toClientFuture(executeGetAsync(requestUrl, mergedHeaders,
+                entityConsumer(responseClass)));
+    }
+
+    /**
+     * Posts the given request object to the given url asynchronously and
+     * parses the response into the given response class. The request object
+     * is serialized to a String on the calling thread, as the non blocking
+     * client buffers the request body anyway, the calling thread is not
+     * blocked by the request itself.
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param request
+     *            the request object to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return a {@link CompletableFuture} of the {@link SClientResponse},
+     *         completed exceptionally with a {@link SClientException} if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    public <REQ, RES> CompletableFuture<SClientResponse<RES>> postAsync(
+            String url, REQ request, Class<RES> responseClass) {
+        return postAsync(url, request, responseClass, null);
+    }
+
+    /**
+     * Posts the given request object to the given url asynchronously and
+     * parses the response into the given response class. The request object
+     * is serialized to a String on the calling thread, as the non blocking
+     * client buffers the request body anyway, the calling thread is not
+     * blocked by the request itself.
+     *
+     * @param url
+     *            the full url, or the url relative to the {@link #baseUrl},
+     *            to which the request has to be sent
+     * @param request
+     *            the request object to be posted
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestHeaders
+     *            A {@link Map<String, String>} of headers to be included in
+     *            this request, in addition to the client {@link #headers}
+     *
+     * @return a {@link CompletableFuture} of the {@link SClientResponse},
+     *         completed exceptionally with a {@link SClientException} if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     */
+    public <REQ, RES> CompletableFuture<SClientResponse<RES>> postAsync(
+            final String url, final REQ request,
+            final Class<RES> responseClass,
+            final Map<String, String> requestHeaders) {
+        if (callExecutor != null) {
+            return callExecutor.submit(() -> post(url, request, responseClass,
+                    requestHeaders));
+        }
+        String requestUrl = resolveUrl(url);
+        Map<String, String> mergedHeaders = mergeHeaders(requestHeaders);
+        if (messageConverter.isBinary()) {
+            return toClientFuture(executePostAsync(requestUrl,
+                    entityProducer(request), mergedHeaders,
+                    entityConsumer(responseClass)));
+        }
+        String requestString;
+        try {
+            requestString = messageConverter.getMessageFrom(request);
+        } catch (SClientException e) {
+            CompletableFuture<SClientResponse<RES>> failedFuture = new CompletableFuture<SClientResponse<RES>>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+        if (bufferResponseBody) {
+            return toClientResponseAsync(executePostAsync(requestUrl,
+                    requestString, mergedHeaders, bufferingEntityConsumer),
+                    responseClass, requestUrl);
+        }
+        return toClientFuture(executePostAsync(requestUrl, requestString,
+                mergedHeaders, entityConsumer(responseClass)));
+    }
+
+    /**
+     * Executes a get request with the client configuration, handing the
+     * response body to the given {@link AHttpEntityConsumer}
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param includeHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the {@link SClientResponse} holding the consumed body * @throws
+     *         AHttpClientCallException if any exception has occurred or the
+     *         response code is not between 100 - 399
+     */
+    private <T> SClientResponse<T> executeGet(String requestUrl,
+            Map<String, String> requestHeaders, boolean includeHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        if (basicAuthRequired) {
+            return aHttpGetRequest.executeGet(requestUrl, encoding, username,
+                    password, connectTimeout, requestHeaders, includeHeaders,
+                    entityConsumer);
+        }
+        return aHttpGetRequest.executeGet(requestUrl, encoding,
+                connectTimeout, requestHeaders, includeHeaders, entityConsumer);
+    }
+
+    /**
+     * Executes a get request with the client configuration and parses the
+     * response into the given response class, buffering the body first if
+     * {@link #bufferResponseBody} is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param includeHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     *
+     * @return the {@link SClientResponse} * @throws AHttpClientCallException
+     *         if any exception has occurred or the response code is not
+     *         between 100 - 399 * @throws SClientException if the buffered
+     *         body could not be parsed
+     */
+    private <RES> SClientResponse<RES> executeGet(String requestUrl,
+            Map<String, String> requestHeaders, Class<RES> responseClass,
+            boolean includeHeaders) throws AHttpClientCallException,
+            SClientException {
+        if (bufferResponseBody) {
+            return toClientResponse(executeGet(requestUrl, requestHeaders,
+                    includeHeaders, bufferingEntityConsumer), responseClass,
+                    requestUrl);
+        }
+        return executeGet(requestUrl, requestHeaders, includeHeaders,
+                entityConsumer(responseClass));
+    }
+
+    /**
+     * Answers a get request from the {@link #responseCache}. A fresh cached
+     * response is returned without sending the request, a stale one is
+     * revalidated with a conditional request and returned if the server
+     * replies with a 304, otherwise the new response is parsed and stored.
+     * The response headers are always requested, as the cache needs them.
+     * Responses are cached under the basic auth credentials of the client, so
+     * that a cache shared with clients of other users never mixes them up.
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the cached or new {@link SClientResponse} * @throws
+     *         AHttpClientCallException if any exception has occurred or the
+     *         response code is not between 100 - 399 * @throws
+     *         SClientException if the body could not be parsed
+     */
+    private <RES> SClientResponse<RES> getCached(String requestUrl,
+            Map<String, String> requestHeaders, Class<RES> responseClass)
+            throws AHttpClientCallException, SClientException {
+        String username = basicAuthRequired ? this.username : null;
+        String password = basicAuthRequired ? this.password : null;
+        AHttpAuthProvider authProvider = basicAuthRequired ? null
+                : getAuthProvider();
+        SResponseCache.Entry<RES> entry = responseCache.getEntry(requestUrl,
+                responseClass, requestHeaders, username, password,
+                authProvider);
+        if (entry != null && entry.isFresh()) {
+            return entry.getResponse();
+        }
+        Map<String, String> conditionalHeaders = entry != null ? entry
+                .getConditionalHeaders(requestHeaders) : requestHeaders;
+        SClientResponse<RES> response = executeGet(requestUrl,
+                conditionalHeaders, responseClass, true);
+        if (entry != null
+                && response.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            return responseCache.revalidated(entry,
+                    response.getResponseHeaders()).getResponse();
+        }
+        responseCache.put(requestUrl, responseClass, requestHeaders, username,
+                password, authProvider, response);
+        return response;
+    }
+
+    /**
+     * Executes a post request with the client configuration, writing the
+     * request object with the {@link #messageConverter} straight to the
+     * connection, unless {@link #bufferRequestBody} is set, and handing the
+     * response body to the given {@link AHttpEntityConsumer}
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param request
+     *            the request object to be posted
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the {@link SClientResponse} holding the consumed body * @throws
+     *         AHttpClientCallException if any exception has occurred or the
+     *         response code is not between 100 - 399 * @throws
+     *         SClientException if the request object could not be serialized
+     */
+    private <REQ, T> SClientResponse<T> executePost(String requestUrl,
+            REQ request, Map<String, String> requestHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException, SClientException {
+        if (bufferRequestBody) {
+            String requestString = messageConverter.getMessageFrom(request);
+            if (basicAuthRequired) {
+                return aHttpPostRequest.executePost(requestUrl, requestString,
+                        encoding, username, password, connectTimeout,
+                        requestHeaders, includeResponseHeaders,
+                        entityConsumer);
+            }
+            return aHttpPostRequest.executePost(requestUrl, requestString,
+                    encoding, connectTimeout, requestHeaders,
+                    includeResponseHeaders, entityConsumer);
+        }
+        return executePost(requestUrl, entityProducer(request),
+                requestHeaders, entityConsumer);
+    }
+
+    /**
+     * Executes a post request with the client configuration, whose body is
+     * written straight to the connection by the given
+     * {@link AHttpEntityProducer}, handing the response body to the given
+     * {@link AHttpEntityConsumer}
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the request body
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the {@link SClientResponse} holding the consumed body * @throws
+     *         AHttpClientCallException if any exception has occurred or the
+     *         response code is not between 100 - 399
+     */
+    private <T> SClientResponse<T> executePost(String requestUrl,
+            AHttpEntityProducer requestProducer,
+            Map<String, String> requestHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        if (basicAuthRequired) {
+            return aHttpPostRequest.executePost(requestUrl, requestProducer,
+                    encoding, username, password, connectTimeout,
+                    requestHeaders, includeResponseHeaders, entityConsumer);
+        }
+        return aHttpPostRequest.executePost(requestUrl, requestProducer,
+                encoding, connectTimeout, requestHeaders,
+                includeResponseHeaders, entityConsumer);
+    }
+
+    /**
+     * Executes a get request asynchronously with the client configuration,
+     * handing the response body to the given {@link AHttpEntityConsumer} on
+     * the {@link #asyncExecutor} if one is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the future {@link SClientResponse} holding the consumed body
+     */
+    private <T> CompletableFuture<SClientResponse<T>> executeGetAsync(
+            String requestUrl, Map<String, String> requestHeaders,
+            AHttpEntityConsumer<T> entityConsumer) {
+        if (basicAuthRequired) {
+            return aHttpGetRequest.executeGetAsync(requestUrl, encoding,
+                    username, password, connectTimeout, requestHeaders,
+                    includeResponseHeaders, entityConsumer, asyncExecutor);
+        }
+        return aHttpGetRequest.executeGetAsync(requestUrl, encoding,
+                connectTimeout, requestHeaders, includeResponseHeaders,
+                entityConsumer, asyncExecutor);
+    }
+
+    /**
+     * Executes a post request asynchronously with the client configuration,
+     * handing the response body to the given {@link AHttpEntityConsumer} on
+     * the {@link #asyncExecutor} if one is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestString
+     *            the serialized request object to be posted
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the future {@link SClientResponse} holding the consumed body
+     */
+    private <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String requestUrl, String requestString,
+            Map<String, String> requestHeaders,
+            AHttpEntityConsumer<T> entityConsumer) {
+        if (basicAuthRequired) {
+            return aHttpPostRequest.executePostAsync(requestUrl,
+                    requestString, encoding, username, password,
+                    connectTimeout, requestHeaders, includeResponseHeaders,
+                    entityConsumer, asyncExecutor);
+        }
+        return aHttpPostRequest.executePostAsync(requestUrl, requestString,
+                encoding, connectTimeout, requestHeaders,
+                includeResponseHeaders, entityConsumer, asyncExecutor);
+    }
+
+    /**
+     * Executes a post request asynchronously with the client configuration,
+     * whose body is written by the given {@link AHttpEntityProducer}, handing
+     * the response body to the given {@link AHttpEntityConsumer} on the
+     * {@link #asyncExecutor} if one is set
+     *
+     * @param requestUrl
+     *            the full url to which the request has to be sent
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the request body
+     * @param requestHeaders
+     *            the headers to be included in the request
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     *
+     * @return the future {@link SClientResponse} holding the consumed body
+     */
+    private <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String requestUrl, AHttpEntityProducer requestProducer,
+            Map<String, String> requestHeaders,
+            AHttpEntityConsumer<T> entityConsumer) {
+        if (basicAuthRequired) {
+            return aHttpPostRequest.executePostAsync(requestUrl,
+                    requestProducer, encoding, username, password,
+                    connectTimeout, requestHeaders, includeResponseHeaders,
+                    entityConsumer, asyncExecutor);
+        }
+        return aHttpPostRequest.executePostAsync(requestUrl, requestProducer,
+                encoding, connectTimeout, requestHeaders,
+                includeResponseHeaders, entityConsumer, asyncExecutor);
+    }
+
+    /**
+     * Converts the future buffered response into a future
+     * {@link SClientResponse}, parsing the body on the thread completing the
+     * given future, which is the {@link #asyncExecutor} if one is set. Any
+     * {@link AHttpClientCallException} is converted into a
+     * {@link SClientException} as done by the blocking calls.
+     *
+     * @param responseFuture
+     *            the future response of the HTTP call, holding the body as a
+     *            String
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestUrl
+     *            the full url the request was sent to
+     *
+     * @return the future {@link SClientResponse}
+     */
+    private <RES> CompletableFuture<SClientResponse<RES>> toClientResponseAsync(
+            CompletableFuture<SClientResponse<String>> responseFuture,
+            final Class<RES> responseClass, final String requestUrl) {
+        final CompletableFuture<SClientResponse<RES>> clientResponseFuture = new CompletableFuture<SClientResponse<RES>>();
+        responseFuture.whenComplete((bufferedResponse, failure) -> {
+            if (failure != null) {
+                clientResponseFuture.completeExceptionally(toClientException(failure));
+                return;
+            }
+            try {
+                clientResponseFuture.complete(toClientResponse(
+                        bufferedResponse, responseClass, requestUrl));
+            } catch (SClientException | RuntimeException e) {
+                clientResponseFuture.completeExceptionally(e);
+            }
+        });
+        clientResponseFuture.whenComplete((response, failure) -> {
+            if (clientResponseFuture.isCancelled()) {
+                responseFuture.cancel(true);
+            }
+        });
+        return clientResponseFuture;
+    }
+
+    /**
+     * Converts the failure of the given future, if any, into a
+     * {@link SClientException} as done by the blocking calls. Cancelling the
+     * returned future cancels the given one.
+     *
+     * @param responseFuture
+     *            the future response of the HTTP call
+     *
+     * @return the future {@link SClientResponse}
+     */
+    private <RES> CompletableFuture<SClientResponse<RES>> toClientFuture(
+            CompletableFuture<SClientResponse<RES>> responseFuture) {
+        final CompletableFuture<SClientResponse<RES>> clientResponseFuture = new CompletableFuture<SClientResponse<RES>>();
+        responseFuture.whenComplete((response, failure) -> {
+            if (failure != null) {
+                clientResponseFuture.completeExceptionally(toClientException(failure));
+            } else {
+                clientResponseFuture.complete(response);
+            }
+        });
+        clientResponseFuture.whenComplete((response, failure) -> {
+            if (clientResponseFuture.isCancelled()) {
+                responseFuture.cancel(true);
+            }
+        });
+        return clientResponseFuture;
+    }
+
+    /**
+     * Creates an {@link AHttpEntityConsumer} parsing the response body into
+     * the given response class straight from the connection, using the
+     * {@link #messageConverter}
+     *
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     *
+     * @return the {@link AHttpEntityConsumer}
+     */
+    private <RES> AHttpEntityConsumer<RES> entityConsumer(
+            final Class<RES> responseClass) {
+        return new AHttpEntityConsumer<RES>() {
+            @Override
+            public RES consume(InputStream content, String contentEncoding)
+                    throws AHttpClientCallException {
+                return consume(content, contentEncoding, null);
+            }
+
+            @Override
+            public RES consume(InputStream content, String contentEncoding,
+                    String contentType) throws AHttpClientCallException {
+                try {
+                    return responseConverter(contentType, responseClass, false)
+                            .getObjectFromMessage(content, contentEncoding,
+                                    responseClass);
+                } catch (SClientException e) {
+                    throw new AHttpClientCallException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the converter reading a response of the given Content-Type into
+     * the given class, which is the {@link #messageConverter} unless the
+     * {@link #converterRegistry} has another converter for the Content-Type.
+     * A buffered body is a String, which only a text converter can read.
+     *
+     * @param contentType
+     *            the Content-Type of the response, may be null
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param buffered
+     *            whether the body has been read into a String
+     *
+     * @return the {@link MessageConverter} reading the response
+     */
+    private MessageConverter responseConverter(String contentType,
+            Class<?> responseClass, boolean buffered) {
+        MessageConverter converter = converterRegistry.getConverter(
+                contentType, responseClass, messageConverter);
+        return buffered && converter.isBinary() ? messageConverter : converter;
+    }
+
+    /**
+     * Creates an {@link AHttpEntityProducer} serializing the given request
+     * object straight to the connection, using the {@link #messageConverter}
+     *
+     * @param request
+     *            the request object to be posted
+     *
+     * @return the {@link AHttpEntityProducer}
+     */
+    private <REQ> AHttpEntityProducer entityProducer(final REQ request) {
+        return (out, requestEncoding) -> {
+            try {
+                messageConverter.writeMessageTo(request, out, requestEncoding);
+            } catch (SClientException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * Creates an {@link AHttpEntityProducer} serializing the request objects
+     * taken from the given iterator straight to the connection, using the
+     * {@link #messageConverter}. As the iterator can only be read once, the
+     * producer is not repeatable and fails if asked to write the body again.
+     *
+     * @param requests
+     *            the iterator of the request objects to be posted
+     *
+     * @return the {@link AHttpEntityProducer}
+     */
+    private <REQ> AHttpEntityProducer sequenceProducer(
+            final Iterator<? extends REQ> requests) {
+        final AtomicBoolean produced = new AtomicBoolean();
+        return new AHttpEntityProducer() {
+            @Override
+            public void produce(OutputStream out, String requestEncoding)
+                    throws IOException {
+                if (!produced.compareAndSet(false, true)) {
+                    throw new IOException(
+                            "The request objects of a streamed post can only be written once");
+                }
+                try {
+                    messageConverter.writeMessagesTo(requests, out,
+                            requestEncoding);
+                } catch (SClientException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Converts an {@link AHttpClientCallException} into a
+     * {@link SClientException}, unwrapping the exception of the message
+     * converter if the request or response body could not be converted.
+     *
+     * @param clientCallException
+     *            the {@link AHttpClientCallException} thrown by the call
+     *
+     * @return the {@link SClientException}
+     */
+    private static SClientException toClientException(
+            AHttpClientCallException clientCallException) {
+        for (Throwable cause = clientCallException.getCause(); cause != null; cause = cause
+                .getCause()) {
+            if (cause instanceof SClientException) {
+                return (SClientException) cause;
+            }
+        }
+        return new SClientException(clientCallException.toString(),
+                clientCallException);
+    }
+
+    /**
+     * Converts the failure of an asynchronous HTTP call into the exception the
+     * returned future is completed with.
+     *
+     * @param failure
+     *            the failure of the HTTP call
+     *
+     * @return the {@link SClientException}, or the cancellation itself
+     */
+    private static Throwable toClientException(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException
+                && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof AHttpClientCallException) {
+            return toClientException((AHttpClientCallException) cause);
+        }
+        if (cause instanceof SClientException
+                || cause instanceof CancellationException) {
+            return cause;
+        }
+        return new SClientException(cause.getMessage(), cause);
+    }
+
+    /**
+     * Converts the buffered response into a {@link SClientResponse}, parsing
+     * the response body using the {@link #messageConverter} and recording the
+     * time taken to the {@link AHttpClientMetrics} of the pool
+     *
+     * @param bufferedResponse
+     *            the response received from the server, holding the body as a
+     *            String
+     * @param responseClass
+     *            the response class in which the returned response should be
+     *            constructed into
+     * @param requestUrl
+     *            the full url the request was sent to
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if any
+     *         exception occurred during processing
+     */
+    private <RES> SClientResponse<RES> toClientResponse(
+            SClientResponse<String> bufferedResponse,
+            Class<RES> responseClass, String requestUrl)
+            throws SClientException {
+        String responseBody = bufferedResponse.getResponse();
+        RES response = null;
+        if (bufferedResponse.isBodyPresent()) {
+            AHttpClientMetrics metrics = aHttpGetRequest.getClientPool()
+                    .getMetrics();
+            long startNanos = metrics != AHttpClientMetrics.NOOP ? System
+                    .nanoTime() : 0L;
+            response = responseConverter(bufferedResponse.getContentType(),
+                    responseClass, true).getObjectFromMessage(responseBody,
+                    responseClass);
+            if (metrics != AHttpClientMetrics.NOOP) {
+                recordDeserialization(metrics, requestUrl, System.nanoTime()
+                        - startNanos);
+            }
+        }
+        SClientResponse<RES> clientResponse = new SClientResponse<RES>(
+                responseBody, bufferedResponse.getReasonPhrase(),
+                bufferedResponse.getStatusCode(),
+                bufferedResponse.getResponseHeaders(), response);
+        clientResponse.setBodyPresent(bufferedResponse.isBodyPresent());
+        clientResponse.setContentType(bufferedResponse.getContentType());
+        return clientResponse;
+    }
+
+    /**
+     * Records the time taken to parse a buffered response body to the
+     * {@link AHttpClientMetrics} of the pool. The target host is only parsed
+     * from the url when it differs from the one last recorded against.
+     *
+     * @param metrics
+     *            the {@link AHttpClientMetrics} of the pool, not the NOOP one
+     * @param requestUrl
+     *            the full url the request was sent to
+     * @param nanos
+     *            the deserialization time in nanoseconds
+     */
+    private void recordDeserialization(AHttpClientMetrics metrics,
+            String requestUrl, long nanos) {
+        MetricsRoute route = metricsRoute;
+        if (route == null || !route.matches(requestUrl)) {
+            route = MetricsRoute.of(requestUrl);
+            if (route == null) {
+                return;
+            }
+            metricsRoute = route;
+        }
+        metrics.recordDeserialization(route.host, nanos);
+    }
+
+    /**
+     * Reads the whole of the given stream into a String, through a buffer
+     * borrowed from the {@link AHttpBufferPool} of the client pool
+     *
+     * @param content
+     *            the content stream of the response entity
+     * @param contentEncoding
+     *            the charset of the content
+     *
+     * @return the content as a {@link String} * @throws IOException if the
+     *         stream could not be read or the charset is not supported
+     */
+    private String readString(InputStream content, String contentEncoding)
+            throws IOException {
+        Charset charset;
+        try {
+            charset = Charset.forName(contentEncoding);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(contentEncoding);
+        }
+        return aHttpGetRequest.getClientPool().getBufferPool()
+                .readString(content, -1, charset);
+    }
+
+    /**
+     * Resolves the given url against the {@link #baseUrl}. Absolute urls, or
+     * any url when no base url is configured, are returned as is.
+     *
+     * @param url
+     *            the full or relative url
+     *
+     * @return the full url
+     */
+    private String resolveUrl(String url) {
+        if (StringUtils.isEmpty(baseUrl) || url == null
+                || url.contains("://")) {
+            return url;
+        }
+        if (baseUrl.endsWith("/") && url.startsWith("/")) {
+            return baseUrl + url.substring(1);
+        }
+        if (!baseUrl.endsWith("/") && !url.isEmpty() && !url.startsWith("/")
+                && !url.startsWith("?")) {
+            return baseUrl + "/" + url;
+        }
+        return baseUrl + url;
+    }
+
+    /**
+     * Merges the per call headers over the {@link #defaultHeaders}, without
+     * copying when there are no per call headers. The merged headers are case
+     * insensitive, so that a per call header replaces a default one whatever
+     * its case.
+     *
+     * @param requestHeaders
+     *            the per call headers, may be null
+     *
+     * @return the merged {@link Map<String, String>} of headers
+     */
+    private Map<String, String> mergeHeaders(Map<String, String> requestHeaders) {
+        if (requestHeaders == null || requestHeaders.isEmpty()) {
+            return defaultHeaders;
+        }
+        Map<String, String> mergedHeaders = new TreeMap<String, String>(
+                String.CASE_INSENSITIVE_ORDER);
+        mergedHeaders.putAll(defaultHeaders);
+        mergedHeaders.putAll(requestHeaders);
+        return mergedHeaders;
+    }
+
+    /**
+     * Puts the client headers over the Content-Type of the given message
+     * converter, and an Accept header asking for its mime type, so that the
+     * server reads and answers in the format of the converter unless the
+     * client headers say otherwise.
+     *
+     * @param messageConverter
+     *            the message converter of the client
+     * @param headers
+     *            the client headers
+     *
+     * @return the unmodifiable, case insensitive {@link Map<String, String>}
+     *         of the default headers
+     */
+    private static Map<String, String> negotiateHeaders(
+            MessageConverter messageConverter, Map<String, String> headers) {
+        Map<String, String> defaultHeaders = new TreeMap<String, String>(
+                String.CASE_INSENSITIVE_ORDER);
+        String contentType = messageConverter.getContentType();
+        if (StringUtils.isNotBlank(contentType)) {
+            defaultHeaders.put(HttpHeaders.CONTENT_TYPE, contentType);
+            defaultHeaders.put(HttpHeaders.ACCEPT,
+                    ContentType.parse(contentType).getMimeType());
+        }
+        defaultHeaders.putAll(headers);
+        return Collections.unmodifiableMap(defaultHeaders);
+    }
+
+    /**
+     * Gets the base url against which relative urls are resolved.
+     *
+     * @return the base url, may be null
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Gets The username to be used for basic auth.
+     *
+     * @return The username to be used for basic auth
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets The encoding of the request object to be posted and the expected
+     * encoding of response for ex UTF-8.
+     *
+     * @return the encoding
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the unmodifiable {@link Map<String, String>} of headers included in
+     * every request.
+     *
+     * @return the headers included in every request
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets The connect timeout in milliseconds to be used.
+     *
+     * @return The connect timeout in milliseconds to be used
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Checks if is include response headers.
+     *
+     * @return true, if is include response headers
+     */
+    public boolean isIncludeResponseHeaders() {
+        return includeResponseHeaders;
+    }
+
+    /**
+     * Checks if the response body is read into a String before being parsed.
+     *
+     * @return true, if the response body is buffered
+     */
+    public boolean isBufferResponseBody() {
+        return bufferResponseBody;
+    }
+
+    /**
+     * Checks if the request object is serialized into a String before being
+     * posted.
+     *
+     * @return true, if the request body is buffered
+     */
+    public boolean isBufferRequestBody() {
+        return bufferRequestBody;
+    }
+
+    /**
+     * Gets the message converter used to convert the request and response.
+     *
+     * @return the message converter
+     */
+    public MessageConverter getMessageConverter() {
+        return messageConverter;
+    }
+
+    /**
+     * Gets the registry picking the converter of a response whose
+     * Content-Type the message converter does not read.
+     *
+     * @return the {@link MessageConverterRegistry}
+     */
+    public MessageConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+    /**
+     * Gets the cache answering the blocking get calls.
+     *
+     * @return the {@link SResponseCache}, or null if none is used
+     */
+    public SResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Gets the coalescer sharing the result of a blocking get with identical
+     * concurrent gets.
+     *
+     * @return the {@link SRequestCoalescer}, or null if none is used
+     */
+    public SRequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Gets the compression applied to the bodies of the post calls.
+     *
+     * @return the {@link AHttpRequestCompression}, or null if the bodies are
+     *         sent uncompressed
+     */
+    public AHttpRequestCompression getRequestCompression() {
+        return aHttpPostRequest.getRequestCompression();
+    }
+
+    /**
+     * Gets the provider authenticating the calls made without basic auth.
+     *
+     * @return the {@link AHttpAuthProvider}, or null if none is used
+     */
+    public AHttpAuthProvider getAuthProvider() {
+        return aHttpGetRequest.getAuthProvider();
+    }
+
+    /**
+     * Gets the executor running the asynchronous calls as blocking calls and
+     * bounding the calls in flight to each route.
+     *
+     * @return the {@link SCallExecutor}, or null if none is used
+     */
+    public SCallExecutor getCallExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * The target host of the urls starting with the same scheme and authority
+     */
+    private static final class MetricsRoute {
+
+        /** The scheme and authority of the urls, for ex http://host:8080 */
+        private final String origin;
+
+        /** The target host of the urls */
+        private final HttpHost host;
+
+        private MetricsRoute(String origin, HttpHost host) {
+            this.origin = origin;
+            this.host = host;
+        }
+
+        /**
+         * Parses the target host of the given url
+         *
+         * @param url
+         *            the full url
+         *
+         * @return the {@link MetricsRoute}, or null if the url is not an
+         *         absolute url
+         */
+        static MetricsRoute of(String url) {
+            int authority = url.indexOf("://");
+            if (authority < 0) {
+                return null;
+            }
+            int end = authority + 3;
+            while (end < url.length() && !isOriginEnd(url.charAt(end))) {
+                end++;
+            }
+            HttpHost host;
+            try {
+                host = URIUtils.extractHost(URI.create(url));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return host != null ? new MetricsRoute(url.substring(0, end),
+                    host) : null;
+        }
+
+        /**
+         * Checks whether the given url has the scheme and authority of this
+         * route
+         *
+         * @param url
+         *            the full url
+         *
+         * @return true if the url is sent to the same target host
+         */
+        boolean matches(String url) {
+            return url.startsWith(origin)
+                    && (url.length() == origin.length() || isOriginEnd(url
+                            .charAt(origin.length())));
+        }
+
+        private static boolean isOriginEnd(char c) {
+            return c == '/' || c == '?' || c == '#';
+        }
+    }
+
+    /**
+     * A reusable builder of {@link SClient} objects. A builder is not thread
+     * safe, but the clients it builds are, and {@link #build()} can be called
+     * any number of times.
+     *
+     * @author vishalk2
+     * @version $Revision: 1.0 $
+     */
+    public static class Builder {
+
+        private String baseUrl;
+
+        private String username;
+
+        private String password;
+
+        private boolean basicAuthRequired;
+
+        private String encoding;
+
+        private Map<String, String> headers = new HashMap<String, String>();
+
+        private int connectTimeout;
+
+        private boolean includeResponseHeaders;
+
+        private MessageConverter messageConverter;
+
+        private MessageConverterRegistry converterRegistry;
+
+        private AHttpClientPool clientPool;
+
+        private boolean bufferResponseBody;
+
+        private boolean bufferRequestBody;
+
+        private Executor asyncExecutor;
+
+        private SResponseCache responseCache;
+
+        private SRequestCoalescer requestCoalescer;
+
+        private AHttpRequestCompression requestCompression;
+
+        private AHttpAuthProvider authProvider;
+
+        private SCallExecutor callExecutor;
+
+        /**
+         * Instantiates a new empty {@link Builder}
+         */
+        protected Builder() {
+            super();
+        }
+
+        /**
+         * Sets the base url against which relative urls passed per call are
+         * resolved.
+         *
+         * @param baseUrl
+         *            the base url, for ex https://httpbin.org
+         * @return this {@link Builder}
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * Sets the credentials to be used for basic auth. If not set no basic
+         * auth header is sent.
+         *
+         * @param username
+         *            The username to be used for basic auth
+         * @param password
+         *            The password to be used for basic auth
+         * @return this {@link Builder}
+         */
+        public Builder basicAuth(String username, String password) {
+            this.username = username;
+            this.password = password;
+            this.basicAuthRequired = true;
+            return this;
+        }
+
+        /**
+         * Sets the encoding of the request object to be posted and the
+         * expected encoding of response.
+         *
+         * @param encoding
+         *            the encoding for ex UTF-8
+         * @return this {@link Builder}
+         */
+        public Builder encoding(String encoding) {
+            this.encoding = encoding;
+            return this;
+        }
+
+        /**
+         * Adds a header to be included in every request.
+         *
+         * @param name
+         *            the header name
+         * @param value
+         *            the header value
+         * @return this {@link Builder}
+         */
+        public Builder header(String name, String value) {
+            this.headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * Adds headers to be included in every request.
+         *
+         * @param headers
+         *            A {@link Map<String, String>} of headers, may be null
+         * @return this {@link Builder}
+         */
+        public Builder headers(Map<String, String> headers) {
+            if (headers != null) {
+                this.headers.putAll(headers);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout in milliseconds to be used.
+         *
+         * @param connectTimeout
+         *            the connect timeout in milliseconds
+         * @return this {@link Builder}
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets whether to return the response headers also as part of the
+         * response object.
+         *
+         * @param includeResponseHeaders
+         *            true, to include the response headers
+         * @return this {@link Builder}
+         */
+        public Builder includeResponseHeaders(boolean includeResponseHeaders) {
+            this.includeResponseHeaders = includeResponseHeaders;
+            return this;
+        }
+
+        /**
+         * Sets the message converter to be used, if not set the
+         * {@link SClient} will resort to using the default converter of the
+         * converter registry, a shared {@link JacksonMessageConverter}.
+         *
+         * @param messageConverter
+         *            the {@link MessageConverter} to be used
+         * @return this {@link Builder}
+         */
+        public Builder messageConverter(MessageConverter messageConverter) {
+            this.messageConverter = messageConverter;
+            return this;
+        }
+
+        /**
+         * Sets the registry picking the converter of a response whose
+         * Content-Type the message converter does not read, if not set the
+         * {@link MessageConverterRegistry#getDefault()} registry is used.
+         *
+         * @param converterRegistry
+         *            the {@link MessageConverterRegistry} to be used
+         * @return this {@link Builder}
+         */
+        public Builder converterRegistry(
+                MessageConverterRegistry converterRegistry) {
+            this.converterRegistry = converterRegistry;
+            return this;
+        }
+
+        /**
+         * Sets the pool providing the HTTP client, if not set the
+         * {@link AHttpClientPool#getDefault()} pool is used.
+         *
+         * @param clientPool
+         *            the {@link AHttpClientPool} to be used
+         * @return this {@link Builder}
+         */
+        public Builder clientPool(AHttpClientPool clientPool) {
+            this.clientPool = clientPool;
+            return this;
+        }
+
+        /**
+         * Sets whether the response body is read into a String before being
+         * parsed, which makes it available as
+         * {@link SClientResponse#getResponseBody()}. By default the body is
+         * parsed by the message converter straight from the connection, so
+         * that large responses are never held in memory as a String as well
+         * as an object, and {@link SClientResponse#getResponseBody()} is null.
+         *
+         * @param bufferResponseBody
+         *            true, to read the response body into a String
+         * @return this {@link Builder}
+         */
+        public Builder bufferResponseBody(boolean bufferResponseBody) {
+            this.bufferResponseBody = bufferResponseBody;
+            return this;
+        }
+
+        /**
+         * Sets whether the request object is serialized into a String before
+         * being posted, so that it is sent with a Content-Length. By default
+         * blocking posts have the message converter write the request object
+         * straight to the connection using chunked transfer encoding, so that
+         * large payloads never exist on the heap as a String or a byte array.
+         *
+         * @param bufferRequestBody
+         *            true, to serialize the request object into a String
+         * @return this {@link Builder}
+         */
+        public Builder bufferRequestBody(boolean bufferRequestBody) {
+            this.bufferRequestBody = bufferRequestBody;
+            return this;
+        }
+
+        /**
+         * Sets the executor on which the responses of asynchronous calls are
+         * converted using the message converter. If not set they are
+         * converted on the I/O dispatch thread which received them, which is
+         * the cheapest option for small responses but holds up other requests
+         * while large responses are parsed.
+         *
+         * @param asyncExecutor
+         *            the {@link Executor} to be used
+         * @return this {@link Builder}
+         */
+        public Builder asyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the cache answering the blocking get calls, which serves fresh
+         * responses without a request and revalidates stale ones with
+         * conditional requests. The cache may be shared between clients. If
+         * not set every get is sent to the server.
+         *
+         * @param responseCache
+         *            the {@link SResponseCache} to be used, may be null
+         * @return this {@link Builder}
+         */
+        public Builder responseCache(SResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Sets the coalescer sharing the result of a blocking get with the
+         * identical gets in flight at the same time, so that only one of them
+         * is sent. The coalescer may be shared between clients. If not set
+         * every get is sent on its own.
+         *
+         * @param requestCoalescer
+         *            the {@link SRequestCoalescer} to be used, may be null
+         * @return this {@link Builder}
+         */
+        public Builder requestCoalescer(SRequestCoalescer requestCoalescer) {
+            this.requestCoalescer = requestCoalescer;
+            return this;
+        }
+
+        /**
+         * Sets the compression applied to the bodies of the post calls, which
+         * compresses bodies above its minimum size as they are sent. The
+         * server must accept its Content-Encoding. If not set the bodies are
+         * sent uncompressed.
+         *
+         * @param requestCompression
+         *            the {@link AHttpRequestCompression} to be used, may be
+         *            null
+         * @return this {@link Builder}
+         */
+        public Builder requestCompression(
+                AHttpRequestCompression requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
+        /**
+         * Sets the provider authenticating the calls, for ex with an OAuth2
+         * bearer token from an
+         * {@link com.shc.ahttp.client.auth.AHttpOAuth2TokenProvider}. It is not
+         * used when basic auth credentials are set. If not set the calls are
+         * sent without credentials.
+         *
+         * @param authProvider
+         *            the {@link AHttpAuthProvider} to be used, may be null
+         * @return this {@link Builder}
+         */
+        public Builder authProvider(AHttpAuthProvider authProvider) {
+            this.authProvider = authProvider;
+            return this;
+        }
+
+        /**
+         * Sets the executor bounding the blocking calls in flight to each
+         * route, and running the asynchronous calls as blocking calls on
+         * their own virtual thread instead of on the non blocking client. The
+         * response cache and the request coalescer then apply to the
+         * asynchronous gets as well. The executor may be shared between
+         * clients.
+         *
+         * @param callExecutor
+         *            the {@link SCallExecutor} to be used, may be null
+         * @return this {@link Builder}
+         */
+        public Builder callExecutor(SCallExecutor callExecutor) {
+            this.callExecutor = callExecutor;
+            return this;
+        }
+
+        /**
+         * Builds a new immutable {@link SClient} with the current
+         * configuration of this builder.
+         *
+         * @return the new {@link SClient} * @throws SClientException if the
+         *         client could not be created
+         */
+        public SClient build() throws SClientException {
+            return new SClient(this);
+        }
+    }
+}
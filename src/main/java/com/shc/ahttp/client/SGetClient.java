@@ -1,15 +1,17 @@
 package com.shc.ahttp.client;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.cache.SRequestCoalescer;
+import com.shc.ahttp.client.cache.SResponseCache;
 import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.executor.SCallExecutor;
 import com.shc.ahttp.client.messageconverter.JacksonMessageConverter;
 import com.shc.ahttp.client.messageconverter.MessageConverter;
 import com.shc.ahttp.client.request.AHttpGetRequest;
-import com.shc.ahttp.client.response.AHttpClientResponse;
 import com.shc.ahttp.client.response.SClientResponse;
 
 /**
@@ -19,6 +21,7 @@ import com.shc.ahttp.client.response.SClientResponse;
  * not one is provided explicitly us {@link JacksonMessageConverter}.
  * 
  * The Simple get client uses {@link AHttpGetRequest} to make the post requests.
+ * For a client which can be shared across threads and calls see {@link SClient}.
  * 
  * @see MessageConverter
  * @see JacksonMessageConverter
@@ -30,14 +33,6 @@ import com.shc.ahttp.client.response.SClientResponse;
  */
 public class SGetClient<RES> {
 
-    /**
-     * The DEFAULT_MESSAGE_CONVERTER_CLASS which will be used if no other
-     * message converters are explicitly provided
-     * 
-     * @see JacksonMessageConverter
-     */
-    private static final Class<? extends MessageConverter> DEFAULT_MESSAGE_CONVERTER_CLASS = JacksonMessageConverter.class;
-
     /** The full url to the resource to which the request has to be sent. */
     private String url;
 
@@ -50,8 +45,7 @@ public class SGetClient<RES> {
 
     /**
      * The response object which is compatible with the {@link MessageConverter}
-     * being used and the incoming response will be constructed into this
-     * object.
+     * being used. It is no longer populated by {@link #getRequest()}.
      */
     private RES response;
 
@@ -80,8 +74,8 @@ public class SGetClient<RES> {
 
     /**
      * The message converter that will be used, if not set the
-     * {@link SGetClient} will resort to using the
-     * {@link #DEFAULT_MESSAGE_CONVERTER_CLASS}
+     * {@link SGetClient} will resort to using the process wide default
+     * {@link JacksonMessageConverter} shared by all clients
      */
     private MessageConverter messageConverter;
 
@@ -92,6 +86,38 @@ public class SGetClient<RES> {
      */
     private boolean basicAuthRequired = true;
 
+    /**
+     * The cache of parsed responses, if set a fresh cached response is
+     * returned without a request and a stale one is revalidated with a
+     * conditional request
+     */
+    private SResponseCache responseCache;
+
+    /**
+     * The coalescer which, if set, shares the result of a request with the
+     * identical requests in flight at the same time
+     */
+    private SRequestCoalescer requestCoalescer;
+
+    /**
+     * The executor which, if set, bounds the calls in flight to each route
+     * and runs the asynchronous call on its own virtual thread
+     */
+    private SCallExecutor callExecutor;
+
+    /**
+     * The {@link SClient} built from the current configuration, reused by the
+     * calls until a setter changes the configuration, so that its requests
+     * and their cached Authorization header are reused as well
+     */
+    private SClient sClient;
+
+    /**
+     * A copy of the {@link #headers} the {@link #sClient} was built with, to
+     * notice a change made to the header map in place
+     */
+    private Map<String, String> sClientHeaders;
+
     /**
      * Instantiates a new {@link SGetClient} object with the provided parameters
      *
@@ -246,103 +272,91 @@ public class SGetClient<RES> {
      * This method takes in all the supplied parameters during object
      * construction and executes a get requirest to the specified url It then
      * parses the response and generates the {@link #responseClass} object and
-     * passes them as part of the {@link SClientResponse} object
+     * passes them as part of the {@link SClientResponse} object. The call
+     * itself does not modify this object, the parsed response is only returned
+     * as part of the {@link SClientResponse}.
      * 
      * @return SClientResponse<RES>
      * @throws SClientException
+     * @see SClient#get(String, Class)
      */
     public SClientResponse<RES> getRequest() throws SClientException {
-        SClientResponse<RES> crRestClientResponse = null;
-        AHttpClientResponse aHttpClientResponse = null;
-
-        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest();
-
-        try {
-            if (basicAuthRequired) {
-                aHttpClientResponse = aHttpGetRequest.executeGet(url, encoding,
-                        username, password, connectTimeout, headers,
-                        includeResponseHeaders);
-            } else {
-                aHttpClientResponse = aHttpGetRequest.executeGet(url, encoding,
-                        connectTimeout, headers, includeResponseHeaders);
-            }
-        } catch (AHttpClientCallException clientCallException) {
-            throw new SClientException(clientCallException.toString(),
-                    clientCallException);
-        }
-        if (aHttpClientResponse.isBodyPresent()) {
-            response = getResponseObject(aHttpClientResponse.getResponseBody(),
-                    responseClass);
-        }
-        crRestClientResponse = new SClientResponse<RES>(
-                aHttpClientResponse.getResponseBody(),
-                aHttpClientResponse.getReasonPhrase(),
-                aHttpClientResponse.getStatusCode(),
-                aHttpClientResponse.getResponseHeaders(), response);
-
-        return crRestClientResponse;
-
+        return toSClient().get(url, responseClass);
     }
 
     /**
-     * Generates the response object {@link #response} using the
-     * {@link #messageConverter}
-     *
-     * @param responseString
-     *            the response string received from the server
-     * @param messageObjectClass
-     *            the message object class to which the response string should
-     *            be converted into
+     * Asynchronous variant of {@link #getRequest()}, which returns immediately and
+     * completes the returned future once the response has been received and
+     * parsed. Changes made to this object after the call do not affect the
+     * call in flight.
      * 
-     * 
-     * @return the parsed response object * @throws SClientException if any
-     *         exception occurred during processing
+     * @return CompletableFuture<SClientResponse<RES>>, completed
+     *         exceptionally with a {@link SClientException} if any exception
+     *         has occurred
+     * @see SClient#getAsync(String, Class)
      */
-    private RES getResponseObject(String responseString,
-            Class<RES> messageObjectClass) throws SClientException {
-        return getMessageConverter().getObjectFromMessage(responseString,
-                messageObjectClass);
+    public CompletableFuture<SClientResponse<RES>> getAsync() {
+        SClient sClient;
+        try {
+            sClient = toSClient();
+        } catch (SClientException e) {
+            CompletableFuture<SClientResponse<RES>> failedFuture = new CompletableFuture<SClientResponse<RES>>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+        return sClient.getAsync(url, responseClass);
     }
 
     /**
-     * Gets the message converter.
-     *
+     * Executes a get request to the url and streams the elements of the
+     * response, such as a JSON array, as they are parsed from the connection,
+     * instead of constructing the whole response into one
+     * {@link #responseClass} object. The returned {@link Stream} must be
+     * closed, for ex with a try-with-resources block.
      * 
+     * @param elementClass
+     *            the class in which each element of the response should be
+     *            constructed into
      * 
-     * @return the message converter * @throws SClientException if any exception
-     *         occurred during processing
+     * @return Stream<T> of the elements * @throws SClientException if any
+     *         exception has occurred or the response code is not between 100
+     *         - 399
+     * @see SClient#getStream(String, Class)
      */
-    private MessageConverter getMessageConverter() throws SClientException {
-        if (messageConverter == null) {
-            messageConverter = getDefaultMessageConverter();
-        }
-        return messageConverter;
+    public <T> Stream<T> getStream(Class<T> elementClass)
+            throws SClientException {
+        return toSClient().getStream(url, elementClass);
     }
 
     /**
-     * Gets the default message converter specified by
-     * {@link #DEFAULT_MESSAGE_CONVERTER_CLASS} field and creating a new
-     * instance of it.
+     * Gets the immutable {@link SClient} holding the current configuration of
+     * this object, which is built on first use and again only once the
+     * configuration has changed.
      *
-     * 
-     * 
-     * @return the default message converter * @throws SClientException if any
-     *         exception occurred during creation of the
-     *         {@link #DEFAULT_MESSAGE_CONVERTER_CLASS}
+     * @return the {@link SClient} * @throws SClientException if any exception
+     *         occurred during processing
      */
-    private MessageConverter getDefaultMessageConverter()
-            throws SClientException {
-        Constructor<? extends MessageConverter> constructor;
-        MessageConverter defaultMessageConverter;
-        try {
-            constructor = DEFAULT_MESSAGE_CONVERTER_CLASS.getConstructor();
-            defaultMessageConverter = constructor.newInstance();
-        } catch (NoSuchMethodException | SecurityException
-                | InstantiationException | IllegalAccessException
-                | IllegalArgumentException | InvocationTargetException e) {
-            throw new SClientException(e.getMessage(), e);
+    private SClient toSClient() throws SClientException {
+        SClient sClient = this.sClient;
+        if (sClient != null && (headers == null ? sClientHeaders == null
+                : headers.equals(sClientHeaders))) {
+            return sClient;
         }
-        return defaultMessageConverter;
+        SClient.Builder builder = SClient.builder().encoding(encoding)
+                .headers(headers).connectTimeout(connectTimeout)
+                .includeResponseHeaders(includeResponseHeaders)
+                .messageConverter(messageConverter)
+                .responseCache(responseCache)
+                .requestCoalescer(requestCoalescer).callExecutor(callExecutor)
+                .bufferResponseBody(true);
+        if (basicAuthRequired) {
+            builder.basicAuth(username, password);
+        }
+        sClient = builder.build();
+        this.sClientHeaders = headers == null ? null
+                : new HashMap<String, String>(headers);
+        this.sClient = sClient;
+        return sClient;
     }
 
     /**
@@ -393,7 +407,11 @@ public class SGetClient<RES> {
      *
      * 
      * @return the response
+     * @deprecated {@link #getRequest()} no longer stores the per call response
+     *             on this object, use {@link SClientResponse#getResponse()}
+     *             instead
      */
+    @Deprecated
     public RES getResponse() {
         return response;
     }
@@ -403,7 +421,11 @@ public class SGetClient<RES> {
      *
      * @param response
      *            the new response
+     * @deprecated {@link #getRequest()} no longer stores the per call response
+     *             on this object, use {@link SClientResponse#getResponse()}
+     *             instead
      */
+    @Deprecated
     public void setResponse(RES response) {
         this.response = response;
     }
@@ -426,6 +448,7 @@ public class SGetClient<RES> {
      */
     public void setUsername(String username) {
         this.username = username;
+        this.sClient = null;
     }
 
     /**
@@ -446,6 +469,7 @@ public class SGetClient<RES> {
      */
     public void setPassword(String password) {
         this.password = password;
+        this.sClient = null;
     }
 
     /**
@@ -466,6 +490,7 @@ public class SGetClient<RES> {
      */
     public void setEncoding(String encoding) {
         this.encoding = encoding;
+        this.sClient = null;
     }
 
     /**
@@ -490,6 +515,7 @@ public class SGetClient<RES> {
      */
     public void setHeaders(Map<String, String> headers) {
         this.headers = headers;
+        this.sClient = null;
     }
 
     /**
@@ -510,6 +536,7 @@ public class SGetClient<RES> {
      */
     public void setConnectTimeout(int connectTimeout) {
         this.connectTimeout = connectTimeout;
+        this.sClient = null;
     }
 
     /**
@@ -531,6 +558,76 @@ public class SGetClient<RES> {
      */
     public void setIncludeResponseHeaders(boolean includeResponseHeaders) {
         this.includeResponseHeaders = includeResponseHeaders;
+        this.sClient = null;
+    }
+
+    /**
+     * Gets the cache of parsed responses.
+     *
+     * @return the {@link SResponseCache}, or null if none is used
+     */
+    public SResponseCache getResponseCache() {
+        return responseCache;
     }
 
+    /**
+     * Sets the cache of parsed responses, which may be shared between
+     * clients. The cache only answers {@link #getRequest()}, not
+     * {@link #getAsync()}.
+     *
+     * @param responseCache
+     *            the new {@link SResponseCache}, or null to send every request
+     */
+    public void setResponseCache(SResponseCache responseCache) {
+        this.responseCache = responseCache;
+        this.sClient = null;
+    }
+
+    /**
+     * Gets the coalescer of identical concurrent requests.
+     *
+     * @return the {@link SRequestCoalescer}, or null if none is used
+     */
+    public SRequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Sets the coalescer of identical concurrent requests, which should be
+     * shared by all the {@link SGetClient} objects whose requests are to be
+     * coalesced. The coalescer only applies to {@link #getRequest()}, not
+     * {@link #getAsync()}.
+     *
+     * @param requestCoalescer
+     *            the new {@link SRequestCoalescer}, or null to send every
+     *            request on its own
+     */
+    public void setRequestCoalescer(SRequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+        this.sClient = null;
+    }
+
+    /**
+     * Gets the executor bounding the calls in flight to each route.
+     *
+     * @return the {@link SCallExecutor}, or null if none is used
+     */
+    public SCallExecutor getCallExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * Sets the executor bounding the calls in flight to each route, which
+     * should be shared by all the {@link SGetClient} objects calling the same
+     * routes. {@link #getAsync()} then runs the blocking call on its own
+     * virtual thread instead of on the non blocking client.
+     *
+     * @param callExecutor
+     *            the new {@link SCallExecutor}, or null to leave the calls
+     *            unbounded
+     */
+    public void setCallExecutor(SCallExecutor callExecutor) {
+        this.callExecutor = callExecutor;
+        this.sClient = null;
+    }
 }
@@ -1,15 +1,16 @@
 package com.shc.ahttp.client;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.encoding.AHttpRequestCompression;
 import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.executor.SCallExecutor;
 import com.shc.ahttp.client.messageconverter.JacksonMessageConverter;
 import com.shc.ahttp.client.messageconverter.MessageConverter;
 import com.shc.ahttp.client.request.AHttpPostRequest;
-import com.shc.ahttp.client.response.AHttpClientResponse;
 import com.shc.ahttp.client.response.SClientResponse;
 
 /**
@@ -18,7 +19,8 @@ import com.shc.ahttp.client.response.SClientResponse;
  * using a {@link MessageConverter}. The default message converter, if not one
  * is provided explicitly us {@link JacksonMessageConverter}.
  * 
- * The Simple post client uses {@link AHttpPostRequest} to make the post requests
+ * The Simple post client uses {@link AHttpPostRequest} to make the post requests.
+ * For a client which can be shared across threads and calls see {@link SClient}.
  * 
  * @see MessageConverter
  * @see JacksonMessageConverter
@@ -31,14 +33,6 @@ import com.shc.ahttp.client.response.SClientResponse;
  */
 public class SPostClient<REQ, RES> {
 
-    /**
-     * The DEFAULT_MESSAGE_CONVERTER_CLASS which will be used if no other
-     * message converters are explicitly provided
-     * 
-     * @see JacksonMessageConverter
-     */
-    private static final Class<? extends MessageConverter> DEFAULT_MESSAGE_CONVERTER_CLASS = JacksonMessageConverter.class;
-
     /** The full url to the resource to which the request has to be sent. */
     private String url;
 
@@ -57,8 +51,7 @@ public class SPostClient<REQ, RES> {
 
     /**
      * The response object which is compatible with the {@link MessageConverter}
-     * being used and the incoming response will be constructed into this
-     * object.
+     * being used. It is no longer populated by {@link #postRequest()}.
      */
     private RES response;
 
@@ -87,7 +80,7 @@ public class SPostClient<REQ, RES> {
     private boolean includeResponseHeaders;
 
     /** The message converter that will be used, if not set the {@link SPostClient} will resort to using the
-     * {@link #DEFAULT_MESSAGE_CONVERTER_CLASS}
+     * process wide default {@link JacksonMessageConverter} shared by all clients
      */
     private MessageConverter messageConverter;
 
@@ -96,6 +89,31 @@ public class SPostClient<REQ, RES> {
      */
     private boolean basicAuthRequired = true;
 
+    /**
+     * The compression which, if set, compresses a large request body as it is
+     * sent
+     */
+    private AHttpRequestCompression requestCompression;
+
+    /**
+     * The executor which, if set, bounds the calls in flight to each route
+     * and runs the asynchronous call on its own virtual thread
+     */
+    private SCallExecutor callExecutor;
+
+    /**
+     * The {@link SClient} built from the current configuration, reused by the
+     * calls until a setter changes the configuration, so that its requests
+     * and their cached Authorization header are reused as well
+     */
+    private SClient sClient;
+
+    /**
+     * A copy of the {@link #headers} the {@link #sClient} was built with, to
+     * notice a change made to the header map in place
+     */
+    private Map<String, String> sClientHeaders;
+
     /**
      * Instantiates a new {@link SPostClient} object with the provided parameters
      *
@@ -247,113 +265,93 @@ public class SPostClient<REQ, RES> {
     }
 
     /**
-     * Post the request constructed to the given {@link #url}
+     * Post the request constructed to the given {@link #url}. The call itself
+     * does not modify this object, the parsed response is only returned as part
+     * of the {@link SClientResponse}.
      *
     
     
      * @return the {@link SClientResponse} object if the request was successfully sent and parsed * @throws SClientException
      *             During the client call if any exception has occurred or the response code is not between
-     *             100 - 399, capturing all the details from the reponse stream */
+     *             100 - 399, capturing all the details from the reponse stream
+     * @see SClient#post(String, Object, Class) */
     public SClientResponse<RES> postRequest() throws SClientException {
-        SClientResponse<RES> crRestClientResponse = null;
-        AHttpClientResponse aHttpClientResponse = null;
-
-        String requestString = generateRequestString(request);
-
-        AHttpPostRequest aHttpPostRequest = new AHttpPostRequest();
-
-        try {
-            if (basicAuthRequired) {
-                aHttpClientResponse = aHttpPostRequest.executePost(url,
-                        requestString, encoding, username, password,
-                        connectTimeout, headers, includeResponseHeaders);
-            } else {
-                aHttpClientResponse = aHttpPostRequest.executePost(url,
-                        requestString, encoding, connectTimeout, headers,
-                        includeResponseHeaders);
-            }
-        } catch (AHttpClientCallException clientCallException) {
-            throw new SClientException(clientCallException.toString(),
-                    clientCallException);
-        }
-        if (aHttpClientResponse.isBodyPresent()) {
-            response = getResponseObject(aHttpClientResponse.getResponseBody(),
-                    responseClass);
-        }
-        crRestClientResponse = new SClientResponse<RES>(
-                aHttpClientResponse.getResponseBody(),
-                aHttpClientResponse.getReasonPhrase(),
-                aHttpClientResponse.getStatusCode(),
-                aHttpClientResponse.getResponseHeaders(), response);
-
-        return crRestClientResponse;
-
+        return toSClient().post(url, request, responseClass);
     }
 
     /**
-     * Generate request string using the {@link #messageConverter}
-     *
-     * @param request
-     *            the request object to be posted
-    
-    
-     * @return the string * @throws SClientException
-     *             if any exception occurred during processing */
-    private String generateRequestString(REQ request) throws SClientException {
-        return getMessageConverter().getMessageFrom(request);
+     * Posts the request objects taken from the given iterator, instead of the
+     * {@link #request}, written straight to the connection one at a time as a
+     * single message, such as a JSON array or NDJSON lines, so that a batch of
+     * any size is sent through constant memory.
+     * 
+     * @param requests
+     *            the iterator of the request objects to be posted
+     * 
+     * @return the {@link SClientResponse} object if the request was
+     *         successfully sent and parsed * @throws SClientException During
+     *         the client call if any exception has occurred or the response
+     *         code is not between 100 - 399
+     * @see SClient#postStream(String, Iterator, Class)
+     */
+    public SClientResponse<RES> postStream(Iterator<? extends REQ> requests)
+            throws SClientException {
+        return toSClient().postStream(url, requests, responseClass);
     }
 
     /**
-     * Generates the response object {@link #response} using the {@link #messageConverter}
-     *
-     * @param responseString
-     *            the response string received from the server
-     * @param messageObjectClass
-     *            the message object class to which the response string should be converted into 
-    
-    
-     * @return the parsed response object * @throws SClientException
-     *             if any exception occurred during processing */
-    private RES getResponseObject(String responseString,
-            Class<RES> messageObjectClass) throws SClientException {
-        return getMessageConverter().getObjectFromMessage(responseString,
-                messageObjectClass);
+     * Asynchronous variant of {@link #postRequest()}, which returns immediately and
+     * completes the returned future once the response has been received and
+     * parsed. Changes made to this object after the call do not affect the
+     * call in flight.
+     * 
+     * @return CompletableFuture<SClientResponse<RES>>, completed
+     *         exceptionally with a {@link SClientException} if any exception
+     *         has occurred
+     * @see SClient#postAsync(String, Object, Class)
+     */
+    public CompletableFuture<SClientResponse<RES>> postAsync() {
+        SClient sClient;
+        try {
+            sClient = toSClient();
+        } catch (SClientException e) {
+            CompletableFuture<SClientResponse<RES>> failedFuture = new CompletableFuture<SClientResponse<RES>>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+        return sClient.postAsync(url, request, responseClass);
     }
 
     /**
-     * Gets the message converter.
+     * Gets the immutable {@link SClient} holding the current configuration of
+     * this object, which is built on first use and again only once the
+     * configuration has changed.
      *
     
     
-     * @return the message converter * @throws SClientException
+     * @return the {@link SClient} * @throws SClientException
      *             if any exception occurred during processing */
-    private MessageConverter getMessageConverter() throws SClientException {
-        if (messageConverter == null) {
-            messageConverter = getDefaultMessageConverter();
+    private SClient toSClient() throws SClientException {
+        SClient sClient = this.sClient;
+        if (sClient != null && (headers == null ? sClientHeaders == null
+                : headers.equals(sClientHeaders))) {
+            return sClient;
         }
-        return messageConverter;
-    }
-
-    /**
-     * Gets the default message converter specified by {@link #DEFAULT_MESSAGE_CONVERTER_CLASS} field and creating a new instance of it.
-     *
-    
-    
-     * @return the default message converter * @throws SClientException
-     *              if any exception occurred during creation of the {@link #DEFAULT_MESSAGE_CONVERTER_CLASS} */
-    private MessageConverter getDefaultMessageConverter()
-            throws SClientException {
-        Constructor<? extends MessageConverter> constructor;
-        MessageConverter defaultMessageConverter;
-        try {
-            constructor = DEFAULT_MESSAGE_CONVERTER_CLASS.getConstructor();
-            defaultMessageConverter = constructor.newInstance();
-        } catch (NoSuchMethodException | SecurityException
-                | InstantiationException | IllegalAccessException
-                | IllegalArgumentException | InvocationTargetException e) {
-            throw new SClientException(e.getMessage(), e);
+        SClient.Builder builder = SClient.builder().encoding(encoding)
+                .headers(headers).connectTimeout(connectTimeout)
+                .includeResponseHeaders(includeResponseHeaders)
+                .messageConverter(messageConverter)
+                .requestCompression(requestCompression)
+                .callExecutor(callExecutor)
+                .bufferResponseBody(true);
+        if (basicAuthRequired) {
+            builder.basicAuth(username, password);
         }
-        return defaultMessageConverter;
+        sClient = builder.build();
+        this.sClientHeaders = headers == null ? null
+                : new HashMap<String, String>(headers);
+        this.sClient = sClient;
+        return sClient;
     }
 
     /**
@@ -417,7 +415,10 @@ public class SPostClient<REQ, RES> {
      * Gets the response.
      *
     
-     * @return the response */
+     * @return the response
+     * @deprecated {@link #postRequest()} no longer stores the per call response on this object, use
+     *             {@link SClientResponse#getResponse()} instead */
+    @Deprecated
     public RES getResponse() {
         return response;
     }
@@ -427,7 +428,10 @@ public class SPostClient<REQ, RES> {
      *
      * @param response
      *            the new response
+     * @deprecated {@link #postRequest()} no longer stores the per call response on this object, use
+     *             {@link SClientResponse#getResponse()} instead
      */
+    @Deprecated
     public void setResponse(RES response) {
         this.response = response;
     }
@@ -449,6 +453,7 @@ public class SPostClient<REQ, RES> {
      */
     public void setUsername(String username) {
         this.username = username;
+        this.sClient = null;
     }
 
     /**
@@ -468,6 +473,7 @@ public class SPostClient<REQ, RES> {
      */
     public void setPassword(String password) {
         this.password = password;
+        this.sClient = null;
     }
 
     /**
@@ -487,6 +493,7 @@ public class SPostClient<REQ, RES> {
      */
     public void setEncoding(String encoding) {
         this.encoding = encoding;
+        this.sClient = null;
     }
 
     /**
@@ -506,6 +513,7 @@ public class SPostClient<REQ, RES> {
      */
     public void setHeaders(Map<String, String> headers) {
         this.headers = headers;
+        this.sClient = null;
     }
 
     /**
@@ -525,6 +533,7 @@ public class SPostClient<REQ, RES> {
      */
     public void setConnectTimeout(int connectTimeout) {
         this.connectTimeout = connectTimeout;
+        this.sClient = null;
     }
 
     /**
@@ -544,6 +553,54 @@ public class SPostClient<REQ, RES> {
      */
     public void setIncludeResponseHeaders(boolean includeResponseHeaders) {
         this.includeResponseHeaders = includeResponseHeaders;
+        this.sClient = null;
+    }
+
+    /**
+     * Gets the compression applied to the request body.
+     *
+     * @return the {@link AHttpRequestCompression}, or null if the request body
+     *         is sent uncompressed
+     */
+    public AHttpRequestCompression getRequestCompression() {
+        return requestCompression;
     }
 
+    /**
+     * Sets the compression applied to the request body, which compresses a
+     * body above its minimum size with a Content-Encoding the server must
+     * accept.
+     *
+     * @param requestCompression
+     *            the new {@link AHttpRequestCompression}, or null to send the
+     *            request body uncompressed
+     */
+    public void setRequestCompression(AHttpRequestCompression requestCompression) {
+        this.requestCompression = requestCompression;
+        this.sClient = null;
+    }
+
+    /**
+     * Gets the executor bounding the calls in flight to each route.
+     *
+     * @return the {@link SCallExecutor}, or null if none is used
+     */
+    public SCallExecutor getCallExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * Sets the executor bounding the calls in flight to each route, which
+     * should be shared by all the {@link SPostClient} objects calling the same
+     * routes. {@link #postAsync()} then runs the blocking call on its own
+     * virtual thread instead of on the non blocking client.
+     *
+     * @param callExecutor
+     *            the new {@link SCallExecutor}, or null to leave the calls
+     *            unbounded
+     */
+    public void setCallExecutor(SCallExecutor callExecutor) {
+        this.callExecutor = callExecutor;
+        this.sClient = null;
+    }
 }
@@ -0,0 +1,42 @@
+package com.shc.ahttp.client.auth;
+
+import org.apache.http.HttpRequest;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+
+/**
+ * Authenticates the requests executed by a
+ * {@link com.shc.ahttp.client.request.ABasicAuthHttpRequestBase} which are not
+ * sent with basic auth, typically by adding an Authorization header. A
+ * provider is shared by all the requests of a client, so it must be thread
+ * safe, and as it is called on the request path it should not block, except
+ * when no valid credentials are available yet. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+ * aHttpGetRequest.setAuthProvider(httpRequest -&gt; httpRequest.addHeader(
+ *         &quot;X-Api-Key&quot;, apiKey));
+ * </pre>
+ *
+ * @see AHttpOAuth2TokenProvider
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+@FunctionalInterface
+public interface AHttpAuthProvider {
+
+    /**
+     * Adds the credentials of the given request
+     *
+     * @param httpRequest
+     *            the {@link HttpRequest} to be authenticated
+     *
+     * @throws AHttpClientCallException
+     *             if no credentials could be obtained
+     */
+    void authenticate(HttpRequest httpRequest) throws AHttpClientCallException;
+}
@@ -0,0 +1,547 @@
+package com.shc.ahttp.client.auth;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.auth.AUTH;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.request.AHttpPostRequest;
+import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * An {@link AHttpAuthProvider} sending an OAuth2 bearer token obtained with
+ * the client credentials grant, the client authenticating to the token
+ * endpoint with basic auth. The token is cached and sent with every request
+ * until it expires, so that the token endpoint is not called per request.
+ * <br/>
+ * <br/>
+ *
+ * Within {@link Builder#refreshBeforeExpiry(long)} of its expiry the token is
+ * refreshed in the background, by an asynchronous request through the
+ * {@link AHttpClientPool}, while the requests go on being sent with the
+ * current token. Only one refresh is in flight at a time, however many
+ * threads find the token due: they all share its result. A request only
+ * waits for a refresh when there is no valid token, on first use or once the
+ * token has expired, and then for at most
+ * {@link Builder#tokenWaitTimeout(long)}. A failed background refresh is
+ * retried a few seconds later, as long as the current token is valid. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpOAuth2TokenProvider tokenProvider = AHttpOAuth2TokenProvider.builder()
+ *         .tokenUrl(&quot;https://auth.example.com/oauth2/token&quot;)
+ *         .clientCredentials(clientId, clientSecret).scope(&quot;orders:read&quot;)
+ *         .build();
+ * SClient sClient = SClient.builder().authProvider(tokenProvider).build();
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpOAuth2TokenProvider implements AHttpAuthProvider {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** The headers of a token request */
+    private static final Map<String, String> TOKEN_REQUEST_HEADERS;
+
+    static {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(HttpHeaders.CONTENT_TYPE,
+                ContentType.APPLICATION_FORM_URLENCODED.getMimeType());
+        headers.put(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON
+                .getMimeType());
+        TOKEN_REQUEST_HEADERS = Collections.unmodifiableMap(headers);
+    }
+
+    /** The url of the token endpoint */
+    private final String tokenUrl;
+
+    /** The client id, form encoded as sent with basic auth */
+    private final String clientId;
+
+    /** The client secret, form encoded as sent with basic auth */
+    private final String clientSecret;
+
+    /** The form body of a token request */
+    private final String tokenRequestBody;
+
+    /** How long in nanoseconds before it expires the token is refreshed */
+    private final long refreshBeforeExpiry;
+
+    /** The connect timeout in milliseconds of a token request */
+    private final int connectTimeout;
+
+    /** How long in milliseconds a request without a valid token waits */
+    private final long tokenWaitTimeout;
+
+    /** The request sending the token requests */
+    private final AHttpPostRequest tokenRequest;
+
+    /** The current token, null until the first one is obtained */
+    private final AtomicReference<Token> token = new AtomicReference<Token>();
+
+    /** The refresh in flight, if any */
+    private final AtomicReference<CompletableFuture<Token>> refresh = new AtomicReference<CompletableFuture<Token>>();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    /**
+     * Instantiates a new token provider from the given {@link Builder}
+     *
+     * @param builder
+     *            the {@link Builder} holding the provider configuration
+     */
+    private AHttpOAuth2TokenProvider(Builder builder) {
+        this.tokenUrl = builder.tokenUrl;
+        this.clientId = formEncode(builder.clientId);
+        this.clientSecret = formEncode(builder.clientSecret);
+        this.tokenRequestBody = "grant_type=client_credentials"
+                + (StringUtils.isEmpty(builder.scope) ? "" : "&scope="
+                        + formEncode(builder.scope));
+        this.refreshBeforeExpiry = TimeUnit.MILLISECONDS
+                .toNanos(builder.refreshBeforeExpiry);
+        this.connectTimeout = builder.connectTimeout;
+        this.tokenWaitTimeout = builder.tokenWaitTimeout;
+        this.tokenRequest = new AHttpPostRequest(
+                builder.clientPool != null ? builder.clientPool
+                        : AHttpClientPool.getDefault());
+    }
+
+    /**
+     * Creates a new {@link Builder} to configure a
+     * {@link AHttpOAuth2TokenProvider}
+     *
+     * @return the new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Adds the Authorization header of the current bearer token to the given
+     * request, waiting for a token only if there is no valid one
+     *
+     * @param httpRequest
+     *            the {@link HttpRequest} to be authenticated
+     *
+     * @throws AHttpClientCallException
+     *             if there is no valid token and none could be obtained
+     */
+    @Override
+    public void authenticate(HttpRequest httpRequest)
+            throws AHttpClientCallException {
+        httpRequest.addHeader(getToken().header);
+    }
+
+    /**
+     * Discards the current token, for ex after it was rejected by the server,
+     * so that the next request waits for a new one
+     */
+    public void invalidate() {
+        token.set(null);
+    }
+
+    /**
+     * Gets the number of token requests sent so far
+     *
+     * @return the refresh count
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Gets the current token, starting a background refresh if it is due, or
+     * waiting for a new one if it is missing or expired. The wait is bounded
+     * by the {@link #tokenWaitTimeout}, the refresh going on in the
+     * background once it times out.
+     *
+     * @return the valid {@link Token} * @throws AHttpClientCallException if no
+     *         token could be obtained in time
+     */
+    private Token getToken() throws AHttpClientCallException {
+        Token current = token.get();
+        long now = System.nanoTime();
+        if (current != null && current.isValid(now)) {
+            if (current.isRefreshDue(now)) {
+                refresh();
+            }
+            return current;
+        }
+        try {
+            return refresh().get(tokenWaitTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AHttpClientCallException(e.getMessage(), e);
+        } catch (TimeoutException e) {
+            throw new AHttpClientCallException("No token received from "
+                    + tokenUrl + " within " + tokenWaitTimeout + " ms", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AHttpClientCallException) {
+                throw (AHttpClientCallException) cause;
+            }
+            throw new AHttpClientCallException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Starts a refresh of the token, unless one is already in flight. The
+     * refresh is always completed, and cleared once completed, including
+     * when the token request fails before it is sent.
+     *
+     * @return the {@link CompletableFuture} of the new token
+     */
+    private CompletableFuture<Token> refresh() {
+        while (true) {
+            CompletableFuture<Token> inFlight = refresh.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            CompletableFuture<Token> started = new CompletableFuture<Token>();
+            if (!refresh.compareAndSet(null, started)) {
+                continue;
+            }
+            Token current = token.get();
+            long now = System.nanoTime();
+            if (current != null && current.isValid(now)
+                    && !current.isRefreshDue(now)) {
+                // a refresh completed since the token was found due
+                refresh.set(null);
+                started.complete(current);
+                return started;
+            }
+            refreshCount.incrementAndGet();
+            CompletableFuture<Token> tokenRequest;
+            try {
+                tokenRequest = requestToken();
+            } catch (RuntimeException e) {
+                tokenRequest = new CompletableFuture<Token>();
+                tokenRequest.completeExceptionally(e);
+            }
+            tokenRequest.whenComplete((newToken, failure) -> {
+                if (newToken != null) {
+                    token.set(newToken);
+                } else {
+                    postponeRefresh();
+                }
+                refresh.set(null);
+                if (newToken != null) {
+                    started.complete(newToken);
+                } else {
+                    started.completeExceptionally(failure instanceof CompletionException
+                            && failure.getCause() != null ? failure.getCause()
+                            : failure);
+                }
+            });
+            return started;
+        }
+    }
+
+    /**
+     * Delays the next refresh of a still valid token after a failed refresh,
+     * so that a failing token endpoint is not called by every request
+     */
+    private void postponeRefresh() {
+        Token current = token.get();
+        long now = System.nanoTime();
+        if (current != null && current.isValid(now)) {
+            token.compareAndSet(current, current.refreshAt(now
+                    + TimeUnit.MILLISECONDS
+                            .toNanos(AHttpClientConstants.DEFAULT_OAUTH2_REFRESH_RETRY_DELAY)));
+        }
+    }
+
+    /**
+     * Sends a token request to the token endpoint
+     *
+     * @return the {@link CompletableFuture} of the token received
+     */
+    private CompletableFuture<Token> requestToken() {
+        final long requestedAt = System.nanoTime();
+        return tokenRequest.executePostAsync(tokenUrl, tokenRequestBody,
+                AHttpClientConstants.DEFAULT_CONTENT_ENCODING, clientId,
+                clientSecret, connectTimeout, TOKEN_REQUEST_HEADERS, false)
+                .thenApply(response -> {
+                    try {
+                        return parseToken(response, requestedAt);
+                    } catch (AHttpClientCallException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Parses the token out of the response of the token endpoint, its
+     * lifetime being counted from when it was requested
+     *
+     * @param response
+     *            the {@link AHttpClientResponse} of the token endpoint
+     * @param requestedAt
+     *            the {@link System#nanoTime()} at which it was requested
+     *
+     * @return the {@link Token} received * @throws AHttpClientCallException
+     *         if the response holds no access token
+     */
+    private Token parseToken(AHttpClientResponse response, long requestedAt)
+            throws AHttpClientCallException {
+        JsonNode tokenResponse;
+        try {
+            tokenResponse = OBJECT_MAPPER.readTree(response.getResponseBody());
+        } catch (IOException e) {
+            throw new AHttpClientCallException(e.getMessage(), e);
+        }
+        JsonNode accessToken = tokenResponse == null ? null : tokenResponse
+                .get("access_token");
+        if (accessToken == null || StringUtils.isEmpty(accessToken.asText())) {
+            throw new AHttpClientCallException(
+                    "The token response of " + tokenUrl
+                            + " has no access_token", response.getStatusCode(),
+                    response.getReasonPhrase(), response.getResponseBody(),
+                    null);
+        }
+        JsonNode expiresIn = tokenResponse.get("expires_in");
+        long lifetime = expiresIn != null && expiresIn.canConvertToLong() ? TimeUnit.SECONDS
+                .toNanos(expiresIn.asLong())
+                : TimeUnit.MILLISECONDS
+                        .toNanos(AHttpClientConstants.DEFAULT_OAUTH2_TOKEN_LIFETIME);
+        long expiresAt = requestedAt + lifetime;
+        return new Token(new BasicHeader(AUTH.WWW_AUTH_RESP, "Bearer "
+                + accessToken.asText()), expiresAt, expiresAt
+                - refreshBeforeExpiry);
+    }
+
+    private static String formEncode(String value) {
+        try {
+            return value == null ? null : URLEncoder.encode(value,
+                    AHttpClientConstants.DEFAULT_CONTENT_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An immutable bearer token, with the {@link System#nanoTime()} at which
+     * it expires and at which it should be refreshed
+     */
+    private static final class Token {
+
+        /** The Authorization header of the token */
+        private final Header header;
+
+        private final long expiresAt;
+
+        private final long refreshAt;
+
+        Token(Header header, long expiresAt, long refreshAt) {
+            this.header = header;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        boolean isValid(long now) {
+            return now - expiresAt < 0;
+        }
+
+        boolean isRefreshDue(long now) {
+            return now - refreshAt >= 0;
+        }
+
+        Token refreshAt(long refreshAt) {
+            return new Token(header, expiresAt, refreshAt);
+        }
+    }
+
+    /**
+     * A builder of {@link AHttpOAuth2TokenProvider} objects.
+     *
+     * @author vishalk2
+     * @version $Revision: 1.0 $
+     */
+    public static class Builder {
+
+        private String tokenUrl;
+
+        private String clientId;
+
+        private String clientSecret;
+
+        private String scope;
+
+        private long refreshBeforeExpiry = AHttpClientConstants.DEFAULT_OAUTH2_REFRESH_BEFORE_EXPIRY;
+
+        private int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
+
+        private long tokenWaitTimeout = AHttpClientConstants.DEFAULT_OAUTH2_TOKEN_WAIT_TIMEOUT;
+
+        private AHttpClientPool clientPool;
+
+        /**
+         * Instantiates a new empty {@link Builder}
+         */
+        protected Builder() {
+            super();
+        }
+
+        /**
+         * Sets the url of the token endpoint.
+         *
+         * @param tokenUrl
+         *            the url of the token endpoint
+         * @return this {@link Builder}
+         */
+        public Builder tokenUrl(String tokenUrl) {
+            this.tokenUrl = tokenUrl;
+            return this;
+        }
+
+        /**
+         * Sets the credentials with which the client authenticates to the
+         * token endpoint.
+         *
+         * @param clientId
+         *            the client id
+         * @param clientSecret
+         *            the client secret
+         * @return this {@link Builder}
+         */
+        public Builder clientCredentials(String clientId, String clientSecret) {
+            this.clientId = clientId;
+            this.clientSecret = clientSecret;
+            return this;
+        }
+
+        /**
+         * Sets the scope of the requested tokens. If not set no scope is
+         * requested.
+         *
+         * @param scope
+         *            the space separated scopes
+         * @return this {@link Builder}
+         */
+        public Builder scope(String scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        /**
+         * Sets how long before it expires a token is refreshed in the
+         * background. A token whose lifetime is shorter is refreshed on first
+         * use.
+         *
+         * @param refreshBeforeExpiry
+         *            the refresh time before expiry in milliseconds
+         * @return this {@link Builder}
+         */
+        public Builder refreshBeforeExpiry(long refreshBeforeExpiry) {
+            this.refreshBeforeExpiry = refreshBeforeExpiry;
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout in milliseconds of the token requests.
+         *
+         * @param connectTimeout
+         *            the connect timeout in milliseconds
+         * @return this {@link Builder}
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how long in milliseconds a request without a valid token, on
+         * first use or once the token has expired, waits for a new one
+         * before failing. The token request itself goes on, so that a later
+         * request may use its token.
+         *
+         * @param tokenWaitTimeout
+         *            the wait timeout in milliseconds
+         * @return this {@link Builder}
+         */
+        public Builder tokenWaitTimeout(long tokenWaitTimeout) {
+            this.tokenWaitTimeout = tokenWaitTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the pool through which the token requests are sent. If not set
+         * the {@link AHttpClientPool#getDefault()} pool is used.
+         *
+         * @param clientPool
+         *            the {@link AHttpClientPool}
+         * @return this {@link Builder}
+         */
+        public Builder clientPool(AHttpClientPool clientPool) {
+            this.clientPool = clientPool;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link AHttpOAuth2TokenProvider} with the current
+         * configuration of this builder.
+         *
+         * @return the new {@link AHttpOAuth2TokenProvider} * @throws
+         *         IllegalArgumentException if the token url is missing or not
+         *         an absolute http or https url, or the client credentials
+         *         are missing
+         */
+        public AHttpOAuth2TokenProvider build() {
+            if (StringUtils.isEmpty(tokenUrl)) {
+                throw new IllegalArgumentException("tokenUrl must be set");
+            }
+            URI tokenUri;
+            try {
+                tokenUri = new URI(tokenUrl);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid tokenUrl "
+                        + tokenUrl, e);
+            }
+            if (!("http".equalsIgnoreCase(tokenUri.getScheme()) || "https"
+                    .equalsIgnoreCase(tokenUri.getScheme()))
+                    || StringUtils.isEmpty(tokenUri.getHost())) {
+                throw new IllegalArgumentException(
+                        "tokenUrl must be an absolute http or https url: "
+                                + tokenUrl);
+            }
+            if (tokenWaitTimeout <= 0) {
+                throw new IllegalArgumentException(
+                        "tokenWaitTimeout must be positive");
+            }
+            if (StringUtils.isEmpty(clientId)
+                    || StringUtils.isEmpty(clientSecret)) {
+                throw new IllegalArgumentException(
+                        "clientCredentials must be set");
+            }
+            return new AHttpOAuth2TokenProvider(this);
+        }
+    }
+}
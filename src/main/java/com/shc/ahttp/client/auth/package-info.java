@@ -0,0 +1,9 @@
+/**
+ * This package provides the pluggable authentication of requests other than by basic auth: the provider interface
+ * adding the credentials of a request, and the OAuth2 client credentials provider which caches its bearer token and
+ * refreshes it in the background before it expires.
+ * 
+ * @see com.shc.ahttp.client.auth.AHttpAuthProvider
+ * @see com.shc.ahttp.client.auth.AHttpOAuth2TokenProvider
+ */
+package com.shc.ahttp.client.auth;
@@ -0,0 +1,257 @@
+package com.shc.ahttp.client.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.shc.ahttp.client.auth.AHttpAuthProvider;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+
+/**
+ * Coalesces identical concurrent requests, so that when many threads ask for
+ * the same resource at the same moment only the first one sends the request
+ * and the others wait for its result, instead of each making its own round
+ * trip. Requests are identical when they have the same method, url, headers,
+ * basic auth identity and response class. Used by
+ * {@link com.shc.ahttp.client.SClient} and
+ * {@link com.shc.ahttp.client.SGetClient} for the blocking get calls when one
+ * is configured, and may be shared between clients. <br/>
+ * <br/>
+ *
+ * Only requests in flight at the same time are coalesced, nothing is kept
+ * once the request completes; combine with a {@link SResponseCache} to reuse
+ * responses over time. Waiting callers receive the very same
+ * {@link SClientResponse}, or the same {@link SClientException}, as the
+ * caller which sent the request, so the response object must not be
+ * modified. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SRequestCoalescer requestCoalescer = new SRequestCoalescer();
+ * SClient sClient = SClient.builder().requestCoalescer(requestCoalescer)
+ *         .build();
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class SRequestCoalescer {
+
+    /** The requests currently in flight */
+    private final ConcurrentMap<Key, CompletableFuture<SClientResponse<?>>> inFlight = new ConcurrentHashMap<Key, CompletableFuture<SClientResponse<?>>>();
+
+    private final AtomicLong executedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Executes the given call, unless an identical request is already in
+     * flight, in which case its result is awaited and returned instead
+     *
+     * @param method
+     *            the HTTP method of the request, for ex GET
+     * @param url
+     *            the full url of the request
+     * @param requestHeaders
+     *            the headers of the request, may be null
+     * @param username
+     *            the basic auth username of the request, may be null
+     * @param password
+     *            the basic auth password of the request, may be null
+     * @param authProvider
+     *            the {@link AHttpAuthProvider} authenticating the request, if
+     *            it is not sent with basic auth, may be null
+     * @param responseClass
+     *            the class the response body is parsed into
+     * @param call
+     *            the {@link Call} sending the request
+     *
+     * @return the {@link SClientResponse} of this or the identical request *
+     *         @throws SClientException if this or the identical request
+     *         failed, or the wait was interrupted
+     */
+    public <RES> SClientResponse<RES> execute(String method, String url,
+            Map<String, String> requestHeaders, String username,
+            String password, AHttpAuthProvider authProvider,
+            Class<RES> responseClass, Call<RES> call) throws SClientException {
+        Key key = new Key(method, url, requestHeaders, username, password,
+                authProvider, responseClass);
+        CompletableFuture<SClientResponse<?>> future = new CompletableFuture<SClientResponse<?>>();
+        CompletableFuture<SClientResponse<?>> inFlightFuture = inFlight
+                .putIfAbsent(key, future);
+        if (inFlightFuture != null) {
+            coalescedCount.incrementAndGet();
+            return await(inFlightFuture);
+        }
+
+        executedCount.incrementAndGet();
+        try {
+            SClientResponse<RES> response = call.call();
+            future.complete(response);
+            return response;
+        } catch (Throwable e) {
+            // any failure, errors included, is shared so that no waiting
+            // caller is left blocked on the future
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Waits for the result of a request in flight
+     *
+     * @param inFlightFuture
+     *            the future result of the request
+     *
+     * @return the {@link SClientResponse} * @throws SClientException if the
+     *         request failed or the wait was interrupted
+     */
+    @SuppressWarnings("unchecked")
+    private static <RES> SClientResponse<RES> await(
+            CompletableFuture<SClientResponse<?>> inFlightFuture)
+            throws SClientException {
+        try {
+            return (SClientResponse<RES>) inFlightFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SClientException(
+                    "Interrupted while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SClientException) {
+                throw (SClientException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SClientException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Gets the number of requests currently in flight
+     *
+     * @return the in flight count
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the number of requests actually sent
+     *
+     * @return the executed count
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * Gets the number of requests answered with the result of an identical
+     * request in flight
+     *
+     * @return the coalesced count
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Sends a request on behalf of all the identical callers
+     */
+    @FunctionalInterface
+    public interface Call<RES> {
+
+        /**
+         * Sends the request and parses the response
+         *
+         * @return the {@link SClientResponse} * @throws SClientException if
+         *         any exception has occurred
+         */
+        SClientResponse<RES> call() throws SClientException;
+    }
+
+    /**
+     * Identifies identical requests
+     */
+    static final class Key {
+
+        private final String method;
+
+        private final String url;
+
+        private final Map<String, String> requestHeaders;
+
+        private final String username;
+
+        private final String password;
+
+        /** The provider authenticating the request, compared by equals */
+        private final AHttpAuthProvider authProvider;
+
+        private final Class<?> responseClass;
+
+        private final int hashCode;
+
+        Key(String method, String url, Map<String, String> requestHeaders,
+                String username, String password,
+                AHttpAuthProvider authProvider, Class<?> responseClass) {
+            this.method = method;
+            this.url = url;
+            this.requestHeaders = requestHeaders == null ? Collections
+                    .<String, String> emptyMap()
+                    : new HashMap<String, String>(requestHeaders);
+            this.username = username;
+            this.password = password;
+            this.authProvider = authProvider;
+            this.responseClass = responseClass;
+            int hash = method.hashCode();
+            hash = hash * 31 + url.hashCode();
+            hash = hash * 31 + this.requestHeaders.hashCode();
+            hash = hash * 31 + (username == null ? 0 : username.hashCode());
+            hash = hash * 31
+                    + (authProvider == null ? 0 : authProvider.hashCode());
+            hash = hash * 31 + responseClass.hashCode();
+            this.hashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return method.equals(other.method) && url.equals(other.url)
+                    && requestHeaders.equals(other.requestHeaders)
+                    && equal(username, other.username)
+                    && equal(password, other.password)
+                    && equal(authProvider, other.authProvider)
+                    && responseClass.equals(other.responseClass);
+        }
+
+        private static boolean equal(Object first, Object second) {
+            return first == null ? second == null : first.equals(second);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.shc.ahttp.client.cache;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+import com.shc.ahttp.client.auth.AHttpAuthProvider;
+import com.shc.ahttp.client.response.SClientResponse;
+
+/**
+ * A bounded, thread safe cache of parsed get responses, used by
+ * {@link com.shc.ahttp.client.SClient} and
+ * {@link com.shc.ahttp.client.SGetClient} when one is configured. Responses
+ * are keyed by url, response class, request headers and basic auth identity,
+ * and hold the already parsed response object, so a cache hit neither
+ * downloads nor parses the body again. A cache may be shared between clients
+ * sending different credentials, as the response received with one set of
+ * credentials is never served to another. <br/>
+ * <br/>
+ *
+ * A 200 response is stored unless its Cache-Control forbids it with
+ * <code>no-store</code>. It is served from the cache without a request while
+ * it is fresh according to its Cache-Control <code>max-age</code> or its
+ * Expires header. Once stale, or straight away with <code>no-cache</code>, it
+ * is revalidated by sending its ETag in If-None-Match and its Last-Modified in
+ * If-Modified-Since; on a 304 the cached response is returned. Responses with
+ * neither a freshness lifetime nor a validator are not stored. <br/>
+ * <br/>
+ *
+ * The cache holds at most {@link #getMaxEntries()} responses, evicting the
+ * least recently used one, and drops a response
+ * {@link #getTimeToLive()} milliseconds after it was stored or last
+ * revalidated. The cached response objects are shared by all callers and
+ * must not be modified. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SResponseCache responseCache = new SResponseCache(1000, 3600000);
+ * SClient sClient = SClient.builder().responseCache(responseCache).build();
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class SResponseCache {
+
+    /** The default maximum number of cached responses */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** The default time in milliseconds a response is kept for */
+    public static final long DEFAULT_TIME_TO_LIVE = 3600000;
+
+    /** The maximum number of cached responses */
+    private final int maxEntries;
+
+    /**
+     * The time in milliseconds after which a response is dropped, counted
+     * from when it was stored or last revalidated
+     */
+    private final long timeToLive;
+
+    /** The cached responses in least recently used order, guarded by this */
+    private final LinkedHashMap<Key, Entry<?>> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Instantiates a new cache holding at most {@link #DEFAULT_MAX_ENTRIES}
+     * responses for at most {@link #DEFAULT_TIME_TO_LIVE} milliseconds
+     */
+    public SResponseCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Instantiates a new cache with the given bounds
+     *
+     * @param maxEntries
+     *            the maximum number of cached responses
+     * @param timeToLive
+     *            the time in milliseconds after which a response is dropped,
+     *            counted from when it was stored or last revalidated
+     */
+    public SResponseCache(final int maxEntries, long timeToLive) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<Key, Entry<?>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, SResponseCache.Entry<?>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached response for the given request, if any. A stale entry
+     * is returned as well so that it can be revalidated, while an entry past
+     * its time to live is dropped.
+     *
+     * @param url
+     *            the full url of the request
+     * @param responseClass
+     *            the class the response body is parsed into
+     * @param requestHeaders
+     *            the headers of the request, may be null
+     * @param username
+     *            the basic auth username of the request, may be null
+     * @param password
+     *            the basic auth password of the request, may be null
+     * @param authProvider
+     *            the {@link AHttpAuthProvider} authenticating the request, if
+     *            it is not sent with basic auth, may be null
+     *
+     * @return the {@link Entry}, or null if the response is not cached
+     */
+    public <RES> Entry<RES> getEntry(String url, Class<RES> responseClass,
+            Map<String, String> requestHeaders, String username,
+            String password, AHttpAuthProvider authProvider) {
+        Key key = new Key(url, responseClass, requestHeaders, username,
+                password, authProvider);
+        long now = System.currentTimeMillis();
+        Entry<?> entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && now - entry.storedAt > timeToLive) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+        } else if (entry.isFresh()) {
+            hitCount.incrementAndGet();
+        }
+        @SuppressWarnings("unchecked")
+        Entry<RES> typedEntry = (Entry<RES>) entry;
+        return typedEntry;
+    }
+
+    /**
+     * Stores the given response of a request, if the response can be cached,
+     * replacing any response cached for the request
+     *
+     * @param url
+     *            the full url of the request
+     * @param responseClass
+     *            the class the response body is parsed into
+     * @param requestHeaders
+     *            the headers of the request, may be null
+     * @param username
+     *            the basic auth username of the request, may be null
+     * @param password
+     *            the basic auth password of the request, may be null
+     * @param authProvider
+     *            the {@link AHttpAuthProvider} authenticating the request, if
+     *            it is not sent with basic auth, may be null
+     * @param response
+     *            the parsed response, which must include the response headers
+     *
+     * @return the new {@link Entry}, or null if the response was not stored
+     */
+    public <RES> Entry<RES> put(String url, Class<RES> responseClass,
+            Map<String, String> requestHeaders, String username,
+            String password, AHttpAuthProvider authProvider,
+            SClientResponse<RES> response) {
+        Key key = new Key(url, responseClass, requestHeaders, username,
+                password, authProvider);
+        Entry<RES> entry = null;
+        if (response.getStatusCode() == HttpStatus.SC_OK) {
+            entry = createEntry(key, response, response.getResponseHeaders());
+        }
+        synchronized (this) {
+            if (entry != null) {
+                entries.put(key, entry);
+            } else {
+                entries.remove(key);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Marks the given entry as revalidated by a 304 response, updating its
+     * freshness and validators from the headers of the 304 response
+     *
+     * @param entry
+     *            the revalidated {@link Entry}
+     * @param responseHeaders
+     *            the headers of the 304 response, may be null
+     *
+     * @return the updated {@link Entry}, holding the cached response
+     */
+    public <RES> Entry<RES> revalidated(Entry<RES> entry,
+            Map<String, String> responseHeaders) {
+        revalidationCount.incrementAndGet();
+        Map<String, String> mergedHeaders = new HashMap<String, String>();
+        if (entry.response.getResponseHeaders() != null) {
+            mergedHeaders.putAll(entry.response.getResponseHeaders());
+        }
+        if (responseHeaders != null) {
+            for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+                removeHeader(mergedHeaders, header.getKey());
+                mergedHeaders.put(header.getKey(), header.getValue());
+            }
+        }
+        Entry<RES> revalidatedEntry = createEntry(entry.key, entry.response,
+                mergedHeaders);
+        if (revalidatedEntry == null) {
+            // the server no longer allows the response to be stored
+            revalidatedEntry = new Entry<RES>(entry.key, entry.response, null,
+                    null, 0);
+            invalidate(entry);
+        } else {
+            synchronized (this) {
+                entries.put(entry.key, revalidatedEntry);
+            }
+        }
+        return revalidatedEntry;
+    }
+
+    /**
+     * Removes the given entry from the cache
+     *
+     * @param entry
+     *            the {@link Entry} to be removed
+     */
+    public synchronized void invalidate(Entry<?> entry) {
+        entries.remove(entry.key);
+    }
+
+    /**
+     * Removes all cached responses
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of cached responses
+     *
+     * @return the number of cached responses
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Gets the number of requests answered with a fresh cached response,
+     * without sending a request
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of stale cached responses revalidated by a 304
+     * response
+     *
+     * @return the revalidation count
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * Gets the number of requests for which no response was cached
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Creates the entry for the given response, working out its freshness
+     * lifetime and validators from the given response headers
+     *
+     * @param key
+     *            the {@link Key} of the request
+     * @param response
+     *            the parsed response
+     * @param responseHeaders
+     *            the response headers
+     *
+     * @return the new {@link Entry}, or null if the response cannot be
+     *         stored
+     */
+    private <RES> Entry<RES> createEntry(Key key,
+            SClientResponse<RES> response, Map<String, String> responseHeaders) {
+        if (responseHeaders == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long freshUntil = now;
+        boolean freshnessDeclared = false;
+        boolean noCache = false;
+        String cacheControl = getHeader(responseHeaders,
+                HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                String[] nameValue = directive.trim().split("=", 2);
+                String name = nameValue[0].trim().toLowerCase(Locale.ROOT);
+                if ("no-store".equals(name)) {
+                    return null;
+                }
+                if ("no-cache".equals(name)) {
+                    noCache = true;
+                } else if ("max-age".equals(name) && nameValue.length == 2) {
+                    freshnessDeclared = true;
+                    try {
+                        freshUntil = now
+                                + Long.parseLong(StringUtils.strip(
+                                        nameValue[1].trim(), "\"")) * 1000;
+                    } catch (NumberFormatException e) {
+                        // an invalid max-age leaves the response stale
+                    }
+                }
+            }
+        }
+        if (noCache) {
+            freshUntil = now;
+        } else if (!freshnessDeclared) {
+            Date expires = parseDate(getHeader(responseHeaders,
+                    HttpHeaders.EXPIRES));
+            if (expires != null) {
+                Date date = parseDate(getHeader(responseHeaders,
+                        HttpHeaders.DATE));
+                // the lifetime is taken relative to the server clock
+                freshUntil = now + expires.getTime()
+                        - (date != null ? date.getTime() : now);
+            }
+        }
+        String eTag = getHeader(responseHeaders, HttpHeaders.ETAG);
+        String lastModified = getHeader(responseHeaders,
+                HttpHeaders.LAST_MODIFIED);
+        if (freshUntil <= now && eTag == null && lastModified == null) {
+            return null;
+        }
+        return new Entry<RES>(key, response, eTag, lastModified, freshUntil);
+    }
+
+    private static Date parseDate(String date) {
+        return date == null ? null : DateUtils.parseDate(date);
+    }
+
+    /**
+     * Gets the value of the given header, ignoring the case of its name
+     *
+     * @param headers
+     *            the headers
+     * @param name
+     *            the header name
+     *
+     * @return the header value, or null if the header is not present
+     */
+    private static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void removeHeader(Map<String, String> headers, String name) {
+        headers.keySet().removeIf(headerName -> name.equalsIgnoreCase(headerName));
+    }
+
+    /**
+     * A cached response along with its freshness lifetime and the validators
+     * used to revalidate it. Entries are immutable, revalidating one replaces
+     * it in the cache.
+     */
+    public static class Entry<RES> {
+
+        private final Key key;
+
+        private final SClientResponse<RES> response;
+
+        private final String eTag;
+
+        private final String lastModified;
+
+        private final long freshUntil;
+
+        private final long storedAt;
+
+        Entry(Key key, SClientResponse<RES> response, String eTag,
+                String lastModified, long freshUntil) {
+            this.key = key;
+            this.response = response;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+            this.storedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Checks if the response can still be served without revalidating it
+         *
+         * @return true, if the response is fresh
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+
+        /**
+         * Gets the cached response, which must not be modified
+         *
+         * @return the cached {@link SClientResponse}
+         */
+        public SClientResponse<RES> getResponse() {
+            return response;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Creates a copy of the given request headers with the validators of
+         * this entry added as If-None-Match and If-Modified-Since
+         *
+         * @param requestHeaders
+         *            the headers of the request, may be null
+         *
+         * @return the headers of the conditional request
+         */
+        public Map<String, String> getConditionalHeaders(
+                Map<String, String> requestHeaders) {
+            Map<String, String> conditionalHeaders = new HashMap<String, String>();
+            if (requestHeaders != null) {
+                conditionalHeaders.putAll(requestHeaders);
+            }
+            if (eTag != null) {
+                conditionalHeaders.put(HttpHeaders.IF_NONE_MATCH, eTag);
+            }
+            if (lastModified != null) {
+                conditionalHeaders.put(HttpHeaders.IF_MODIFIED_SINCE,
+                        lastModified);
+            }
+            return conditionalHeaders;
+        }
+    }
+
+    /**
+     * Identifies a cached response by the url, response class, headers and
+     * basic auth identity or auth provider of its request
+     */
+    static final class Key {
+
+        private final String url;
+
+        private final Class<?> responseClass;
+
+        private final Map<String, String> requestHeaders;
+
+        private final String username;
+
+        private final String password;
+
+        /** The provider authenticating the request, compared by equals */
+        private final AHttpAuthProvider authProvider;
+
+        private final int hashCode;
+
+        Key(String url, Class<?> responseClass,
+                Map<String, String> requestHeaders, String username,
+                String password, AHttpAuthProvider authProvider) {
+            this.url = url;
+            this.responseClass = responseClass;
+            this.requestHeaders = requestHeaders == null ? Collections
+                    .<String, String> emptyMap()
+                    : new HashMap<String, String>(requestHeaders);
+            this.username = username;
+            this.password = password;
+            this.authProvider = authProvider;
+            int hash = url.hashCode();
+            hash = hash * 31 + responseClass.hashCode();
+            hash = hash * 31 + this.requestHeaders.hashCode();
+            hash = hash * 31 + (username == null ? 0 : username.hashCode());
+            hash = hash * 31
+                    + (authProvider == null ? 0 : authProvider.hashCode());
+            this.hashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return url.equals(other.url)
+                    && responseClass.equals(other.responseClass)
+                    && requestHeaders.equals(other.requestHeaders)
+                    && equal(username, other.username)
+                    && equal(password, other.password)
+                    && equal(authProvider, other.authProvider);
+        }
+
+        private static boolean equal(Object first, Object second) {
+            return first == null ? second == null : first.equals(second);
+        }
+    }
+}
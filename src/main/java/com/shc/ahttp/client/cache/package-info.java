@@ -0,0 +1,9 @@
+/**
+ * This package provides the opt-in reuse of parsed get responses: the cache which honors the Cache-Control, ETag
+ * and Last-Modified headers of the server and revalidates stale responses with conditional requests, and the
+ * coalescer which shares the result of a request with identical concurrent requests.
+ * 
+ * @see com.shc.ahttp.client.cache.SResponseCache
+ * @see com.shc.ahttp.client.cache.SRequestCoalescer
+ */
+package com.shc.ahttp.client.cache;
@@ -0,0 +1,148 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.Args;
+
+/**
+ * Wraps a request entity so that its content is compressed as it is written
+ * to the connection. Only the compression window is held in memory, the
+ * compressed output going straight to the connection. As the length of the
+ * compressed content is not known up front the entity is sent using chunked
+ * transfer encoding, with its Content-Encoding header set. <br/>
+ * <br/>
+ *
+ * The blocking client only ever calls {@link #writeTo(OutputStream)}. Clients
+ * reading the content through {@link #getContent()}, such as the non blocking
+ * client, get it compressed in memory.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+class AHttpCompressingEntity extends HttpEntityWrapper {
+
+    /** The Content-Encoding header of the compressed content */
+    private final Header contentEncoding;
+
+    /** Creates the stream compressing the content */
+    private final OutputStreamFactory encoderFactory;
+
+    /**
+     * Instantiates a new compressing entity
+     *
+     * @param wrappedEntity
+     *            the {@link HttpEntity} whose content is compressed
+     * @param encoding
+     *            the content coding, for ex gzip
+     * @param encoderFactory
+     *            the {@link OutputStreamFactory} creating the encoder
+     */
+    AHttpCompressingEntity(HttpEntity wrappedEntity, String encoding,
+            OutputStreamFactory encoderFactory) {
+        super(wrappedEntity);
+        this.contentEncoding = new BasicHeader(HttpHeaders.CONTENT_ENCODING,
+                encoding);
+        this.encoderFactory = encoderFactory;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @return -1, as the length of the compressed content is not known before
+     *         it is written
+     * @see org.apache.http.HttpEntity#getContentLength()
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    /**
+     * Compresses the content into memory and returns a stream over it, for the
+     * clients which cannot have it written to the connection.
+     *
+     * @return the compressed content * @throws IOException if the content
+     *         could not be written
+     * @see org.apache.http.HttpEntity#getContent()
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * Writes the content of the wrapped entity through the encoder to the
+     * given stream, which is left open.
+     *
+     * @param outstream
+     *            the output stream of the connection
+     * @throws IOException
+     *             if the content could not be written
+     * @see org.apache.http.HttpEntity#writeTo(OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        Args.notNull(outstream, "Output stream");
+        OutputStream encoder = encoderFactory
+                .create(new NonClosingOutputStream(outstream));
+        try {
+            wrappedEntity.writeTo(encoder);
+        } finally {
+            // finishes the compressed stream without closing the connection
+            encoder.close();
+        }
+        outstream.flush();
+    }
+
+    /**
+     * @return false, as the entity is compressed again each time it is
+     *         written
+     * @see org.apache.http.HttpEntity#isStreaming()
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Passes writes through to the output stream of the connection but only
+     * flushes it when closed, so that the encoder can be closed to finish the
+     * compressed stream.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Negotiates the compression of response bodies through the Accept-Encoding
+ * header and decodes compressed bodies according to their Content-Encoding.
+ * The body is decoded as it is read from the connection, so a consumer
+ * parsing it straight from the content stream never holds a decompressed
+ * copy of it in memory. <br/>
+ * <br/>
+ *
+ * gzip and deflate are always supported. brotli is supported when the
+ * optional <code>org.brotli:dec</code> decoder is on the classpath, and zstd
+ * when the optional <code>com.github.luben:zstd-jni</code> decoder is, in
+ * which case a dictionary the content was compressed with may also be given.
+ * Requested encodings whose decoder is not available are left out of the
+ * Accept-Encoding header. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+ * config.setContentEncodings(Arrays.asList(AHttpContentEncoding.ZSTD,
+ *         AHttpContentEncoding.GZIP));
+ * config.setZstdDictionary(dictionary);
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpContentEncoding {
+
+    /** The zstd content coding */
+    public static final String ZSTD = "zstd";
+
+    /** The brotli content coding */
+    public static final String BROTLI = "br";
+
+    /** The gzip content coding */
+    public static final String GZIP = "gzip";
+
+    /** The deflate content coding */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * The encodings accepted by default, in order of preference, of which only
+     * the available ones are sent
+     */
+    public static final List<String> DEFAULT_ENCODINGS = Collections
+            .unmodifiableList(Arrays.asList(ZSTD, BROTLI, GZIP, DEFLATE));
+
+    private static final String BROTLI_DECODER_CLASS = "org.brotli.dec.BrotliInputStream";
+
+    private static final String ZSTD_DECODER_CLASS = "com.github.luben.zstd.ZstdInputStream";
+
+    private static final InputStreamFactory GZIP_FACTORY = GZIPInputStream::new;
+
+    private static final InputStreamFactory DEFLATE_FACTORY = DeflateInputStream::new;
+
+    private static volatile Boolean brotliAvailable;
+
+    private static volatile Boolean zstdAvailable;
+
+    /** The available encodings which are accepted, in order of preference */
+    private final List<String> encodings;
+
+    /** Adds the Accept-Encoding header, null if no encoding is accepted */
+    private final HttpRequestInterceptor requestInterceptor;
+
+    /** Decodes the response entity, null if no encoding is accepted */
+    private final HttpResponseInterceptor responseInterceptor;
+
+    /**
+     * Instantiates a new content encoding accepting the given encodings
+     *
+     * @param requestedEncodings
+     *            the encodings to be accepted in order of preference, those
+     *            whose decoder is not available being skipped, or an empty
+     *            list to ask for uncompressed bodies
+     * @param zstdDictionary
+     *            the dictionary zstd content is compressed with, may be null
+     * @throws IllegalArgumentException
+     *             if an encoding is not one of {@link #ZSTD}, {@link #BROTLI},
+     *             {@link #GZIP} or {@link #DEFLATE}
+     */
+    public AHttpContentEncoding(List<String> requestedEncodings,
+            byte[] zstdDictionary) {
+        List<String> availableEncodings = new ArrayList<String>();
+        RegistryBuilder<InputStreamFactory> decoders = RegistryBuilder
+                .create();
+        for (String requestedEncoding : requestedEncodings) {
+            String encoding = requestedEncoding.trim().toLowerCase(Locale.ROOT);
+            if (availableEncodings.contains(encoding)) {
+                continue;
+            }
+            InputStreamFactory decoder = createDecoder(encoding, zstdDictionary);
+            if (decoder != null) {
+                availableEncodings.add(encoding);
+                decoders.register(encoding, decoder);
+                if (GZIP.equals(encoding)) {
+                    decoders.register("x-gzip", decoder);
+                }
+            }
+        }
+        this.encodings = Collections.unmodifiableList(availableEncodings);
+        if (availableEncodings.isEmpty()) {
+            requestInterceptor = null;
+            responseInterceptor = null;
+        } else {
+            requestInterceptor = new RequestAcceptEncoding(availableEncodings);
+            responseInterceptor = new ResponseContentEncoding(decoders.build());
+        }
+    }
+
+    /**
+     * Creates the decoder of the given encoding
+     *
+     * @param encoding
+     *            the lower case content coding
+     * @param zstdDictionary
+     *            the dictionary zstd content is compressed with, may be null
+     *
+     * @return the {@link InputStreamFactory} decoding the content, or null if
+     *         the decoder is not on the classpath
+     */
+    private static InputStreamFactory createDecoder(String encoding,
+            byte[] zstdDictionary) {
+        switch (encoding) {
+        case GZIP:
+            return GZIP_FACTORY;
+        case DEFLATE:
+            return DEFLATE_FACTORY;
+        case BROTLI:
+            return isAvailable(BROTLI) ? new BrotliInputStreamFactory() : null;
+        case ZSTD:
+            return isAvailable(ZSTD) ? new ZstdInputStreamFactory(
+                    zstdDictionary) : null;
+        default:
+            throw new IllegalArgumentException("Unsupported content encoding "
+                    + encoding);
+        }
+    }
+
+    /**
+     * Checks if content with the given encoding can be decoded, which for
+     * brotli and zstd depends on their optional decoder being on the
+     * classpath
+     *
+     * @param encoding
+     *            the content coding, for ex br
+     *
+     * @return true, if the encoding can be decoded
+     */
+    public static boolean isAvailable(String encoding) {
+        switch (encoding.toLowerCase(Locale.ROOT)) {
+        case GZIP:
+        case DEFLATE:
+            return true;
+        case BROTLI:
+            if (brotliAvailable == null) {
+                brotliAvailable = isOnClasspath(BROTLI_DECODER_CLASS);
+            }
+            return brotliAvailable;
+        case ZSTD:
+            if (zstdAvailable == null) {
+                zstdAvailable = isOnClasspath(ZSTD_DECODER_CLASS)
+                        && ZstdInputStreamFactory.isNativeLibraryAvailable();
+            }
+            return zstdAvailable;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isOnClasspath(String className) {
+        try {
+            Class.forName(className, false,
+                    AHttpContentEncoding.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the available encodings which are accepted, in order of
+     * preference
+     *
+     * @return the unmodifiable {@link List} of encodings, empty if bodies are
+     *         asked to be uncompressed
+     */
+    public List<String> getEncodings() {
+        return encodings;
+    }
+
+    /**
+     * Gets the interceptor adding the Accept-Encoding header to requests
+     *
+     * @return the {@link HttpRequestInterceptor}, or null if no encoding is
+     *         accepted
+     */
+    public HttpRequestInterceptor getRequestInterceptor() {
+        return requestInterceptor;
+    }
+
+    /**
+     * Gets the interceptor replacing the entity of a compressed response with
+     * one decoding it as it is read
+     *
+     * @return the {@link HttpResponseInterceptor}, or null if no encoding is
+     *         accepted
+     */
+    public HttpResponseInterceptor getResponseInterceptor() {
+        return responseInterceptor;
+    }
+
+    /**
+     * Replaces the entity of the given response, if compressed, with one
+     * decoding it as it is read. Used for responses which are not passed
+     * through the {@link #getResponseInterceptor()}.
+     *
+     * @param httpResponse
+     *            the {@link HttpResponse} to be decoded
+     * @param context
+     *            the {@link HttpContext} of the request
+     * @throws IOException
+     *             if the response has an unsupported content encoding
+     */
+    public void decode(HttpResponse httpResponse, HttpContext context)
+            throws IOException {
+        if (responseInterceptor == null) {
+            return;
+        }
+        try {
+            responseInterceptor.process(httpResponse, context);
+        } catch (HttpException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     *
+     * @return {@link String} showing the accepted encodings * @see
+     *         java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "AHttpContentEncoding " + encodings;
+    }
+}
@@ -0,0 +1,338 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+
+/**
+ * Compresses request bodies on the fly with gzip or, when the optional
+ * <code>com.github.luben:zstd-jni</code> encoder is on the classpath, with
+ * zstd. The body is compressed as it is written to the connection, so neither
+ * the compressed nor an extra copy of the uncompressed body is buffered. <br/>
+ * <br/>
+ *
+ * Only bodies of at least {@link #getMinimumSize()} bytes are compressed, as
+ * compressing small bodies costs more than it saves. A body whose length is
+ * not known up front, such as one written by an
+ * <code>AHttpEntityProducer</code>, is buffered up to the minimum size first:
+ * if it ends before, it is sent as is with its length, otherwise it is
+ * compressed. As the Content-Encoding header has to be chosen before the body
+ * is sent and the body is never written twice, the rest of a repeatable body
+ * is then compressed into memory, while a one-shot body is compressed as it
+ * is written to the connection whatever its size. The server must accept the
+ * chosen Content-Encoding. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient
+ *         .builder()
+ *         .baseUrl(&quot;https://httpbin.org&quot;)
+ *         .requestCompression(
+ *                 new AHttpRequestCompression(AHttpContentEncoding.ZSTD, 64 * 1024))
+ *         .build();
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpRequestCompression {
+
+    /** The default size in bytes from which a body is compressed */
+    public static final long DEFAULT_MINIMUM_SIZE = 8192;
+
+    /** The compression level used for zstd, favouring speed over ratio */
+    public static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    /** The size of the buffer of the gzip encoder */
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    /** The content coding the bodies are compressed with */
+    private final String encoding;
+
+    /** The size in bytes from which a body is compressed */
+    private final long minimumSize;
+
+    /** Creates the encoder compressing the bodies */
+    private final OutputStreamFactory encoderFactory;
+
+    /**
+     * Instantiates a new request compression compressing bodies of at least
+     * {@link #DEFAULT_MINIMUM_SIZE} bytes with the given encoding
+     *
+     * @param encoding
+     *            the content coding, {@link AHttpContentEncoding#GZIP} or
+     *            {@link AHttpContentEncoding#ZSTD}
+     */
+    public AHttpRequestCompression(String encoding) {
+        this(encoding, DEFAULT_MINIMUM_SIZE);
+    }
+
+    /**
+     * Instantiates a new request compression compressing bodies of at least
+     * the given size with the given encoding
+     *
+     * @param encoding
+     *            the content coding, {@link AHttpContentEncoding#GZIP} or
+     *            {@link AHttpContentEncoding#ZSTD}
+     * @param minimumSize
+     *            the size in bytes from which a body is compressed
+     * @throws IllegalArgumentException
+     *             if the encoding is not supported or its encoder is not on
+     *             the classpath
+     */
+    public AHttpRequestCompression(String encoding, long minimumSize) {
+        this.encoding = encoding.trim().toLowerCase(Locale.ROOT);
+        this.minimumSize = minimumSize;
+        switch (this.encoding) {
+        case AHttpContentEncoding.GZIP:
+            encoderFactory = out -> new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            break;
+        case AHttpContentEncoding.ZSTD:
+            if (!AHttpContentEncoding.isAvailable(AHttpContentEncoding.ZSTD)) {
+                throw new IllegalArgumentException(
+                        "The zstd encoder is not on the classpath");
+            }
+            encoderFactory = new ZstdOutputStreamFactory(DEFAULT_ZSTD_LEVEL);
+            break;
+        default:
+            throw new IllegalArgumentException(
+                    "Unsupported request content encoding " + encoding);
+        }
+    }
+
+    /**
+     * Wraps the given request entity so that it is compressed as it is
+     * written, unless it is smaller than {@link #getMinimumSize()} or already
+     * encoded. An entity of unknown length is buffered up to the minimum size
+     * to find out whether it is smaller, its content being read or written
+     * only once: a repeatable entity reaching the minimum size is compressed
+     * into memory, and an entity which is neither streaming nor repeatable is
+     * always compressed.
+     *
+     * @param requestEntity
+     *            the {@link HttpEntity} to be sent, may be null
+     *
+     * @return the compressing {@link HttpEntity}, the given one if it is not
+     *         to be compressed, or a buffered, possibly compressed, copy of an
+     *         entity of unknown length * @throws IOException if the content
+     *         of an entity of unknown length could not be buffered
+     */
+    public HttpEntity compress(HttpEntity requestEntity) throws IOException {
+        if (requestEntity == null || requestEntity.getContentEncoding() != null) {
+            return requestEntity;
+        }
+        long contentLength = requestEntity.getContentLength();
+        if (contentLength >= 0) {
+            return contentLength < minimumSize ? requestEntity
+                    : new AHttpCompressingEntity(requestEntity, encoding,
+                            encoderFactory);
+        }
+        if (minimumSize <= 0) {
+            return new AHttpCompressingEntity(requestEntity, encoding,
+                    encoderFactory);
+        }
+        ThresholdOutputStream head = new ThresholdOutputStream(minimumSize);
+        if (requestEntity.isStreaming()) {
+            // a one-shot stream is read once, its head then sent first
+            InputStream content = requestEntity.getContent();
+            try {
+                byte[] buffer = new byte[GZIP_BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    head.write(buffer, 0, read);
+                }
+            } catch (ThresholdReachedException e) {
+                InputStreamEntity remaining = new InputStreamEntity(
+                        new SequenceInputStream(new ByteArrayInputStream(
+                                head.toByteArray()), content));
+                copyContentType(requestEntity, remaining);
+                return new AHttpCompressingEntity(remaining, encoding,
+                        encoderFactory);
+            }
+            content.close();
+        } else if (requestEntity.isRepeatable()) {
+            // written once, its head deciding whether the rest is compressed
+            SwitchingOutputStream out = new SwitchingOutputStream(minimumSize,
+                    encoderFactory);
+            requestEntity.writeTo(out);
+            ByteArrayEntity bufferedEntity = new ByteArrayEntity(
+                    out.toByteArray());
+            copyContentType(requestEntity, bufferedEntity);
+            if (out.isCompressed()) {
+                bufferedEntity.setContentEncoding(encoding);
+            }
+            return bufferedEntity;
+        } else {
+            return new AHttpCompressingEntity(requestEntity, encoding,
+                    encoderFactory);
+        }
+        ByteArrayEntity bufferedEntity = new ByteArrayEntity(head.toByteArray());
+        copyContentType(requestEntity, bufferedEntity);
+        return bufferedEntity;
+    }
+
+    private static void copyContentType(HttpEntity from, AbstractHttpEntity to) {
+        to.setContentType(from.getContentType());
+    }
+
+    /**
+     * Gets the content coding the bodies are compressed with.
+     *
+     * @return the content coding, for ex gzip
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the size in bytes from which a body is compressed.
+     *
+     * @return the minimum size in bytes
+     */
+    public long getMinimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     *
+     * @return {@link String} showing the encoding and minimum size * @see
+     *         java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "AHttpRequestCompression [encoding=" + encoding
+                + ", minimumSize=" + minimumSize + "]";
+    }
+
+    /**
+     * Buffers the head of a one-shot stream of unknown length, stopping the
+     * reading with a
+     * {@link ThresholdReachedException} once the minimum size is reached.
+     */
+    private static class ThresholdOutputStream extends ByteArrayOutputStream {
+
+        private final long threshold;
+
+        ThresholdOutputStream(long threshold) {
+            super((int) Math.min(threshold, GZIP_BUFFER_SIZE));
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void write(int b) {
+            super.write(b);
+            checkThreshold();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            checkThreshold();
+        }
+
+        boolean isThresholdReached() {
+            return count >= threshold;
+        }
+
+        private void checkThreshold() {
+            if (isThresholdReached()) {
+                throw new ThresholdReachedException();
+            }
+        }
+    }
+
+    /**
+     * Buffers the head of a body of unknown length as is until it reaches the
+     * minimum size, then compresses the head and the rest of the body into
+     * memory, so that the body is written only once whatever its length.
+     * Closing the stream has no effect, the encoder being finished by
+     * {@link #toByteArray()}.
+     */
+    private static class SwitchingOutputStream extends OutputStream {
+
+        private final long threshold;
+
+        private final OutputStreamFactory encoderFactory;
+
+        /** The uncompressed head, then the compressed body */
+        private ByteArrayOutputStream buffer;
+
+        /** The encoder, once the threshold has been reached */
+        private OutputStream encoder;
+
+        SwitchingOutputStream(long threshold, OutputStreamFactory encoderFactory) {
+            this.threshold = threshold;
+            this.encoderFactory = encoderFactory;
+            this.buffer = new ByteArrayOutputStream((int) Math.min(threshold,
+                    GZIP_BUFFER_SIZE));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (encoder != null) {
+                encoder.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= threshold) {
+                ByteArrayOutputStream head = buffer;
+                buffer = new ByteArrayOutputStream(GZIP_BUFFER_SIZE);
+                encoder = encoderFactory.create(buffer);
+                head.writeTo(encoder);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (encoder != null) {
+                encoder.flush();
+            }
+        }
+
+        boolean isCompressed() {
+            return encoder != null;
+        }
+
+        /**
+         * Finishes the encoder, if any, and gets the buffered body
+         *
+         * @return the uncompressed head, or the compressed body
+         */
+        byte[] toByteArray() throws IOException {
+            if (encoder != null) {
+                encoder.close();
+            }
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Stops the writing of a body once its head has reached the minimum size
+     */
+    private static class ThresholdReachedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ThresholdReachedException() {
+            super("The minimum size to compress is reached", null, false,
+                    false);
+        }
+    }
+}
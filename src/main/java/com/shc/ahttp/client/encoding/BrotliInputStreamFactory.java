@@ -0,0 +1,23 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.client.entity.InputStreamFactory;
+import org.brotli.dec.BrotliInputStream;
+
+/**
+ * Decodes brotli content using the optional <code>org.brotli:dec</code>
+ * decoder, which must only be loaded once the decoder has been found on the
+ * classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+class BrotliInputStreamFactory implements InputStreamFactory {
+
+    @Override
+    public InputStream create(InputStream instream) throws IOException {
+        return new BrotliInputStream(instream);
+    }
+}
@@ -0,0 +1,26 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Factory for the encoding output streams compressing request bodies, the
+ * counterpart of the <code>InputStreamFactory</code> decoding response bodies.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+interface OutputStreamFactory {
+
+    /**
+     * Wraps the given stream in one encoding what is written to it. Closing
+     * the returned stream finishes the encoding and closes the given stream.
+     *
+     * @param outstream
+     *            the stream the encoded content is written to
+     *
+     * @return the encoding {@link OutputStream} * @throws IOException if the
+     *         encoder could not be created
+     */
+    OutputStream create(OutputStream outstream) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.client.entity.InputStreamFactory;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.util.Native;
+
+/**
+ * Decodes zstd content, optionally against a dictionary, using the optional
+ * <code>com.github.luben:zstd-jni</code> decoder, which must only be loaded
+ * once the decoder has been found on the classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+class ZstdInputStreamFactory implements InputStreamFactory {
+
+    /** The dictionary the content was compressed with, may be null */
+    private final byte[] dictionary;
+
+    ZstdInputStreamFactory(byte[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Checks if the native library of the decoder can be loaded on this
+     * platform
+     *
+     * @return true, if zstd content can be decoded
+     */
+    static boolean isNativeLibraryAvailable() {
+        try {
+            Native.load();
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream create(InputStream instream) throws IOException {
+        ZstdInputStream zstdInputStream = new ZstdInputStream(instream);
+        if (dictionary != null) {
+            zstdInputStream.setDict(dictionary);
+        }
+        return zstdInputStream;
+    }
+}
@@ -0,0 +1,29 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Encodes zstd content using the optional
+ * <code>com.github.luben:zstd-jni</code> encoder, which must only be loaded
+ * once the encoder has been found on the classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+class ZstdOutputStreamFactory implements OutputStreamFactory {
+
+    /** The compression level of the encoder */
+    private final int level;
+
+    ZstdOutputStreamFactory(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public OutputStream create(OutputStream outstream) throws IOException {
+        return new ZstdOutputStream(outstream, level);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * This package provides the negotiation and streaming decoding of compressed response bodies, for gzip and deflate
+ * as well as for brotli and zstd when their optional decoders are on the classpath, and the on the fly compression
+ * of large request bodies with gzip or zstd.
+ * 
+ * @see com.shc.ahttp.client.encoding.AHttpContentEncoding
+ * @see com.shc.ahttp.client.encoding.AHttpRequestCompression
+ */
+package com.shc.ahttp.client.encoding;
@@ -2,6 +2,8 @@ package com.shc.ahttp.client.exception;
 
 import java.util.Map;
 
+import com.shc.ahttp.client.response.AHttpResponseHeaders;
+
 /**
  * Any exception which facilitates capturing the various response parameters of
  * an http client call.
@@ -168,6 +170,25 @@ public class AHttpClientCallException extends Exception {
         return responseBody;
     }
 
+    /**
+     * 
+    
+     * @return the headers of the response associated with this exception, or
+     *         null if there is no response */
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    /**
+     * 
+    
+     * @return the headers of the response associated with this exception as
+     *         an {@link AHttpResponseHeaders} view, or null if there is no
+     *         response */
+    public AHttpResponseHeaders getHeaderView() {
+        return AHttpResponseHeaders.of(responseHeaders);
+    }
+
     /**
     
      * @return {@link String} A summary string of all fields associated with this exception */
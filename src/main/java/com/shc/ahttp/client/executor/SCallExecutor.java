@@ -0,0 +1,363 @@
+package com.shc.ahttp.client.executor;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * Executes blocking calls, each on its own virtual thread when running on
+ * Java 21 or later, while bounding the number of calls in flight to each
+ * route with a fair semaphore. Calls over the bound wait for a permit instead
+ * of piling up in the connection pool. <br/>
+ * <br/>
+ *
+ * The blocking request path of the library holds no monitor while waiting on
+ * the network, so a virtual thread blocked in a call releases its carrier
+ * thread. On earlier Java versions the calls run on a pool of at most
+ * {@link AHttpClientConstants#DEFAULT_CALL_EXECUTOR_THREADS} platform threads
+ * instead, further calls being queued. As a call waiting for a permit holds
+ * its platform thread, a pool filled with the calls to a saturated route
+ * delays the calls to the other routes. <br/>
+ * <br/>
+ *
+ * An executor may be shared between clients, which then share its per route
+ * bounds. The permits of a route are dropped once no call is in flight or
+ * waiting for it, so that a long lived executor does not keep every route it
+ * has called. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SCallExecutor callExecutor = new SCallExecutor(200);
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://httpbin.org&quot;)
+ *         .callExecutor(callExecutor).build();
+ * CompletableFuture&lt;SClientResponse&lt;HttpBinGetResponse&gt;&gt; future = sClient
+ *         .getAsync(&quot;/get&quot;, HttpBinGetResponse.class);
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class SCallExecutor {
+
+    /** The executor the calls are run on */
+    private final ExecutorService executorService;
+
+    /** Whether {@link #executorService} runs each call on a virtual thread */
+    private final boolean virtualThreads;
+
+    /** The maximum number of calls in flight to a single route */
+    private final int maxConcurrentCallsPerRoute;
+
+    /**
+     * The permits of the routes with calls in flight or waiting, keyed by
+     * route
+     */
+    private final ConcurrentMap<HttpHost, RoutePermits> routePermits = new ConcurrentHashMap<HttpHost, RoutePermits>();
+
+    /**
+     * Instantiates a new executor running each call on a virtual thread, or on
+     * a bounded pool of platform threads before Java 21
+     *
+     * @param maxConcurrentCallsPerRoute
+     *            the maximum number of calls in flight to a single route
+     */
+    public SCallExecutor(int maxConcurrentCallsPerRoute) {
+        ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.executorService = virtualThreadExecutor != null ? virtualThreadExecutor
+                : newPlatformThreadExecutor();
+        this.maxConcurrentCallsPerRoute = checkMaxConcurrentCalls(maxConcurrentCallsPerRoute);
+    }
+
+    /**
+     * Instantiates a new executor running the calls on the given executor
+     *
+     * @param maxConcurrentCallsPerRoute
+     *            the maximum number of calls in flight to a single route
+     * @param executorService
+     *            the {@link ExecutorService} the calls are run on
+     */
+    public SCallExecutor(int maxConcurrentCallsPerRoute,
+            ExecutorService executorService) {
+        this.executorService = executorService;
+        this.virtualThreads = false;
+        this.maxConcurrentCallsPerRoute = checkMaxConcurrentCalls(maxConcurrentCallsPerRoute);
+    }
+
+    private static int checkMaxConcurrentCalls(int maxConcurrentCallsPerRoute) {
+        if (maxConcurrentCallsPerRoute < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrentCallsPerRoute must be positive, was "
+                            + maxConcurrentCallsPerRoute);
+        }
+        return maxConcurrentCallsPerRoute;
+    }
+
+    /**
+     * Creates the executor starting a virtual thread per task, which is only
+     * available from Java 21, through reflection so that the library still
+     * runs on earlier versions
+     *
+     * @return the virtual thread {@link ExecutorService}, or null before Java
+     *         21
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) MethodHandles
+                    .publicLookup()
+                    .findStatic(Executors.class,
+                            "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // not available before Java 21, or disabled on this platform
+            return null;
+        }
+    }
+
+    /**
+     * Creates the pool of at most
+     * {@link AHttpClientConstants#DEFAULT_CALL_EXECUTOR_THREADS} daemon
+     * threads running the calls before Java 21, whose idle threads end after
+     * a minute
+     *
+     * @return the platform thread {@link ExecutorService}
+     */
+    private static ExecutorService newPlatformThreadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                AHttpClientConstants.DEFAULT_CALL_EXECUTOR_THREADS,
+                AHttpClientConstants.DEFAULT_CALL_EXECUTOR_THREADS, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "SCallExecutor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs the given call on the current thread once a permit for the route
+     * of the url is available. The call is never handed over to the executor:
+     * the calling thread waits for the permit and is blocked for the whole
+     * call, so this is meant for callers already running on virtual threads,
+     * or on threads of their own which may block.
+     *
+     * @param url
+     *            the full url the call is sent to, whose target host is the
+     *            route
+     * @param call
+     *            the blocking {@link Call}
+     *
+     * @return the result of the call
+     *
+     * @throws SClientException
+     *             if the call failed or the thread was interrupted while
+     *             waiting for a permit
+     */
+    public <T> T execute(String url, Call<T> call) throws SClientException {
+        HttpHost route = getRoute(url);
+        if (route == null) {
+            return call.call();
+        }
+        Semaphore permits = routePermits.compute(route,
+                (key, value) -> (value != null ? value : new RoutePermits(
+                        maxConcurrentCallsPerRoute)).retain()).permits;
+        try {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SClientException(
+                        "Interrupted while waiting to call " + url, e);
+            }
+            try {
+                return call.call();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            routePermits.computeIfPresent(route,
+                    (key, value) -> value.release());
+        }
+    }
+
+    /**
+     * Runs the given call on its own thread, virtual if available. The call
+     * itself is expected to hold a permit of its route through
+     * {@link #execute(String, Call)} while it is in flight, as the calls of a
+     * client with this executor do.
+     *
+     * @param call
+     *            the blocking {@link Call}
+     *
+     * @return a {@link CompletableFuture} of the result of the call, which is
+     *         completed exceptionally with a {@link SClientException} if the
+     *         call fails
+     */
+    public <T> CompletableFuture<T> submit(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executorService.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (SClientException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SClientException(
+                    "The call executor rejected the call", e));
+        }
+        return future;
+    }
+
+    /**
+     * Gets the route of the given url
+     *
+     * @param url
+     *            the full url the call is sent to
+     *
+     * @return the target {@link HttpHost}, or null if the url has no target
+     *         host
+     */
+    private static HttpHost getRoute(String url) {
+        try {
+            return URIUtils.extractHost(URI.create(url));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if each call runs on its own virtual thread.
+     *
+     * @return true, if running on Java 21 or later without a custom executor
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Gets the maximum number of calls in flight to a single route.
+     *
+     * @return the maximum number of concurrent calls per route
+     */
+    public int getMaxConcurrentCallsPerRoute() {
+        return maxConcurrentCallsPerRoute;
+    }
+
+    /**
+     * Gets the number of calls in flight to the given route.
+     *
+     * @param route
+     *            the target {@link HttpHost}
+     *
+     * @return the number of calls holding a permit of the route
+     */
+    public int getActiveCount(HttpHost route) {
+        RoutePermits permits = routePermits.get(route);
+        return permits != null ? maxConcurrentCallsPerRoute
+                - permits.permits.availablePermits() : 0;
+    }
+
+    /**
+     * Gets the number of calls waiting for a permit of the given route.
+     *
+     * @param route
+     *            the target {@link HttpHost}
+     *
+     * @return the estimated number of waiting calls
+     */
+    public int getQueueLength(HttpHost route) {
+        RoutePermits permits = routePermits.get(route);
+        return permits != null ? permits.permits.getQueueLength() : 0;
+    }
+
+    /**
+     * Gets the number of routes whose permits are kept, which are those with
+     * calls in flight or waiting.
+     *
+     * @return the number of routes
+     */
+    public int getRouteCount() {
+        return routePermits.size();
+    }
+
+    /**
+     * Stops accepting new calls, letting the submitted ones complete.
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * The permits of a route along with the number of calls holding or
+     * waiting for them, which is only changed while the map entry of the
+     * route is locked, so that the permits are dropped exactly when no call
+     * uses them.
+     */
+    private static final class RoutePermits {
+
+        /** The fair permits of the calls in flight */
+        private final Semaphore permits;
+
+        /** The number of calls holding or waiting for a permit */
+        private int users;
+
+        RoutePermits(int maxConcurrentCalls) {
+            this.permits = new Semaphore(maxConcurrentCalls, true);
+        }
+
+        RoutePermits retain() {
+            users++;
+            return this;
+        }
+
+        /**
+         * @return this, or null to remove the permits once no call uses them
+         */
+        RoutePermits release() {
+            return --users == 0 ? null : this;
+        }
+    }
+
+    /**
+     * A blocking call run by the executor.
+     *
+     * @author vishalk2
+     * @version $Revision: 1.0 $
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+
+        /**
+         * Sends the request and returns its result.
+         *
+         * @return the result of the call
+         *
+         * @throws SClientException
+         *             if the call failed
+         */
+        T call() throws SClientException;
+    }
+}
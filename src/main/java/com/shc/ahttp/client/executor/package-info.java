@@ -0,0 +1,7 @@
+/**
+ * This package provides the execution of blocking calls on virtual threads, with the number of concurrent calls to
+ * each route bounded, so that the blocking programming model scales to many thousands of concurrent calls.
+ * 
+ * @see com.shc.ahttp.client.executor.SCallExecutor
+ */
+package com.shc.ahttp.client.executor;
@@ -0,0 +1,48 @@
+package com.shc.ahttp.client.messageconverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * A Jackson based message converter whose {@link ObjectMapper} has the
+ * Afterburner module registered, which replaces the reflective access to the
+ * getters, setters, fields and constructors of the mapped classes with
+ * generated bytecode. Objects are mapped exactly as by
+ * {@link JacksonMessageConverter}, and flat objects of many properties gain
+ * the most. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .messageConverter(new AfterburnerMessageConverter()).build();
+ * </pre>
+ *
+ * Afterburner only optimizes public members of public classes, the others
+ * are still accessed through reflection. It requires the optional
+ * jackson-module-afterburner dependency on the classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AfterburnerMessageConverter extends JacksonMessageConverter {
+
+    /**
+     * Instantiates a new Afterburner message converter
+     */
+    public AfterburnerMessageConverter() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Instantiates a new Afterburner message converter, registering the
+     * Afterburner module on the given custom {@link ObjectMapper} object
+     *
+     * @param objectMapper
+     *            the custom {@link ObjectMapper} object
+     */
+    public AfterburnerMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper.registerModule(new AfterburnerModule()));
+    }
+}
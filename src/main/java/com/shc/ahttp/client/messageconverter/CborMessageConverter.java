@@ -0,0 +1,50 @@
+package com.shc.ahttp.client.messageconverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * A Jackson based message converter for CBOR, the Concise Binary
+ * Object Representation of RFC 7049, a binary format modelled on JSON which
+ * is widely supported beyond Java. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .messageConverter(new CborMessageConverter()).build();
+ *
+ * SClientResponse&lt;Order&gt; response = sClient.post(&quot;/orders&quot;, order,
+ *         Order.class);
+ * </pre>
+ *
+ * It requires the optional jackson-dataformat-cbor dependency on the
+ * classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class CborMessageConverter extends JacksonBinaryMessageConverter {
+
+    /** The media type of CBOR */
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    /**
+     * Instantiates a new CBOR message converter
+     */
+    public CborMessageConverter() {
+        this(new ObjectMapper(new CBORFactory()));
+    }
+
+    /**
+     * Instantiates a new CBOR message converter, by passing in a custom
+     * {@link ObjectMapper} object, which must be built on a {@link CBORFactory}
+     *
+     * @param objectMapper
+     *            the custom {@link ObjectMapper} object
+     */
+    public CborMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, CONTENT_TYPE);
+    }
+}
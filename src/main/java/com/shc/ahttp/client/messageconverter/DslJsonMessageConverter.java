@@ -0,0 +1,333 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.dslplatform.json.ConfigurationException;
+import com.dslplatform.json.DslJson;
+import com.dslplatform.json.JsonWriter;
+import com.dslplatform.json.runtime.Settings;
+import com.shc.ahttp.client.exception.SClientException;
+
+/**
+ * A message converter backed by DSL-JSON, which reads and writes UTF-8 JSON
+ * bytes without an intermediate character stream. Classes annotated with
+ * <code>@CompiledJson</code> are converted by the code generated for them at
+ * compile time by the DSL-JSON annotation processor, found through the
+ * {@link java.util.ServiceLoader}, while other classes are analyzed at
+ * runtime. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .messageConverter(new DslJsonMessageConverter()).build();
+ * </pre>
+ *
+ * DSL-JSON only reads and writes UTF-8, so messages in other encodings go
+ * through the String based defaults of {@link MessageConverter}. A sequence
+ * read by {@link #getObjectsFromMessage(InputStream, String, Class)} must be a
+ * JSON array. <br/>
+ * <br/>
+ *
+ * The converter is thread safe. Each call borrows a {@link JsonWriter} or a
+ * read buffer from a small bounded pool and hands it back when done, so that
+ * they are reused by any thread, virtual or not, while the memory the pool
+ * holds stays bounded: a call finding the pool empty allocates its own, and a
+ * writer grown beyond {@link #MAX_POOLED_WRITER_SIZE} by a large message is
+ * dropped rather than pooled. It requires the optional dsl-json-java8
+ * dependency on the classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class DslJsonMessageConverter implements MessageConverter {
+
+    /** The size of the buffer messages are read through */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /** The maximum number of writers, and of read buffers, kept idle */
+    static final int MAX_POOLED = 64;
+
+    /** The size of the buffer of the largest writer kept idle */
+    static final int MAX_POOLED_WRITER_SIZE = 64 * 1024;
+
+    /** The DSL-JSON instance holding the resolved converters */
+    private final DslJson<Object> dslJson;
+
+    /** The idle writers, reset before being pooled */
+    private final BlockingQueue<JsonWriter> writers = new ArrayBlockingQueue<JsonWriter>(
+            MAX_POOLED);
+
+    /** The idle read buffers */
+    private final BlockingQueue<byte[]> readBuffers = new ArrayBlockingQueue<byte[]>(
+            MAX_POOLED);
+
+    /**
+     * Instantiates a new DSL-JSON message converter, using the compiled
+     * converters on the classpath and runtime analysis for other classes
+     */
+    public DslJsonMessageConverter() {
+        this(new DslJson<Object>(Settings.<Object> basicSetup()));
+    }
+
+    /**
+     * Instantiates a new DSL-JSON message converter, by passing in a custom
+     * {@link DslJson} object
+     *
+     * @param dslJson
+     *            the custom {@link DslJson} object
+     */
+    public DslJsonMessageConverter(final DslJson<Object> dslJson) {
+        this.dslJson = dslJson;
+    }
+
+    /**
+     * @param message
+     *            The message object from which the JSON String should be
+     *            generated
+     *
+     * @return the generated JSON String * @throws SClientException If any
+     *         exception occurred during the serialization * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#getMessageFrom(java.lang.Object)
+     */
+    @Override
+    public <T> String getMessageFrom(T message) throws SClientException {
+        JsonWriter writer = borrowWriter();
+        try {
+            dslJson.serialize(writer, message);
+            return writer.toString();
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * @param message
+     *            The JSON string from which the Object should be constructed
+     *            into
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return the constructed object from given JSON String * @throws
+     *         SClientException If any exception occurred during the
+     *         deserialization * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#getObjectFromMessage(java.lang.String,
+     *         java.lang.Class)
+     */
+    @Override
+    public <T> T getObjectFromMessage(String message,
+            Class<T> messageObjectClass) throws SClientException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        try {
+            return dslJson.deserialize(messageObjectClass, bytes, bytes.length);
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the deserialized object by parsing UTF-8 JSON directly from the
+     * given stream. The stream is not closed.
+     *
+     * @param message
+     *            The stream from which the JSON should be read
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return the constructed object from the JSON read * @throws
+     *         SClientException If any exception occurred during the
+     *         deserialization
+     */
+    @Override
+    public <T> T getObjectFromMessage(InputStream message, String encoding,
+            Class<T> messageObjectClass) throws SClientException {
+        if (!isUtf8(encoding)) {
+            return MessageConverter.super.getObjectFromMessage(message,
+                    encoding, messageObjectClass);
+        }
+        byte[] buffer = readBuffers.poll();
+        if (buffer == null) {
+            buffer = new byte[READ_BUFFER_SIZE];
+        }
+        try {
+            return dslJson.deserialize(messageObjectClass, message, buffer);
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        } finally {
+            readBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Gets the elements of a UTF-8 JSON array parsed one at a time from the
+     * given stream, only when the returned {@link Stream} asks for them. The
+     * stream is not closed.
+     *
+     * @param message
+     *            The stream from which the JSON array should be read
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     * @param elementClass
+     *            the class of the elements of the array
+     *
+     * @return the sequential {@link Stream} of the elements * @throws
+     *         SClientException If any exception occurred before the first
+     *         element could be read
+     */
+    @Override
+    public <T> Stream<T> getObjectsFromMessage(InputStream message,
+            String encoding, Class<T> elementClass) throws SClientException {
+        if (!isUtf8(encoding)) {
+            return MessageConverter.super.getObjectsFromMessage(message,
+                    encoding, elementClass);
+        }
+        Iterator<T> elements;
+        try {
+            // the iterator keeps reading through its buffer after the call
+            // returns, so the buffer cannot be borrowed from the pool
+            elements = dslJson.iterateOver(elementClass, message,
+                    new byte[READ_BUFFER_SIZE]);
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+        if (elements == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(elements,
+                        Spliterator.ORDERED), false);
+    }
+
+    /**
+     * Serializes the given object as UTF-8 JSON directly to the given stream.
+     * The stream is flushed but not closed.
+     *
+     * @param message
+     *            The message object to be serialized
+     * @param out
+     *            The stream to which the JSON should be written
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @throws SClientException
+     *             If any exception occurred during the serialization
+     */
+    @Override
+    public <T> void writeMessageTo(T message, OutputStream out,
+            String encoding) throws SClientException {
+        if (!isUtf8(encoding)) {
+            MessageConverter.super.writeMessageTo(message, out, encoding);
+            return;
+        }
+        JsonWriter writer = borrowWriter();
+        writer.reset(out);
+        try {
+            dslJson.serialize(writer, message);
+            writer.flush();
+            out.flush();
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Serializes the given objects as a UTF-8 JSON array directly to the given
+     * stream, one at a time as they are taken from the iterator. The stream is
+     * flushed but not closed.
+     *
+     * @param messages
+     *            The iterator of the message objects to be serialized
+     * @param out
+     *            The stream to which the JSON should be written
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @throws SClientException
+     *             If any exception occurred during the serialization
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void writeMessagesTo(Iterator<? extends T> messages,
+            OutputStream out, String encoding) throws SClientException {
+        if (!isUtf8(encoding)) {
+            MessageConverter.super.writeMessagesTo(messages, out, encoding);
+            return;
+        }
+        JsonWriter writer = borrowWriter();
+        try {
+            dslJson.iterateOver((Iterator<Object>) messages, out, writer);
+            out.flush();
+        } catch (IOException | ConfigurationException e) {
+            throw new SClientException(e.getMessage(), e);
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Gets the number of writers currently kept by the pool
+     *
+     * @return the number of idle pooled writers
+     */
+    int getPooledWriters() {
+        return writers.size();
+    }
+
+    /**
+     * Takes an idle writer from the pool, or creates a new one if the pool
+     * has none
+     *
+     * @return a reset {@link JsonWriter}, to be handed back with
+     *         {@link #returnWriter(JsonWriter)}
+     */
+    private JsonWriter borrowWriter() {
+        JsonWriter writer = writers.poll();
+        return writer != null ? writer : dslJson.newWriter();
+    }
+
+    /**
+     * Resets the given writer and hands it back to the pool. The writer is
+     * dropped if its buffer grew beyond {@link #MAX_POOLED_WRITER_SIZE} or
+     * the pool is full.
+     *
+     * @param writer
+     *            the writer taken by {@link #borrowWriter()}
+     */
+    private void returnWriter(JsonWriter writer) {
+        writer.reset();
+        if (writer.getByteBuffer().length <= MAX_POOLED_WRITER_SIZE) {
+            writers.offer(writer);
+        }
+    }
+
+    /**
+     * Whether the given encoding is UTF-8, the only one DSL-JSON reads and
+     * writes
+     *
+     * @param encoding
+     *            the encoding, may be null
+     *
+     * @return true if the encoding is null or UTF-8
+     */
+    private static boolean isUtf8(String encoding) {
+        return encoding == null
+                || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding);
+    }
+}
@@ -1,14 +1,44 @@
 package com.shc.ahttp.client.messageconverter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.shc.ahttp.client.exception.SClientException;
 
 /**
  * A Jackson based message converter which utilizes the {@link ObjectMapper} API
- * to deserialize and serialize objects to and from JSON strings
+ * to deserialize and serialize objects to and from JSON strings <br/>
+ * <br/>
+ *
+ * The converter is thread safe and keeps one pre resolved {@link ObjectReader}
+ * and {@link ObjectWriter} per class it has converted, so an instance should be
+ * shared rather than created per call. As the readers and writers capture the
+ * configuration of the {@link ObjectMapper}, a custom mapper must not be
+ * reconfigured once passed in.
  * 
  * @author vishalk2
  * @version $Revision: 1.0 $
@@ -16,13 +46,25 @@ import com.shc.ahttp.client.exception.SClientException;
 public class JacksonMessageConverter implements MessageConverter {
 
     /** The object mapper. */
-    private ObjectMapper objectMapper;
+    private final ObjectMapper objectMapper;
+
+    /** The readers resolved so far, keyed by the class they construct */
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    /** The writers resolved so far, keyed by the class they serialize */
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    /**
+     * The writer of sequences of objects of any class, which only flushes
+     * once the sequence is written rather than after every object
+     */
+    protected final ObjectWriter sequenceWriter;
 
     /**
      * Instantiates a new jackson message converter
      */
     public JacksonMessageConverter() {
-        objectMapper = new ObjectMapper();
+        this(new ObjectMapper());
     }
 
     /**
@@ -34,6 +76,8 @@ public class JacksonMessageConverter implements MessageConverter {
      */
     public JacksonMessageConverter(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
+        this.sequenceWriter = objectMapper.writer().without(
+                SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     /**
@@ -53,7 +97,7 @@ public class JacksonMessageConverter implements MessageConverter {
     @Override
     public <T> String getMessageFrom(T message) throws SClientException {
         try {
-            return objectMapper.writeValueAsString(message);
+            return getWriter(message).writeValueAsString(message);
         } catch (JsonProcessingException e) {
             throw new SClientException(e.getMessage(), e);
         }
@@ -79,10 +123,333 @@ public class JacksonMessageConverter implements MessageConverter {
     public <T> T getObjectFromMessage(String message,
             Class<T> messageObjectClass) throws SClientException {
         try {
-            return objectMapper.readValue(message, messageObjectClass);
+            return getReader(messageObjectClass).readValue(message);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the deserialized object by parsing JSON directly from the given
+     * stream, without first reading it into a String. UTF-8 content, which
+     * Jackson detects by itself, is parsed from the raw bytes, other encodings
+     * are decoded through a {@link InputStreamReader}. The stream is not
+     * closed.
+     *
+     * @param message
+     *            The stream from which the JSON should be read
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return the constructed object from the JSON read * @throws SClientException
+     *             If any exception occurred during the deserialization * @see com.shc.ahttp.client.messageconverter.MessageConverter#
+     * getObjectFromMessage(java.io.InputStream, java.lang.String, java.lang.Class) */
+    @Override
+    public <T> T getObjectFromMessage(InputStream message, String encoding,
+            Class<T> messageObjectClass) throws SClientException {
+        try (JsonParser parser = createParser(message, encoding)) {
+            return getReader(messageObjectClass).readValue(parser);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the elements of a JSON array parsed one at a time from the given
+     * stream through a {@link MappingIterator}, so that only the element being
+     * consumed is held in memory, whatever the size of the array. The next
+     * element is only read from the stream when the returned {@link Stream}
+     * asks for it. A root value which is not an array is returned as the only
+     * element. The stream is not closed.
+     *
+     * @param message
+     *            The stream from which the JSON array should be read
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     * @param elementClass
+     *            the class of the elements of the array
+     *
+     * @return the sequential {@link Stream} of the elements, which closes the
+     *         parser once closed * @throws SClientException If any exception
+     *         occurred before the first element could be read * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#
+     *         getObjectsFromMessage(java.io.InputStream, java.lang.String,
+     *         java.lang.Class)
+     */
+    @Override
+    public <T> Stream<T> getObjectsFromMessage(InputStream message,
+            String encoding, Class<T> elementClass) throws SClientException {
+        JsonParser parser = null;
+        try {
+            parser = createParser(message, encoding);
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                // the values are read from within the root array, which is
+                // how the elements of the array are unwrapped
+                token = parser.nextToken();
+            }
+            if (token == null || token == JsonToken.END_ARRAY) {
+                parser.close();
+                return Stream.empty();
+            }
+            MappingIterator<T> iterator = getReader(elementClass).readValues(
+                    parser);
+            return toStream(iterator);
+        } catch (IOException e) {
+            closeQuietly(parser);
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the given parser, ignoring any exception
+     *
+     * @param parser
+     *            the {@link JsonParser} to close, may be null
+     */
+    private static void closeQuietly(JsonParser parser) {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // the original failure is the one worth reporting
+            }
+        }
+    }
+
+    /**
+     * Adapts the given {@link MappingIterator} to a sequential {@link Stream}
+     * which reads an element only when asked for it, and closes the iterator
+     * once closed
+     *
+     * @param iterator
+     *            the {@link MappingIterator} of the elements
+     *
+     * @return the {@link Stream} of the elements
+     */
+    protected static <T> Stream<T> toStream(final MappingIterator<T> iterator) {
+        Iterator<T> elements = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return iterator.hasNextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public T next() {
+                try {
+                    if (!iterator.hasNextValue()) {
+                        throw new NoSuchElementException();
+                    }
+                    return iterator.nextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(elements,
+                        Spliterator.ORDERED), false).onClose(() -> {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Serializes the given object as JSON directly to the given stream through
+     * a {@link JsonGenerator}, without first generating a String. UTF-8 is
+     * written as raw bytes, other encodings through a
+     * {@link OutputStreamWriter}. The stream is flushed but not closed.
+     *
+     * @param message
+     *            The message object to be serialized
+     * @param out
+     *            The stream to which the JSON should be written
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @throws SClientException
+     *             If any exception occurred during the serialization * @see com.shc.ahttp.client.messageconverter.MessageConverter#
+     * writeMessageTo(java.lang.Object, java.io.OutputStream, java.lang.String) */
+    @Override
+    public <T> void writeMessageTo(T message, OutputStream out,
+            String encoding) throws SClientException {
+        try (JsonGenerator generator = createGenerator(out, encoding)) {
+            getWriter(message).writeValue(generator, message);
         } catch (IOException e) {
             throw new SClientException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Serializes the given objects as a JSON array directly to the given
+     * stream, one at a time as they are taken from the iterator, so that
+     * neither the objects nor the JSON are held in memory as a whole. The
+     * stream is flushed but not closed.
+     *
+     * @param messages
+     *            The iterator of the message objects to be serialized
+     * @param out
+     *            The stream to which the JSON should be written
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @throws SClientException
+     *             If any exception occurred during the serialization * @see com.shc.ahttp.client.messageconverter.MessageConverter#
+     * writeMessagesTo(java.util.Iterator, java.io.OutputStream, java.lang.String) */
+    @Override
+    public <T> void writeMessagesTo(Iterator<? extends T> messages,
+            OutputStream out, String encoding) throws SClientException {
+        try (JsonGenerator generator = createGenerator(out, encoding)) {
+            writeSequence(messages, generator);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the given objects to the generator as the elements of a JSON
+     * array. Subclasses writing other sequences of JSON values override it.
+     *
+     * @param messages
+     *            The iterator of the message objects to be serialized
+     * @param generator
+     *            the {@link JsonGenerator} to write to
+     *
+     * @throws IOException
+     *             If any exception occurred during the serialization
+     */
+    protected void writeSequence(Iterator<?> messages, JsonGenerator generator)
+            throws IOException {
+        try (SequenceWriter sequence = sequenceWriter
+                .writeValuesAsArray(generator)) {
+            while (messages.hasNext()) {
+                sequence.write(messages.next());
+            }
+        }
+    }
+
+    /**
+     * Creates a parser reading JSON from the given stream. UTF-8 content,
+     * which Jackson detects by itself, is parsed from the raw bytes, other
+     * encodings are decoded through a {@link InputStreamReader}. Closing the
+     * parser does not close the stream.
+     *
+     * @param message
+     *            The stream from which the JSON should be read
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @return the {@link JsonParser} * @throws IOException if the parser
+     *         could not be created
+     */
+    protected JsonParser createParser(InputStream message, String encoding)
+            throws IOException {
+        JsonParser parser;
+        if (encoding == null
+                || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding)) {
+            parser = objectMapper.getFactory().createParser(message);
+        } else {
+            parser = objectMapper.getFactory().createParser(
+                    new InputStreamReader(message, encoding));
+        }
+        // the caller owns the stream, so it must outlive the parser
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    /**
+     * Creates a generator writing JSON to the given stream. UTF-8 is written
+     * as raw bytes, other encodings through a {@link OutputStreamWriter}.
+     * Closing the generator only flushes the stream.
+     *
+     * @param out
+     *            The stream to which the JSON should be written
+     * @param encoding
+     *            The character encoding of the JSON for ex UTF-8, may be null
+     *
+     * @return the {@link JsonGenerator} * @throws IOException if the
+     *         generator could not be created
+     */
+    protected JsonGenerator createGenerator(OutputStream out, String encoding)
+            throws IOException {
+        JsonGenerator generator;
+        if (encoding == null
+                || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding)) {
+            generator = objectMapper.getFactory().createGenerator(out,
+                    JsonEncoding.UTF8);
+        } else {
+            generator = objectMapper.getFactory().createGenerator(
+                    new OutputStreamWriter(out, encoding));
+        }
+        // the caller owns the stream, closing the generator only flushes it
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    /**
+     * Gets the {@link ObjectMapper} of the converter, whose
+     * {@link com.fasterxml.jackson.core.JsonFactory} creates the parsers and
+     * generators
+     *
+     * @return the {@link ObjectMapper}
+     */
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Gets the {@link ObjectReader} for the given class, resolving it on first
+     * use
+     *
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return the cached {@link ObjectReader}
+     */
+    protected ObjectReader getReader(Class<?> messageObjectClass) {
+        ObjectReader reader = readers.get(messageObjectClass);
+        if (reader == null) {
+            reader = objectMapper.readerFor(messageObjectClass);
+            ObjectReader existing = readers.putIfAbsent(messageObjectClass,
+                    reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Gets the {@link ObjectWriter} for the runtime class of the given
+     * message, resolving it on first use
+     *
+     * @param message
+     *            the message object to be serialized, may be null
+     *
+     * @return the cached {@link ObjectWriter}
+     */
+    protected ObjectWriter getWriter(Object message) {
+        Class<?> messageObjectClass = message != null ? message.getClass()
+                : Object.class;
+        ObjectWriter writer = writers.get(messageObjectClass);
+        if (writer == null) {
+            writer = objectMapper.writerFor(messageObjectClass);
+            ObjectWriter existing = writers.putIfAbsent(messageObjectClass,
+                    writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
 }
@@ -1,6 +1,19 @@
 package com.shc.ahttp.client.messageconverter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.util.AHttpClientConstants;
 
 /**
  * The message converter interface defines the contract for serializing and
@@ -12,6 +25,53 @@ import com.shc.ahttp.client.exception.SClientException;
  */
 public interface MessageConverter {
 
+    /**
+     * Gets the media type of the messages of this converter, sent as the
+     * Content-Type of the requests, and whose mime type is sent as the Accept
+     * header, unless the headers of the call set them. <br/>
+     * <br/>
+     *
+     * The default implementation returns
+     * {@link AHttpClientConstants#DEFAULT_CONTENT_TYPE}.
+     *
+     * @return the media type of the messages, for ex application/json
+     */
+    default String getContentType() {
+        return AHttpClientConstants.DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * Whether the messages of this converter are binary, in which case they
+     * can only be read from and written to a stream, and
+     * {@link #getMessageFrom(Object)} and
+     * {@link #getObjectFromMessage(String, Class)} are not supported. <br/>
+     * <br/>
+     *
+     * The default implementation returns false.
+     *
+     * @return true if the messages are binary
+     */
+    default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Whether this converter can construct objects of the given class, which
+     * lets a {@link MessageConverterRegistry} fall back to another converter
+     * for the classes a converter does not handle. <br/>
+     * <br/>
+     *
+     * The default implementation returns true.
+     *
+     * @param type
+     *            the class objects should be constructed into
+     *
+     * @return true if the converter can construct objects of the class
+     */
+    default boolean canConvert(Class<?> type) {
+        return true;
+    }
+
     /**
      * Gets the message from the passed in <T> object
      *
@@ -40,4 +100,138 @@ public interface MessageConverter {
      *             If any exception occurred during the deserialization */
     <T> T getObjectFromMessage(String message, Class<T> messageObjectClass)
             throws SClientException;
+
+    /**
+     * Gets the object from a message read from the given stream. The stream is
+     * read up to the end of the message but is not closed, which is left to
+     * the caller. <br/>
+     * <br/>
+     *
+     * The default implementation reads the whole stream into a String and
+     * calls {@link #getObjectFromMessage(String, Class)}, converters able to
+     * parse directly from a stream should override it so that the message is
+     * never held in memory as a whole.
+     *
+     * @param message
+     *            The stream from which the message should be read
+     * @param encoding
+     *            The character encoding of the message for ex UTF-8
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return the constructed object from given message * @throws SClientException
+     *             If any exception occurred during reading or deserialization */
+    default <T> T getObjectFromMessage(InputStream message, String encoding,
+            Class<T> messageObjectClass) throws SClientException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = message.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return getObjectFromMessage(out.toString(encoding),
+                    messageObjectClass);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the elements of a message holding a sequence of objects, such as a
+     * JSON array, read from the given stream. The stream is read as the
+     * returned {@link Stream} is consumed but is not closed, which is left to
+     * the caller, and closing the returned {@link Stream} releases what the
+     * converter holds. A failure to read or parse an element is thrown by the
+     * returned {@link Stream} as an {@link UncheckedIOException}. <br/>
+     * <br/>
+     *
+     * The default implementation parses the whole message into an array of
+     * the element class with
+     * {@link #getObjectFromMessage(InputStream, String, Class)}, converters
+     * able to parse the elements one at a time should override it so that
+     * only the element being consumed is held in memory.
+     *
+     * @param message
+     *            The stream from which the message should be read
+     * @param encoding
+     *            The character encoding of the message for ex UTF-8
+     * @param elementClass
+     *            the class of the elements of the message
+     *
+     * @return the sequential {@link Stream} of the elements of the message
+     *         * @throws SClientException If any exception occurred before the
+     *         first element could be read
+     */
+    default <T> Stream<T> getObjectsFromMessage(InputStream message,
+            String encoding, Class<T> elementClass) throws SClientException {
+        Object elements = getObjectFromMessage(message, encoding, Array
+                .newInstance(elementClass, 0).getClass());
+        if (elements == null) {
+            return Stream.empty();
+        }
+        @SuppressWarnings("unchecked")
+        T[] elementArray = (T[]) elements;
+        return Arrays.stream(elementArray);
+    }
+
+    /**
+     * Writes the message generated from the passed in <T> object to the given
+     * stream, which is not closed. <br/>
+     * <br/>
+     *
+     * The default implementation calls {@link #getMessageFrom(Object)} and
+     * writes the encoded String, converters able to write directly to a
+     * stream should override it so that the message is never held in memory
+     * as a whole.
+     *
+     * @param message
+     *            The message object from which the message should be
+     *            generated
+     * @param out
+     *            The stream to which the message should be written
+     * @param encoding
+     *            The character encoding of the message for ex UTF-8
+     *
+     * @throws SClientException
+     *             If any exception occurred during serialization or writing */
+    default <T> void writeMessageTo(T message, OutputStream out,
+            String encoding) throws SClientException {
+        try {
+            out.write(getMessageFrom(message).getBytes(encoding));
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the objects taken from the given iterator to the given stream as
+     * a message holding a sequence of objects, such as a JSON array, which is
+     * the counterpart of
+     * {@link #getObjectsFromMessage(InputStream, String, Class)}. The stream
+     * is not closed. <br/>
+     * <br/>
+     *
+     * The default implementation collects the objects into a {@link List}
+     * written with {@link #writeMessageTo(Object, OutputStream, String)},
+     * converters able to write the objects one at a time should override it
+     * so that the sequence is never held in memory as a whole.
+     *
+     * @param messages
+     *            The iterator of the message objects to be written
+     * @param out
+     *            The stream to which the message should be written
+     * @param encoding
+     *            The character encoding of the message for ex UTF-8
+     *
+     * @throws SClientException
+     *             If any exception occurred during serialization or writing */
+    default <T> void writeMessagesTo(Iterator<? extends T> messages,
+            OutputStream out, String encoding) throws SClientException {
+        List<T> messageList = new ArrayList<T>();
+        while (messages.hasNext()) {
+            messageList.add(messages.next());
+        }
+        writeMessageTo(messageList, out, encoding);
+    }
 }
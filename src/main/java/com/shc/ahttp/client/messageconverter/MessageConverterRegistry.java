@@ -0,0 +1,256 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A registry of shared message converters keyed by the media type of their
+ * messages, which picks the converter able to read a response from its
+ * Content-Type. The converters are created once, by the code registering
+ * them, and the registry hands out the same instances to every client, so
+ * the serializers a converter resolves are reused by all of them. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * MessageConverterRegistry registry = new MessageConverterRegistry(
+ *         new JacksonMessageConverter(objectMapper)).register(
+ *         &quot;application/vnd.example.v2+json&quot;, new JacksonMessageConverter(
+ *                 v2ObjectMapper));
+ *
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .converterRegistry(registry).build();
+ * </pre>
+ *
+ * A media type is looked up as is, then through its structured syntax suffix,
+ * so that application/problem+json is read as application/json. The
+ * parameters of a Content-Type, such as its charset, are ignored. <br/>
+ * <br/>
+ *
+ * The {@link #getDefault()} registry holds the JSON and NDJSON converters,
+ * whose JSON converter is the default of every client, and the Smile, CBOR,
+ * MessagePack and protobuf converters whose optional dependency is on the
+ * classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class MessageConverterRegistry {
+
+    /** The process wide registry of the built in converters */
+    private static final MessageConverterRegistry DEFAULT = createDefault();
+
+    /** The registered converters, keyed by their lower case mime type */
+    private final ConcurrentMap<String, MessageConverter> converters = new ConcurrentHashMap<String, MessageConverter>();
+
+    /** The converter of the clients which are not given one */
+    private final MessageConverter defaultConverter;
+
+    /**
+     * Instantiates a new registry, registering the given default converter
+     * under its own media type
+     *
+     * @param defaultConverter
+     *            the converter of the clients which are not given one
+     */
+    public MessageConverterRegistry(MessageConverter defaultConverter) {
+        this.defaultConverter = defaultConverter;
+        register(defaultConverter);
+    }
+
+    /**
+     * Gets the process wide registry of the built in converters, shared by all
+     * the clients which are not given a registry
+     *
+     * @return the default {@link MessageConverterRegistry}
+     */
+    public static MessageConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the converter of the clients which are not given one
+     *
+     * @return the default {@link MessageConverter}
+     */
+    public MessageConverter getDefaultConverter() {
+        return defaultConverter;
+    }
+
+    /**
+     * Registers the given converter under its own media type, replacing any
+     * converter registered for it
+     *
+     * @param converter
+     *            the converter to register
+     *
+     * @return this registry
+     */
+    public MessageConverterRegistry register(MessageConverter converter) {
+        return register(converter.getContentType(), converter);
+    }
+
+    /**
+     * Registers the given converter under the given media type, replacing any
+     * converter registered for it
+     *
+     * @param contentType
+     *            the media type, whose parameters are ignored
+     * @param converter
+     *            the converter reading and writing the messages of the media
+     *            type
+     *
+     * @return this registry
+     */
+    public MessageConverterRegistry register(String contentType,
+            MessageConverter converter) {
+        String mimeType = getMimeType(contentType);
+        if (mimeType == null) {
+            throw new IllegalArgumentException("No media type given for "
+                    + converter);
+        }
+        converters.put(mimeType, converter);
+        return this;
+    }
+
+    /**
+     * Gets the converter registered for the given Content-Type, or for its
+     * structured syntax suffix
+     *
+     * @param contentType
+     *            the Content-Type, may be null
+     *
+     * @return the registered converter, or null if there is none
+     */
+    public MessageConverter getConverter(String contentType) {
+        String mimeType = getMimeType(contentType);
+        if (mimeType == null) {
+            return null;
+        }
+        MessageConverter converter = converters.get(mimeType);
+        int suffix = mimeType.lastIndexOf('+');
+        if (converter == null && suffix != -1) {
+            converter = converters.get("application/"
+                    + mimeType.substring(suffix + 1));
+        }
+        return converter;
+    }
+
+    /**
+     * Gets the converter to read a response of the given Content-Type into
+     * the given type. The given fallback converter is kept when it reads the
+     * Content-Type itself, when no registered converter does, when the
+     * registered converter cannot construct the type, or when the response
+     * declares no Content-Type, so a client only switches converter when the
+     * server answers in another format.
+     *
+     * @param contentType
+     *            the Content-Type of the response, may be null
+     * @param type
+     *            the class the response should be constructed into
+     * @param fallback
+     *            the converter of the client
+     *
+     * @return the converter to read the response with
+     */
+    public MessageConverter getConverter(String contentType, Class<?> type,
+            MessageConverter fallback) {
+        String mimeType = getMimeType(contentType);
+        String fallbackMimeType = getMimeType(fallback.getContentType());
+        if (mimeType == null || mimeType.equals(fallbackMimeType)) {
+            return fallback;
+        }
+        MessageConverter converter = getConverter(mimeType);
+        if (converter == null || !converter.canConvert(type)
+                || getMimeType(converter.getContentType()).equals(
+                        fallbackMimeType)) {
+            return fallback;
+        }
+        return converter;
+    }
+
+    /**
+     * Gets the lower case mime type of the given Content-Type, without its
+     * parameters
+     *
+     * @param contentType
+     *            the Content-Type, may be null
+     *
+     * @return the mime type, or null if the Content-Type is blank
+     */
+    private static String getMimeType(String contentType) {
+        if (StringUtils.isBlank(contentType)) {
+            return null;
+        }
+        int parameters = contentType.indexOf(';');
+        String mimeType = (parameters != -1 ? contentType.substring(0,
+                parameters) : contentType).trim();
+        return mimeType.isEmpty() ? null : mimeType.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Creates the registry of the built in converters, skipping the binary
+     * ones whose optional dependency is missing
+     *
+     * @return the default registry
+     */
+    private static MessageConverterRegistry createDefault() {
+        MessageConverterRegistry registry = new MessageConverterRegistry(
+                new JacksonMessageConverter());
+        registry.register(new NdjsonMessageConverter());
+        registerOptional(registry,
+                "com.fasterxml.jackson.dataformat.smile.SmileFactory",
+                SmileMessageConverter::new);
+        registerOptional(registry,
+                "com.fasterxml.jackson.dataformat.cbor.CBORFactory",
+                CborMessageConverter::new);
+        MessageConverter messagePack = registerOptional(registry,
+                "org.msgpack.jackson.dataformat.MessagePackFactory",
+                MessagePackMessageConverter::new);
+        if (messagePack != null) {
+            registry.register("application/msgpack", messagePack);
+            registry.register("application/vnd.msgpack", messagePack);
+        }
+        MessageConverter protobuf = registerOptional(registry,
+                "com.google.protobuf.MessageLite",
+                ProtobufMessageConverter::new);
+        if (protobuf != null) {
+            registry.register("application/protobuf", protobuf);
+            registry.register("application/vnd.google.protobuf", protobuf);
+        }
+        return registry;
+    }
+
+    /**
+     * Registers the converter created by the given supplier, unless the
+     * library of its format is not on the classpath
+     *
+     * @param registry
+     *            the registry to register the converter in
+     * @param libraryClassName
+     *            the name of a class of the library of the format
+     * @param converterSupplier
+     *            creates the converter
+     *
+     * @return the registered converter, or null if its library is missing
+     */
+    private static MessageConverter registerOptional(
+            MessageConverterRegistry registry, String libraryClassName,
+            Supplier<MessageConverter> converterSupplier) {
+        try {
+            Class.forName(libraryClassName, false,
+                    MessageConverterRegistry.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // the optional dependency of the format is not on the classpath
+            return null;
+        }
+        MessageConverter converter = converterSupplier.get();
+        registry.register(converter);
+        return converter;
+    }
+}
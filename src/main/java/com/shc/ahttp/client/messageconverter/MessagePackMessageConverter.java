@@ -0,0 +1,52 @@
+package com.shc.ahttp.client.messageconverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * A Jackson based message converter for MessagePack, a compact
+ * binary format modelled on JSON with implementations in most languages. As
+ * MessagePack writes the length of an array before its elements, a sequence
+ * written by {@link #writeMessagesTo(java.util.Iterator, java.io.OutputStream, String)}
+ * is buffered by the generator until its end. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .messageConverter(new MessagePackMessageConverter()).build();
+ *
+ * SClientResponse&lt;Order&gt; response = sClient.post(&quot;/orders&quot;, order,
+ *         Order.class);
+ * </pre>
+ *
+ * It requires the optional jackson-dataformat-msgpack dependency on the
+ * classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class MessagePackMessageConverter extends JacksonBinaryMessageConverter {
+
+    /** The media type of MessagePack */
+    public static final String CONTENT_TYPE = "application/x-msgpack";
+
+    /**
+     * Instantiates a new MessagePack message converter
+     */
+    public MessagePackMessageConverter() {
+        this(new ObjectMapper(new MessagePackFactory()));
+    }
+
+    /**
+     * Instantiates a new MessagePack message converter, by passing in a custom
+     * {@link ObjectMapper} object, which must be built on a {@link MessagePackFactory}
+     *
+     * @param objectMapper
+     *            the custom {@link ObjectMapper} object
+     */
+    public MessagePackMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, CONTENT_TYPE);
+    }
+}
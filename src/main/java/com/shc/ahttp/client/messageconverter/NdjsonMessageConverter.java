@@ -0,0 +1,137 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.shc.ahttp.client.exception.SClientException;
+
+/**
+ * A Jackson based message converter for newline delimited JSON (NDJSON, also
+ * known as JSON Lines), where a message holds one JSON value per line. The
+ * sequence of values is read and written one line at a time, so feeds and
+ * batches of any size move through constant memory. Single values are
+ * converted as by {@link JacksonMessageConverter}. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://events.example.com&quot;)
+ *         .messageConverter(new NdjsonMessageConverter()).build();
+ *
+ * try (Stream&lt;Event&gt; events = sClient.getStream(&quot;/feed&quot;, Event.class)) {
+ *     events.forEach(handler);
+ * }
+ * sClient.postStream(&quot;/bulk&quot;, records.iterator(), BulkResponse.class);
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class NdjsonMessageConverter extends JacksonMessageConverter {
+
+    /** The media type of newline delimited JSON */
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    /** The writer of the lines, separating the values with a newline */
+    private final ObjectWriter lineWriter;
+
+    /**
+     * Instantiates a new NDJSON message converter
+     */
+    public NdjsonMessageConverter() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Instantiates a new NDJSON message converter, by passing in a custom
+     * {@link ObjectMapper} object
+     *
+     * @param objectMapper
+     *            the custom {@link ObjectMapper} object
+     */
+    public NdjsonMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+        this.lineWriter = sequenceWriter.withRootValueSeparator("\n");
+    }
+
+    /**
+     * Gets the media type of newline delimited JSON
+     *
+     * @return {@link #CONTENT_TYPE} * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#getContentType()
+     */
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * Gets the values of the lines of a NDJSON message, each parsed as it is
+     * read from the given stream, as soon as its bytes have arrived. Blank
+     * lines are skipped. The stream is not closed.
+     *
+     * @param message
+     *            The stream from which the NDJSON should be read
+     * @param encoding
+     *            The character encoding of the NDJSON for ex UTF-8, may be
+     *            null
+     * @param elementClass
+     *            the class of the value of each line
+     *
+     * @return the sequential {@link Stream} of the values, which closes the
+     *         parser once closed * @throws SClientException If any exception
+     *         occurred before the first line could be read * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#
+     *         getObjectsFromMessage(java.io.InputStream, java.lang.String,
+     *         java.lang.Class)
+     */
+    @Override
+    public <T> Stream<T> getObjectsFromMessage(InputStream message,
+            String encoding, Class<T> elementClass) throws SClientException {
+        try {
+            JsonParser parser = createParser(message, encoding);
+            // values read from a given parser are the root values, so a line
+            // holding an array is a single value rather than being unwrapped
+            MappingIterator<T> iterator = getReader(elementClass).readValues(
+                    parser);
+            return toStream(iterator);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the given objects to the generator one per line, each line
+     * ended by a newline.
+     *
+     * @param messages
+     *            The iterator of the message objects to be serialized
+     * @param generator
+     *            the {@link JsonGenerator} to write to
+     *
+     * @throws IOException
+     *             If any exception occurred during the serialization
+     */
+    @Override
+    protected void writeSequence(Iterator<?> messages, JsonGenerator generator)
+            throws IOException {
+        if (!messages.hasNext()) {
+            return;
+        }
+        try (SequenceWriter sequence = lineWriter.writeValues(generator)) {
+            while (messages.hasNext()) {
+                sequence.write(messages.next());
+            }
+        }
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,313 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.shc.ahttp.client.exception.SClientException;
+
+/**
+ * A message converter for Protocol Buffers, which reads and writes the
+ * classes generated by protoc. A message is parsed straight from the stream
+ * through a {@link CodedInputStream} and written with
+ * {@link MessageLite#writeTo(OutputStream)}, so its bytes are never copied
+ * into an intermediate String or array. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://inventory.example.com&quot;)
+ *         .messageConverter(new ProtobufMessageConverter()).build();
+ *
+ * SClientResponse&lt;StockReply&gt; response = sClient.post(&quot;/stock&quot;,
+ *         StockRequest.newBuilder().setSku(sku).build(), StockReply.class);
+ * </pre>
+ *
+ * A sequence of messages, as read by
+ * {@link #getObjectsFromMessage(InputStream, String, Class)} and written by
+ * {@link #writeMessagesTo(Iterator, OutputStream, String)}, is a series of
+ * length delimited messages as written by
+ * {@link MessageLite#writeDelimitedTo(OutputStream)}. The encoding passed to
+ * the stream methods is ignored, and as protobuf messages are binary they
+ * have no String form. <br/>
+ * <br/>
+ *
+ * The converter is thread safe and keeps the {@link Parser} of every message
+ * class it has read, looked up once from the generated
+ * <code>getDefaultInstance()</code>. It requires the optional protobuf-java
+ * dependency on the classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class ProtobufMessageConverter implements MessageConverter {
+
+    /** The media type of protobuf messages */
+    public static final String CONTENT_TYPE = "application/x-protobuf";
+
+    /** The parsers resolved so far, keyed by the message class they parse */
+    private final ConcurrentMap<Class<?>, Parser<?>> parsers = new ConcurrentHashMap<Class<?>, Parser<?>>();
+
+    /**
+     * Gets the media type of protobuf messages
+     *
+     * @return {@link #CONTENT_TYPE} * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#getContentType()
+     */
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * Protobuf messages can only be read from and written to streams
+     *
+     * @return true * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#isBinary()
+     */
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    /**
+     * Only the classes generated by protoc can be constructed
+     *
+     * @param type
+     *            the class objects should be constructed into
+     *
+     * @return true if the class is a generated message * @see
+     *         com.shc.ahttp.client.messageconverter.MessageConverter#canConvert(java.lang.Class)
+     */
+    @Override
+    public boolean canConvert(Class<?> type) {
+        return MessageLite.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Not supported, as a protobuf message has no String form
+     *
+     * @param message
+     *            The message object
+     *
+     * @return never * @throws SClientException always
+     */
+    @Override
+    public <T> String getMessageFrom(T message) throws SClientException {
+        throw new SClientException(
+                "A protobuf message can only be written to a stream");
+    }
+
+    /**
+     * Not supported, as a protobuf message has no String form
+     *
+     * @param message
+     *            The message string
+     * @param messageObjectClass
+     *            the message object class
+     *
+     * @return never * @throws SClientException always
+     */
+    @Override
+    public <T> T getObjectFromMessage(String message,
+            Class<T> messageObjectClass) throws SClientException {
+        throw new SClientException(
+                "A protobuf message can only be read from a stream");
+    }
+
+    /**
+     * Parses a message of the given generated class straight from the given
+     * stream, which is read to its end but not closed.
+     *
+     * @param message
+     *            The stream from which the message should be read
+     * @param encoding
+     *            ignored
+     * @param messageObjectClass
+     *            the generated message class
+     *
+     * @return the parsed message * @throws SClientException If the class is
+     *         not a generated message or the message could not be parsed
+     */
+    @Override
+    public <T> T getObjectFromMessage(InputStream message, String encoding,
+            Class<T> messageObjectClass) throws SClientException {
+        try {
+            return messageObjectClass.cast(getParser(messageObjectClass)
+                    .parseFrom(CodedInputStream.newInstance(message)));
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the length delimited messages read one at a time from the given
+     * stream, only when the returned {@link Stream} asks for them. The stream
+     * is not closed.
+     *
+     * @param message
+     *            The stream from which the messages should be read
+     * @param encoding
+     *            ignored
+     * @param elementClass
+     *            the generated class of the messages
+     *
+     * @return the sequential {@link Stream} of the messages * @throws
+     *         SClientException If the class is not a generated message
+     */
+    @Override
+    public <T> Stream<T> getObjectsFromMessage(final InputStream message,
+            String encoding, final Class<T> elementClass)
+            throws SClientException {
+        final Parser<?> parser = getParser(elementClass);
+        Iterator<T> elements = new Iterator<T>() {
+
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        // null once the stream ends between two messages
+                        next = elementClass.cast(parser
+                                .parseDelimitedFrom(message));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e.getMessage(), e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T element = next;
+                next = null;
+                return element;
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(elements,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Writes the given generated message to the given stream, which is not
+     * closed.
+     *
+     * @param message
+     *            The generated message to be written
+     * @param out
+     *            The stream to which the message should be written
+     * @param encoding
+     *            ignored
+     *
+     * @throws SClientException
+     *             If the object is not a generated message or could not be
+     *             written
+     */
+    @Override
+    public <T> void writeMessageTo(T message, OutputStream out,
+            String encoding) throws SClientException {
+        try {
+            toMessage(message).writeTo(out);
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the given generated messages to the given stream one at a time,
+     * each preceded by its length. The stream is not closed.
+     *
+     * @param messages
+     *            The iterator of the generated messages to be written
+     * @param out
+     *            The stream to which the messages should be written
+     * @param encoding
+     *            ignored
+     *
+     * @throws SClientException
+     *             If an object is not a generated message or could not be
+     *             written
+     */
+    @Override
+    public <T> void writeMessagesTo(Iterator<? extends T> messages,
+            OutputStream out, String encoding) throws SClientException {
+        try {
+            while (messages.hasNext()) {
+                toMessage(messages.next()).writeDelimitedTo(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new SClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the {@link Parser} of the given generated message class, looking
+     * it up on first use
+     *
+     * @param messageObjectClass
+     *            the generated message class
+     *
+     * @return the cached {@link Parser} * @throws SClientException if the
+     *         class is not a generated message
+     */
+    protected Parser<?> getParser(Class<?> messageObjectClass)
+            throws SClientException {
+        Parser<?> parser = parsers.get(messageObjectClass);
+        if (parser == null) {
+            if (!MessageLite.class.isAssignableFrom(messageObjectClass)) {
+                throw new SClientException(messageObjectClass.getName()
+                        + " is not a protobuf message");
+            }
+            try {
+                parser = ((MessageLite) messageObjectClass.getMethod(
+                        "getDefaultInstance").invoke(null))
+                        .getParserForType();
+            } catch (ReflectiveOperationException e) {
+                throw new SClientException(e.getMessage(), e);
+            }
+            Parser<?> existing = parsers.putIfAbsent(messageObjectClass,
+                    parser);
+            if (existing != null) {
+                parser = existing;
+            }
+        }
+        return parser;
+    }
+
+    /**
+     * Casts the given object to a generated message
+     *
+     * @param message
+     *            the object to be written
+     *
+     * @return the {@link MessageLite} * @throws SClientException if the
+     *         object is not a generated message
+     */
+    private static MessageLite toMessage(Object message)
+            throws SClientException {
+        if (!(message instanceof MessageLite)) {
+            throw new SClientException((message != null ? message.getClass()
+                    .getName() : "null") + " is not a protobuf message");
+        }
+        return (MessageLite) message;
+    }
+}
@@ -0,0 +1,51 @@
+package com.shc.ahttp.client.messageconverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * A Jackson based message converter for Smile, the binary
+ * counterpart of JSON defined by Jackson, which keeps the structure of JSON
+ * but writes numbers in binary and back references repeated property names,
+ * so that arrays of similar objects shrink the most. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClient sClient = SClient.builder().baseUrl(&quot;https://api.example.com&quot;)
+ *         .messageConverter(new SmileMessageConverter()).build();
+ *
+ * SClientResponse&lt;Order&gt; response = sClient.post(&quot;/orders&quot;, order,
+ *         Order.class);
+ * </pre>
+ *
+ * It requires the optional jackson-dataformat-smile dependency on the
+ * classpath.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class SmileMessageConverter extends JacksonBinaryMessageConverter {
+
+    /** The media type of Smile */
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    /**
+     * Instantiates a new Smile message converter
+     */
+    public SmileMessageConverter() {
+        this(new ObjectMapper(new SmileFactory()));
+    }
+
+    /**
+     * Instantiates a new Smile message converter, by passing in a custom
+     * {@link ObjectMapper} object, which must be built on a {@link SmileFactory}
+     *
+     * @param objectMapper
+     *            the custom {@link ObjectMapper} object
+     */
+    public SmileMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, CONTENT_TYPE);
+    }
+}
@@ -0,0 +1,119 @@
+package com.shc.ahttp.client.metrics;
+
+import org.apache.http.HttpHost;
+
+/**
+ * The client metrics interface defines the SPI called for every request
+ * executed through an {@link com.shc.ahttp.client.pool.AHttpClientPool}
+ * configured with it. All durations are in nanoseconds and all methods are
+ * called on the thread executing the request, so implementations must be
+ * thread safe and should neither block nor allocate. Every method does
+ * nothing by default, so an implementation only overrides what it needs.
+ * <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpHistogramMetrics metrics = new AHttpHistogramMetrics();
+ * AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+ * config.setMetrics(metrics);
+ * AHttpClientPool pool = AHttpClientPool.create(config);
+ * </pre>
+ *
+ * @see AHttpHistogramMetrics
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public interface AHttpClientMetrics {
+
+    /** The metrics which record nothing, used by default */
+    AHttpClientMetrics NOOP = new AHttpClientMetrics() {
+    };
+
+    /**
+     * Records the time taken to lease a pooled connection, including the time
+     * taken to open it if no idle connection was available
+     *
+     * @param route
+     *            the target host of the request
+     * @param nanos
+     *            the lease time in nanoseconds
+     */
+    default void recordConnectionLease(HttpHost route, long nanos) {
+    }
+
+    /**
+     * Records the time from sending the request on the leased connection to
+     * receiving the response status line and headers
+     *
+     * @param route
+     *            the target host of the request
+     * @param nanos
+     *            the time to first byte in nanoseconds
+     */
+    default void recordTimeToFirstByte(HttpHost route, long nanos) {
+    }
+
+    /**
+     * Records the time taken to read the response body once the headers were
+     * received, which includes parsing it when it is streamed into an
+     * {@link com.shc.ahttp.client.request.AHttpEntityConsumer}
+     *
+     * @param route
+     *            the target host of the request
+     * @param nanos
+     *            the body read time in nanoseconds
+     */
+    default void recordBodyRead(HttpHost route, long nanos) {
+    }
+
+    /**
+     * Records the time taken by the
+     * {@link com.shc.ahttp.client.messageconverter.MessageConverter} to parse
+     * a buffered response body
+     *
+     * @param route
+     *            the target host of the request
+     * @param nanos
+     *            the deserialization time in nanoseconds
+     */
+    default void recordDeserialization(HttpHost route, long nanos) {
+    }
+
+    /**
+     * Records the status code of a received response
+     *
+     * @param route
+     *            the target host of the request
+     * @param statusCode
+     *            the HTTP status code
+     */
+    default void recordStatus(HttpHost route, int statusCode) {
+    }
+
+    /**
+     * Records the number of bytes, including the request line, status line
+     * and headers, sent and received on the connection for a request
+     *
+     * @param route
+     *            the target host of the request
+     * @param bytesSent
+     *            the number of bytes sent
+     * @param bytesReceived
+     *            the number of bytes received
+     */
+    default void recordBytes(HttpHost route, long bytesSent,
+            long bytesReceived) {
+    }
+
+    /**
+     * Records a request which failed without receiving a response
+     *
+     * @param route
+     *            the target host of the request
+     */
+    default void recordFailure(HttpHost route) {
+    }
+}
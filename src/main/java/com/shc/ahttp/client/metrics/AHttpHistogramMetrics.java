@@ -0,0 +1,107 @@
+package com.shc.ahttp.client.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.HttpHost;
+
+/**
+ * The default {@link AHttpClientMetrics}, which keeps an
+ * {@link AHttpRouteMetrics} per target host. Once the metrics of a host have
+ * been created, recording a request neither locks nor allocates. The
+ * recorded values are cumulative and can be scraped at any time through
+ * {@link #getSnapshot()}. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * for (Map.Entry&lt;HttpHost, AHttpRouteMetrics.Snapshot&gt; route : metrics
+ *         .getSnapshot().entrySet()) {
+ *     long p99 = route.getValue().getTimeToFirstByte()
+ *             .getValueAtPercentile(99);
+ * }
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpHistogramMetrics implements AHttpClientMetrics {
+
+    /** The metrics of each target host */
+    private final ConcurrentMap<HttpHost, AHttpRouteMetrics> routes = new ConcurrentHashMap<HttpHost, AHttpRouteMetrics>();
+
+    @Override
+    public void recordConnectionLease(HttpHost route, long nanos) {
+        getRouteMetrics(route).getConnectionLease().record(nanos);
+    }
+
+    @Override
+    public void recordTimeToFirstByte(HttpHost route, long nanos) {
+        getRouteMetrics(route).getTimeToFirstByte().record(nanos);
+    }
+
+    @Override
+    public void recordBodyRead(HttpHost route, long nanos) {
+        getRouteMetrics(route).getBodyRead().record(nanos);
+    }
+
+    @Override
+    public void recordDeserialization(HttpHost route, long nanos) {
+        getRouteMetrics(route).getDeserialization().record(nanos);
+    }
+
+    @Override
+    public void recordStatus(HttpHost route, int statusCode) {
+        getRouteMetrics(route).recordStatus(statusCode);
+    }
+
+    @Override
+    public void recordBytes(HttpHost route, long bytesSent,
+            long bytesReceived) {
+        getRouteMetrics(route).recordBytes(bytesSent, bytesReceived);
+    }
+
+    @Override
+    public void recordFailure(HttpHost route) {
+        getRouteMetrics(route).recordFailure();
+    }
+
+    /**
+     * Gets the metrics of the given target host, creating them on first use
+     *
+     * @param route
+     *            the target host
+     *
+     * @return the {@link AHttpRouteMetrics} of the host
+     */
+    public AHttpRouteMetrics getRouteMetrics(HttpHost route) {
+        AHttpRouteMetrics routeMetrics = routes.get(route);
+        if (routeMetrics == null) {
+            routeMetrics = new AHttpRouteMetrics();
+            AHttpRouteMetrics existing = routes.putIfAbsent(route,
+                    routeMetrics);
+            if (existing != null) {
+                routeMetrics = existing;
+            }
+        }
+        return routeMetrics;
+    }
+
+    /**
+     * Gets a point in time copy of the metrics of every target host a request
+     * has been recorded for
+     *
+     * @return the {@link Map} of {@link AHttpRouteMetrics.Snapshot} keyed by
+     *         target host
+     */
+    public Map<HttpHost, AHttpRouteMetrics.Snapshot> getSnapshot() {
+        Map<HttpHost, AHttpRouteMetrics.Snapshot> snapshot = new HashMap<HttpHost, AHttpRouteMetrics.Snapshot>();
+        for (Map.Entry<HttpHost, AHttpRouteMetrics> route : routes.entrySet()) {
+            snapshot.put(route.getKey(), route.getValue().getSnapshot());
+        }
+        return snapshot;
+    }
+}
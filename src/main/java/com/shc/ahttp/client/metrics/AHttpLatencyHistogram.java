@@ -0,0 +1,214 @@
+package com.shc.ahttp.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, allocation-free histogram of non negative long values, such as
+ * latencies in nanoseconds. Like HdrHistogram, values are counted in log-linear
+ * buckets: each power of two range is split into {@value #SUB_BUCKET_COUNT}
+ * linear sub buckets, which bounds the relative error of a reported value to
+ * about 6% while covering the whole long range in a fixed array. <br/>
+ * <br/>
+ *
+ * Recording only increments atomic counters, so it can be called concurrently
+ * from any number of threads; {@link #getSnapshot()} copies the counters and
+ * may therefore miss values recorded while it runs.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpLatencyHistogram {
+
+    /** The number of bits of a value kept below its highest set bit */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** The number of linear sub buckets per power of two range */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** The number of buckets needed to cover all non negative long values */
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS)
+            * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative values being recorded as zero
+     *
+     * @param value
+     *            the value to be recorded
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+        long currentMin;
+        while (value < (currentMin = min.get())
+                && !min.compareAndSet(currentMin, value)) {
+            // retry until the minimum is no larger than the value
+        }
+        long currentMax;
+        while (value > (currentMax = max.get())
+                && !max.compareAndSet(currentMax, value)) {
+            // retry until the maximum is no smaller than the value
+        }
+    }
+
+    /**
+     * Gets a point in time copy of the recorded values
+     *
+     * @return the {@link Snapshot}
+     */
+    public Snapshot getSnapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshotCounts[i] = counts.get(i);
+            count += snapshotCounts[i];
+        }
+        return new Snapshot(snapshotCounts, count, sum.get(),
+                count == 0 ? 0 : min.get(), max.get());
+    }
+
+    /**
+     * Gets the index of the bucket counting the given value
+     *
+     * @param value
+     *            a non negative value
+     *
+     * @return the bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Gets the highest value counted by the bucket at the given index
+     *
+     * @param index
+     *            the bucket index
+     *
+     * @return the highest value of the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of the values recorded by an
+     * {@link AHttpLatencyHistogram}
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long min;
+
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Gets the number of recorded values
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the smallest recorded value
+         *
+         * @return the minimum, or 0 if nothing was recorded
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Gets the largest recorded value
+         *
+         * @return the maximum, or 0 if nothing was recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Gets the arithmetic mean of the recorded values
+         *
+         * @return the mean, or 0 if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Gets the value below or at which the given percentage of the
+         * recorded values fall, within the precision of the buckets
+         *
+         * @param percentile
+         *            the percentile between 0 and 100, for ex 99.9
+         *
+         * @return the value at the percentile, or 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double boundedPercentile = Math.min(Math.max(percentile, 0), 100);
+            long target = Math.max(1,
+                    (long) Math.ceil(boundedPercentile / 100 * count));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= target) {
+                    return Math.max(min, Math.min(highestValueOf(i), max));
+                }
+            }
+            return max;
+        }
+
+        /**
+         *
+         * @return {@link String} showing a summary of the snapshot * @see
+         *         java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "Snapshot [count=" + count + ", min=" + min + ", mean="
+                    + getMean() + ", p50=" + getValueAtPercentile(50)
+                    + ", p99=" + getValueAtPercentile(99) + ", max=" + max
+                    + "]";
+        }
+    }
+}
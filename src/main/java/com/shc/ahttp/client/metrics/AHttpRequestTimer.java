@@ -0,0 +1,110 @@
+package com.shc.ahttp.client.metrics;
+
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Collects the timestamps and connection byte counts of a single request as
+ * it is executed, and reports them to an {@link AHttpClientMetrics} once the
+ * response has been processed. The timer is the {@link HttpContext} the
+ * request is executed with, so that timing a request costs no more than the
+ * context it needs anyway, and is filled in by the
+ * {@link AHttpTimingRequestExecutor} of the pool.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpRequestTimer extends HttpClientContext {
+
+    private final long startNanos;
+
+    private boolean leased;
+
+    private long leasedNanos;
+
+    private boolean responseReceived;
+
+    private long responseReceivedNanos;
+
+    private HttpConnectionMetrics connectionMetrics;
+
+    private long sentBytesAtLease;
+
+    private long receivedBytesAtLease;
+
+    /**
+     * Instantiates a new timer, and context of the request, started at the
+     * current time
+     */
+    public AHttpRequestTimer() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Gets the timer of the request executed with the given context
+     *
+     * @param context
+     *            the {@link HttpContext} of the request
+     *
+     * @return the {@link AHttpRequestTimer}, or null if the request is not
+     *         timed
+     */
+    public static AHttpRequestTimer get(HttpContext context) {
+        return context instanceof AHttpRequestTimer ? (AHttpRequestTimer) context
+                : null;
+    }
+
+    /**
+     * Marks the connection as leased and about to send the request
+     *
+     * @param metrics
+     *            the {@link HttpConnectionMetrics} of the leased connection
+     */
+    public void connectionLeased(HttpConnectionMetrics metrics) {
+        leasedNanos = System.nanoTime();
+        leased = true;
+        connectionMetrics = metrics;
+        sentBytesAtLease = metrics.getSentBytesCount();
+        receivedBytesAtLease = metrics.getReceivedBytesCount();
+    }
+
+    /**
+     * Marks the status line and headers of the response as received
+     */
+    public void responseReceived() {
+        responseReceivedNanos = System.nanoTime();
+        responseReceived = true;
+    }
+
+    /**
+     * Reports the collected times, the byte counts and the status code of the
+     * now processed response
+     *
+     * @param metrics
+     *            the {@link AHttpClientMetrics} to report to
+     * @param route
+     *            the target host of the request
+     * @param statusCode
+     *            the status code of the response
+     */
+    public void record(AHttpClientMetrics metrics, HttpHost route,
+            int statusCode) {
+        long processedNanos = System.nanoTime();
+        metrics.recordStatus(route, statusCode);
+        if (leased) {
+            metrics.recordConnectionLease(route, leasedNanos - startNanos);
+            metrics.recordBytes(route, connectionMetrics.getSentBytesCount()
+                    - sentBytesAtLease, connectionMetrics.getReceivedBytesCount()
+                    - receivedBytesAtLease);
+        }
+        if (responseReceived) {
+            // without a lease, as for multiplexed streams, the time to first
+            // byte includes the time to connect
+            metrics.recordTimeToFirstByte(route, responseReceivedNanos
+                    - (leased ? leasedNanos : startNanos));
+            metrics.recordBodyRead(route, processedNanos - responseReceivedNanos);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.shc.ahttp.client.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Holds the latency histograms and the status code, byte and failure counters
+ * of a single target host, recorded by {@link AHttpHistogramMetrics}. All
+ * recording is lock-free and allocation-free.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpRouteMetrics {
+
+    /** Status codes are counted from 0 to 599, anything above as 599 */
+    private static final int STATUS_CODE_LIMIT = 600;
+
+    private final AHttpLatencyHistogram connectionLease = new AHttpLatencyHistogram();
+
+    private final AHttpLatencyHistogram timeToFirstByte = new AHttpLatencyHistogram();
+
+    private final AHttpLatencyHistogram bodyRead = new AHttpLatencyHistogram();
+
+    private final AHttpLatencyHistogram deserialization = new AHttpLatencyHistogram();
+
+    private final AtomicLongArray statusCounts = new AtomicLongArray(
+            STATUS_CODE_LIMIT);
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    public AHttpLatencyHistogram getConnectionLease() {
+        return connectionLease;
+    }
+
+    public AHttpLatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public AHttpLatencyHistogram getBodyRead() {
+        return bodyRead;
+    }
+
+    public AHttpLatencyHistogram getDeserialization() {
+        return deserialization;
+    }
+
+    /**
+     * Counts a response with the given status code
+     *
+     * @param statusCode
+     *            the HTTP status code
+     */
+    public void recordStatus(int statusCode) {
+        statusCounts.incrementAndGet(Math.min(Math.max(statusCode, 0),
+                STATUS_CODE_LIMIT - 1));
+    }
+
+    /**
+     * Adds the given byte counts to the totals
+     *
+     * @param sent
+     *            the number of bytes sent
+     * @param received
+     *            the number of bytes received
+     */
+    public void recordBytes(long sent, long received) {
+        bytesSent.addAndGet(sent);
+        bytesReceived.addAndGet(received);
+    }
+
+    /**
+     * Counts a request which failed without receiving a response
+     */
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Gets a point in time copy of the metrics
+     *
+     * @return the {@link Snapshot}
+     */
+    public Snapshot getSnapshot() {
+        Map<Integer, Long> snapshotStatusCounts = new TreeMap<Integer, Long>();
+        for (int statusCode = 0; statusCode < STATUS_CODE_LIMIT; statusCode++) {
+            long count = statusCounts.get(statusCode);
+            if (count != 0) {
+                snapshotStatusCounts.put(statusCode, count);
+            }
+        }
+        return new Snapshot(connectionLease.getSnapshot(),
+                timeToFirstByte.getSnapshot(), bodyRead.getSnapshot(),
+                deserialization.getSnapshot(),
+                Collections.unmodifiableMap(snapshotStatusCounts),
+                bytesSent.get(), bytesReceived.get(), failures.get());
+    }
+
+    /**
+     * An immutable copy of the metrics of a target host
+     */
+    public static class Snapshot {
+
+        private final AHttpLatencyHistogram.Snapshot connectionLease;
+
+        private final AHttpLatencyHistogram.Snapshot timeToFirstByte;
+
+        private final AHttpLatencyHistogram.Snapshot bodyRead;
+
+        private final AHttpLatencyHistogram.Snapshot deserialization;
+
+        private final Map<Integer, Long> statusCounts;
+
+        private final long bytesSent;
+
+        private final long bytesReceived;
+
+        private final long failures;
+
+        Snapshot(AHttpLatencyHistogram.Snapshot connectionLease,
+                AHttpLatencyHistogram.Snapshot timeToFirstByte,
+                AHttpLatencyHistogram.Snapshot bodyRead,
+                AHttpLatencyHistogram.Snapshot deserialization,
+                Map<Integer, Long> statusCounts, long bytesSent,
+                long bytesReceived, long failures) {
+            this.connectionLease = connectionLease;
+            this.timeToFirstByte = timeToFirstByte;
+            this.bodyRead = bodyRead;
+            this.deserialization = deserialization;
+            this.statusCounts = statusCounts;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+            this.failures = failures;
+        }
+
+        /**
+         * Gets the connection lease times in nanoseconds
+         *
+         * @return the {@link AHttpLatencyHistogram.Snapshot}
+         */
+        public AHttpLatencyHistogram.Snapshot getConnectionLease() {
+            return connectionLease;
+        }
+
+        /**
+         * Gets the times to first byte in nanoseconds
+         *
+         * @return the {@link AHttpLatencyHistogram.Snapshot}
+         */
+        public AHttpLatencyHistogram.Snapshot getTimeToFirstByte() {
+            return timeToFirstByte;
+        }
+
+        /**
+         * Gets the response body read times in nanoseconds
+         *
+         * @return the {@link AHttpLatencyHistogram.Snapshot}
+         */
+        public AHttpLatencyHistogram.Snapshot getBodyRead() {
+            return bodyRead;
+        }
+
+        /**
+         * Gets the response body deserialization times in nanoseconds
+         *
+         * @return the {@link AHttpLatencyHistogram.Snapshot}
+         */
+        public AHttpLatencyHistogram.Snapshot getDeserialization() {
+            return deserialization;
+        }
+
+        /**
+         * Gets the number of responses received per status code
+         *
+         * @return the unmodifiable {@link Map} of counts keyed by status code
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            return statusCounts;
+        }
+
+        /**
+         * Gets the number of responses received with the given status code
+         *
+         * @param statusCode
+         *            the HTTP status code
+         *
+         * @return the count
+         */
+        public long getStatusCount(int statusCode) {
+            Long count = statusCounts.get(statusCode);
+            return count == null ? 0 : count;
+        }
+
+        /**
+         * Gets the total number of requests which received a response or
+         * failed
+         *
+         * @return the request count
+         */
+        public long getRequestCount() {
+            long requests = failures;
+            for (Long count : statusCounts.values()) {
+                requests += count;
+            }
+            return requests;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         *
+         * @return {@link String} showing a summary of all of the fields of
+         *         this {@link Snapshot} * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "Snapshot [connectionLease=" + connectionLease
+                    + ", timeToFirstByte=" + timeToFirstByte + ", bodyRead="
+                    + bodyRead + ", deserialization=" + deserialization
+                    + ", statusCounts=" + statusCounts + ", bytesSent="
+                    + bytesSent + ", bytesReceived=" + bytesReceived
+                    + ", failures=" + failures + "]";
+        }
+    }
+}
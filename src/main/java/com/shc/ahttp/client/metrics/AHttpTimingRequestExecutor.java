@@ -0,0 +1,43 @@
+package com.shc.ahttp.client.metrics;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * A {@link HttpRequestExecutor} filling in the {@link AHttpRequestTimer} of a
+ * request, if its context holds one, when the request is sent on the leased
+ * connection and when the response headers are received.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpTimingRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    public HttpResponse execute(HttpRequest request, HttpClientConnection conn,
+            HttpContext context) throws IOException, HttpException {
+        AHttpRequestTimer timer = AHttpRequestTimer.get(context);
+        if (timer != null) {
+            timer.connectionLeased(conn.getMetrics());
+        }
+        return super.execute(request, conn, context);
+    }
+
+    @Override
+    protected HttpResponse doReceiveResponse(HttpRequest request,
+            HttpClientConnection conn, HttpContext context)
+            throws HttpException, IOException {
+        HttpResponse response = super.doReceiveResponse(request, conn, context);
+        AHttpRequestTimer timer = AHttpRequestTimer.get(context);
+        if (timer != null) {
+            timer.responseReceived();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * This package provides the metrics SPI called for every executed request, along with a default
+ * implementation keeping lock-free latency histograms, status code counts and byte counts per target host.
+ * 
+ * @see com.shc.ahttp.client.metrics.AHttpClientMetrics
+ * @see com.shc.ahttp.client.metrics.AHttpHistogramMetrics
+ */
+package com.shc.ahttp.client.metrics;
@@ -0,0 +1,823 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.StatusLine;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import com.shc.ahttp.client.encoding.AHttpContentEncoding;
+import com.shc.ahttp.client.metrics.AHttpRequestTimer;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * A <a href=
+ * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
+ * >CloseableHttpClient</a> executing the Apache requests over the HTTP/2
+ * capable JDK {@link HttpClient}, so that the requests, response processing,
+ * content encodings and metrics of the library work unchanged with the
+ * {@link AHttpTransport#HTTP_2} transport. <br/>
+ * <br/>
+ *
+ * Concurrent requests to an origin are multiplexed as streams of a single
+ * connection. HTTP/2 is negotiated with ALPN over TLS and with an upgrade
+ * over plain HTTP, falling back to HTTP/1.1 if the server does not support
+ * it. <br/>
+ * <br/>
+ *
+ * The differences with the Apache client are :
+ * <ul>
+ * <li>The headers the JDK client manages or restricts, such as Host,
+ * Connection, Content-Length and Expect, are not sent as given.</li>
+ * <li>The connect and socket timeouts of a request together bound the time
+ * until the response headers are received.</li>
+ * <li>As the JDK client only takes a connect timeout when built, a JDK client
+ * is kept per distinct connect timeout of the requests. Only the requests
+ * with the same connect timeout share connections.</li>
+ * <li>Request bodies of unknown length, such as streamed ones, are written
+ * through a pipe by a separate thread.</li>
+ * <li>Aborting a request cancels it while its response headers are awaited,
+ * and afterwards closes the stream its body is read from, which resets the
+ * HTTP/2 stream rather than closing the shared connection.</li>
+ * <li>Only the status, time to first byte and body read time of requests are
+ * recorded to the metrics, as streams are not leased. The {@link PoolStats}
+ * count the requests in flight as leased.</li>
+ * </ul>
+ *
+ * @see AHttpClientPoolConfig#setTransport(AHttpTransport)
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttp2Client extends CloseableHttpClient {
+
+    /** The HTTP/2 protocol version reported in the status lines */
+    public static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP",
+            2, 0);
+
+    /**
+     * The request headers managed or restricted by the JDK client, in lower
+     * case
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(
+            Arrays.asList("connection", "content-length", "date", "expect",
+                    "from", "host", "keep-alive", "origin", "proxy-connection",
+                    "referer", "te", "transfer-encoding", "upgrade", "via",
+                    "warning"));
+
+    /** The size of the pipe through which a streamed body is written */
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    /**
+     * The JDK clients the requests are multiplexed on, one per connect
+     * timeout in milliseconds
+     */
+    private final ConcurrentMap<Integer, HttpClient> httpClients = new ConcurrentHashMap<Integer, HttpClient>();
+
+    /** The number of requests in flight to each target host */
+    private final ConcurrentMap<HttpHost, AtomicInteger> inFlight = new ConcurrentHashMap<HttpHost, AtomicInteger>();
+
+    /** The number of requests in flight to all target hosts */
+    private final AtomicInteger totalInFlight = new AtomicInteger();
+
+    /** The content encodings negotiated for response bodies */
+    private final AHttpContentEncoding contentEncoding;
+
+    /** The limits of the bodies of the responses received asynchronously */
+    private final AHttpBodyLimits bodyLimits;
+
+    /** Writes the request bodies of unknown length into their pipe */
+    private final ExecutorService bodyWriterExecutor;
+
+    /** Whether {@link #close()} has been called */
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new HTTP/2 client
+     *
+     * @param contentEncoding
+     *            the {@link AHttpContentEncoding} negotiated for response
+     *            bodies
+     * @param bodyLimits
+     *            the {@link AHttpBodyLimits} of the bodies of the responses
+     *            received asynchronously
+     */
+    AHttp2Client(AHttpContentEncoding contentEncoding,
+            AHttpBodyLimits bodyLimits) {
+        this.contentEncoding = contentEncoding;
+        this.bodyLimits = bodyLimits;
+        this.bodyWriterExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "AHttp2Client-body-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends the request and waits for the response headers. The body of the
+     * returned response is read from the stream as it is received.
+     *
+     * @see org.apache.http.impl.client.CloseableHttpClient#doExecute(HttpHost,
+     *      HttpRequest, HttpContext)
+     */
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target,
+            HttpRequest request, HttpContext context) throws IOException,
+            ClientProtocolException {
+        HttpClientContext clientContext = HttpClientContext
+                .adapt(context != null ? context : new BasicHttpContext());
+        java.net.http.HttpRequest jdkRequest = toJdkRequest(target, request,
+                clientContext);
+        HttpExecutionAware executionAware = request instanceof HttpExecutionAware ? (HttpExecutionAware) request
+                : null;
+        Runnable release = acquire(jdkRequest.uri());
+        InputStream body = null;
+        try {
+            final CompletableFuture<java.net.http.HttpResponse<InputStream>> responseFuture = getHttpClient(
+                    request).sendAsync(jdkRequest, BodyHandlers.ofInputStream());
+            setCancellable(executionAware, () -> responseFuture.cancel(true));
+            java.net.http.HttpResponse<InputStream> jdkResponse = await(responseFuture);
+            final InputStream responseBody = jdkResponse.body();
+            body = responseBody;
+            setCancellable(executionAware, () -> {
+                closeQuietly(responseBody);
+                return true;
+            });
+            AHttpRequestTimer timer = AHttpRequestTimer.get(clientContext);
+            if (timer != null) {
+                timer.responseReceived();
+            }
+            return toHttpResponse(jdkResponse, responseBody, clientContext,
+                    true, release);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(body);
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets what aborting the given request cancels, cancelling it straight
+     * away if the request has already been aborted
+     */
+    private static void setCancellable(HttpExecutionAware executionAware,
+            Cancellable cancellable) {
+        if (executionAware != null) {
+            executionAware.setCancellable(cancellable);
+            if (executionAware.isAborted()) {
+                cancellable.cancel();
+            }
+        }
+    }
+
+    /**
+     * Waits for the response headers, failing with the exception the request
+     * failed with
+     */
+    private static java.net.http.HttpResponse<InputStream> await(
+            CompletableFuture<java.net.http.HttpResponse<InputStream>> responseFuture)
+            throws IOException {
+        try {
+            return responseFuture.get();
+        } catch (InterruptedException e) {
+            responseFuture.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (CancellationException e) {
+            throw new RequestAbortedException("Request aborted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                // the JDK client fails a cancelled exchange with its own
+                throw new RequestAbortedException("Request aborted");
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Sends the request without blocking. As with the non blocking Apache
+     * client the response is fully received before it is handed over, though
+     * never past the {@link AHttpBodyLimits} of its status code, and a
+     * compressed body is left to be decoded by the caller with
+     * {@link AHttpContentEncoding#decode}.
+     *
+     * @param request
+     *            the {@link HttpUriRequest} to be sent, with an absolute url
+     * @param context
+     *            the {@link HttpContext} of the request
+     * @param callback
+     *            the {@link FutureCallback} notified of the response or failure
+     *
+     * @return a {@link CompletableFuture} of the response
+     */
+    public CompletableFuture<HttpResponse> execute(
+            final HttpUriRequest request, HttpContext context,
+            final FutureCallback<HttpResponse> callback) {
+        final HttpClientContext clientContext = HttpClientContext
+                .adapt(context != null ? context : new BasicHttpContext());
+        CompletableFuture<HttpResponse> responseFuture;
+        Runnable release = null;
+        try {
+            java.net.http.HttpRequest jdkRequest = toJdkRequest(null, request,
+                    clientContext);
+            release = acquire(jdkRequest.uri());
+            responseFuture = getHttpClient(request).sendAsync(
+                    jdkRequest,
+                    responseInfo -> new LimitedBodySubscriber(bodyLimits
+                            .getLimit(responseInfo.statusCode()), bodyLimits
+                            .isTruncated(responseInfo.statusCode()))).thenApply(
+                    jdkResponse -> {
+                        try {
+                            return toHttpResponse(jdkResponse,
+                                    new ByteArrayInputStream(jdkResponse.body()),
+                                    clientContext, false, null);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            responseFuture = new CompletableFuture<HttpResponse>();
+            responseFuture.completeExceptionally(e);
+        }
+        final Runnable completed = release;
+        return responseFuture.whenComplete((response, failure) -> {
+            if (completed != null) {
+                completed.run();
+            }
+            if (failure == null) {
+                callback.completed(response);
+            } else if (failure instanceof CompletionException
+                    && failure.getCause() instanceof Exception) {
+                callback.failed((Exception) failure.getCause());
+            } else if (failure instanceof Exception) {
+                callback.failed((Exception) failure);
+            } else {
+                callback.failed(new IOException(failure));
+            }
+        });
+    }
+
+    /**
+     * Gets the JDK client connecting with the connect timeout of the given
+     * request, creating it on first use
+     */
+    private HttpClient getHttpClient(HttpRequest request) {
+        RequestConfig requestConfig = request instanceof Configurable ? ((Configurable) request)
+                .getConfig() : null;
+        int connectTimeout = requestConfig != null
+                && requestConfig.getConnectTimeout() > 0 ? requestConfig
+                .getConnectTimeout()
+                : AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
+        HttpClient httpClient = httpClients.get(connectTimeout);
+        if (httpClient == null) {
+            httpClient = httpClients.computeIfAbsent(connectTimeout,
+                    timeout -> HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_2)
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .connectTimeout(Duration.ofMillis(timeout))
+                            .build());
+        }
+        return httpClient;
+    }
+
+    /**
+     * Counts a request to the given url as in flight
+     *
+     * @return the {@link Runnable} counting the request as no longer in
+     *         flight, which does so once however many times it is run
+     */
+    private Runnable acquire(URI uri) {
+        HttpHost host = toRouteHost(URIUtils.extractHost(uri));
+        AtomicInteger hostInFlight = null;
+        if (host != null) {
+            hostInFlight = inFlight.get(host);
+            if (hostInFlight == null) {
+                hostInFlight = inFlight.computeIfAbsent(host,
+                        key -> new AtomicInteger());
+            }
+            hostInFlight.incrementAndGet();
+        }
+        totalInFlight.incrementAndGet();
+        final AtomicInteger counter = hostInFlight;
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                if (counter != null) {
+                    counter.decrementAndGet();
+                }
+                totalInFlight.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Gets the given host with its port set, so that the hosts given with and
+     * without the default port of their scheme are the same
+     */
+    private static HttpHost toRouteHost(HttpHost host) {
+        if (host == null || host.getPort() >= 0) {
+            return host;
+        }
+        return new HttpHost(host.getHostName(), "https".equalsIgnoreCase(host
+                .getSchemeName()) ? 443 : 80, host.getSchemeName());
+    }
+
+    /**
+     * Gets the number of requests in flight to all target hosts, reported as
+     * leased. As streams are multiplexed by the JDK client without a limit,
+     * the pending, available and maximum counts are 0.
+     *
+     * @return the total {@link PoolStats}
+     */
+    public PoolStats getTotalStats() {
+        return new PoolStats(totalInFlight.get(), 0, 0, 0);
+    }
+
+    /**
+     * Gets the number of requests in flight to the given target host,
+     * reported as leased
+     *
+     * @param host
+     *            the target {@link HttpHost}
+     *
+     * @return the {@link PoolStats} of the host
+     */
+    public PoolStats getStats(HttpHost host) {
+        AtomicInteger hostInFlight = inFlight.get(toRouteHost(host));
+        return new PoolStats(hostInFlight != null ? hostInFlight.get() : 0, 0,
+                0, 0);
+    }
+
+    /**
+     * Converts the given Apache request to a JDK request, adding the
+     * Accept-Encoding header first.
+     */
+    private java.net.http.HttpRequest toJdkRequest(HttpHost target,
+            HttpRequest request, HttpClientContext context) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Connection pool shut down");
+        }
+        if (contentEncoding.getRequestInterceptor() != null) {
+            try {
+                contentEncoding.getRequestInterceptor().process(request,
+                        context);
+            } catch (HttpException e) {
+                throw new ClientProtocolException(e);
+            }
+        }
+
+        URI uri = request instanceof HttpUriRequest ? ((HttpUriRequest) request)
+                .getURI() : URI.create(request.getRequestLine().getUri());
+        if (!uri.isAbsolute() && target != null) {
+            try {
+                uri = URIUtils.rewriteURI(uri, target);
+            } catch (java.net.URISyntaxException e) {
+                throw new ClientProtocolException(e);
+            }
+        }
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest
+                .newBuilder(uri);
+
+        RequestConfig requestConfig = request instanceof Configurable ? ((Configurable) request)
+                .getConfig() : null;
+        if (requestConfig != null && requestConfig.getSocketTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(Math.max(
+                    requestConfig.getConnectTimeout(), 0)
+                    + requestConfig.getSocketTimeout()));
+        }
+
+        for (Header header : request.getAllHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(
+                    Locale.ROOT))) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+
+        BodyPublisher bodyPublisher = BodyPublishers.noBody();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request)
+                    .getEntity();
+            if (entity != null) {
+                addEntityHeader(builder, request, entity.getContentType());
+                addEntityHeader(builder, request, entity.getContentEncoding());
+                bodyPublisher = toBodyPublisher(entity);
+            }
+        }
+        return builder.method(request.getRequestLine().getMethod(),
+                bodyPublisher).build();
+    }
+
+    private static void addEntityHeader(
+            java.net.http.HttpRequest.Builder builder, HttpRequest request,
+            Header header) {
+        if (header != null && !request.containsHeader(header.getName())) {
+            builder.header(header.getName(), header.getValue());
+        }
+    }
+
+    /**
+     * Creates the publisher of the given request body. A body of known length
+     * is read from its content, any other body is written by the entity into
+     * a pipe so that it is never buffered.
+     */
+    private BodyPublisher toBodyPublisher(final HttpEntity entity) {
+        long contentLength = entity.getContentLength();
+        if (contentLength >= 0 && !entity.isChunked()) {
+            return BodyPublishers.fromPublisher(BodyPublishers
+                    .ofInputStream(() -> {
+                        try {
+                            return entity.getContent();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }), contentLength);
+        }
+        return BodyPublishers.ofInputStream(() -> {
+            EntityPipe pipe = new EntityPipe();
+            try {
+                final OutputStream out = new PipedOutputStream(pipe);
+                bodyWriterExecutor.execute(() -> {
+                    try {
+                        entity.writeTo(out);
+                    } catch (IOException | RuntimeException e) {
+                        pipe.failure = e instanceof IOException ? (IOException) e
+                                : new IOException(e);
+                    } finally {
+                        try {
+                            out.close();
+                        } catch (IOException e) {
+                            // the reader has gone, nothing more to write
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return pipe;
+        });
+    }
+
+    /**
+     * Converts the given JDK response to an Apache response whose entity is
+     * read from the given stream, decoding it if compressed and asked to. The
+     * given release, if any, is run when the response is closed.
+     */
+    private CloseableHttpResponse toHttpResponse(
+            java.net.http.HttpResponse<?> jdkResponse, InputStream body,
+            HttpClientContext context, boolean decode, Runnable release)
+            throws IOException {
+        int statusCode = jdkResponse.statusCode();
+        ProtocolVersion version = jdkResponse.version() == HttpClient.Version.HTTP_2 ? HTTP_2
+                : HttpVersion.HTTP_1_1;
+        Http2Response httpResponse = new Http2Response(new BasicStatusLine(
+                version, statusCode, EnglishReasonPhraseCatalog.INSTANCE
+                        .getReason(statusCode, Locale.ENGLISH)), body, release);
+        HttpHeaders headers = jdkResponse.headers();
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            // skips the HTTP/2 pseudo headers such as :status
+            if (!header.getKey().startsWith(":")) {
+                for (String value : header.getValue()) {
+                    httpResponse.addHeader(header.getKey(), value);
+                }
+            }
+        }
+
+        long contentLength = headers.firstValueAsLong(HTTP.CONTENT_LEN)
+                .orElse(-1L);
+        if (statusCode == HttpStatus.SC_NO_CONTENT
+                || statusCode == HttpStatus.SC_NOT_MODIFIED
+                || contentLength == 0) {
+            body.close();
+        } else {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContent(body);
+            entity.setContentLength(contentLength);
+            entity.setContentType(httpResponse.getFirstHeader(HTTP.CONTENT_TYPE));
+            entity.setContentEncoding(httpResponse
+                    .getFirstHeader(HTTP.CONTENT_ENCODING));
+            httpResponse.setEntity(entity);
+            if (decode) {
+                contentEncoding.decode(httpResponse, context);
+            }
+        }
+        return httpResponse;
+    }
+
+    /**
+     * Stops the writers of pending request bodies. Requests sent afterwards
+     * fail with an {@link IllegalStateException}, while the connections of
+     * the JDK client are closed once they are idle.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        closed = true;
+        bodyWriterExecutor.shutdownNow();
+    }
+
+    /**
+     * @return new empty parameters, as the parameters of the client are not
+     *         consulted, the requests being configured through their
+     *         {@link RequestConfig}
+     * @see org.apache.http.client.HttpClient#getParams()
+     */
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    /**
+     * Gets a connection manager which shuts the client down, as the
+     * connections themselves are managed by the JDK client.
+     *
+     * @return the {@link ClientConnectionManager}, whose connections cannot
+     *         be requested
+     * @see org.apache.http.client.HttpClient#getConnectionManager()
+     */
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return new ClientConnectionManager() {
+
+            @Override
+            public SchemeRegistry getSchemeRegistry() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ClientConnectionRequest requestConnection(HttpRoute route,
+                    Object state) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void releaseConnection(ManagedClientConnection conn,
+                    long validDuration, TimeUnit timeUnit) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void closeIdleConnections(long idletime, TimeUnit tunit) {
+                // idle connections are closed by the JDK client
+            }
+
+            @Override
+            public void closeExpiredConnections() {
+                // expired connections are closed by the JDK client
+            }
+
+            @Override
+            public void shutdown() {
+                close();
+            }
+        };
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the stream is being discarded
+            }
+        }
+    }
+
+    /**
+     * The pipe a request body of unknown length is written through, which
+     * fails the request instead of ending the body early if the writer fails.
+     */
+    private static class EntityPipe extends PipedInputStream {
+
+        /** The exception the writer failed with, if any */
+        private volatile IOException failure;
+
+        EntityPipe() {
+            super(PIPE_SIZE);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            return checkFailure(super.read());
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+                throws IOException {
+            return checkFailure(super.read(b, off, len));
+        }
+
+        private int checkFailure(int read) throws IOException {
+            if (read == -1 && failure != null) {
+                throw failure;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Collects a response body into an array, cancelling the stream of the
+     * response as soon as the body goes past its limit, which then either
+     * fails or ends truncated.
+     */
+    private static class LimitedBodySubscriber implements
+            BodySubscriber<byte[]> {
+
+        /** Collects the bytes of the body within the limit */
+        private final BodySubscriber<byte[]> bytes = BodySubscribers
+                .ofByteArray();
+
+        /** The maximum number of bytes of the body */
+        private final long limit;
+
+        /** Whether the body ends at the limit instead of failing */
+        private final boolean truncate;
+
+        /** The subscription of the body */
+        private Flow.Subscription subscription;
+
+        /** The number of bytes of the body received */
+        private long received;
+
+        /** Whether the body has ended, been truncated or failed */
+        private boolean done;
+
+        LimitedBodySubscriber(long limit, boolean truncate) {
+            this.limit = limit;
+            this.truncate = truncate;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return bytes.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            bytes.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (done) {
+                return;
+            }
+            List<ByteBuffer> accepted = new ArrayList<ByteBuffer>(items.size());
+            for (ByteBuffer item : items) {
+                long remaining = limit - received;
+                if (limit == AHttpBodyLimits.UNLIMITED
+                        || item.remaining() <= remaining) {
+                    received += item.remaining();
+                    accepted.add(item);
+                } else {
+                    if (truncate) {
+                        item.limit(item.position() + (int) remaining);
+                        accepted.add(item);
+                    }
+                    done = true;
+                    break;
+                }
+            }
+            if (!accepted.isEmpty()) {
+                bytes.onNext(accepted);
+            }
+            if (done) {
+                subscription.cancel();
+                if (truncate) {
+                    bytes.onComplete();
+                } else {
+                    bytes.onError(new IOException(AHttpBodyLimits
+                            .getExceededMessage(limit)));
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                bytes.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                bytes.onComplete();
+            }
+        }
+    }
+
+    /**
+     * A response whose close releases the stream it is read from.
+     */
+    private static class Http2Response extends BasicHttpResponse implements
+            CloseableHttpResponse {
+
+        /** The stream the body is read from */
+        private final InputStream body;
+
+        /** Counts the request as no longer in flight, may be null */
+        private final Runnable release;
+
+        Http2Response(StatusLine statusLine, InputStream body, Runnable release) {
+            super(statusLine);
+            this.body = body;
+            this.release = release;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            } finally {
+                if (release != null) {
+                    release.run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.shc.ahttp.client.pool;
+
+/**
+ * The maximum sizes of the response bodies read by the requests executed
+ * through an {@link AHttpClientPool}, enforced while the body is read so that
+ * a body is never held in memory past its limit. <br/>
+ * <br/>
+ *
+ * The body of a successful response, with a status code between 100 - 399,
+ * which exceeds {@link #getMaxResponseBodySize()} fails the request, and its
+ * connection is aborted as soon as the limit is crossed, or before anything
+ * is read if its Content-Length already exceeds it. The body of an error
+ * response is only kept for diagnostics, so past
+ * {@link #getMaxErrorBodySize()} it is truncated instead, and its connection
+ * aborted rather than drained. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+ * config.setMaxResponseBodySize(16 * 1024 * 1024);
+ * config.setMaxErrorBodySize(64 * 1024);
+ * AHttpClientPool pool = AHttpClientPool.create(config);
+ * </pre>
+ *
+ * Limits count the bytes of the body once decoded, except for the bodies of
+ * asynchronous requests, which are limited as received, before and after
+ * they are decoded.
+ *
+ * @see AHttpClientPoolConfig#setMaxResponseBodySize(long)
+ * @see AHttpClientPoolConfig#setMaxErrorBodySize(long)
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpBodyLimits {
+
+    /** The limit of a body which can be of any size */
+    public static final long UNLIMITED = -1;
+
+    /** The maximum size in bytes of the body of a successful response */
+    private final long maxResponseBodySize;
+
+    /** The maximum size in bytes of the body of an error response */
+    private final long maxErrorBodySize;
+
+    /**
+     * Instantiates new body limits
+     *
+     * @param maxResponseBodySize
+     *            the maximum size in bytes of the body of a successful
+     *            response, or a negative number for no limit
+     * @param maxErrorBodySize
+     *            the maximum size in bytes of the body of an error response,
+     *            or a negative number for no limit
+     */
+    public AHttpBodyLimits(long maxResponseBodySize, long maxErrorBodySize) {
+        this.maxResponseBodySize = maxResponseBodySize < 0 ? UNLIMITED
+                : maxResponseBodySize;
+        this.maxErrorBodySize = maxErrorBodySize < 0 ? UNLIMITED
+                : maxErrorBodySize;
+    }
+
+    /**
+     * Gets the maximum size in bytes of the body of a successful response
+     *
+     * @return the maximum size, or {@link #UNLIMITED}
+     */
+    public long getMaxResponseBodySize() {
+        return maxResponseBodySize;
+    }
+
+    /**
+     * Gets the maximum size in bytes of the body of an error response
+     *
+     * @return the maximum size, or {@link #UNLIMITED}
+     */
+    public long getMaxErrorBodySize() {
+        return maxErrorBodySize;
+    }
+
+    /**
+     * Gets the maximum size in bytes of the body of a response with the given
+     * status code
+     *
+     * @param statusCode
+     *            the status code of the response
+     *
+     * @return the maximum size, or {@link #UNLIMITED}
+     */
+    public long getLimit(int statusCode) {
+        return isError(statusCode) ? maxErrorBodySize : maxResponseBodySize;
+    }
+
+    /**
+     * Checks whether the body of a response with the given status code is
+     * truncated at its limit, rather than failing the request
+     *
+     * @param statusCode
+     *            the status code of the response
+     *
+     * @return true for an error response
+     */
+    public boolean isTruncated(int statusCode) {
+        return isError(statusCode);
+    }
+
+    /**
+     * Checks whether a response with the given status code is an error, whose
+     * body is reported in an
+     * {@link com.shc.ahttp.client.exception.AHttpClientCallException}
+     *
+     * @param statusCode
+     *            the status code of the response
+     *
+     * @return true if the status code is not between 100 - 399
+     */
+    public static boolean isError(int statusCode) {
+        return statusCode < 100 || statusCode >= 400;
+    }
+
+    /**
+     * Gets the message of the failure of a request whose body exceeds the
+     * given limit
+     *
+     * @param limit
+     *            the maximum size in bytes of the body
+     *
+     * @return the failure message
+     */
+    public static String getExceededMessage(long limit) {
+        return "The response body exceeds the limit of " + limit + " bytes";
+    }
+
+    /**
+     *
+     * @return {@link String} showing a summary of all of the fields of this
+     *         {@link AHttpBodyLimits} * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "AHttpBodyLimits [maxResponseBodySize=" + maxResponseBodySize
+                + ", maxErrorBodySize=" + maxErrorBodySize + "]";
+    }
+}
@@ -0,0 +1,317 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread safe pool of the byte buffers response bodies are read
+ * into, so that reading a body does not allocate a new buffer, nor grow one
+ * repeatedly, on every call. <br/>
+ * <br/>
+ *
+ * The pooled buffers are spread over stripes, a thread taking and returning
+ * its buffers to the stripe picked from its id, so that concurrent threads
+ * rarely contend on the same slots. Taking or returning a buffer is a single
+ * atomic swap of a slot, and never blocks: a thread which finds no buffer
+ * allocates a new one, and a buffer returned to a full stripe is dropped. A
+ * stripe rather than a thread local is used so that the pooled memory stays
+ * bounded however many threads, virtual or not, read bodies. <br/>
+ * <br/>
+ *
+ * Only buffers no larger than {@link #getMaxBufferSize()} are kept, and at
+ * most {@link #getMaxBuffers()} of them, so the memory held by the pool is
+ * bounded by their product. A body larger than that is read into a buffer
+ * which is simply dropped afterwards. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+ * config.setMaxPooledBuffers(128);
+ * config.setMaxPooledBufferSize(512 * 1024);
+ * AHttpBufferPool bufferPool = AHttpClientPool.create(config).getBufferPool();
+ * </pre>
+ *
+ * @see AHttpClientPoolConfig#setMaxPooledBuffers(int)
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpBufferPool {
+
+    /** The largest array size the JVMs can allocate */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The size of the buffers a body of unknown length is read into */
+    private final int bufferSize;
+
+    /** The size of the largest buffer kept by the pool */
+    private final int maxBufferSize;
+
+    /** The maximum number of buffers kept by the pool */
+    private final int maxBuffers;
+
+    /**
+     * The index of the first slot of each stripe, followed by the number of
+     * slots, so that the slots of stripe i run from bounds[i] to bounds[i + 1]
+     */
+    private final int[] stripeBounds;
+
+    /** The mask picking the stripe of a thread from its id */
+    private final int stripeMask;
+
+    /**
+     * The slots of all the stripes, one after the other, null when empty,
+     * exactly {@link #maxBuffers} of them
+     */
+    private final AtomicReferenceArray<byte[]> slots;
+
+    /**
+     * Instantiates a new buffer pool
+     *
+     * @param bufferSize
+     *            the size of the buffers a body of unknown length is read into
+     * @param maxBufferSize
+     *            the size of the largest buffer kept by the pool
+     * @param maxBuffers
+     *            the maximum number of buffers kept by the pool, or 0 to keep
+     *            none
+     */
+    public AHttpBufferPool(int bufferSize, int maxBufferSize, int maxBuffers) {
+        if (bufferSize <= 0 || maxBufferSize < 0 || maxBuffers < 0) {
+            throw new IllegalArgumentException("Invalid buffer pool size "
+                    + bufferSize + ", " + maxBufferSize + ", " + maxBuffers);
+        }
+        this.bufferSize = bufferSize;
+        this.maxBufferSize = maxBufferSize;
+        this.maxBuffers = maxBuffers;
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()
+                && stripes * 2 <= maxBuffers) {
+            stripes *= 2;
+        }
+        this.stripeMask = stripes - 1;
+        // the slots are shared out so that the stripes never hold more than
+        // maxBuffers in total, the first ones taking one of the remainder
+        this.stripeBounds = new int[stripes + 1];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            stripeBounds[stripe + 1] = stripeBounds[stripe] + maxBuffers
+                    / stripes + (stripe < maxBuffers % stripes ? 1 : 0);
+        }
+        this.slots = new AtomicReferenceArray<byte[]>(maxBuffers);
+    }
+
+    /**
+     * Gets the size of the buffers a body of unknown length is read into
+     *
+     * @return the initial buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the size of the largest buffer kept by the pool
+     *
+     * @return the maximum pooled buffer size in bytes
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Gets the maximum number of buffers kept by the pool
+     *
+     * @return the maximum number of pooled buffers
+     */
+    public int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * Gets the number of buffers currently kept by the pool
+     *
+     * @return the number of idle pooled buffers
+     */
+    public int getPooledBuffers() {
+        int pooled = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                pooled++;
+            }
+        }
+        return pooled;
+    }
+
+    /**
+     * Takes a buffer of at least the given size from the stripe of the
+     * calling thread, or allocates a new one if the stripe has none
+     *
+     * @param minSize
+     *            the minimum size of the buffer
+     *
+     * @return a buffer of at least the given size, to be handed back with
+     *         {@link #release(byte[])}
+     */
+    public byte[] acquire(int minSize) {
+        if (minSize <= maxBufferSize) {
+            int stripe = stripe();
+            for (int i = stripeBounds[stripe]; i < stripeBounds[stripe + 1]; i++) {
+                byte[] buffer = slots.get(i);
+                if (buffer != null && buffer.length >= minSize
+                        && slots.compareAndSet(i, buffer, null)) {
+                    return buffer;
+                }
+            }
+        }
+        return new byte[Math.max(minSize, bufferSize)];
+    }
+
+    /**
+     * Hands the given buffer back to the stripe of the calling thread. The
+     * buffer is dropped if it is larger than {@link #getMaxBufferSize()} or
+     * the stripe is full. The caller must not use the buffer afterwards.
+     *
+     * @param buffer
+     *            the buffer taken by {@link #acquire(int)}, may be null
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length > maxBufferSize) {
+            return;
+        }
+        int stripe = stripe();
+        for (int i = stripeBounds[stripe]; i < stripeBounds[stripe + 1]; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the given stream to its end into a pooled buffer, and hands the
+     * bytes read to the given reader before the buffer is returned to the
+     * pool. The stream is not closed.
+     *
+     * @param in
+     *            the stream to read
+     * @param contentLength
+     *            the length of the content of the stream, or a negative
+     *            number if unknown
+     * @param reader
+     *            the {@link BufferReader} turning the bytes read into the
+     *            result, which must not keep the buffer
+     *
+     * @return the result of the reader
+     *
+     * @throws IOException
+     *             if the stream could not be read or is too large for an
+     *             array
+     */
+    public <R> R read(InputStream in, long contentLength,
+            BufferReader<R> reader) throws IOException {
+        if (contentLength > MAX_ARRAY_SIZE) {
+            throw new IOException("The content of " + contentLength
+                    + " bytes is too large to be buffered");
+        }
+        // one more byte than the declared length, so that the end of the
+        // stream is seen without growing the buffer
+        byte[] buffer = acquire(contentLength >= 0 ? (int) Math.min(
+                contentLength + 1, MAX_ARRAY_SIZE) : bufferSize);
+        try {
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = grow(buffer, length);
+                }
+            }
+            return reader.read(buffer, length);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Reads the given stream to its end into a pooled buffer and decodes it
+     * into a String. The stream is not closed.
+     *
+     * @param in
+     *            the stream to read
+     * @param contentLength
+     *            the length of the content of the stream, or a negative
+     *            number if unknown
+     * @param charset
+     *            the charset of the content
+     *
+     * @return the decoded content
+     *
+     * @throws IOException
+     *             if the stream could not be read or is too large for an
+     *             array
+     */
+    public String readString(InputStream in, long contentLength,
+            final Charset charset) throws IOException {
+        return read(in, contentLength,
+                (buffer, length) -> new String(buffer, 0, length, charset));
+    }
+
+    /**
+     * Replaces the given full buffer by one twice as large holding its bytes,
+     * handing the full buffer back to the pool
+     *
+     * @param buffer
+     *            the full buffer
+     * @param length
+     *            the number of bytes in the buffer
+     *
+     * @return the larger buffer
+     *
+     * @throws IOException
+     *             if the buffer cannot grow any further
+     */
+    private byte[] grow(byte[] buffer, int length) throws IOException {
+        if (length >= MAX_ARRAY_SIZE) {
+            throw new IOException("The content is too large to be buffered");
+        }
+        byte[] larger = acquire((int) Math.min(2L * length, MAX_ARRAY_SIZE));
+        System.arraycopy(buffer, 0, larger, 0, length);
+        release(buffer);
+        return larger;
+    }
+
+    /**
+     * Gets the stripe of the calling thread
+     *
+     * @return the index of the stripe in {@link #stripeBounds}
+     */
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 32)) & stripeMask;
+    }
+
+    /**
+     * Turns the bytes read into a pooled buffer into a result, before the
+     * buffer is returned to the pool.
+     */
+    public interface BufferReader<R> {
+
+        /**
+         * Turns the bytes read into the result
+         *
+         * @param buffer
+         *            the pooled buffer, which must not be kept
+         * @param length
+         *            the number of bytes read, from the start of the buffer
+         *
+         * @return the result
+         *
+         * @throws IOException
+         *             if the bytes could not be read
+         */
+        R read(byte[] buffer, int length) throws IOException;
+    }
+}
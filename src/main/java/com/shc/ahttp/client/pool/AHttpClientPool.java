@@ -0,0 +1,562 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.pool.PoolStats;
+
+import com.shc.ahttp.client.encoding.AHttpContentEncoding;
+import com.shc.ahttp.client.metrics.AHttpClientMetrics;
+import com.shc.ahttp.client.metrics.AHttpTimingRequestExecutor;
+
+/**
+ * A long lived, thread safe holder of a single <a href=
+ * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
+ * >CloseableHttpClient</a> backed by a {@link PoolingHttpClientConnectionManager}.
+ * Sharing one pool across requests lets TCP connections and TLS sessions be
+ * reused instead of being set up again for every call. <br/>
+ * <br/>
+ *
+ * The pool starts an evictor thread which closes expired connections and
+ * connections idle for longer than
+ * {@link AHttpClientPoolConfig#getIdleConnectionTimeout()}, and by default
+ * registers a JVM shutdown hook which calls {@link #shutdown()}. <br/>
+ * <br/>
+ *
+ * Asynchronous requests use a separate non blocking <a href=
+ * "http://hc.apache.org/httpcomponents-asyncclient-4.1.x/httpasyncclient/apidocs/org/apache/http/impl/nio/client/CloseableHttpAsyncClient.html"
+ * >CloseableHttpAsyncClient</a> with the same connection limits, whose I/O
+ * reactor is only started on the first asynchronous request. <br/>
+ * <br/>
+ *
+ * With the {@link AHttpTransport#HTTP_2} transport both blocking and
+ * asynchronous requests are instead multiplexed over the HTTP/2 connections
+ * of an {@link AHttp2Client}. <br/>
+ * <br/>
+ *
+ * Requests are recorded to the {@link AHttpClientMetrics} of the
+ * configuration, if one is set, and buffered response bodies are read into
+ * the buffers of an {@link AHttpBufferPool}, never past the
+ * {@link AHttpBodyLimits} of the configuration. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(AHttpClientPool.getDefault());
+ * </pre>
+ *
+ * @see AHttpClientPoolConfig
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpClientPool {
+
+    /** The lazily created pool shared by all requests by default */
+    private static volatile AHttpClientPool defaultPool;
+
+    /**
+     * The pooling connection manager backing {@link #httpClient}, null with
+     * the {@link AHttpTransport#HTTP_2} transport whose connections are
+     * managed by the JDK client
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    /** The shared HTTP client */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * The shared HTTP/2 client, which is also the {@link #httpClient}, null
+     * unless the {@link AHttpTransport#HTTP_2} transport is configured
+     */
+    private final AHttp2Client http2Client;
+
+    /** The configuration this pool was created with */
+    private final AHttpClientPoolConfig config;
+
+    /** The metrics every request is recorded to */
+    private final AHttpClientMetrics metrics;
+
+    /** The content encodings negotiated for response bodies */
+    private final AHttpContentEncoding contentEncoding;
+
+    /** The buffers response bodies are read into */
+    private final AHttpBufferPool bufferPool;
+
+    /** The limits of the response bodies */
+    private final AHttpBodyLimits bodyLimits;
+
+    /** The shutdown hook registered for this pool, if any */
+    private final Thread shutdownHook;
+
+    /**
+     * The non blocking connection manager backing {@link #httpAsyncClient},
+     * created on first use
+     */
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+    /**
+     * The shared non blocking HTTP client used for asynchronous requests,
+     * created and started on first use
+     */
+    private volatile CloseableHttpAsyncClient httpAsyncClient;
+
+    /** Evicts idle and expired connections of {@link #asyncConnectionManager} */
+    private ScheduledExecutorService asyncConnectionEvictor;
+
+    /** Whether {@link #shutdown()} has been called */
+    private volatile boolean shutdown;
+
+    /**
+     * Guards the creation of the non blocking client and the shut down. A lock
+     * rather than a monitor is used so that virtual threads waiting on it, or
+     * on the closing of the clients, do not pin their carrier thread.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The per host connection limits overridden at runtime, guarded by
+     * {@link #lock} and applied to {@link #asyncConnectionManager} when it is
+     * created
+     */
+    private final Map<HttpHost, Integer> maxConnectionsForHost = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new pool with the given configuration
+     *
+     * @param config
+     *            the {@link AHttpClientPoolConfig} to be used
+     */
+    protected AHttpClientPool(AHttpClientPoolConfig config) {
+        this.config = config;
+        this.metrics = config.getMetrics();
+        this.contentEncoding = new AHttpContentEncoding(
+                config.getContentEncodings(), config.getZstdDictionary());
+        this.bufferPool = new AHttpBufferPool(config.getBufferSize(),
+                config.getMaxPooledBufferSize(), config.getMaxPooledBuffers());
+        this.bodyLimits = new AHttpBodyLimits(config.getMaxResponseBodySize(),
+                config.getMaxErrorBodySize());
+        if (config.getTransport() == AHttpTransport.HTTP_2) {
+            connectionManager = null;
+            http2Client = new AHttp2Client(contentEncoding, bodyLimits);
+            httpClient = http2Client;
+        } else {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(config.getMaxTotalConnections());
+            connectionManager.setDefaultMaxPerRoute(config
+                    .getMaxConnectionsPerRoute());
+            connectionManager.setValidateAfterInactivity(config
+                    .getValidateAfterInactivity());
+            for (Map.Entry<HttpHost, Integer> hostLimit : config
+                    .getMaxConnectionsPerHost().entrySet()) {
+                connectionManager.setMaxPerRoute(
+                        toRoute(hostLimit.getKey()), hostLimit.getValue());
+            }
+            http2Client = null;
+            httpClient = createHttpClientBuilder(config).build();
+        }
+
+        if (config.isRegisterShutdownHook()) {
+            shutdownHook = new Thread("AHttpClientPool-shutdown") {
+                @Override
+                public void run() {
+                    closePool();
+                }
+            };
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            shutdownHook = null;
+        }
+    }
+
+    /**
+     * Creates the {@link HttpClientBuilder} used to build the shared client.
+     * The builder owns the connection manager so that closing the client also
+     * stops the idle connection evictor thread and closes the pool. The
+     * built-in gzip and deflate handling is replaced by the configured
+     * {@link AHttpContentEncoding}.
+     *
+     * @param config
+     *            the {@link AHttpClientPoolConfig} to be used
+     *
+     * @return the configured {@link HttpClientBuilder}
+     */
+    protected HttpClientBuilder createHttpClientBuilder(
+            AHttpClientPoolConfig config) {
+        HttpClientBuilder builder = HttpClientBuilder
+                .create()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(false)
+                .evictExpiredConnections()
+                .evictIdleConnections(config.getIdleConnectionTimeout(),
+                        TimeUnit.MILLISECONDS).disableContentCompression();
+        if (contentEncoding.getRequestInterceptor() != null) {
+            builder.addInterceptorLast(contentEncoding.getRequestInterceptor());
+            builder.addInterceptorLast(contentEncoding.getResponseInterceptor());
+        }
+        if (metrics != AHttpClientMetrics.NOOP) {
+            builder.setRequestExecutor(new AHttpTimingRequestExecutor());
+        }
+        return builder;
+    }
+
+    /**
+     * Gets the pool shared by default by all
+     * {@link com.shc.ahttp.client.request.AHttpGetRequest} and
+     * {@link com.shc.ahttp.client.request.AHttpPostRequest} objects, creating it with the default
+     * {@link AHttpClientPoolConfig} on first use.
+     *
+     * @return the default {@link AHttpClientPool}
+     */
+    public static AHttpClientPool getDefault() {
+        AHttpClientPool pool = defaultPool;
+        if (pool == null || pool.isShutdown()) {
+            synchronized (AHttpClientPool.class) {
+                pool = defaultPool;
+                if (pool == null || pool.isShutdown()) {
+                    pool = new AHttpClientPool(new AHttpClientPoolConfig());
+                    defaultPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Creates a new pool with the given configuration. The caller owns the
+     * returned pool and should call {@link #shutdown()} once it is no longer
+     * needed.
+     *
+     * @param config
+     *            the {@link AHttpClientPoolConfig} to be used
+     *
+     * @return the new {@link AHttpClientPool}
+     */
+    public static AHttpClientPool create(AHttpClientPoolConfig config) {
+        return new AHttpClientPool(config);
+    }
+
+    /**
+     * Gets the shared HTTP client. The client must not be closed by callers,
+     * only the responses it returns should be.
+     *
+     * @return the shared {@link CloseableHttpClient}
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Gets the shared HTTP/2 client, which executes both the blocking and the
+     * asynchronous requests when the {@link AHttpTransport#HTTP_2} transport
+     * is configured.
+     *
+     * @return the shared {@link AHttp2Client}, or null if the pool uses the
+     *         {@link AHttpTransport#HTTP_1_1} transport
+     */
+    public AHttp2Client getHttp2Client() {
+        return http2Client;
+    }
+
+    /**
+     * Gets the shared non blocking HTTP client, creating and starting it with
+     * its own I/O reactor on first use. The client must not be closed by
+     * callers.
+     *
+     * @return the shared {@link CloseableHttpAsyncClient} * @throws
+     *         IOException if the I/O reactor could not be created
+     */
+    public CloseableHttpAsyncClient getHttpAsyncClient() throws IOException {
+        CloseableHttpAsyncClient client = httpAsyncClient;
+        if (client == null) {
+            lock.lock();
+            try {
+                client = httpAsyncClient;
+                if (client == null) {
+                    if (shutdown) {
+                        throw new IllegalStateException(
+                                "Connection pool shut down");
+                    }
+                    client = createHttpAsyncClient();
+                    client.start();
+                    httpAsyncClient = client;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Creates the non blocking client, with a pooling connection manager
+     * using the same limits as the blocking one and a daemon thread evicting
+     * its idle and expired connections.
+     *
+     * @return the new, not yet started {@link CloseableHttpAsyncClient} * @throws
+     *         IOException if the I/O reactor could not be created
+     */
+    protected CloseableHttpAsyncClient createHttpAsyncClient()
+            throws IOException {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(config.getIoThreadCount()).build();
+        asyncConnectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(ioReactorConfig));
+        asyncConnectionManager.setMaxTotal(config.getMaxTotalConnections());
+        asyncConnectionManager.setDefaultMaxPerRoute(config
+                .getMaxConnectionsPerRoute());
+        for (Map.Entry<HttpHost, Integer> hostLimit : config
+                .getMaxConnectionsPerHost().entrySet()) {
+            asyncConnectionManager.setMaxPerRoute(
+                    toRoute(hostLimit.getKey()), hostLimit.getValue());
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<HttpHost, Integer> hostLimit : maxConnectionsForHost
+                    .entrySet()) {
+                asyncConnectionManager.setMaxPerRoute(
+                        toRoute(hostLimit.getKey()), hostLimit.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        final long idleConnectionTimeout = config.getIdleConnectionTimeout();
+        long evictionInterval = idleConnectionTimeout > 0 ? idleConnectionTimeout
+                : 5000;
+        asyncConnectionEvictor = Executors
+                .newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "AHttpClientPool-async-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        asyncConnectionEvictor.scheduleWithFixedDelay(() -> {
+            asyncConnectionManager.closeExpiredConnections();
+            if (idleConnectionTimeout > 0) {
+                asyncConnectionManager.closeIdleConnections(
+                        idleConnectionTimeout, TimeUnit.MILLISECONDS);
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+
+        return createHttpAsyncClientBuilder().build();
+    }
+
+    /**
+     * Creates the {@link HttpAsyncClientBuilder} used to build the shared non
+     * blocking client around the {@link #asyncConnectionManager}. Only the
+     * Accept-Encoding header is added here, the response being decoded by
+     * {@link AHttpContentEncoding#decode} once it has been received.
+     *
+     * @return the configured {@link HttpAsyncClientBuilder}
+     */
+    protected HttpAsyncClientBuilder createHttpAsyncClientBuilder() {
+        HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create()
+                .setConnectionManager(asyncConnectionManager)
+                .setConnectionManagerShared(false);
+        if (contentEncoding.getRequestInterceptor() != null) {
+            builder.addInterceptorLast(contentEncoding.getRequestInterceptor());
+        }
+        return builder;
+    }
+
+    /**
+     * Gets the metrics every request executed through the pool is recorded
+     * to.
+     *
+     * @return the {@link AHttpClientMetrics} the pool was created with
+     */
+    public AHttpClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the content encodings negotiated for response bodies of requests
+     * executed through the pool.
+     *
+     * @return the {@link AHttpContentEncoding} built from the configuration
+     */
+    public AHttpContentEncoding getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Gets the pool of the buffers the response bodies of requests executed
+     * through the pool are read into.
+     *
+     * @return the {@link AHttpBufferPool} built from the configuration
+     */
+    public AHttpBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Gets the limits of the response bodies of requests executed through the
+     * pool.
+     *
+     * @return the {@link AHttpBodyLimits} built from the configuration
+     */
+    public AHttpBodyLimits getBodyLimits() {
+        return bodyLimits;
+    }
+
+    /**
+     * Overrides the per route connection limit for the given target host at
+     * runtime. With the {@link AHttpTransport#HTTP_2} transport only the
+     * connections of the non blocking client, if any, are limited, as the
+     * JDK client multiplexes the requests without a limit. The override also
+     * applies to the non blocking client created later on.
+     *
+     * @param host
+     *            the target {@link HttpHost}
+     * @param maxConnections
+     *            the maximum number of pooled connections to the host
+     */
+    public void setMaxConnectionsForHost(HttpHost host, int maxConnections) {
+        lock.lock();
+        try {
+            maxConnectionsForHost.put(host, maxConnections);
+            if (connectionManager != null) {
+                connectionManager.setMaxPerRoute(toRoute(host),
+                        maxConnections);
+            }
+            if (asyncConnectionManager != null) {
+                asyncConnectionManager.setMaxPerRoute(toRoute(host),
+                        maxConnections);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the leased, pending, available and maximum connection counts
+     * across all routes. With the {@link AHttpTransport#HTTP_2} transport the
+     * requests in flight are counted as leased, see
+     * {@link AHttp2Client#getTotalStats()}.
+     *
+     * @return the total {@link PoolStats}
+     */
+    public PoolStats getTotalStats() {
+        return http2Client != null ? http2Client.getTotalStats()
+                : connectionManager.getTotalStats();
+    }
+
+    /**
+     * Gets the leased, pending, available and maximum connection counts for
+     * the given target host.
+     *
+     * @param host
+     *            the target {@link HttpHost}
+     *
+     * @return the {@link PoolStats} of the route to the host
+     */
+    public PoolStats getStats(HttpHost host) {
+        return http2Client != null ? http2Client.getStats(host)
+                : connectionManager.getStats(toRoute(host));
+    }
+
+    /**
+     * Gets the leased, pending, available and maximum connection counts of
+     * the non blocking client for the given target host.
+     *
+     * @param host
+     *            the target {@link HttpHost}
+     *
+     * @return the {@link PoolStats} of the route to the host, or null if the
+     *         non blocking client has not been created yet
+     */
+    PoolStats getAsyncStats(HttpHost host) {
+        lock.lock();
+        try {
+            return asyncConnectionManager != null ? asyncConnectionManager
+                    .getStats(toRoute(host)) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the route the clients of the pool use to reach the given target
+     * host directly, which is secure for an https host and whose port
+     * defaults to the one of the scheme, so that the limits and stats of a
+     * host apply to the connections actually pooled for it
+     *
+     * @param host
+     *            the target {@link HttpHost}
+     *
+     * @return the {@link HttpRoute} to the host
+     */
+    static HttpRoute toRoute(HttpHost host) {
+        boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+        HttpHost target = host;
+        if (host.getPort() < 0) {
+            target = new HttpHost(host.getHostName(), secure ? 443 : 80,
+                    host.getSchemeName());
+        }
+        return new HttpRoute(target, null, secure);
+    }
+
+    /**
+     * Checks if the pool has been shut down.
+     *
+     * @return true, if {@link #shutdown()} has been called
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Shuts the pool down, stopping the evictor thread and closing all pooled
+     * connections. Requests executed after this call fail.
+     */
+    public void shutdown() {
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is already shutting down and will run the hook
+            }
+        }
+        closePool();
+    }
+
+    /**
+     * Closes the shared clients, which in turn stops the evictor threads and
+     * closes the connection managers.
+     */
+    private void closePool() {
+        lock.lock();
+        try {
+            shutdown = true;
+            HttpClientUtils.closeQuietly(httpClient);
+            if (httpAsyncClient != null) {
+                asyncConnectionEvictor.shutdownNow();
+                try {
+                    httpAsyncClient.close();
+                } catch (IOException e) {
+                    // the pool is being discarded, nothing more can be done
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.shc.ahttp.client.pool;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.HttpHost;
+
+import com.shc.ahttp.client.encoding.AHttpContentEncoding;
+import com.shc.ahttp.client.metrics.AHttpClientMetrics;
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * This class holds the options used to build an {@link AHttpClientPool}, such
+ * as the connection limits, the idle connection eviction timeout and whether a
+ * JVM shutdown hook should be registered to release the pooled connections.
+ * <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+ * config.setMaxTotalConnections(500);
+ * config.setMaxConnectionsPerRoute(50);
+ * config.setMaxConnectionsForHost(new HttpHost(&quot;httpbin.org&quot;, 443, &quot;https&quot;), 100);
+ * AHttpClientPool pool = AHttpClientPool.create(config);
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpClientPoolConfig {
+
+    /** The maximum number of pooled connections across all routes */
+    private int maxTotalConnections = AHttpClientConstants.DEFAULT_MAX_TOTAL_CONNECTIONS;
+
+    /** The default maximum number of pooled connections to a single route */
+    private int maxConnectionsPerRoute = AHttpClientConstants.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    /** Overrides of the per route connection limit, keyed by target host */
+    private Map<HttpHost, Integer> maxConnectionsPerHost = new HashMap<HttpHost, Integer>();
+
+    /**
+     * The time in milliseconds after which an idle pooled connection is
+     * evicted by the evictor thread
+     */
+    private long idleConnectionTimeout = AHttpClientConstants.DEFAULT_IDLE_CONNECTION_TIMEOUT;
+
+    /**
+     * The time in milliseconds of inactivity after which a pooled connection
+     * is re-validated before being leased
+     */
+    private int validateAfterInactivity = AHttpClientConstants.DEFAULT_VALIDATE_AFTER_INACTIVITY;
+
+    /**
+     * Whether to register a JVM shutdown hook which shuts the pool down
+     */
+    private boolean registerShutdownHook = true;
+
+    /**
+     * The number of I/O dispatch threads of the non blocking client used for
+     * asynchronous requests
+     */
+    private int ioThreadCount = Runtime.getRuntime().availableProcessors();
+
+    /** The metrics every request executed through the pool is recorded to */
+    private AHttpClientMetrics metrics = AHttpClientMetrics.NOOP;
+
+    /**
+     * The content encodings accepted for response bodies, in order of
+     * preference
+     */
+    private List<String> contentEncodings = AHttpContentEncoding.DEFAULT_ENCODINGS;
+
+    /** The dictionary zstd encoded response bodies are compressed with */
+    private byte[] zstdDictionary;
+
+    /** The transport the requests are executed with */
+    private AHttpTransport transport = AHttpTransport.HTTP_1_1;
+
+    /**
+     * The size in bytes of the pooled buffers a response body of unknown
+     * length is read into
+     */
+    private int bufferSize = AHttpClientConstants.DEFAULT_BUFFER_SIZE;
+
+    /** The size in bytes of the largest response body buffer kept for reuse */
+    private int maxPooledBufferSize = AHttpClientConstants.DEFAULT_MAX_POOLED_BUFFER_SIZE;
+
+    /** The maximum number of response body buffers kept for reuse */
+    private int maxPooledBuffers = AHttpClientConstants.DEFAULT_MAX_POOLED_BUFFERS;
+
+    /** The maximum size in bytes of the body of a successful response */
+    private long maxResponseBodySize = AHttpBodyLimits.UNLIMITED;
+
+    /** The size in bytes past which the body of an error response is truncated */
+    private long maxErrorBodySize = AHttpClientConstants.DEFAULT_MAX_ERROR_BODY_SIZE;
+
+    /**
+     * Gets the maximum number of pooled connections across all routes.
+     *
+     * @return the maximum number of pooled connections across all routes
+     */
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections across all routes.
+     *
+     * @param maxTotalConnections
+     *            the new maximum number of pooled connections
+     */
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    /**
+     * Gets the default maximum number of pooled connections to a single route.
+     *
+     * @return the default maximum number of connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the default maximum number of pooled connections to a single route.
+     *
+     * @param maxConnectionsPerRoute
+     *            the new default maximum number of connections per route
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Gets the per route connection limit overrides, keyed by target host.
+     *
+     * @return the {@link Map} of per host connection limits
+     */
+    public Map<HttpHost, Integer> getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Overrides the default per route connection limit for the given target
+     * host.
+     *
+     * @param host
+     *            the target {@link HttpHost}, for ex new
+     *            HttpHost("httpbin.org", 443, "https")
+     * @param maxConnections
+     *            the maximum number of pooled connections to the host
+     */
+    public void setMaxConnectionsForHost(HttpHost host, int maxConnections) {
+        maxConnectionsPerHost.put(host, maxConnections);
+    }
+
+    /**
+     * Gets the time in milliseconds after which an idle pooled connection is
+     * evicted.
+     *
+     * @return the idle connection timeout in milliseconds
+     */
+    public long getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds after which an idle pooled connection is
+     * evicted.
+     *
+     * @param idleConnectionTimeout
+     *            the new idle connection timeout in milliseconds
+     */
+    public void setIdleConnectionTimeout(long idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    /**
+     * Gets the time in milliseconds of inactivity after which a pooled
+     * connection is re-validated before being leased.
+     *
+     * @return the validate after inactivity period in milliseconds
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Sets the time in milliseconds of inactivity after which a pooled
+     * connection is re-validated before being leased.
+     *
+     * @param validateAfterInactivity
+     *            the new validate after inactivity period in milliseconds
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Checks if a JVM shutdown hook should be registered for the pool.
+     *
+     * @return true, if a shutdown hook should be registered
+     */
+    public boolean isRegisterShutdownHook() {
+        return registerShutdownHook;
+    }
+
+    /**
+     * Sets whether a JVM shutdown hook should be registered for the pool.
+     *
+     * @param registerShutdownHook
+     *            true, to shut the pool down when the JVM exits
+     */
+    public void setRegisterShutdownHook(boolean registerShutdownHook) {
+        this.registerShutdownHook = registerShutdownHook;
+    }
+
+    /**
+     * Gets the number of I/O dispatch threads of the non blocking client used
+     * for asynchronous requests.
+     *
+     * @return the number of I/O dispatch threads
+     */
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O dispatch threads of the non blocking client used
+     * for asynchronous requests.
+     *
+     * @param ioThreadCount
+     *            the new number of I/O dispatch threads
+     */
+    public void setIoThreadCount(int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * Gets the metrics every request executed through the pool is recorded
+     * to.
+     *
+     * @return the {@link AHttpClientMetrics}, {@link AHttpClientMetrics#NOOP}
+     *         by default
+     */
+    public AHttpClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics every request executed through the pool is recorded
+     * to.
+     *
+     * @param metrics
+     *            the new {@link AHttpClientMetrics}, or null to record nothing
+     */
+    public void setMetrics(AHttpClientMetrics metrics) {
+        this.metrics = metrics != null ? metrics : AHttpClientMetrics.NOOP;
+    }
+
+    /**
+     * Gets the content encodings accepted for response bodies, in order of
+     * preference.
+     *
+     * @return the {@link List} of content encodings,
+     *         {@link AHttpContentEncoding#DEFAULT_ENCODINGS} by default
+     */
+    public List<String> getContentEncodings() {
+        return contentEncodings;
+    }
+
+    /**
+     * Sets the content encodings accepted for response bodies, in order of
+     * preference. Encodings whose optional decoder is not on the classpath are
+     * not sent.
+     *
+     * @param contentEncodings
+     *            the new {@link List} of content encodings, for ex zstd and
+     *            gzip, or an empty list to ask for uncompressed bodies
+     */
+    public void setContentEncodings(List<String> contentEncodings) {
+        this.contentEncodings = contentEncodings;
+    }
+
+    /**
+     * Gets the dictionary zstd encoded response bodies are compressed with.
+     *
+     * @return the zstd dictionary, null by default
+     */
+    public byte[] getZstdDictionary() {
+        return zstdDictionary;
+    }
+
+    /**
+     * Sets the dictionary zstd encoded response bodies are compressed with,
+     * which has to be shared with the server.
+     *
+     * @param zstdDictionary
+     *            the new zstd dictionary, or null to decode without one
+     */
+    public void setZstdDictionary(byte[] zstdDictionary) {
+        this.zstdDictionary = zstdDictionary;
+    }
+
+    /**
+     * Gets the transport the requests are executed with.
+     *
+     * @return the {@link AHttpTransport}, {@link AHttpTransport#HTTP_1_1} by
+     *         default
+     */
+    public AHttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport the requests are executed with. With
+     * {@link AHttpTransport#HTTP_2} concurrent requests to an origin share a
+     * single multiplexed connection, and the connection limits of this
+     * configuration do not apply.
+     *
+     * @param transport
+     *            the new {@link AHttpTransport}, or null for
+     *            {@link AHttpTransport#HTTP_1_1}
+     */
+    public void setTransport(AHttpTransport transport) {
+        this.transport = transport != null ? transport
+                : AHttpTransport.HTTP_1_1;
+    }
+
+    /**
+     * Gets the size in bytes of the pooled buffers a response body of unknown
+     * length is read into.
+     *
+     * @return the initial buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the size in bytes of the pooled buffers a response body of unknown
+     * length is read into. A larger body grows its buffer by doubling it.
+     *
+     * @param bufferSize
+     *            the new initial buffer size in bytes
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gets the size in bytes of the largest response body buffer kept for
+     * reuse.
+     *
+     * @return the maximum pooled buffer size in bytes
+     */
+    public int getMaxPooledBufferSize() {
+        return maxPooledBufferSize;
+    }
+
+    /**
+     * Sets the size in bytes of the largest response body buffer kept for
+     * reuse. Larger bodies are read into buffers which are dropped once read.
+     *
+     * @param maxPooledBufferSize
+     *            the new maximum pooled buffer size in bytes
+     */
+    public void setMaxPooledBufferSize(int maxPooledBufferSize) {
+        this.maxPooledBufferSize = maxPooledBufferSize;
+    }
+
+    /**
+     * Gets the maximum number of response body buffers kept for reuse.
+     *
+     * @return the maximum number of pooled buffers
+     */
+    public int getMaxPooledBuffers() {
+        return maxPooledBuffers;
+    }
+
+    /**
+     * Sets the maximum number of response body buffers kept for reuse, which
+     * with {@link #setMaxPooledBufferSize(int)} bounds the memory held by the
+     * {@link AHttpBufferPool}.
+     *
+     * @param maxPooledBuffers
+     *            the new maximum number of pooled buffers, or 0 to allocate
+     *            a new buffer for every body
+     */
+    public void setMaxPooledBuffers(int maxPooledBuffers) {
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Gets the maximum size in bytes of the body of a successful response.
+     *
+     * @return the maximum response body size, {@link AHttpBodyLimits#UNLIMITED}
+     *         by default
+     */
+    public long getMaxResponseBodySize() {
+        return maxResponseBodySize;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the body of a successful response. A
+     * request whose response body exceeds it fails, and its connection is
+     * aborted as soon as the limit is crossed.
+     *
+     * @param maxResponseBodySize
+     *            the new maximum response body size, or a negative number for
+     *            no limit
+     */
+    public void setMaxResponseBodySize(long maxResponseBodySize) {
+        this.maxResponseBodySize = maxResponseBodySize;
+    }
+
+    /**
+     * Gets the size in bytes past which the body of an error response is
+     * truncated.
+     *
+     * @return the maximum error body size,
+     *         {@link AHttpClientConstants#DEFAULT_MAX_ERROR_BODY_SIZE} by
+     *         default
+     */
+    public long getMaxErrorBodySize() {
+        return maxErrorBodySize;
+    }
+
+    /**
+     * Sets the size in bytes past which the body of an error response, as
+     * reported by the
+     * {@link com.shc.ahttp.client.exception.AHttpClientCallException}, is
+     * truncated. The connection of a truncated response is aborted rather
+     * than drained.
+     *
+     * @param maxErrorBodySize
+     *            the new maximum error body size, or a negative number for no
+     *            limit
+     */
+    public void setMaxErrorBodySize(long maxErrorBodySize) {
+        this.maxErrorBodySize = maxErrorBodySize;
+    }
+
+    /**
+     *
+     * @return {@link String} showing a summary of all of the fields of this
+     *         {@link AHttpClientPoolConfig} * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "AHttpClientPoolConfig [maxTotalConnections="
+                + maxTotalConnections + ", maxConnectionsPerRoute="
+                + maxConnectionsPerRoute + ", maxConnectionsPerHost="
+                + maxConnectionsPerHost + ", idleConnectionTimeout="
+                + idleConnectionTimeout + ", validateAfterInactivity="
+                + validateAfterInactivity + ", registerShutdownHook="
+                + registerShutdownHook + ", ioThreadCount=" + ioThreadCount
+                + ", metrics=" + metrics + ", contentEncodings="
+                + contentEncodings + ", zstdDictionary="
+                + (zstdDictionary != null ? zstdDictionary.length + " bytes"
+                        : null) + ", transport=" + transport
+                + ", bufferSize=" + bufferSize + ", maxPooledBufferSize="
+                + maxPooledBufferSize + ", maxPooledBuffers="
+                + maxPooledBuffers + ", maxResponseBodySize="
+                + maxResponseBodySize + ", maxErrorBodySize="
+                + maxErrorBodySize + "]";
+    }
+}
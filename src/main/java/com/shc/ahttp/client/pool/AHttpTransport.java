@@ -0,0 +1,25 @@
+package com.shc.ahttp.client.pool;
+
+/**
+ * The transports an {@link AHttpClientPool} can execute its requests with.
+ *
+ * @see AHttpClientPoolConfig#setTransport(AHttpTransport)
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public enum AHttpTransport {
+
+    /**
+     * HTTP/1.1 over the pooled connections of the Apache HTTP client, each
+     * connection carrying one request at a time
+     */
+    HTTP_1_1,
+
+    /**
+     * HTTP/2 over the JDK HTTP client, multiplexing concurrent requests to an
+     * origin as streams of a single connection with HPACK compressed headers.
+     * Servers which do not negotiate HTTP/2 are spoken to in HTTP/1.1.
+     */
+    HTTP_2
+}
@@ -0,0 +1,10 @@
+/**
+ * This package provides the pooled, long lived HTTP client shared by the request classes,
+ * so that connections are reused across HTTP calls.
+ * 
+ * @see com.shc.ahttp.client.pool.AHttpClientPool
+ * @see com.shc.ahttp.client.pool.AHttpClientPoolConfig
+ * @see com.shc.ahttp.client.pool.AHttpBufferPool
+ * @see com.shc.ahttp.client.pool.AHttpBodyLimits
+ */
+package com.shc.ahttp.client.pool;
@@ -1,20 +1,26 @@
 package com.shc.ahttp.client.request;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
-import org.apache.http.HeaderIterator;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthenticationException;
-import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.ParseException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.config.RequestConfig.Builder;
@@ -22,14 +28,28 @@ import org.apache.http.client.entity.EntityBuilder;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ContentType;
-import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
+import com.shc.ahttp.client.auth.AHttpAuthProvider;
+import com.shc.ahttp.client.encoding.AHttpContentEncoding;
 import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.metrics.AHttpClientMetrics;
+import com.shc.ahttp.client.metrics.AHttpRequestTimer;
+import com.shc.ahttp.client.pool.AHttp2Client;
+import com.shc.ahttp.client.pool.AHttpBodyLimits;
+import com.shc.ahttp.client.pool.AHttpBufferPool;
+import com.shc.ahttp.client.pool.AHttpClientPool;
 import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.response.AHttpResponseHeaders;
+import com.shc.ahttp.client.response.AHttpStreamedResponse;
+import com.shc.ahttp.client.response.SClientResponse;
 import com.shc.ahttp.client.util.AHttpClientConstants;
 
 /**
@@ -45,26 +65,93 @@ import com.shc.ahttp.client.util.AHttpClientConstants;
 public abstract class ABasicAuthHttpRequestBase {
 
     /**
-     * Uses the <a href=
-     * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/HttpClientBuilder.html#create()"
-     * >HttpClientBuilder</a> to get the default HttpClient object
+     * The pool providing the shared, long lived {@link HttpClient} used to
+     * execute the requests
+     */
+    private final AHttpClientPool clientPool;
+
+    /**
+     * The Basic Authorization header of the credentials last used, swapped
+     * atomically when the credentials change
+     */
+    private final AtomicReference<AHttpBasicAuthHeader> basicAuthHeader = new AtomicReference<AHttpBasicAuthHeader>();
+
+    /**
+     * The provider authenticating the requests not sent with basic auth, if
+     * any
+     */
+    private volatile AHttpAuthProvider authProvider;
+
+    /**
+     * Instantiates a new request base which executes its requests using the
+     * {@link AHttpClientPool#getDefault()} pool
+     */
+    protected ABasicAuthHttpRequestBase() {
+        this(AHttpClientPool.getDefault());
+    }
+
+    /**
+     * Instantiates a new request base which executes its requests using the
+     * given pool
+     *
+     * @param clientPool
+     *            the {@link AHttpClientPool} providing the shared
+     *            {@link HttpClient}
+     */
+    protected ABasicAuthHttpRequestBase(AHttpClientPool clientPool) {
+        this.clientPool = clientPool;
+    }
+
+    /**
+     * Gets the pool providing the shared {@link HttpClient}
      * 
+     * @return the {@link AHttpClientPool} used by this request
+     */
+    public AHttpClientPool getClientPool() {
+        return clientPool;
+    }
+
+    /**
+     * Gets the provider authenticating the requests not sent with basic auth
      * 
+     * @return the {@link AHttpAuthProvider}, or null if none is used
+     */
+    public AHttpAuthProvider getAuthProvider() {
+        return authProvider;
+    }
+
+    /**
+     * Sets the provider authenticating the requests not sent with basic auth,
+     * for ex with an OAuth2 bearer token. A request given basic auth
+     * credentials is sent with basic auth only.
      * 
-     * @return the default <a href=
+     * @param authProvider
+     *            the {@link AHttpAuthProvider}, or null to send such requests
+     *            without credentials
+     */
+    public void setAuthProvider(AHttpAuthProvider authProvider) {
+        this.authProvider = authProvider;
+    }
+
+    /**
+     * Gets the shared, pooled HttpClient object from the {@link #clientPool}.
+     * The returned client is long lived and must not be closed after a call.
+     * 
+     * 
+     * 
+     * @return the shared <a href=
      *         "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
-     *         >HttpClient</a> * @see <a href=
-     *         "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/HttpClientBuilder.html"
-     *         >HttpClientBuilder</a>
+     *         >HttpClient</a> * @see AHttpClientPool#getHttpClient()
      */
     protected HttpClient getHttpClient() {
-        return HttpClientBuilder.create().build();
+        return clientPool.getHttpClient();
     }
 
     /**
      * Execute the HTTP request by calling the <a href=
      * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
-     * >HttpClient</a> execute method
+     * >HttpClient</a> execute method. The response is always closed once it
+     * has been processed so that the connection is released back to the pool.
      * 
      * @param httpRequest
      *            the http request {@link HttpRequestBase}
@@ -82,23 +169,461 @@ public abstract class ABasicAuthHttpRequestBase {
      *         {@link AHttpClientCallException}
      */
     protected AHttpClientResponse executeHttpRequest(
-            HttpRequestBase httpRequest, String encoding,
+            HttpRequestBase httpRequest, final String encoding,
+            final boolean includeResponseHeaders) throws AHttpClientCallException {
+        return executeHttpRequest(httpRequest, httpResponse -> processHttpResponse(
+                httpResponse, encoding, includeResponseHeaders));
+    }
+
+    /**
+     * Execute the HTTP request by calling the <a href=
+     * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
+     * >HttpClient</a> execute method, handing the body of a successful
+     * response to the given {@link AHttpEntityConsumer} as a stream instead of
+     * reading it into a String. The body of an error response is still read
+     * into a String so that it can be included in the
+     * {@link AHttpClientCallException}.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param includeResponseHeaders
+     *            whether to include headers captured from response, which might
+     *            add a few more milliseconds to the response processing
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the HTTP client response {@link SClientResponse} holding the
+     *         consumed body, without the {@link SClientResponse#getResponseBody()}
+     *         * @throws AHttpClientCallException If any exception occurs
+     *         during the request execution, it is enclosed in an instance of
+     *         {@link AHttpClientCallException}
+     */
+    protected <T> SClientResponse<T> executeHttpRequest(
+            HttpRequestBase httpRequest, final String encoding,
+            final boolean includeResponseHeaders,
+            final AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        return executeHttpRequest(httpRequest, httpResponse -> processHttpResponse(
+                httpResponse, encoding, includeResponseHeaders, entityConsumer));
+    }
+
+    /**
+     * Executes the HTTP request on the shared client and processes the
+     * response, which is always closed afterwards. Any remaining content is
+     * consumed before closing so that the connection can be reused, unless
+     * the body went past the {@link AHttpBodyLimits} of the
+     * {@link #clientPool}, in which case the connection has been aborted. The
+     * request is timed and recorded if the {@link #clientPool} has
+     * {@link AHttpClientMetrics} configured.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param responseProcessor
+     *            the {@link HttpResponseProcessor} extracting the result
+     * 
+     * @return the processed response * @throws AHttpClientCallException If any
+     *         exception occurs during the request execution
+     */
+    private <R> R executeHttpRequest(HttpRequestBase httpRequest,
+            HttpResponseProcessor<R> responseProcessor)
+            throws AHttpClientCallException {
+        HttpClientContext context = createContext();
+        HttpResponse httpResponse = execute(httpRequest, context);
+        AHttpLimitedEntity.limit(httpResponse, clientPool.getBodyLimits(),
+                httpRequest::abort);
+        try {
+            return responseProcessor.process(httpResponse);
+        } finally {
+            release(httpRequest, context, httpResponse);
+        }
+    }
+
+    /**
+     * Execute the HTTP request by calling the <a href=
+     * "http://hc.apache.org/httpcomponents-client-ga/httpclient/apidocs/org/apache/http/impl/client/CloseableHttpClient.html"
+     * >HttpClient</a> execute method, returning a successful response before
+     * its body is read. The connection stays leased until the returned
+     * {@link AHttpStreamedResponse} is closed, which the caller must do. The
+     * body of an error response is read into a String so that it can be
+     * included in the {@link AHttpClientCallException}, and its connection is
+     * released. Reading the body past the {@link AHttpBodyLimits} of the
+     * {@link #clientPool} fails and aborts the connection.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param includeResponseHeaders
+     *            whether to include headers captured from response, which might
+     *            add a few more milliseconds to the response processing
+     * 
+     * @return the {@link AHttpStreamedResponse} whose body is yet to be read
+     *         * @throws AHttpClientCallException If any exception occurs
+     *         during the request execution or the response code is not
+     *         between 100 - 399
+     */
+    protected AHttpStreamedResponse executeHttpRequestStreamed(
+            final HttpRequestBase httpRequest, String encoding,
             boolean includeResponseHeaders) throws AHttpClientCallException {
-        HttpClient httpClient = getHttpClient();
-        HttpResponse httpResponse = null;
+        final HttpClientContext context = createContext();
+        final HttpResponse httpResponse = execute(httpRequest, context);
+        AHttpLimitedEntity.limit(httpResponse, clientPool.getBodyLimits(),
+                httpRequest::abort);
+        AHttpStreamedResponse response = null;
         try {
-            httpResponse = httpClient.execute(httpRequest);
-        } catch (IOException e) {
+            int responseCode = httpResponse.getStatusLine().getStatusCode();
+            String reasonPhrase = httpResponse.getStatusLine()
+                    .getReasonPhrase();
+            if (responseCode < 100 || responseCode >= 400) {
+                String responseBody = getStringFromEntity(
+                        httpResponse.getEntity(), encoding);
+                throw new AHttpClientCallException(
+                        AHttpClientConstants.UNKWON_SERVER_CLIENT_ERROR
+                                + responseCode, responseCode, reasonPhrase,
+                        responseBody, getHeaders(httpResponse));
+            }
+            HttpEntity httpEntity = httpResponse.getEntity();
+            response = new AHttpStreamedResponse(
+                    httpEntity != null ? httpEntity.getContent() : null,
+                    httpEntity != null ? getEntityEncoding(httpEntity, encoding)
+                            : encoding, getEntityContentType(httpEntity),
+                    reasonPhrase, responseCode,
+                    includeResponseHeaders ? getHeaders(httpResponse) : null,
+                    abort -> {
+                        if (abort) {
+                            httpRequest.abort();
+                        }
+                        release(httpRequest, context, httpResponse);
+                    });
+            return response;
+        } catch (UnsupportedOperationException | IOException e) {
+            throw new AHttpClientCallException(e.getMessage(), e);
+        } finally {
+            if (response == null) {
+                release(httpRequest, context, httpResponse);
+            }
+        }
+    }
+
+    /**
+     * Creates the context of a request executed on the shared client, which
+     * is an {@link AHttpRequestTimer} if the {@link #clientPool} has
+     * {@link AHttpClientMetrics} configured
+     * 
+     * @return the new {@link HttpClientContext}
+     */
+    private HttpClientContext createContext() {
+        return clientPool.getMetrics() != AHttpClientMetrics.NOOP ? new AHttpRequestTimer()
+                : HttpClientContext.create();
+    }
+
+    /**
+     * Executes the HTTP request on the shared client. The request is timed if
+     * the context is an {@link AHttpRequestTimer}.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param context
+     *            the {@link HttpClientContext} to execute the request with
+     * 
+     * @return the {@link HttpResponse} received * @throws
+     *         AHttpClientCallException If no response could be received
+     */
+    private HttpResponse execute(HttpRequestBase httpRequest,
+            HttpClientContext context) throws AHttpClientCallException {
+        try {
+            return getHttpClient().execute(httpRequest, context);
+        } catch (IOException | IllegalStateException e) {
+            // IllegalStateException is thrown once the pool has been shut down
+            recordFailure(clientPool.getMetrics(), httpRequest, context);
             throw new AHttpClientCallException(e.getMessage(), e);
         }
+    }
+
+    /**
+     * Records the timed request and closes the processed response. Any
+     * remaining content is consumed before closing so that the connection can
+     * be reused, unless the request was aborted.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param context
+     *            the {@link HttpClientContext} the request was executed with
+     * @param httpResponse
+     *            the {@link HttpResponse} received
+     */
+    private void release(HttpRequestBase httpRequest,
+            HttpClientContext context, HttpResponse httpResponse) {
+        try {
+            AHttpRequestTimer timer = AHttpRequestTimer.get(context);
+            if (timer != null) {
+                HttpHost route = getRoute(httpRequest, context);
+                if (route != null) {
+                    timer.record(clientPool.getMetrics(), route, httpResponse
+                            .getStatusLine().getStatusCode());
+                }
+            }
+        } finally {
+            HttpClientUtils.closeQuietly(httpResponse);
+        }
+    }
+
+    /**
+     * Gets the target host of the given request, which the metrics are
+     * recorded against
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param context
+     *            the {@link HttpClientContext} the request was executed with
+     * 
+     * @return the target {@link HttpHost}, or null if the request has no
+     *         absolute url
+     */
+    private static HttpHost getRoute(HttpRequestBase httpRequest,
+            HttpClientContext context) {
+        HttpHost route = context.getTargetHost();
+        return route != null ? route : URIUtils.extractHost(httpRequest
+                .getURI());
+    }
+
+    /**
+     * Records a request which failed without receiving a response
+     * 
+     * @param metrics
+     *            the {@link AHttpClientMetrics} of the {@link #clientPool}
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param context
+     *            the {@link HttpClientContext} the request was executed with
+     */
+    private static void recordFailure(AHttpClientMetrics metrics,
+            HttpRequestBase httpRequest, HttpClientContext context) {
+        if (metrics != AHttpClientMetrics.NOOP) {
+            HttpHost route = getRoute(httpRequest, context);
+            if (route != null) {
+                metrics.recordFailure(route);
+            }
+        }
+    }
 
-        AHttpClientResponse aHttpClientResponse = processHttpResponse(
-                httpResponse, encoding, includeResponseHeaders);
+    /**
+     * Gets the shared, pooled non blocking HttpAsyncClient object from the
+     * {@link #clientPool}, starting it on first use.
+     * 
+     * @return the shared <a href=
+     *         "http://hc.apache.org/httpcomponents-asyncclient-4.1.x/httpasyncclient/apidocs/org/apache/http/nio/client/HttpAsyncClient.html"
+     *         >HttpAsyncClient</a> * @throws IOException if the I/O reactor of
+     *         the client could not be created
+     * @see AHttpClientPool#getHttpAsyncClient()
+     */
+    protected HttpAsyncClient getHttpAsyncClient() throws IOException {
+        return clientPool.getHttpAsyncClient();
+    }
 
-        HttpClientUtils.closeQuietly(httpResponse);
-        HttpClientUtils.closeQuietly(httpClient);
+    /**
+     * Execute the HTTP request asynchronously by calling the <a href=
+     * "http://hc.apache.org/httpcomponents-asyncclient-4.1.x/httpasyncclient/apidocs/org/apache/http/nio/client/HttpAsyncClient.html"
+     * >HttpAsyncClient</a> execute method. The calling thread is not blocked,
+     * the response is processed on an I/O dispatch thread once it has been
+     * fully received. Cancelling the returned future aborts the request.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param includeResponseHeaders
+     *            whether to include headers captured from response, which might
+     *            add a few more milliseconds to the response processing
+     * 
+     * @return a {@link CompletableFuture} of the extracted HTTP client response
+     *         {@link AHttpClientResponse}, which is completed exceptionally
+     *         with an {@link AHttpClientCallException} if any exception occurs
+     *         during the request execution
+     */
+    protected CompletableFuture<AHttpClientResponse> executeHttpRequestAsync(
+            HttpRequestBase httpRequest, final String encoding,
+            final boolean includeResponseHeaders) {
+        return executeHttpRequestAsync(httpRequest,
+                httpResponse -> processHttpResponse(httpResponse, encoding,
+                        includeResponseHeaders), null);
+    }
 
-        return aHttpClientResponse;
+    /**
+     * Execute the HTTP request asynchronously by calling the <a href=
+     * "http://hc.apache.org/httpcomponents-asyncclient-4.1.x/httpasyncclient/apidocs/org/apache/http/nio/client/HttpAsyncClient.html"
+     * >HttpAsyncClient</a> execute method, handing the body of a successful
+     * response to the given {@link AHttpEntityConsumer} as a stream instead of
+     * decoding it into a String. Cancelling the returned future aborts the
+     * request.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param includeResponseHeaders
+     *            whether to include headers captured from response, which might
+     *            add a few more milliseconds to the response processing
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response is processed, or
+     *            null to process it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the HTTP client response
+     *         {@link SClientResponse}, which is completed exceptionally with
+     *         an {@link AHttpClientCallException} if any exception occurs
+     *         during the request execution
+     */
+    protected <T> CompletableFuture<SClientResponse<T>> executeHttpRequestAsync(
+            HttpRequestBase httpRequest, final String encoding,
+            final boolean includeResponseHeaders,
+            final AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        return executeHttpRequestAsync(httpRequest,
+                httpResponse -> processHttpResponse(httpResponse, encoding,
+                        includeResponseHeaders, entityConsumer), executor);
+    }
+
+    /**
+     * Executes the HTTP request on the shared non blocking client, or on the
+     * {@link AHttp2Client} of the {@link #clientPool} if it uses HTTP/2, and
+     * processes the fully received response on the given executor, or on the
+     * I/O dispatch thread if none is given. As the response is fully received
+     * before it is handed over, only its status code, or the failure of the
+     * request, is recorded to the {@link AHttpClientMetrics} of the
+     * {@link #clientPool}. The response is received no further than the
+     * {@link AHttpBodyLimits} of the {@link #clientPool}, and a compressed
+     * response is decoded with its {@link AHttpContentEncoding}, within the
+     * same limits, before it is processed.
+     * 
+     * @param httpRequest
+     *            the http request {@link HttpRequestBase}
+     * @param responseProcessor
+     *            the {@link HttpResponseProcessor} extracting the result
+     * @param executor
+     *            the {@link Executor} on which the response is processed, may
+     *            be null
+     * 
+     * @return a {@link CompletableFuture} of the processed response
+     */
+    private <R> CompletableFuture<R> executeHttpRequestAsync(
+            final HttpRequestBase httpRequest,
+            final HttpResponseProcessor<R> responseProcessor,
+            final Executor executor) {
+        final CompletableFuture<R> responseFuture = new CompletableFuture<R>();
+        final AHttpClientMetrics metrics = clientPool.getMetrics();
+        final AHttpContentEncoding contentEncoding = clientPool
+                .getContentEncoding();
+        final AHttpBodyLimits bodyLimits = clientPool.getBodyLimits();
+        final HttpClientContext context = HttpClientContext.create();
+        final FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+
+            @Override
+            public void completed(final HttpResponse httpResponse) {
+                if (metrics != AHttpClientMetrics.NOOP) {
+                    HttpHost route = getRoute(httpRequest, context);
+                    if (route != null) {
+                        metrics.recordStatus(route, httpResponse
+                                .getStatusLine().getStatusCode());
+                    }
+                }
+                if (executor == null) {
+                    process(httpResponse);
+                    return;
+                }
+                try {
+                    executor.execute(() -> process(httpResponse));
+                } catch (RejectedExecutionException e) {
+                    failed(e);
+                }
+            }
+
+            private void process(HttpResponse httpResponse) {
+                try {
+                    contentEncoding.decode(httpResponse, context);
+                    AHttpLimitedEntity.limit(httpResponse, bodyLimits, null);
+                    responseFuture.complete(responseProcessor
+                            .process(httpResponse));
+                } catch (AHttpClientCallException e) {
+                    responseFuture.completeExceptionally(e);
+                } catch (IOException | RuntimeException e) {
+                    responseFuture
+                            .completeExceptionally(new AHttpClientCallException(
+                                    e.getMessage(), e));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                recordFailure(metrics, httpRequest, context);
+                responseFuture
+                        .completeExceptionally(new AHttpClientCallException(
+                                e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                responseFuture.cancel(false);
+            }
+        };
+        final AHttp2Client http2Client = clientPool.getHttp2Client();
+        final Future<HttpResponse> httpFuture;
+        try {
+            if (http2Client != null) {
+                httpFuture = http2Client.execute(httpRequest, context, callback);
+            } else {
+                httpFuture = getHttpAsyncClient().execute(
+                        HttpAsyncMethods.create(httpRequest),
+                        new AHttpLimitedResponseConsumer(bodyLimits), context,
+                        callback);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // IllegalStateException is thrown once the pool has been shut down
+            return failedFuture(new AHttpClientCallException(e.getMessage(), e));
+        }
+        responseFuture.whenComplete((response, failure) -> {
+            if (responseFuture.isCancelled()) {
+                httpFuture.cancel(true);
+            }
+        });
+        return responseFuture;
+    }
+
+    /**
+     * Creates a {@link CompletableFuture} which is already completed
+     * exceptionally with the given exception
+     * 
+     * @param exception
+     *            the exception the future is completed with
+     * 
+     * @return the failed {@link CompletableFuture}
+     */
+    protected static <T> CompletableFuture<T> failedFuture(
+            AHttpClientCallException exception) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(exception);
+        return future;
+    }
+
+    /**
+     * Gets the given encoding, or {@link AHttpClientConstants#DEFAULT_CONTENT_ENCODING}
+     * if none is given
+     * 
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8, may be null
+     * 
+     * @return the encoding to be used
+     */
+    protected String resolveEncoding(String encoding) {
+        return StringUtils.isEmpty(encoding) ? AHttpClientConstants.DEFAULT_CONTENT_ENCODING
+                : encoding;
     }
 
     /**
@@ -106,8 +631,9 @@ public abstract class ABasicAuthHttpRequestBase {
      * is between 100 - 399 and it'll try to find if there is content in the
      * body received. If the response code doesn't fall in ths range then it'll
      * extract various response parameters such as returned status code, status
-     * phrase, response body if any, add them to a new
-     * {@link AHttpClientCallException} and throw it.
+     * phrase, response body if any, truncated at the
+     * {@link AHttpBodyLimits#getMaxErrorBodySize()} of the {@link #clientPool},
+     * add them to a new {@link AHttpClientCallException} and throw it.
      * 
      * @param httpResponse
      *            {@link HttpResponse} the HTTP response object received from
@@ -140,6 +666,8 @@ public abstract class ABasicAuthHttpRequestBase {
                 response = new AHttpClientResponse(responseBody, reasonPhrase,
                         responseCode);
             }
+            response.setContentType(getEntityContentType(httpResponse
+                    .getEntity()));
         } else {
             Map<String, String> responseHeaderMap = getHeaders(httpResponse);
             throw new AHttpClientCallException(
@@ -151,13 +679,125 @@ public abstract class ABasicAuthHttpRequestBase {
     }
 
     /**
-     * Gets {@link HttpEntity} content as String
+     * Process the HTTP Response received, handing the body of a response
+     * between 100 - 399 to the given {@link AHttpEntityConsumer} as a stream
+     * in the charset declared by the entity, or the given encoding if it
+     * declares none. Any other response is turned into an
+     * {@link AHttpClientCallException} as done by
+     * {@link #processHttpResponse(HttpResponse, String, boolean)}.
+     * 
+     * @param httpResponse
+     *            {@link HttpResponse} the HTTP response object received from
+     *            the client call
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param includeResponseHeaders
+     *            whether to include headers captured from response, which might
+     *            add a few more milliseconds to the response processing
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the HTTP client response {@link SClientResponse} holding the
+     *         consumed body, which is null if the response had no or an
+     *         empty body *
+     *         @throws AHttpClientCallException if any exception or error
+     *         status code is received then {@link AHttpClientCallException}
+     *         is thrown
+     */
+    protected <T> SClientResponse<T> processHttpResponse(
+            HttpResponse httpResponse, String encoding,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        int responseCode = httpResponse.getStatusLine().getStatusCode();
+        String reasonPhrase = httpResponse.getStatusLine().getReasonPhrase();
+        if (responseCode < 100 || responseCode >= 400) {
+            String responseBody = getStringFromEntity(httpResponse.getEntity(),
+                    encoding);
+            throw new AHttpClientCallException(
+                    AHttpClientConstants.UNKWON_SERVER_CLIENT_ERROR
+                            + responseCode, responseCode, reasonPhrase,
+                    responseBody, getHeaders(httpResponse));
+        }
+
+        HttpEntity httpEntity = httpResponse.getEntity();
+        boolean bodyPresent = httpEntity != null
+                && httpEntity.getContentLength() != 0;
+        T body = null;
+        if (bodyPresent) {
+            try (InputStream content = httpEntity.getContent()) {
+                if (content != null) {
+                    body = entityConsumer.consume(content,
+                            getEntityEncoding(httpEntity, encoding),
+                            getEntityContentType(httpEntity));
+                }
+            } catch (UnsupportedOperationException | IOException e) {
+                throw new AHttpClientCallException(e.getMessage(), e);
+            }
+        }
+        SClientResponse<T> response;
+        if (includeResponseHeaders) {
+            response = new SClientResponse<T>(null, reasonPhrase, responseCode,
+                    getHeaders(httpResponse), body);
+        } else {
+            response = new SClientResponse<T>(null, reasonPhrase, responseCode,
+                    body);
+        }
+        response.setBodyPresent(bodyPresent);
+        response.setContentType(getEntityContentType(httpEntity));
+        return response;
+    }
+
+    /**
+     * Gets the Content-Type declared by the given {@link HttpEntity}
+     * 
+     * @param httpEntity
+     *            the http entity {@link HttpEntity}, may be null
      * 
+     * @return the Content-Type, or null if the entity declares none
+     */
+    protected String getEntityContentType(HttpEntity httpEntity) {
+        if (httpEntity == null || httpEntity.getContentType() == null) {
+            return null;
+        }
+        return httpEntity.getContentType().getValue();
+    }
+
+    /**
+     * Gets the charset declared by the Content-Type of the given
+     * {@link HttpEntity}, falling back to the given encoding as done by
      * {@link EntityUtils#toString(HttpEntity, String)}
      * 
      * @param httpEntity
      *            the http entity {@link HttpEntity}
      * @param encoding
+     *            the expected encoding of response for ex UTF-8
+     * 
+     * @return the encoding of the entity content
+     */
+    protected String getEntityEncoding(HttpEntity httpEntity, String encoding) {
+        try {
+            ContentType contentType = ContentType.get(httpEntity);
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset().name();
+            }
+        } catch (ParseException | UnsupportedCharsetException e) {
+            // an unusable charset is ignored, as done by EntityUtils
+        }
+        return encoding;
+    }
+
+    /**
+     * Gets {@link HttpEntity} content as String, decoded in the charset
+     * declared by the entity, or the given encoding if it declares none, as
+     * done by {@link EntityUtils#toString(HttpEntity, String)}. The content is
+     * read into a buffer of the {@link AHttpBufferPool} of the
+     * {@link #clientPool}, which is handed back once the String is decoded.
+     * 
+     * @param httpEntity
+     *            the http entity {@link HttpEntity}
+     * @param encoding
      *            the encoding of the request and the expected encoding of
      *            response for ex UTF-8
      * 
@@ -171,20 +811,46 @@ public abstract class ABasicAuthHttpRequestBase {
             throws AHttpClientCallException {
 
         String response = AHttpClientConstants.DEFAULT_NO_CONTENT_MESSAGE;
-        try {
-            if (httpEntity.getContent() != null) {
-
-                response = EntityUtils.toString(httpEntity, encoding);
+        if (httpEntity == null) {
+            return response;
+        }
+        try (InputStream content = httpEntity.getContent()) {
+            if (content != null) {
+                response = clientPool.getBufferPool().readString(content,
+                        httpEntity.getContentLength(),
+                        getEntityCharset(httpEntity, encoding));
             }
-        } catch (UnsupportedOperationException | IOException e) {
+        } catch (UnsupportedOperationException | IOException
+                | IllegalArgumentException e) {
+            // IllegalArgumentException is thrown for an unsupported encoding
             throw new AHttpClientCallException(e.getMessage(), e);
         }
         return response;
     }
 
+    /**
+     * Gets the charset the content of the given {@link HttpEntity} is decoded
+     * in, which is ISO-8859-1 if neither the entity nor the caller give one
+     * 
+     * @param httpEntity
+     *            the http entity {@link HttpEntity}
+     * @param encoding
+     *            the expected encoding of response for ex UTF-8, may be null
+     * 
+     * @return the {@link Charset} of the entity content
+     */
+    private Charset getEntityCharset(HttpEntity httpEntity, String encoding) {
+        String entityEncoding = getEntityEncoding(httpEntity, encoding);
+        return StringUtils.isEmpty(entityEncoding) ? HTTP.DEF_CONTENT_CHARSET
+                : Charset.forName(entityEncoding);
+    }
+
     /**
      * Extract headers from a {@link HttpMessage} and return as a map of
-     * {@link String} Key value pairs
+     * {@link String} Key value pairs. The map is an
+     * {@link AHttpResponseHeaders} view of the headers of the message, looked
+     * up ignoring case and keeping every value of a repeated header, which
+     * copies nothing until it is iterated.
      * 
      * @param httpMessage
      *            the {@link HttpMessage}
@@ -192,13 +858,7 @@ public abstract class ABasicAuthHttpRequestBase {
      * @return the headers as {@link Map<String, String>}
      */
     protected Map<String, String> getHeaders(HttpMessage httpMessage) {
-        HeaderIterator headerIterator = httpMessage.headerIterator();
-        Map<String, String> headerMap = new HashMap<String, String>();
-        while (headerIterator.hasNext()) {
-            Header currentHeader = headerIterator.nextHeader();
-            headerMap.put(currentHeader.getName(), currentHeader.getValue());
-        }
-        return headerMap;
+        return AHttpResponseHeaders.of(httpMessage);
     }
 
     /**
@@ -223,6 +883,24 @@ public abstract class ABasicAuthHttpRequestBase {
         return requestEntity;
     }
 
+    /**
+     * Gets a streaming {@link HttpEntity} whose content is written by the given
+     * {@link AHttpEntityProducer} straight to the connection.
+     * 
+     * @param entityProducer
+     *            the {@link AHttpEntityProducer} writing the request body
+     * @param contentType
+     *            The content type of the request to be sent ex. Content-Type:
+     *            application/json;charset=UTF-8
+     * 
+     * @return the {@link AHttpStreamingEntity} of the request
+     */
+    protected HttpEntity getHttpEntityFromProducer(
+            AHttpEntityProducer entityProducer, String contentType) {
+        return new AHttpStreamingEntity(entityProducer,
+                ContentType.parse(contentType));
+    }
+
     /**
      * Adds the request headers to a given {@link HttpRequest}. <b>Note:</b>
      * <i>The method adds the default content type of
@@ -288,25 +966,25 @@ public abstract class ABasicAuthHttpRequestBase {
      * @param password
      *            the password the basic auth password
      * 
-     * @return {@link HttpContext} using which the basic scheme generated the
-     *         auth headers
+     * @return a new {@link HttpContext}, as the auth header is no longer
+     *         generated through one
+     * 
+     * @deprecated use
+     *             {@link #addCachedBasicAuthHttpHeader(HttpRequest, String, String)}
+     *             , which reuses the header of the same credentials
      */
+    @Deprecated
     protected HttpContext addBasicAuthHttpHeader(HttpRequest httpRequest,
             String username, String password) {
-        HttpContext httpContext = HttpClientContext.create();
-        httpRequest.addHeader(getBasicAuthHttpHeader(httpContext, httpRequest,
-                username, password));
-        return httpContext;
+        httpRequest.addHeader(getBasicAuthHttpHeader(username, password));
+        return HttpClientContext.create();
     }
 
     /**
-     * Adds the BasicAuth Header to the given {@link HttpRequest}, by using
-     * {@link BasicScheme#authenticate(org.apache.http.auth.Credentials, HttpRequest, HttpContext)}
-     * to generate the authorization header
-     * 
-     * @param httpContext
-     *            {@link HttpContext} using which the basic scheme generated the
-     *            auth headers
+     * Adds the BasicAuth Header to the given {@link HttpRequest}, the header
+     * of the same credentials being computed once, see
+     * {@link #getBasicAuthHttpHeader(String, String)}
+     *
      * @param httpRequest
      *            the {@link HttpRequest} to which the auth header needs to be
      *            added
@@ -315,19 +993,106 @@ public abstract class ABasicAuthHttpRequestBase {
      * @param password
      *            the password the basic auth password
      * 
-     * @return the {@link Header} which contains the basic authorization string.
+     * @return the {@link Header} which was added
+     * 
+     * @throws AHttpClientCallException
+     *             if the username or the password is null
      */
-    protected Header getBasicAuthHttpHeader(HttpContext httpContext,
-            HttpRequest httpRequest, String username, String password) {
-        UsernamePasswordCredentials basicCreds = new UsernamePasswordCredentials(
-                username, password);
-        Header authHeader = null;
+    protected Header addCachedBasicAuthHttpHeader(HttpRequest httpRequest,
+            String username, String password) throws AHttpClientCallException {
+        Header authHeader;
         try {
-            authHeader = new BasicScheme().authenticate(basicCreds,
-                    httpRequest, httpContext);
-        } catch (AuthenticationException ex) {
-            authHeader = null;
+            authHeader = getBasicAuthHttpHeader(username, password);
+        } catch (IllegalArgumentException e) {
+            throw new AHttpClientCallException(e.getMessage(), e);
         }
+        httpRequest.addHeader(authHeader);
         return authHeader;
     }
+
+    /**
+     * Adds the credentials of the {@link #getAuthProvider()} to the given
+     * {@link HttpRequest}, if a provider is set
+     *
+     * @param httpRequest
+     *            the {@link HttpRequest} to be authenticated
+     * 
+     * @throws AHttpClientCallException
+     *             if the provider could not obtain credentials
+     */
+    protected void addAuthHttpHeader(HttpRequest httpRequest)
+            throws AHttpClientCallException {
+        AHttpAuthProvider authProvider = this.authProvider;
+        if (authProvider != null) {
+            authProvider.authenticate(httpRequest);
+        }
+    }
+
+    /**
+     * Gets the BasicAuth Header of the given credentials. The header is
+     * computed once per credential set and the same immutable {@link Header}
+     * returned for as long as the credentials stay the same, the header of new
+     * credentials, such as rotated ones, atomically replacing the previous
+     * one.
+     * 
+     * @param username
+     *            the basic auth username
+     * @param password
+     *            the password the basic auth password
+     * 
+     * @return the {@link Header} which contains the basic authorization string.
+     * 
+     * @throws IllegalArgumentException
+     *             if the username or the password is null
+     */
+    protected Header getBasicAuthHttpHeader(String username, String password) {
+        AHttpBasicAuthHeader authHeader = basicAuthHeader.get();
+        if (authHeader == null || !authHeader.matches(username, password)) {
+            authHeader = new AHttpBasicAuthHeader(username, password);
+            basicAuthHeader.set(authHeader);
+        }
+        return authHeader.getHeader();
+    }
+
+    /**
+     * Gets the BasicAuth Header of the given credentials
+     * 
+     * @param httpContext
+     *            the {@link HttpContext}, which is not used
+     * @param httpRequest
+     *            the {@link HttpRequest}, which is not used
+     * @param username
+     *            the basic auth username
+     * @param password
+     *            the password the basic auth password
+     * 
+     * @return the {@link Header} which contains the basic authorization string.
+     * 
+     * @deprecated use {@link #getBasicAuthHttpHeader(String, String)}, the
+     *             header not depending on the context nor the request
+     */
+    @Deprecated
+    protected Header getBasicAuthHttpHeader(HttpContext httpContext,
+            HttpRequest httpRequest, String username, String password) {
+        return getBasicAuthHttpHeader(username, password);
+    }
+
+    /**
+     * Extracts the result of a call from the {@link HttpResponse} received,
+     * before the response is closed.
+     */
+    private interface HttpResponseProcessor<R> {
+
+        /**
+         * Processes the {@link HttpResponse} received
+         * 
+         * @param httpResponse
+         *            the HTTP response object received from the client call
+         * 
+         * @return the result of the call * @throws AHttpClientCallException
+         *         if the response could not be processed or has an error
+         *         status code
+         */
+        R process(HttpResponse httpResponse) throws AHttpClientCallException;
+    }
 }
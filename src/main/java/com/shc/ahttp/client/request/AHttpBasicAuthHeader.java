@@ -0,0 +1,82 @@
+package com.shc.ahttp.client.request;
+
+import java.util.Base64;
+
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.auth.AUTH;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.Args;
+
+/**
+ * An immutable Basic Authorization header together with the credentials it
+ * was computed from, so that the header of a credential set is encoded once
+ * and the same {@link Header} instance added to every request using it. The
+ * header is the one
+ * {@link org.apache.http.impl.auth.BasicScheme#authenticate(org.apache.http.auth.Credentials, org.apache.http.HttpRequest, org.apache.http.protocol.HttpContext)}
+ * generates, the credentials being encoded in US-ASCII. Unlike BasicScheme,
+ * which sends a missing password as "null", both the username and the
+ * password are required.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+final class AHttpBasicAuthHeader {
+
+    /** The basic auth username */
+    private final String username;
+
+    /** The basic auth password */
+    private final String password;
+
+    /** The Authorization header of the credentials */
+    private final Header header;
+
+    /**
+     * Instantiates the header of the given credentials, encoding them
+     *
+     * @param username
+     *            the basic auth username
+     * @param password
+     *            the basic auth password
+     * 
+     * @throws IllegalArgumentException
+     *             if the username or the password is null
+     */
+    AHttpBasicAuthHeader(String username, String password) {
+        this.username = Args.notNull(username, "Username");
+        this.password = Args.notNull(password, "Password");
+        String credentials = username + ":" + password;
+        this.header = new BasicHeader(AUTH.WWW_AUTH_RESP, "Basic "
+                + Base64.getEncoder().encodeToString(
+                        credentials.getBytes(Consts.ASCII)));
+    }
+
+    /**
+     * Checks whether this header was computed from the given credentials
+     *
+     * @param username
+     *            the basic auth username
+     * @param password
+     *            the basic auth password
+     *
+     * @return true if the credentials are the same
+     */
+    boolean matches(String username, String password) {
+        return equals(this.username, username)
+                && equals(this.password, password);
+    }
+
+    /**
+     * Gets the Authorization header of the credentials
+     *
+     * @return the immutable {@link Header}
+     */
+    Header getHeader() {
+        return header;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
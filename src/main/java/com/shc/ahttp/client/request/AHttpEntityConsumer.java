@@ -0,0 +1,70 @@
+package com.shc.ahttp.client.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+
+/**
+ * The entity consumer interface defines the contract for reading a successful
+ * response body directly from the content stream of the HTTP entity, so that
+ * it can be parsed as it is received instead of first being read into a
+ * String. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * SClientResponse&lt;HttpBinGetResponse&gt; response = aHttpGetRequest.executeGet(
+ *         url, &quot;UTF-8&quot;, 5000, null, false, (content, encoding) -&gt; messageConverter
+ *                 .getObjectFromMessage(content, encoding, HttpBinGetResponse.class));
+ * </pre>
+ *
+ * @author vishalk2
+ *
+ * @version $Revision: 1.0 $
+ */
+public interface AHttpEntityConsumer<T> {
+
+    /**
+     * Consumes the response body from the given content stream. The stream is
+     * closed, and the connection released, by the request once this method
+     * returns, so it must not be retained.
+     *
+     * @param content
+     *            the content stream of the response entity
+     * @param encoding
+     *            the charset of the response entity if it declares one,
+     *            otherwise the expected encoding of response for ex UTF-8
+     *
+     * @return the object constructed from the response body * @throws
+     *         IOException If the content stream could not be read * @throws
+     *         AHttpClientCallException If the content could not be consumed
+     */
+    T consume(InputStream content, String encoding) throws IOException,
+            AHttpClientCallException;
+
+    /**
+     * Consumes the response body from the given content stream, knowing the
+     * Content-Type of the response, which is what the request calls. The
+     * default implementation ignores the Content-Type and calls
+     * {@link #consume(InputStream, String)}, consumers reading more than one
+     * format should override it.
+     *
+     * @param content
+     *            the content stream of the response entity
+     * @param encoding
+     *            the charset of the response entity if it declares one,
+     *            otherwise the expected encoding of response for ex UTF-8
+     * @param contentType
+     *            the Content-Type of the response entity, may be null
+     *
+     * @return the object constructed from the response body * @throws
+     *         IOException If the content stream could not be read * @throws
+     *         AHttpClientCallException If the content could not be consumed
+     */
+    default T consume(InputStream content, String encoding,
+            String contentType) throws IOException, AHttpClientCallException {
+        return consume(content, encoding);
+    }
+}
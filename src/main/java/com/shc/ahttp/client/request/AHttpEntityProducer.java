@@ -0,0 +1,58 @@
+package com.shc.ahttp.client.request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The entity producer interface defines the contract for writing a request
+ * body directly to the output stream of the connection, so that it never has
+ * to exist on the heap as a String or a byte array. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientResponse response = aHttpPostRequest.executePost(url,
+ *         (out, encoding) -&gt; out.write(largePayload.getBytes(encoding)),
+ *         &quot;UTF-8&quot;, 5000, null, false, entityConsumer);
+ * </pre>
+ *
+ * @see AHttpStreamingEntity
+ *
+ * @author vishalk2
+ *
+ * @version $Revision: 1.0 $
+ */
+public interface AHttpEntityProducer {
+
+    /**
+     * Writes the request body to the given output stream. Unless
+     * {@link #isRepeatable()} returns false, the method may be called more
+     * than once for the same request, for ex when the request is retried, and
+     * must write the same content each time. The stream must not be closed.
+     *
+     * @param out
+     *            the output stream of the connection
+     * @param encoding
+     *            the charset of the request body for ex UTF-8
+     *
+     * @throws IOException
+     *             If the request body could not be written
+     */
+    void produce(OutputStream out, String encoding) throws IOException;
+
+    /**
+     * Whether the request body can be written more than once, for ex when it
+     * is read from a one-shot source. A request whose body cannot be written
+     * again is never retried. <br/>
+     * <br/>
+     *
+     * The default implementation returns true.
+     *
+     * @return true if {@link #produce(OutputStream, String)} can be called
+     *         more than once
+     */
+    default boolean isRepeatable() {
+        return true;
+    }
+}
@@ -1,12 +1,17 @@
 package com.shc.ahttp.client.request;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.client.methods.HttpGet;
 
 import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
 import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.response.AHttpStreamedResponse;
+import com.shc.ahttp.client.response.SClientResponse;
 import com.shc.ahttp.client.util.AHttpClientConstants;
 
 /**
@@ -34,14 +39,31 @@ import com.shc.ahttp.client.util.AHttpClientConstants;
  * <li>Option to include response header in the returned response object</li>
  * <li>Specify connect timeout</li>
  * <li>Options to send request without basic authentications</li>
+ * <li>Asynchronous execution returning a {@link CompletableFuture}</li>
  * </ul>
  * @author vishalk2
  * @version $Revision: 1.0 $
  */
 public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
 
-    /** The auth required. */
-    private boolean authRequired = true;
+    /**
+     * Instantiates a new {@link AHttpGetRequest} which executes its requests using the
+     * shared {@link AHttpClientPool#getDefault()} pool
+     */
+    public AHttpGetRequest() {
+        super();
+    }
+
+    /**
+     * Instantiates a new {@link AHttpGetRequest} which executes its requests using the
+     * given pool
+     *
+     * @param clientPool
+     *            the {@link AHttpClientPool} providing the shared HTTP client
+     */
+    public AHttpGetRequest(AHttpClientPool clientPool) {
+        super(clientPool);
+    }
 
     /**
      * Execute the get request to the given url
@@ -242,12 +264,11 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
 
     public AHttpClientResponse executeGet(String url)
             throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, null,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -265,12 +286,11 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
      *             if any exceptions occurs during the execution of the request */
     public AHttpClientResponse executeGet(String url,
             Map<String, String> headers) throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, headers,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -293,11 +313,10 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executeGet(String url,
             Map<String, String> headers, boolean includeResponseHeaders)
             throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         return executeGet(url, encoding, null, null, connectTimeout, headers,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -324,9 +343,8 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executeGet(String url, String encoding,
             int connectTimeout, Map<String, String> headers,
             boolean includeResponseHeaders) throws AHttpClientCallException {
-        authRequired = false;
         return executeGet(url, encoding, null, null, connectTimeout, headers,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -344,11 +362,10 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
      *             if any exceptions occurs during the execution of the request */
     public AHttpClientResponse executeGet(String url, String encoding)
             throws AHttpClientCallException {
-        authRequired = false;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, null,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -371,11 +388,10 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executeGet(String url, String request,
             Map<String, String> headers, String encoding)
             throws AHttpClientCallException {
-        authRequired = false;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, headers,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -392,11 +408,10 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
      *             if any exceptions occurs during the execution of the request */
     public AHttpClientResponse executeGet(String url, int connectTimeout)
             throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, null,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -416,10 +431,9 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
      *             if any exceptions occurs during the execution of the request */
     public AHttpClientResponse executeGet(String url, String encoding,
             int connectTimeout) throws AHttpClientCallException {
-        authRequired = false;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executeGet(url, encoding, null, null, connectTimeout, null,
-                includeResponseHeaders);
+                includeResponseHeaders, false);
     }
 
     /**
@@ -451,6 +465,436 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
             String username, String password, int connectTimeout,
             Map<String, String> headers, boolean includeResponseHeaders)
             throws AHttpClientCallException {
+        return executeGet(url, encoding, username, password, connectTimeout,
+                headers, includeResponseHeaders, true);
+    }
+
+    /**
+     * Execute the get request to the given url, handing the body of a
+     * successful response to the given {@link AHttpEntityConsumer} as a
+     * stream, so that it is never read into a String
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executeGet(String url, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        return executeGet(url, encoding, username, password, connectTimeout,
+                headers, includeResponseHeaders, entityConsumer, true);
+    }
+
+    /**
+     * Execute the get request to the given url without basic authentication,
+     * handing the body of a successful response to the given
+     * {@link AHttpEntityConsumer} as a stream, so that it is never read into
+     * a String
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executeGet(String url, String encoding,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        return executeGet(url, encoding, null, null, connectTimeout, headers,
+                includeResponseHeaders, entityConsumer, false);
+    }
+
+    private <T> SClientResponse<T> executeGet(String url, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, boolean authRequired)
+            throws AHttpClientCallException {
+        HttpGet httpGet = createHttpGet(url, username, password, connectTimeout,
+                headers, authRequired);
+        return executeHttpRequest(httpGet, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer);
+    }
+
+    /**
+     * Execute the get request to the given url with basic authentication,
+     * returning the successful response before its body is read, so that the
+     * body can be read at the pace of the caller. The returned
+     * {@link AHttpStreamedResponse} holds the connection until it is closed.
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return the {@link AHttpStreamedResponse}, which must be closed * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public AHttpStreamedResponse executeGetStream(String url, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders)
+            throws AHttpClientCallException {
+        return executeGetStream(url, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders, true);
+    }
+
+    /**
+     * Execute the get request to the given url without basic authentication,
+     * returning the successful response before its body is read, so that the
+     * body can be read at the pace of the caller. The returned
+     * {@link AHttpStreamedResponse} holds the connection until it is closed.
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return the {@link AHttpStreamedResponse}, which must be closed * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public AHttpStreamedResponse executeGetStream(String url, String encoding,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders) throws AHttpClientCallException {
+        return executeGetStream(url, encoding, null, null, connectTimeout,
+                headers, includeResponseHeaders, false);
+    }
+
+    private AHttpStreamedResponse executeGetStream(String url, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            boolean authRequired) throws AHttpClientCallException {
+        HttpGet httpGet = createHttpGet(url, username, password, connectTimeout,
+                headers, authRequired);
+        return executeHttpRequestStreamed(httpGet, resolveEncoding(encoding),
+                includeResponseHeaders);
+    }
+
+    /**
+     * Execute the get request to the given url. The basic auth requirement is
+     * passed per call rather than stored on the object, so that a single
+     * {@link AHttpGetRequest} can be shared by concurrent callers.
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param authRequired
+     *            whether the basic auth header should be sent
+     * 
+     * @return AHttpClientResponse the extracted response from the Http call
+     *         made encapsulated in the {@link AHttpClientResponse} * @throws AHttpClientCallException
+     *             if any exceptions occurs during the execution of the request */
+    private AHttpClientResponse executeGet(String url, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            boolean authRequired) throws AHttpClientCallException {
+
+        HttpGet httpGet = createHttpGet(url, username, password,
+                connectTimeout, headers, authRequired);
+
+        AHttpClientResponse response = executeHttpRequest(httpGet,
+                resolveEncoding(encoding), includeResponseHeaders);
+
+        return response;
+    }
+
+    /**
+     * Execute the get request to the given url asynchronously, without
+     * blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executeGetAsync(String url,
+            String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders) {
+        return executeGetAsync(url, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders, true);
+    }
+
+    /**
+     * Execute the get request to the given url asynchronously, without basic
+     * authentication and without blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executeGetAsync(String url,
+            String encoding, int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders) {
+        return executeGetAsync(url, encoding, null, null, connectTimeout,
+                headers, includeResponseHeaders, false);
+    }
+
+    /**
+     * Execute the get request to the given url asynchronously, without basic
+     * authentication and without blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executeGetAsync(String url) {
+        return executeGetAsync(url, AHttpClientConstants.DEFAULT_CONTENT_ENCODING,
+                AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT, null,
+                AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS);
+    }
+
+    /**
+     * Execute the get request to the given url asynchronously, handing the
+     * body of a successful response to the given {@link AHttpEntityConsumer}
+     * as a stream
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executeGetAsync(
+            String url, String encoding, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        return executeGetAsync(url, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders,
+                entityConsumer, executor, true);
+    }
+
+    /**
+     * Execute the get request to the given url asynchronously without basic
+     * authentication, handing the body of a successful response to the given
+     * {@link AHttpEntityConsumer} as a stream
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executeGetAsync(
+            String url, String encoding, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        return executeGetAsync(url, encoding, null, null, connectTimeout,
+                headers, includeResponseHeaders, entityConsumer, executor,
+                false);
+    }
+
+    private <T> CompletableFuture<SClientResponse<T>> executeGetAsync(
+            String url, String encoding, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor,
+            boolean authRequired) {
+        HttpGet httpGet;
+        try {
+            httpGet = createHttpGet(url, username, password, connectTimeout,
+                    headers, authRequired);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpGet, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer, executor);
+    }
+
+    private CompletableFuture<AHttpClientResponse> executeGetAsync(String url,
+            String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders, boolean authRequired) {
+        HttpGet httpGet;
+        try {
+            httpGet = createHttpGet(url, username, password, connectTimeout,
+                    headers, authRequired);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpGet, resolveEncoding(encoding),
+                includeResponseHeaders);
+    }
+
+    /**
+     * Validates the given parameters and creates the {@link HttpGet} request
+     * with the auth header, the request headers and the timeouts set
+     *
+     * @param url
+     *            The full url to the resource to which the get has to be done
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param authRequired
+     *            whether the basic auth header should be sent, rather than
+     *            the credentials of the auth provider if one is set
+     * 
+     * @return the {@link HttpGet} request * @throws AHttpClientCallException
+     *         if any of the required fields is missing
+     */
+    private HttpGet createHttpGet(String url, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean authRequired) throws AHttpClientCallException {
 
         if (StringUtils.isEmpty(url))
             throw new AHttpClientCallException("Required Field: url " + url
@@ -463,24 +907,21 @@ public class AHttpGetRequest extends ABasicAuthHttpRequestBase {
             throw new AHttpClientCallException("Required Field: password"
                     + password + " cannot be null or empty");
 
-        if (StringUtils.isEmpty(encoding))
-            encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         if (connectTimeout < 1)
             connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
 
         HttpGet httpGet = new HttpGet(url);
 
         if (authRequired)
-            addBasicAuthHttpHeader(httpGet, username, password);
+            addCachedBasicAuthHttpHeader(httpGet, username, password);
+        else
+            addAuthHttpHeader(httpGet);
 
         addRequestHeaders(headers, httpGet);
 
         addRequestTimeoutConfig(connectTimeout, httpGet);
 
-        AHttpClientResponse response = executeHttpRequest(httpGet, encoding,
-                includeResponseHeaders);
-
-        return response;
+        return httpGet;
     }
 
-}
+}
\ No newline at end of file
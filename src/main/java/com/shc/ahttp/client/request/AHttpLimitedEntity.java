@@ -0,0 +1,274 @@
+package com.shc.ahttp.client.request;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import com.shc.ahttp.client.pool.AHttpBodyLimits;
+
+/**
+ * A wrapper of the <a href=
+ * "http://hc.apache.org/httpcore-4.4.x/httpcore/apidocs/org/apache/http/HttpEntity.html"
+ * >HttpEntity</a> of a response whose content cannot be read past a limit.
+ * Past the limit the content either fails with an {@link IOException} or
+ * ends, truncated, and the connection is aborted there and then, as the
+ * limit is crossed, instead of being drained. A content whose Content-Length
+ * already exceeds a failing limit fails before anything is read. <br/>
+ * <br/>
+ *
+ * The content stream is created once, so that the entity can be handed to
+ * code which reads it and to code which then closes it.
+ *
+ * @see AHttpBodyLimits
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpLimitedEntity extends HttpEntityWrapper {
+
+    /** The maximum number of bytes of the content */
+    private final long limit;
+
+    /** Whether the content ends at the limit instead of failing */
+    private final boolean truncate;
+
+    /** Aborts the connection once the limit is exceeded, may be null */
+    private final Runnable abort;
+
+    /** The limited content stream, created on first use */
+    private InputStream content;
+
+    /** Whether the content went past the limit */
+    private volatile boolean limitExceeded;
+
+    /**
+     * Instantiates a new limited entity
+     *
+     * @param wrappedEntity
+     *            the {@link HttpEntity} of the response
+     * @param limit
+     *            the maximum number of bytes of the content
+     * @param truncate
+     *            whether the content ends at the limit instead of failing
+     * @param abort
+     *            aborts the connection of the response once the limit is
+     *            exceeded, may be null if the content is already received
+     */
+    public AHttpLimitedEntity(HttpEntity wrappedEntity, long limit,
+            boolean truncate, Runnable abort) {
+        super(wrappedEntity);
+        this.limit = limit;
+        this.truncate = truncate;
+        this.abort = abort;
+    }
+
+    /**
+     * Replaces the entity of the given response by a limited entity, with the
+     * limit of its status code
+     *
+     * @param httpResponse
+     *            the {@link HttpResponse} received
+     * @param bodyLimits
+     *            the {@link AHttpBodyLimits} to enforce
+     * @param abort
+     *            aborts the connection of the response once the limit is
+     *            exceeded, may be null if the content is already received
+     *
+     * @return the limited entity set on the response, or null if the response
+     *         has no entity or its body is not limited
+     */
+    public static AHttpLimitedEntity limit(HttpResponse httpResponse,
+            AHttpBodyLimits bodyLimits, Runnable abort) {
+        HttpEntity httpEntity = httpResponse.getEntity();
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        long limit = bodyLimits.getLimit(statusCode);
+        if (httpEntity == null || limit == AHttpBodyLimits.UNLIMITED) {
+            return null;
+        }
+        AHttpLimitedEntity limitedEntity = new AHttpLimitedEntity(httpEntity,
+                limit, bodyLimits.isTruncated(statusCode), abort);
+        httpResponse.setEntity(limitedEntity);
+        return limitedEntity;
+    }
+
+    /**
+     * Checks whether the content went past the limit, in which case the
+     * connection has been aborted
+     *
+     * @return true if the limit was exceeded
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Gets the length of the content, which is the limit when a truncated
+     * content is declared longer
+     *
+     * @return the content length, or a negative number if unknown * @see
+     *         org.apache.http.entity.HttpEntityWrapper#getContentLength()
+     */
+    @Override
+    public long getContentLength() {
+        long contentLength = super.getContentLength();
+        return truncate && contentLength > limit ? limit : contentLength;
+    }
+
+    /**
+     * @return false, as the content stream can only be read once * @see
+     *         org.apache.http.entity.HttpEntityWrapper#isRepeatable()
+     */
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    /**
+     * Gets the limited content stream, the same on every call
+     *
+     * @return the limited content, or null if the entity has none * @throws
+     *         IOException if the Content-Length exceeds a failing limit, or
+     *         the content could not be opened
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        if (content == null) {
+            if (!truncate && super.getContentLength() > limit) {
+                exceed();
+                throw new IOException(AHttpBodyLimits.getExceededMessage(limit));
+            }
+            InputStream wrappedContent = super.getContent();
+            if (wrappedContent == null) {
+                return null;
+            }
+            content = new LimitedInputStream(wrappedContent);
+        }
+        return content;
+    }
+
+    /**
+     * Writes the limited content to the given stream
+     *
+     * @param out
+     *            the stream to which the content should be written
+     *
+     * @throws IOException
+     *             if the content exceeds a failing limit, or could not be
+     *             read or written
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = getContent()) {
+            if (in != null) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that the content went past the limit, aborting the connection
+     * the first time
+     */
+    private void exceed() {
+        if (!limitExceeded) {
+            limitExceeded = true;
+            if (abort != null) {
+                abort.run();
+            }
+        }
+    }
+
+    /**
+     * The content stream, which counts the bytes read and stops at the limit
+     */
+    private class LimitedInputStream extends FilterInputStream {
+
+        /** The number of bytes read so far */
+        private long count;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (count >= limit) {
+                return exceeded();
+            }
+            int read = in.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (count >= limit) {
+                return exceeded();
+            }
+            int read = in.read(b, off, (int) Math.min(len, limit - count));
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, Math.max(limit - count, 0)));
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Closes the wrapped stream, which fails once the connection has been
+         * aborted
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } catch (IOException e) {
+                if (!limitExceeded) {
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Checks whether the content goes on past the limit, ending or
+         * failing the stream if it does
+         *
+         * @return -1 if the content ends at the limit or is truncated *
+         *         @throws IOException if the content exceeds a failing limit
+         */
+        private int exceeded() throws IOException {
+            if (limitExceeded || in.read() != -1) {
+                exceed();
+                if (!truncate) {
+                    throw new IOException(
+                            AHttpBodyLimits.getExceededMessage(limit));
+                }
+            }
+            return -1;
+        }
+    }
+}
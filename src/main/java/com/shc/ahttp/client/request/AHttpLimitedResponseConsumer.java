@@ -0,0 +1,132 @@
+package com.shc.ahttp.client.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.ContentTooLongException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.ByteArrayBuffer;
+
+import com.shc.ahttp.client.pool.AHttpBodyLimits;
+
+/**
+ * Buffers the response of an asynchronous request in memory, as the default
+ * consumer of the non blocking client does, but never past the
+ * {@link AHttpBodyLimits} of the status code of the response. A successful
+ * response whose body exceeds its limit fails the request as soon as the
+ * limit is crossed, which closes the connection, while the body of an error
+ * response is truncated and the rest of it discarded as it is received.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+class AHttpLimitedResponseConsumer extends
+        AbstractAsyncResponseConsumer<HttpResponse> {
+
+    /** The size of the buffer of a body of unknown length */
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    /** The limits of the response bodies */
+    private final AHttpBodyLimits bodyLimits;
+
+    /** The response received */
+    private volatile HttpResponse response;
+
+    /** The entity of the response, whose content is buffered */
+    private volatile HttpEntity entity;
+
+    /** The buffered content */
+    private volatile ByteArrayBuffer content;
+
+    /** The chunk the content is read through */
+    private volatile ByteBuffer chunk;
+
+    /** The maximum number of bytes of the content */
+    private volatile int maxLength;
+
+    /** Whether the content is truncated at the limit instead of failing */
+    private volatile boolean truncate;
+
+    /**
+     * Instantiates a new limited response consumer
+     *
+     * @param bodyLimits
+     *            the {@link AHttpBodyLimits} to enforce
+     */
+    AHttpLimitedResponseConsumer(AHttpBodyLimits bodyLimits) {
+        this.bodyLimits = bodyLimits;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+        int statusCode = response.getStatusLine().getStatusCode();
+        long limit = bodyLimits.getLimit(statusCode);
+        // a buffered body can be no larger than an array
+        this.maxLength = (int) (limit == AHttpBodyLimits.UNLIMITED ? Integer.MAX_VALUE
+                : Math.min(limit, Integer.MAX_VALUE));
+        this.truncate = bodyLimits.isTruncated(statusCode);
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType)
+            throws IOException {
+        long contentLength = entity.getContentLength();
+        if (contentLength > maxLength && !truncate) {
+            throw new ContentTooLongException(
+                    AHttpBodyLimits.getExceededMessage(maxLength));
+        }
+        this.entity = entity;
+        this.content = new ByteArrayBuffer((int) (contentLength >= 0 ? Math
+                .min(contentLength, maxLength) : Math.min(
+                DEFAULT_BUFFER_SIZE, maxLength)));
+        this.chunk = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl)
+            throws IOException {
+        int read;
+        while ((read = decoder.read(chunk)) > 0) {
+            chunk.flip();
+            int remaining = maxLength - content.length();
+            if (read > remaining) {
+                if (!truncate) {
+                    throw new ContentTooLongException(
+                            AHttpBodyLimits.getExceededMessage(maxLength));
+                }
+                // the rest of a truncated body is discarded
+                read = remaining;
+            }
+            content.append(chunk.array(), chunk.arrayOffset(), read);
+            chunk.clear();
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        if (entity != null) {
+            ByteArrayEntity bufferedEntity = new ByteArrayEntity(
+                    content.buffer(), 0, content.length());
+            bufferedEntity.setContentType(entity.getContentType());
+            bufferedEntity.setContentEncoding(entity.getContentEncoding());
+            response.setEntity(bufferedEntity);
+        }
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        this.response = null;
+        this.entity = null;
+        this.content = null;
+        this.chunk = null;
+    }
+}
@@ -1,14 +1,20 @@
 package com.shc.ahttp.client.request;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.HttpPost;
 
+import com.shc.ahttp.client.encoding.AHttpRequestCompression;
 import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
 import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.response.SClientResponse;
 import com.shc.ahttp.client.util.AHttpClientConstants;
 
 /**
@@ -38,6 +44,8 @@ import com.shc.ahttp.client.util.AHttpClientConstants;
  * <li>Option to include response header in the returned response object</li>
  * <li>Specify connect timeout</li>
  * <li>Options to send request without basic authentications</li>
+ * <li>Asynchronous execution returning a {@link CompletableFuture}</li>
+ * <li>Compression of large post bodies, see {@link AHttpRequestCompression}</li>
  * </ul>
  * 
  * @author vishalk2
@@ -45,8 +53,54 @@ import com.shc.ahttp.client.util.AHttpClientConstants;
  */
 public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
 
-    /** The auth required. */
-    private boolean authRequired = true;
+    /** The compression applied to the post body, null if none */
+    private final AHttpRequestCompression requestCompression;
+
+    /**
+     * Instantiates a new {@link AHttpPostRequest} which executes its requests using the
+     * shared {@link AHttpClientPool#getDefault()} pool
+     */
+    public AHttpPostRequest() {
+        super();
+        this.requestCompression = null;
+    }
+
+    /**
+     * Instantiates a new {@link AHttpPostRequest} which executes its requests using the
+     * given pool
+     *
+     * @param clientPool
+     *            the {@link AHttpClientPool} providing the shared HTTP client
+     */
+    public AHttpPostRequest(AHttpClientPool clientPool) {
+        this(clientPool, null);
+    }
+
+    /**
+     * Instantiates a new {@link AHttpPostRequest} which executes its requests using the
+     * given pool and compresses large request bodies with the given compression
+     *
+     * @param clientPool
+     *            the {@link AHttpClientPool} providing the shared HTTP client
+     * @param requestCompression
+     *            the {@link AHttpRequestCompression} applied to the post body,
+     *            or null to send it uncompressed
+     */
+    public AHttpPostRequest(AHttpClientPool clientPool,
+            AHttpRequestCompression requestCompression) {
+        super(clientPool);
+        this.requestCompression = requestCompression;
+    }
+
+    /**
+     * Gets the compression applied to the post body.
+     *
+     * @return the {@link AHttpRequestCompression}, or null if the post body is
+     *         sent uncompressed
+     */
+    public AHttpRequestCompression getRequestCompression() {
+        return requestCompression;
+    }
 
     /**
      * Execute the post request to the given url
@@ -279,12 +333,11 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
 
     public AHttpClientResponse executePost(String url, String request)
             throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                null, includeResponseHeaders);
+                null, includeResponseHeaders, false);
     }
 
     /**
@@ -306,12 +359,11 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
      */
     public AHttpClientResponse executePost(String url, String request,
             Map<String, String> headers) throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                headers, includeResponseHeaders);
+                headers, includeResponseHeaders, false);
     }
 
     /**
@@ -338,11 +390,10 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executePost(String url, String request,
             Map<String, String> headers, boolean includeResponseHeaders)
             throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                headers, includeResponseHeaders);
+                headers, includeResponseHeaders, false);
     }
 
     /**
@@ -373,9 +424,8 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executePost(String url, String request,
             String encoding, int connectTimeout, Map<String, String> headers,
             boolean includeResponseHeaders) throws AHttpClientCallException {
-        authRequired = false;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                headers, includeResponseHeaders);
+                headers, includeResponseHeaders, false);
     }
 
     /**
@@ -397,11 +447,10 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
      */
     public AHttpClientResponse executePost(String url, String request,
             String encoding) throws AHttpClientCallException {
-        authRequired = false;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                null, includeResponseHeaders);
+                null, includeResponseHeaders, false);
     }
 
     /**
@@ -427,11 +476,10 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executePost(String url, String request,
             String encoding, Map<String, String> headers)
             throws AHttpClientCallException {
-        authRequired = false;
         int connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                headers, includeResponseHeaders);
+                headers, includeResponseHeaders, false);
     }
 
     /**
@@ -452,11 +500,10 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
      */
     public AHttpClientResponse executePost(String url, String request,
             int connectTimeout) throws AHttpClientCallException {
-        authRequired = false;
         String encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                null, includeResponseHeaders);
+                null, includeResponseHeaders, false);
     }
 
     /**
@@ -481,10 +528,9 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
     public AHttpClientResponse executePost(String url, String request,
             String encoding, int connectTimeout)
             throws AHttpClientCallException {
-        authRequired = false;
         boolean includeResponseHeaders = AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS;
         return executePost(url, request, encoding, null, null, connectTimeout,
-                null, includeResponseHeaders);
+                null, includeResponseHeaders, false);
     }
 
     /**
@@ -520,6 +566,657 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
             String encoding, String username, String password,
             int connectTimeout, Map<String, String> headers,
             boolean includeResponseHeaders) throws AHttpClientCallException {
+        return executePost(url, request, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders, true);
+    }
+
+    /**
+     * Execute the post request to the given url, handing the body of a
+     * successful response to the given {@link AHttpEntityConsumer} as a
+     * stream, so that it is never read into a String
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            the request string to be posted
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executePost(String url, String request,
+            String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        return executePost(url, request, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders,
+                entityConsumer, true);
+    }
+
+    /**
+     * Execute the post request to the given url without basic authentication,
+     * handing the body of a successful response to the given
+     * {@link AHttpEntityConsumer} as a stream, so that it is never read into
+     * a String
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            the request string to be posted
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executePost(String url, String request,
+            String encoding, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        return executePost(url, request, encoding, null, null,
+                connectTimeout, headers, includeResponseHeaders,
+                entityConsumer, false);
+    }
+
+    private <T> SClientResponse<T> executePost(String url, String request,
+            String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, boolean authRequired)
+            throws AHttpClientCallException {
+        HttpPost httpPost = createHttpPost(url, request, username, password,
+                connectTimeout, headers, authRequired);
+        return executeHttpRequest(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer);
+    }
+
+    /**
+     * Execute the post request to the given url, with the body written by the
+     * given {@link AHttpEntityProducer} straight to the connection using
+     * chunked transfer encoding, and the body of a successful response handed
+     * to the given {@link AHttpEntityConsumer} as a stream
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the post body straight
+     *            to the connection
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executePost(String url,
+            AHttpEntityProducer requestProducer, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        HttpPost httpPost = createHttpPost(url, requestProducer, username,
+                password, connectTimeout, headers, true);
+        return executeHttpRequest(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer);
+    }
+
+    /**
+     * Execute the post request to the given url without basic authentication,
+     * with the body written by the given {@link AHttpEntityProducer} straight
+     * to the connection using chunked transfer encoding, and the body of a
+     * successful response handed to the given {@link AHttpEntityConsumer} as
+     * a stream
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the post body straight
+     *            to the connection
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * 
+     * @return the response from the Http call made encapsulated in the
+     *         {@link SClientResponse} along with the consumed body * @throws
+     *         AHttpClientCallException If any exceptions occurs during the
+     *         execution of the request
+     */
+    public <T> SClientResponse<T> executePost(String url,
+            AHttpEntityProducer requestProducer, String encoding,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer)
+            throws AHttpClientCallException {
+        HttpPost httpPost = createHttpPost(url, requestProducer, null, null,
+                connectTimeout, headers, false);
+        return executeHttpRequest(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer);
+    }
+
+    /**
+     * Execute the post request to the given url. The basic auth requirement is
+     * passed per call rather than stored on the object, so that a single
+     * {@link AHttpPostRequest} can be shared by concurrent callers.
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            The request String to be sent as part of the post body
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param authRequired
+     *            whether the basic auth header should be sent
+     * 
+     * @return AHttpClientResponse the extracted response from the Http call
+     *         made encapsulated in the {@link AHttpClientResponse} * @throws
+     *         AHttpClientCallException if any exceptions occurs during the
+     *         execution of the request
+     */
+    private AHttpClientResponse executePost(String url, String request,
+            String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders, boolean authRequired)
+            throws AHttpClientCallException {
+
+        HttpPost httpPost = createHttpPost(url, request, username, password,
+                connectTimeout, headers, authRequired);
+
+        AHttpClientResponse response = executeHttpRequest(httpPost,
+                resolveEncoding(encoding), includeResponseHeaders);
+
+        return response;
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously, without
+     * blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            The request String to be sent as part of the post body
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executePostAsync(String url,
+            String request, String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders) {
+        return executePostAsync(url, request, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders, true);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously, without basic
+     * authentication and without blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            The request String to be sent as part of the post body
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executePostAsync(String url,
+            String request, String encoding, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders) {
+        return executePostAsync(url, request, encoding, null, null,
+                connectTimeout, headers, includeResponseHeaders, false);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously, without basic
+     * authentication and without blocking the calling thread
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            The request String to be sent as part of the post body
+     * 
+     * @return a {@link CompletableFuture} of the extracted response from the
+     *         Http call made encapsulated in the {@link AHttpClientResponse},
+     *         completed exceptionally with an {@link AHttpClientCallException}
+     *         if any exceptions occurs during the execution of the request
+     */
+    public CompletableFuture<AHttpClientResponse> executePostAsync(String url,
+            String request) {
+        return executePostAsync(url, request,
+                AHttpClientConstants.DEFAULT_CONTENT_ENCODING,
+                AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT, null,
+                AHttpClientConstants.DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously, handing the
+     * body of a successful response to the given {@link AHttpEntityConsumer}
+     * as a stream
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            the request string to be posted
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String url, String request, String encoding, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        return executePostAsync(url, request, encoding, username, password,
+                connectTimeout, headers, includeResponseHeaders,
+                entityConsumer, executor, true);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously without basic
+     * authentication, handing the body of a successful response to the given
+     * {@link AHttpEntityConsumer} as a stream
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            the request string to be posted
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String url, String request, String encoding, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        return executePostAsync(url, request, encoding, null, null,
+                connectTimeout, headers, includeResponseHeaders,
+                entityConsumer, executor, false);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously, with the body
+     * written by the given {@link AHttpEntityProducer}. The non blocking
+     * client reads the body through {@link AHttpStreamingEntity#getContent()},
+     * so it is buffered in memory before being sent.
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the post body straight
+     *            to the connection
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String url, AHttpEntityProducer requestProducer, String encoding,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        HttpPost httpPost;
+        try {
+            httpPost = createHttpPost(url, requestProducer, username,
+                    password, connectTimeout, headers, true);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer, executor);
+    }
+
+    /**
+     * Execute the post request to the given url asynchronously without basic
+     * authentication, with the body written by the given
+     * {@link AHttpEntityProducer}. The non blocking client reads the body
+     * through {@link AHttpStreamingEntity#getContent()}, so it is buffered in
+     * memory before being sent.
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the post body straight
+     *            to the connection
+     * @param encoding
+     *            the encoding of the request and the expected encoding of
+     *            response for ex UTF-8
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param includeResponseHeaders
+     *            whether to return the response headers also as part of the
+     *            response object
+     * @param entityConsumer
+     *            the {@link AHttpEntityConsumer} reading the response body
+     * @param executor
+     *            the {@link Executor} on which the response body is consumed,
+     *            or null to consume it on the I/O dispatch thread
+     * 
+     * @return a {@link CompletableFuture} of the response from the Http call
+     *         made encapsulated in the {@link SClientResponse}, completed
+     *         exceptionally with an {@link AHttpClientCallException} if any
+     *         exceptions occurs during the execution of the request
+     */
+    public <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String url, AHttpEntityProducer requestProducer, String encoding,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor) {
+        HttpPost httpPost;
+        try {
+            httpPost = createHttpPost(url, requestProducer, null, null,
+                    connectTimeout, headers, false);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer, executor);
+    }
+
+    private <T> CompletableFuture<SClientResponse<T>> executePostAsync(
+            String url, String request, String encoding, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders,
+            AHttpEntityConsumer<T> entityConsumer, Executor executor,
+            boolean authRequired) {
+        HttpPost httpPost;
+        try {
+            httpPost = createHttpPost(url, request, username, password,
+                    connectTimeout, headers, authRequired);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders, entityConsumer, executor);
+    }
+
+    private CompletableFuture<AHttpClientResponse> executePostAsync(String url,
+            String request, String encoding, String username, String password,
+            int connectTimeout, Map<String, String> headers,
+            boolean includeResponseHeaders, boolean authRequired) {
+        HttpPost httpPost;
+        try {
+            httpPost = createHttpPost(url, request, username, password,
+                    connectTimeout, headers, authRequired);
+        } catch (AHttpClientCallException e) {
+            return failedFuture(e);
+        }
+        return executeHttpRequestAsync(httpPost, resolveEncoding(encoding),
+                includeResponseHeaders);
+    }
+
+    /**
+     * Validates the given parameters and creates the {@link HttpPost} request
+     * with the auth header, the request headers, the timeouts and the request
+     * String set as the entity
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param request
+     *            The request String to be sent as part of the post body
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param authRequired
+     *            whether the basic auth header should be sent
+     * 
+     * @return the {@link HttpPost} request * @throws AHttpClientCallException
+     *         if any of the required fields is missing
+     */
+    private HttpPost createHttpPost(String url, String request,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean authRequired)
+            throws AHttpClientCallException {
+        HttpEntity requestEntity = null;
+        if (!StringUtils.isEmpty(request)) {
+            requestEntity = getHttpEntityFromRequest(request,
+                    getRequestContentType(headers));
+        }
+        return createHttpPost(url, requestEntity, username, password,
+                connectTimeout, headers, authRequired);
+    }
+
+    /**
+     * Validates the given parameters and creates the {@link HttpPost} request
+     * with the auth header, the request headers, the timeouts and a
+     * {@link AHttpStreamingEntity} written by the given producer set
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestProducer
+     *            the {@link AHttpEntityProducer} writing the post body
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param authRequired
+     *            whether the basic auth header should be sent
+     * 
+     * @return the {@link HttpPost} request * @throws AHttpClientCallException
+     *         if any of the required fields is missing
+     */
+    private HttpPost createHttpPost(String url,
+            AHttpEntityProducer requestProducer, String username,
+            String password, int connectTimeout, Map<String, String> headers,
+            boolean authRequired) throws AHttpClientCallException {
+        if (requestProducer == null) {
+            throw new AHttpClientCallException(
+                    "Required Field: requestProducer cannot be null");
+        }
+        return createHttpPost(url, getHttpEntityFromProducer(requestProducer,
+                getRequestContentType(headers)), username, password,
+                connectTimeout, headers, authRequired);
+    }
+
+    /**
+     * Validates the given parameters and creates the {@link HttpPost} request
+     * with the auth header, the request headers, the timeouts and the request
+     * entity set, compressed with the {@link #requestCompression} unless the
+     * headers already specify a Content-Encoding
+     *
+     * @param url
+     *            The full url to the resource to which the post has to be done
+     * @param requestEntity
+     *            The {@link HttpEntity} to be sent as the post body, may be
+     *            null
+     * @param username
+     *            the username to be used for basic auth
+     * @param password
+     *            the password to be used for basic auth along with the password
+     * @param connectTimeout
+     *            the connect timeout in milliseconds to be used
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request
+     * @param authRequired
+     *            whether the basic auth header should be sent, rather than
+     *            the credentials of the auth provider if one is set
+     * 
+     * @return the {@link HttpPost} request * @throws AHttpClientCallException
+     *         if any of the required fields is missing, or the request body
+     *         could not be buffered to decide on its compression
+     */
+    private HttpPost createHttpPost(String url, HttpEntity requestEntity,
+            String username, String password, int connectTimeout,
+            Map<String, String> headers, boolean authRequired)
+            throws AHttpClientCallException {
 
         if (StringUtils.isEmpty(url)) {
             throw new AHttpClientCallException("Required Field: url " + url
@@ -534,9 +1231,6 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
                     + password + " cannot be null or empty");
         }
 
-        if (StringUtils.isEmpty(encoding)) {
-            encoding = AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
-        }
         if (connectTimeout < 1) {
             connectTimeout = AHttpClientConstants.DEFAULT_CONNECT_TIMEOUT;
         }
@@ -544,30 +1238,46 @@ public class AHttpPostRequest extends ABasicAuthHttpRequestBase {
         HttpPost httpPost = new HttpPost(url);
 
         if (authRequired) {
-            addBasicAuthHttpHeader(httpPost, username, password);
+            addCachedBasicAuthHttpHeader(httpPost, username, password);
+        } else {
+            addAuthHttpHeader(httpPost);
         }
 
         addRequestHeaders(headers, httpPost);
 
         addRequestTimeoutConfig(connectTimeout, httpPost);
 
-        if (!StringUtils.isEmpty(request)) {
-            String contentType = null;
-            if (headers != null
-                    && headers.get(HttpHeaders.CONTENT_TYPE) != null) {
-                contentType = headers.get(HttpHeaders.CONTENT_TYPE);
-            } else {
-                contentType = AHttpClientConstants.DEFAULT_CONTENT_TYPE;
+        if (requestEntity != null) {
+            if (requestCompression != null
+                    && !httpPost.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                try {
+                    requestEntity = requestCompression.compress(requestEntity);
+                } catch (IOException e) {
+                    throw new AHttpClientCallException(e.getMessage(), e);
+                }
             }
-            HttpEntity requestEntity = getHttpEntityFromRequest(request,
-                    contentType);
             httpPost.setEntity(requestEntity);
         }
 
-        AHttpClientResponse response = executeHttpRequest(httpPost, encoding,
-                includeResponseHeaders);
+        return httpPost;
+    }
 
-        return response;
+    /**
+     * Gets the content type of the request body, which is the Content-Type of
+     * the given headers if any or
+     * {@link AHttpClientConstants#DEFAULT_CONTENT_TYPE}
+     *
+     * @param headers
+     *            A {@link Map<String, String>} of headers to be included in the
+     *            request, may be null
+     * 
+     * @return the content type of the request body
+     */
+    private String getRequestContentType(Map<String, String> headers) {
+        if (headers != null && headers.get(HttpHeaders.CONTENT_TYPE) != null) {
+            return headers.get(HttpHeaders.CONTENT_TYPE);
+        }
+        return AHttpClientConstants.DEFAULT_CONTENT_TYPE;
     }
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.shc.ahttp.client.request;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.Args;
+
+import com.shc.ahttp.client.util.AHttpClientConstants;
+
+/**
+ * A self contained <a href=
+ * "http://hc.apache.org/httpcore-4.4.x/httpcore/apidocs/org/apache/http/HttpEntity.html"
+ * >HttpEntity</a> whose content is written by an {@link AHttpEntityProducer}
+ * straight to the output stream of the connection when the request is sent,
+ * and which is repeatable if the producer is. As the length of the content is not known up front the entity is sent using
+ * chunked transfer encoding. <br/>
+ * <br/>
+ *
+ * The blocking client only ever calls {@link #writeTo(OutputStream)}. Clients
+ * reading the content through {@link #getContent()}, such as the non blocking
+ * client, get it buffered in memory.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpStreamingEntity extends AbstractHttpEntity {
+
+    /** The producer writing the content of the entity */
+    private final AHttpEntityProducer entityProducer;
+
+    /** The charset the content is written in */
+    private final String encoding;
+
+    /**
+     * Instantiates a new streaming entity. The content is written in the
+     * charset of the given content type, or in
+     * {@link AHttpClientConstants#DEFAULT_CONTENT_ENCODING} if it has none.
+     *
+     * @param entityProducer
+     *            the {@link AHttpEntityProducer} writing the content
+     * @param contentType
+     *            the {@link ContentType} of the content
+     */
+    public AHttpStreamingEntity(AHttpEntityProducer entityProducer,
+            ContentType contentType) {
+        this.entityProducer = Args.notNull(entityProducer, "Entity producer");
+        Charset charset = contentType != null ? contentType.getCharset()
+                : null;
+        this.encoding = charset != null ? charset.name()
+                : AHttpClientConstants.DEFAULT_CONTENT_ENCODING;
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+        setChunked(true);
+    }
+
+    /**
+     * @return whether the {@link AHttpEntityProducer} can write the content
+     *         more than once
+     * @see org.apache.http.HttpEntity#isRepeatable()
+     */
+    @Override
+    public boolean isRepeatable() {
+        return entityProducer.isRepeatable();
+    }
+
+    /**
+     * @return -1, as the length of the content is not known before it is
+     *         written
+     * @see org.apache.http.HttpEntity#getContentLength()
+     */
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Writes the content into memory and returns a stream over it, for the
+     * clients which cannot have it written to the connection.
+     *
+     * @return the buffered content * @throws IOException if the content
+     *         could not be written
+     * @see org.apache.http.HttpEntity#getContent()
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * Has the {@link AHttpEntityProducer} write the content to the given
+     * stream.
+     *
+     * @param out
+     *            the output stream of the connection
+     * @throws IOException
+     *             if the content could not be written
+     * @see org.apache.http.HttpEntity#writeTo(OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Args.notNull(out, "Output stream");
+        entityProducer.produce(out, encoding);
+        out.flush();
+    }
+
+    /**
+     * @return false, as the entity is self contained
+     * @see org.apache.http.HttpEntity#isStreaming()
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
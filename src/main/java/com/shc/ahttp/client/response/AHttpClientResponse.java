@@ -29,6 +29,9 @@ public class AHttpClientResponse {
     /** The response headers, if any, returned from the HTTP client call */
     private Map<String, String> responseHeaders;
 
+    /** The Content-Type, if any, of the body returned from the HTTP client call */
+    private String contentType;
+
     /**
      * Instantiates a new HTTP client response object with the given fields
      *
@@ -133,6 +136,16 @@ public class AHttpClientResponse {
         return responseHeaders;
     }
 
+    /**
+     * Gets the response headers as an {@link AHttpResponseHeaders} view,
+     * which keeps every value of a repeated header
+     *
+     * @return the response headers, or null if they were not requested
+     */
+    public AHttpResponseHeaders getHeaderView() {
+        return AHttpResponseHeaders.of(responseHeaders);
+    }
+
     /**
      * Sets the response headers.
      *
@@ -152,6 +165,38 @@ public class AHttpClientResponse {
         return isBodyPresent;
     }
 
+    /**
+     * Sets whether there was any body content in the response. Used when the
+     * body has been consumed as a stream and so is not available as the
+     * {@link #responseBody}.
+     *
+     * @param isBodyPresent
+     *            true, if there was any body content present
+     */
+    public void setBodyPresent(boolean isBodyPresent) {
+        this.isBodyPresent = isBodyPresent;
+    }
+
+    /**
+     * Gets the Content-Type of the response body, which is known whether or
+     * not the response headers were included
+     *
+     * @return the Content-Type, or null if the response declared none
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Sets the Content-Type of the response body.
+     *
+     * @param contentType
+     *            the Content-Type, may be null
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
     /**
      * 
     
@@ -162,6 +207,7 @@ public class AHttpClientResponse {
         return "AHttpClientResponse [responseBody=" + responseBody
                 + ", reasonPhrase=" + reasonPhrase + ", statusCode="
                 + statusCode + ", isBodyPresent=" + isBodyPresent
-                + ", responseHeaders=" + responseHeaders + "]";
+                + ", responseHeaders=" + responseHeaders + ", contentType="
+                + contentType + "]";
     }
 }
@@ -0,0 +1,230 @@
+package com.shc.ahttp.client.response;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.http.Header;
+import org.apache.http.HttpMessage;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * A read only view of the headers of a response, backed by the <a href=
+ * "http://hc.apache.org/httpcore-4.4.x/httpcore/apidocs/org/apache/http/Header.html"
+ * >Header</a> array of the response rather than a copy of it. Header names
+ * are looked up ignoring case, as HTTP defines them, and a header received
+ * more than once, such as Set-Cookie, keeps all of its values. <br/>
+ * <br/>
+ *
+ * As a {@link Map} the view holds one entry per header name, whose value is
+ * the first value received, and is read only: {@link #put(Object, Object)}
+ * and the other mutators throw an {@link UnsupportedOperationException}. The
+ * entries are only built when the view is iterated, so a response whose
+ * headers are included but never read costs no more than the array of its
+ * headers. The view is returned by the <code>getHeaderView()</code> of the
+ * responses and of the {@link com.shc.ahttp.client.exception.AHttpClientCallException},
+ * so {@link #getAll(String)} and {@link #toMultiValueMap()} need no cast. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * AHttpClientResponse response = aHttpGetRequest.executeGet(url, headers,
+ *         true);
+ * AHttpResponseHeaders headers = response.getHeaderView();
+ * String contentType = headers.get(&quot;content-type&quot;);
+ * List&lt;String&gt; cookies = headers.getAll(&quot;Set-Cookie&quot;);
+ * </pre>
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpResponseHeaders extends AbstractMap<String, String> implements
+        Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The headers of the response, in the order received */
+    private final Header[] headers;
+
+    /** One entry per header name, built when first iterated */
+    private transient List<Map.Entry<String, String>> entries;
+
+    /**
+     * Instantiates a new view of the given headers
+     *
+     * @param headers
+     *            the headers of the response, in the order received
+     */
+    public AHttpResponseHeaders(Header[] headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Creates a view of the headers of the given {@link HttpMessage}
+     *
+     * @param httpMessage
+     *            the {@link HttpMessage}
+     *
+     * @return the view of its headers
+     */
+    public static AHttpResponseHeaders of(HttpMessage httpMessage) {
+        return new AHttpResponseHeaders(httpMessage.getAllHeaders());
+    }
+
+    /**
+     * Gets a view of the given headers. The map is returned as is if it is
+     * already a view, otherwise a view of its entries is created, each of them
+     * being a single valued header.
+     *
+     * @param headers
+     *            the header map, may be null
+     *
+     * @return the view of the headers, or null if the map is null
+     */
+    public static AHttpResponseHeaders of(Map<String, String> headers) {
+        if (headers == null || headers instanceof AHttpResponseHeaders) {
+            return (AHttpResponseHeaders) headers;
+        }
+        List<Header> copy = new ArrayList<Header>(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            copy.add(new BasicHeader(header.getKey(), header.getValue()));
+        }
+        return new AHttpResponseHeaders(copy.toArray(new Header[copy.size()]));
+    }
+
+    /**
+     * Gets the first value of the header with the given name, ignoring case
+     *
+     * @param name
+     *            the header name
+     *
+     * @return the first value, or null if there is no such header
+     */
+    @Override
+    public String get(Object name) {
+        int index = indexOf(name, 0);
+        return index >= 0 ? headers[index].getValue() : null;
+    }
+
+    /**
+     * Checks whether a header with the given name was received, ignoring case
+     *
+     * @param name
+     *            the header name
+     *
+     * @return true if the header was received
+     */
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name, 0) >= 0;
+    }
+
+    /**
+     * Gets all the values of the header with the given name, ignoring case
+     *
+     * @param name
+     *            the header name
+     *
+     * @return the values in the order received, empty if there is no such
+     *         header
+     */
+    public List<String> getAll(String name) {
+        int index = indexOf(name, 0);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<String>(1);
+        while (index >= 0) {
+            values.add(headers[index].getValue());
+            index = indexOf(name, index + 1);
+        }
+        return values;
+    }
+
+    /**
+     * Copies the headers into a new map of all the values of each header,
+     * whose names are looked up ignoring case
+     *
+     * @return a new, modifiable {@link Map} of the header values
+     */
+    public Map<String, List<String>> toMultiValueMap() {
+        Map<String, List<String>> multiValueMap = new TreeMap<String, List<String>>(
+                String.CASE_INSENSITIVE_ORDER);
+        for (Header header : headers) {
+            List<String> values = multiValueMap.get(header.getName());
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                multiValueMap.put(header.getName(), values);
+            }
+            values.add(header.getValue());
+        }
+        return multiValueMap;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return getEntries().iterator();
+            }
+
+            @Override
+            public int size() {
+                return getEntries().size();
+            }
+        };
+    }
+
+    /**
+     * Gets the entries of the first value of each header name, building them
+     * on first use
+     *
+     * @return the unmodifiable entries
+     */
+    private List<Map.Entry<String, String>> getEntries() {
+        List<Map.Entry<String, String>> entries = this.entries;
+        if (entries == null) {
+            entries = new ArrayList<Map.Entry<String, String>>(headers.length);
+            for (int i = 0; i < headers.length; i++) {
+                if (indexOf(headers[i].getName(), 0) == i) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<String, String>(
+                            headers[i].getName(), headers[i].getValue()));
+                }
+            }
+            entries = Collections.unmodifiableList(entries);
+            this.entries = entries;
+        }
+        return entries;
+    }
+
+    /**
+     * Finds the next header with the given name, ignoring case
+     *
+     * @param name
+     *            the header name
+     * @param from
+     *            the index to search from
+     *
+     * @return the index of the header, or -1 if there is none
+     */
+    private int indexOf(Object name, int from) {
+        if (name instanceof String) {
+            for (int i = from; i < headers.length; i++) {
+                if (headers[i].getName().equalsIgnoreCase((String) name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
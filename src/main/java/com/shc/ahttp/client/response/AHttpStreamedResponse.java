@@ -0,0 +1,246 @@
+package com.shc.ahttp.client.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * A successful HTTP response whose body has not been read yet, and whose
+ * connection stays leased until the response is closed. The body is read from
+ * {@link #getContent()} at the pace of the caller, so a response of any size
+ * is never held in memory as a whole. <br/>
+ * <br/>
+ *
+ * Simple usage :
+ *
+ * <pre>
+ * try (AHttpStreamedResponse response = aHttpGetRequest.executeGetStream(url,
+ *         &quot;UTF-8&quot;, 5000, null, false)) {
+ *     read(response.getContent(), response.getEncoding());
+ * }
+ * </pre>
+ *
+ * A response closed once its body was read to the end releases its connection
+ * back to the pool, otherwise the connection is aborted, as draining the rest
+ * of a large body could take longer than opening a new connection.
+ *
+ * @author vishalk2
+ * @version $Revision: 1.0 $
+ */
+public class AHttpStreamedResponse implements Closeable {
+
+    /** The content stream of the response body, noting when it ends */
+    private final EndSensingInputStream content;
+
+    /** The charset of the response body */
+    private final String encoding;
+
+    /** The Content-Type of the response body */
+    private final String contentType;
+
+    /** The reason phrase returned from the HTTP client call */
+    private final String reasonPhrase;
+
+    /** The status code returned from the HTTP client call */
+    private final int statusCode;
+
+    /** The response headers, if they were requested */
+    private final Map<String, String> responseHeaders;
+
+    /** Releases or aborts the connection of the response */
+    private final Releaser releaser;
+
+    /** Whether the response has been closed */
+    private boolean closed;
+
+    /**
+     * Instantiates a new streamed response
+     *
+     * @param content
+     *            the content stream of the response entity, may be null if
+     *            the response has no body
+     * @param encoding
+     *            the charset of the response body
+     * @param reasonPhrase
+     *            the reason phrase returned from the HTTP client call
+     * @param statusCode
+     *            the status code returned from the HTTP client call
+     * @param responseHeaders
+     *            the response headers, may be null
+     * @param releaser
+     *            the {@link Releaser} of the connection of the response
+     */
+    public AHttpStreamedResponse(InputStream content, String encoding,
+            String reasonPhrase, int statusCode,
+            Map<String, String> responseHeaders, Releaser releaser) {
+        this(content, encoding, null, reasonPhrase, statusCode,
+                responseHeaders, releaser);
+    }
+
+    /**
+     * Instantiates a new streamed response, whose Content-Type is known
+     *
+     * @param content
+     *            the content stream of the response entity, may be null if
+     *            the response has no body
+     * @param encoding
+     *            the charset of the response body
+     * @param contentType
+     *            the Content-Type of the response body, may be null
+     * @param reasonPhrase
+     *            the reason phrase returned from the HTTP client call
+     * @param statusCode
+     *            the status code returned from the HTTP client call
+     * @param responseHeaders
+     *            the response headers, may be null
+     * @param releaser
+     *            the {@link Releaser} of the connection of the response
+     */
+    public AHttpStreamedResponse(InputStream content, String encoding,
+            String contentType, String reasonPhrase, int statusCode,
+            Map<String, String> responseHeaders, Releaser releaser) {
+        this.content = new EndSensingInputStream(
+                content != null ? content : new ByteArrayInputStream(
+                        new byte[0]));
+        this.encoding = encoding;
+        this.contentType = contentType;
+        this.reasonPhrase = reasonPhrase;
+        this.statusCode = statusCode;
+        this.responseHeaders = responseHeaders;
+        this.releaser = releaser;
+    }
+
+    /**
+     * Gets the content stream of the response body, which must not be used
+     * once the response is closed.
+     *
+     * @return the content stream
+     */
+    public InputStream getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the charset declared by the response, or the expected encoding of
+     * response if it declares none.
+     *
+     * @return the encoding of the content
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the Content-Type of the response body.
+     *
+     * @return the Content-Type, or null if the response declared none
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the reason phrase.
+     *
+     * @return the reason phrase
+     */
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    /**
+     * Gets the status code.
+     *
+     * @return the status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gets the response headers.
+     *
+     * @return the response headers, or null if they were not requested
+     */
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    /**
+     * Gets the response headers as an {@link AHttpResponseHeaders} view,
+     * which keeps every value of a repeated header
+     *
+     * @return the response headers, or null if they were not requested
+     */
+    public AHttpResponseHeaders getHeaderView() {
+        return AHttpResponseHeaders.of(responseHeaders);
+    }
+
+    /**
+     * Closes the response, releasing its connection back to the pool if the
+     * body was read to the end and aborting it otherwise. Closing an already
+     * closed response has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        releaser.release(!content.ended);
+    }
+
+    /**
+     * Releases the connection of a streamed response once it is closed.
+     *
+     * @author vishalk2
+     * @version $Revision: 1.0 $
+     */
+    public interface Releaser {
+
+        /**
+         * Releases the connection of the response
+         *
+         * @param abort
+         *            true if the body was not read to the end, in which case
+         *            the connection should be aborted instead of drained
+         */
+        void release(boolean abort);
+    }
+
+    /**
+     * Notes when the end of the wrapped stream has been read
+     */
+    private static class EndSensingInputStream extends FilterInputStream {
+
+        /** Whether the wrapped stream has returned its end */
+        private volatile boolean ended;
+
+        EndSensingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read == -1) {
+                ended = true;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                ended = true;
+            }
+            return read;
+        }
+    }
+}
@@ -57,4 +57,85 @@ public class AHttpClientConstants {
      */
     public static final boolean DEFAULT_INCLUDE_HTTP_RESPONSE_HEADERS = false;
 
+    /**
+     * The Constant DEFAULT_MAX_TOTAL_CONNECTIONS for specifying the default
+     * maximum number of pooled connections across all routes
+     */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+
+    /**
+     * The Constant DEFAULT_MAX_CONNECTIONS_PER_ROUTE for specifying the
+     * default maximum number of pooled connections to a single route
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    /**
+     * The Constant DEFAULT_IDLE_CONNECTION_TIMEOUT for specifying the time in
+     * milliseconds after which an idle pooled connection is evicted
+     */
+    public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+
+    /**
+     * The Constant DEFAULT_VALIDATE_AFTER_INACTIVITY for specifying the time
+     * in milliseconds of inactivity after which a pooled connection is
+     * re-validated before being leased
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+
+    /**
+     * The Constant DEFAULT_BUFFER_SIZE for specifying the size in bytes of the
+     * pooled buffers a response body of unknown length is read into
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The Constant DEFAULT_MAX_POOLED_BUFFER_SIZE for specifying the size in
+     * bytes of the largest response body buffer kept for reuse
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The Constant DEFAULT_MAX_POOLED_BUFFERS for specifying the maximum
+     * number of response body buffers kept for reuse
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+
+    /**
+     * The Constant DEFAULT_MAX_ERROR_BODY_SIZE for specifying the size in
+     * bytes past which the body of an error response is truncated
+     */
+    public static final long DEFAULT_MAX_ERROR_BODY_SIZE = 1024 * 1024;
+
+    /**
+     * The Constant DEFAULT_CALL_EXECUTOR_THREADS for specifying the maximum
+     * number of platform threads running the calls of a call executor before
+     * Java 21
+     */
+    public static final int DEFAULT_CALL_EXECUTOR_THREADS = 256;
+
+    /**
+     * The Constant DEFAULT_OAUTH2_REFRESH_BEFORE_EXPIRY for specifying how
+     * long in milliseconds before it expires an OAuth2 token is refreshed
+     */
+    public static final long DEFAULT_OAUTH2_REFRESH_BEFORE_EXPIRY = 60000;
+
+    /**
+     * The Constant DEFAULT_OAUTH2_REFRESH_RETRY_DELAY for specifying the delay
+     * in milliseconds before a failed refresh of a still valid OAuth2 token is
+     * retried
+     */
+    public static final long DEFAULT_OAUTH2_REFRESH_RETRY_DELAY = 5000;
+
+    /**
+     * The Constant DEFAULT_OAUTH2_TOKEN_LIFETIME for specifying the lifetime
+     * in milliseconds of an OAuth2 token whose response has no expires_in
+     */
+    public static final long DEFAULT_OAUTH2_TOKEN_LIFETIME = 300000;
+
+    /**
+     * The Constant DEFAULT_OAUTH2_TOKEN_WAIT_TIMEOUT for specifying how long
+     * in milliseconds a request without a valid OAuth2 token waits for one
+     */
+    public static final long DEFAULT_OAUTH2_TOKEN_WAIT_TIMEOUT = 60000;
+
 }
@@ -0,0 +1,467 @@
+package com.shc.ahttp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import org.apache.http.client.NonRepeatableRequestException;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.messageconverter.NdjsonMessageConverter;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>SClientTest</code> contains tests for the class
+ * {@link <code>SClient</code>} against a local HTTP server, which echoes the
+ * posted body back and returns the <code>X-Client</code> request header
+ * received on a get.
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class SClientTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private SClient sClient;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        readBody(exchange.getRequestBody()), null);
+            }
+        });
+        server.addHandler("/header", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String client = exchange.getRequestHeaders().getFirst(
+                        "X-Client");
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"referenceID\":\"" + client + "\"}", null);
+            }
+        });
+        server.addHandler("/framing", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String body = readBody(exchange.getRequestBody());
+                String framing = exchange.getRequestHeaders().containsKey(
+                        "Content-Length") ? "length" : exchange
+                        .getRequestHeaders().getFirst("Transfer-Encoding");
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"referenceID\":\"" + framing + "\",\"bodID\":\""
+                                + body.length() + "\"}", null);
+            }
+        });
+        server.start();
+        sClient = SClient.builder().baseUrl(server.url(""))
+                .header("X-Client", "shared").build();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * A single {@link SClient} should be usable by many threads at once, each
+     * passing its own request object per call.
+     * 
+     * @throws Exception
+     */
+    public void testConcurrentPostsOnSharedClient() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<SClientResponse<HttpBinPostRequest>>> futures = new ArrayList<Future<SClientResponse<HttpBinPostRequest>>>();
+        for (int i = 0; i < 64; i++) {
+            final HttpBinPostRequest request = new HttpBinPostRequest("ref"
+                    + i, String.valueOf(i), "US");
+            futures.add(executor
+                    .submit(new Callable<SClientResponse<HttpBinPostRequest>>() {
+                        @Override
+                        public SClientResponse<HttpBinPostRequest> call()
+                                throws SClientException {
+                            return sClient.post("/echo", request,
+                                    HttpBinPostRequest.class);
+                        }
+                    }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            SClientResponse<HttpBinPostRequest> response = futures.get(i).get();
+            assertEquals(200, response.getStatusCode());
+            assertEquals("ref" + i, response.getResponse().getReferenceID());
+            assertEquals(String.valueOf(i), response.getResponse().getBodID());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Per call headers should override the client headers without changing
+     * them for other calls.
+     * 
+     * @throws SClientException
+     */
+    public void testPerCallHeadersOverrideClientHeaders()
+            throws SClientException {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("X-Client", "call");
+        assertEquals("call",
+                sClient.get("header", HttpBinPostRequest.class, headers)
+                        .getResponse().getReferenceID());
+        assertEquals("shared", sClient.get("/header", HttpBinPostRequest.class)
+                .getResponse().getReferenceID());
+        assertEquals("shared", sClient.getHeaders().get("X-Client"));
+    }
+
+    /**
+     * Many asynchronous posts should be in flight at once without a calling
+     * thread per request, and each future should carry its own response.
+     * 
+     * @throws Exception
+     */
+    public void testAsyncPosts() throws Exception {
+        List<CompletableFuture<SClientResponse<HttpBinPostRequest>>> futures = new ArrayList<CompletableFuture<SClientResponse<HttpBinPostRequest>>>();
+        for (int i = 0; i < 64; i++) {
+            futures.add(sClient.postAsync("/echo", new HttpBinPostRequest("ref"
+                    + i, String.valueOf(i), "US"), HttpBinPostRequest.class));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            SClientResponse<HttpBinPostRequest> response = futures.get(i).get(
+                    10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("ref" + i, response.getResponse().getReferenceID());
+        }
+    }
+
+    /**
+     * An error status should complete the future exceptionally with a
+     * {@link SClientException}, as the blocking call would throw.
+     * 
+     * @throws Exception
+     */
+    public void testAsyncGetErrorStatus() throws Exception {
+        server.addResponse("/missing", 404, "text/plain", "missing");
+        CompletableFuture<SClientResponse<HttpBinPostRequest>> future = sClient
+                .getAsync("/missing", HttpBinPostRequest.class);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SClientException);
+        }
+    }
+
+    /**
+     * By default the response body should be parsed straight from the
+     * connection without being kept as a String, and a buffering client
+     * should still expose it.
+     * 
+     * @throws SClientException
+     */
+    public void testStreamedAndBufferedResponseBody() throws SClientException {
+        StringBuilder referenceID = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            referenceID.append((char) ('a' + i % 26));
+        }
+        HttpBinPostRequest request = new HttpBinPostRequest(
+                referenceID.toString(), "1", "US");
+
+        SClientResponse<HttpBinPostRequest> streamed = sClient.post("/echo",
+                request, HttpBinPostRequest.class);
+        assertTrue(streamed.isBodyPresent());
+        assertNull(streamed.getResponseBody());
+        assertEquals(referenceID.toString(), streamed.getResponse()
+                .getReferenceID());
+
+        SClientResponse<HttpBinPostRequest> buffered = sClient.toBuilder()
+                .bufferResponseBody(true).build()
+                .post("/echo", request, HttpBinPostRequest.class);
+        assertNotNull(buffered.getResponseBody());
+        assertEquals(referenceID.toString(), buffered.getResponse()
+                .getReferenceID());
+    }
+
+    /**
+     * An empty response body should not be handed to the message converter.
+     * 
+     * @throws SClientException
+     */
+    public void testStreamedEmptyResponseBody() throws SClientException {
+        server.addResponse("/empty", 200, "application/json", null);
+        SClientResponse<HttpBinPostRequest> response = sClient.get("/empty",
+                HttpBinPostRequest.class);
+        assertEquals(200, response.getStatusCode());
+        assertFalse(response.isBodyPresent());
+        assertNull(response.getResponse());
+    }
+
+    /**
+     * By default the request object should be written straight to the
+     * connection using chunked transfer encoding, and a buffering client
+     * should send it with a Content-Length.
+     * 
+     * @throws SClientException
+     */
+    public void testStreamedAndBufferedRequestBody() throws SClientException {
+        HttpBinPostRequest request = new HttpBinPostRequest("ref", "1", "US");
+        String expectedLength = String.valueOf(sClient.getMessageConverter()
+                .getMessageFrom(request).length());
+
+        HttpBinPostRequest streamed = sClient.post("/framing", request,
+                HttpBinPostRequest.class).getResponse();
+        assertEquals("chunked", streamed.getReferenceID());
+        assertEquals(expectedLength, streamed.getBodID());
+
+        HttpBinPostRequest buffered = sClient.toBuilder()
+                .bufferRequestBody(true).build()
+                .post("/framing", request, HttpBinPostRequest.class)
+                .getResponse();
+        assertEquals("length", buffered.getReferenceID());
+        assertEquals(expectedLength, buffered.getBodID());
+    }
+
+    /**
+     * The elements of a large array should be streamed, releasing the
+     * connection once read to the end or aborting it if closed early, and an
+     * error status should be thrown before streaming.
+     * 
+     * @throws Exception
+     */
+    public void testGetStream() throws Exception {
+        server.addHandler("/array", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type",
+                        "application/json");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write('[');
+                    for (int i = 0; i < 50000; i++) {
+                        out.write(((i > 0 ? "," : "") + "{\"referenceID\":\""
+                                + i + "\"}").getBytes("UTF-8"));
+                    }
+                    out.write(']');
+                }
+            }
+        });
+        server.addResponse("/missing", 404, "application/json", "{}");
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setMaxConnectionsPerRoute(1);
+        AHttpClientPool pool = AHttpClientPool.create(config);
+        try {
+            // a connection left leased would time out the next lease
+            SClient streamingClient = sClient.toBuilder().clientPool(pool)
+                    .connectTimeout(5000).build();
+            try (Stream<HttpBinPostRequest> elements = streamingClient
+                    .getStream("/array", HttpBinPostRequest.class)) {
+                assertEquals(50000, elements.count());
+            }
+            try (Stream<HttpBinPostRequest> elements = streamingClient
+                    .getStream("/array", HttpBinPostRequest.class)) {
+                assertEquals("0", elements.findFirst().get().getReferenceID());
+            }
+            try {
+                streamingClient.getStream("/missing", HttpBinPostRequest.class);
+                fail("Expected a 404 to fail the get");
+            } catch (SClientException expected) {
+            }
+            SGetClient<HttpBinPostRequest> sGetClient = new SGetClient<HttpBinPostRequest>(
+                    server.url("/array"), HttpBinPostRequest.class);
+            try (Stream<HttpBinPostRequest> elements = sGetClient
+                    .getStream(HttpBinPostRequest.class)) {
+                assertEquals("49999",
+                        elements.reduce((first, second) -> second).get()
+                                .getReferenceID());
+            }
+            assertEquals("shared", streamingClient
+                    .get("/header", HttpBinPostRequest.class).getResponse()
+                    .getReferenceID());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The {@link SGetClient} and {@link SPostClient} should reuse their
+     * client between calls, yet follow their setters and the changes made to
+     * their header map in place.
+     * 
+     * @throws SClientException
+     */
+    public void testLegacyClientsFollowConfigurationChanges()
+            throws SClientException {
+        server.addHandler("/auth", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                readBody(exchange.getRequestBody());
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"referenceID\":\""
+                                + exchange.getRequestHeaders().getFirst(
+                                        "Authorization") + "\",\"bodID\":\""
+                                + exchange.getRequestHeaders().getFirst(
+                                        "X-Client") + "\"}", null);
+            }
+        });
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("X-Client", "legacy");
+        SGetClient<HttpBinPostRequest> sGetClient = new SGetClient<HttpBinPostRequest>(
+                server.url("/auth"), HttpBinPostRequest.class, "user",
+                "password", "UTF-8", headers);
+        SPostClient<HttpBinPostRequest, HttpBinPostRequest> sPostClient = new SPostClient<HttpBinPostRequest, HttpBinPostRequest>(
+                server.url("/auth"), new HttpBinPostRequest("a", "1", "US"),
+                HttpBinPostRequest.class, "user", "password", "UTF-8", headers);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("legacy", sGetClient.getRequest().getResponse()
+                    .getBodID());
+            assertEquals("legacy", sPostClient.postRequest().getResponse()
+                    .getBodID());
+        }
+        String authorization = sGetClient.getRequest().getResponse()
+                .getReferenceID();
+
+        headers.put("X-Client", "changed");
+        assertEquals("changed", sGetClient.getRequest().getResponse()
+                .getBodID());
+        assertEquals("changed", sPostClient.postRequest().getResponse()
+                .getBodID());
+
+        sGetClient.setPassword("rotated");
+        sPostClient.setPassword("rotated");
+        String rotated = sGetClient.getRequest().getResponse()
+                .getReferenceID();
+        assertFalse(authorization.equals(rotated));
+        assertEquals(rotated, sPostClient.postRequest().getResponse()
+                .getReferenceID());
+    }
+
+    /**
+     * A streamed post should not be retried, as the request objects of its
+     * iterator can only be written once, even by a client retrying requests
+     * which have been sent.
+     * 
+     * @throws Exception
+     */
+    public void testPostStreamIsNotRetried() throws Exception {
+        final AtomicInteger requestCount = new AtomicInteger();
+        server.addHandler("/drop", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                readBody(exchange.getRequestBody());
+                // closes the connection without a response
+                exchange.close();
+            }
+        });
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        AHttpClientPool retryingPool = new AHttpClientPool(config) {
+            @Override
+            protected HttpClientBuilder createHttpClientBuilder(
+                    AHttpClientPoolConfig config) {
+                return super.createHttpClientBuilder(config).setRetryHandler(
+                        new DefaultHttpRequestRetryHandler(3, true));
+            }
+        };
+        try {
+            List<HttpBinPostRequest> requests = new ArrayList<HttpBinPostRequest>();
+            for (int i = 0; i < 10; i++) {
+                requests.add(new HttpBinPostRequest("ref" + i, "1", "US"));
+            }
+            try {
+                sClient.toBuilder().clientPool(retryingPool).build()
+                        .postStream("/drop", requests.iterator(),
+                                HttpBinPostRequest[].class);
+                fail("Expected the dropped connection to fail the post");
+            } catch (SClientException expected) {
+                boolean notRepeatable = false;
+                for (Throwable cause = expected; cause != null; cause = cause
+                        .getCause()) {
+                    notRepeatable |= cause instanceof NonRepeatableRequestException;
+                }
+                assertTrue(notRepeatable);
+            }
+            assertEquals(1, requestCount.get());
+        } finally {
+            retryingPool.shutdown();
+        }
+    }
+
+    /**
+     * The request objects of an iterator should be streamed as one chunked
+     * message, a JSON array by default and one line per object with the
+     * NDJSON converter.
+     * 
+     * @throws SClientException
+     */
+    public void testPostStream() throws SClientException {
+        List<HttpBinPostRequest> requests = new ArrayList<HttpBinPostRequest>();
+        for (int i = 0; i < 1000; i++) {
+            requests.add(new HttpBinPostRequest("ref" + i, "1", "US"));
+        }
+        HttpBinPostRequest[] echoed = sClient.postStream("/echo",
+                requests.iterator(), HttpBinPostRequest[].class).getResponse();
+        assertEquals(1000, echoed.length);
+        assertEquals("ref999", echoed[999].getReferenceID());
+
+        SClient ndjsonClient = sClient.toBuilder()
+                .messageConverter(new NdjsonMessageConverter())
+                .bufferRequestBody(true).build();
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", NdjsonMessageConverter.CONTENT_TYPE);
+        HttpBinPostRequest framing = ndjsonClient.postStream("/framing",
+                requests.iterator(), HttpBinPostRequest.class, headers)
+                .getResponse();
+        assertEquals("chunked", framing.getReferenceID());
+        int expectedLength = 0;
+        for (HttpBinPostRequest request : requests) {
+            expectedLength += ndjsonClient.getMessageConverter()
+                    .getMessageFrom(request).length() + 1;
+        }
+        assertEquals(String.valueOf(expectedLength), framing.getBodID());
+
+        SPostClient<HttpBinPostRequest, HttpBinPostRequest[]> sPostClient = new SPostClient<HttpBinPostRequest, HttpBinPostRequest[]>(
+                server.url("/echo"), null, HttpBinPostRequest[].class);
+        assertEquals(1000, sPostClient.postStream(requests.iterator())
+                .getResponse().length);
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,367 @@
+package com.shc.ahttp.client.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpBodyLimits;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpOAuth2TokenProviderTest</code> contains tests for the
+ * class {@link <code>AHttpOAuth2TokenProvider</code>} authenticating the
+ * requests of an {@link AHttpGetRequest}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpOAuth2TokenProviderTest extends TestCase {
+
+    private static final String CLIENT_AUTHORIZATION = "Basic "
+            + Base64.getEncoder().encodeToString(
+                    "client:s%3Acret".getBytes(StandardCharsets.US_ASCII));
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    private AHttpGetRequest aHttpGetRequest;
+
+    /** Handles the requests to the api while a token response is held */
+    private ExecutorService serverExecutor;
+
+    /** The number of token requests received */
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    /** Holds the token responses back until opened */
+    private volatile CountDownLatch tokenGate = new CountDownLatch(0);
+
+    private volatile int expiresIn = 3600;
+
+    private volatile int tokenStatus = 200;
+
+    private volatile String tokenRequestBody;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addHandler("/token", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int count = tokenRequests.incrementAndGet();
+                try (InputStream in = exchange.getRequestBody()) {
+                    tokenRequestBody = new String(in.readAllBytes(),
+                            StandardCharsets.UTF_8);
+                }
+                try {
+                    tokenGate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!CLIENT_AUTHORIZATION.equals(exchange.getRequestHeaders()
+                        .getFirst("Authorization"))) {
+                    LocalHttpServer.respond(exchange, 401, null, (String) null,
+                            null);
+                    return;
+                }
+                LocalHttpServer.respond(exchange, tokenStatus,
+                        "application/json", "{\"access_token\":\"token-"
+                                + count + "\",\"token_type\":\"Bearer\","
+                                + "\"expires_in\":" + expiresIn + "}", null);
+            }
+        });
+        server.addHandler("/api", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200, "text/plain", exchange
+                        .getRequestHeaders().getFirst("Authorization"), null);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        pool = AHttpClientPool.create(config);
+        aHttpGetRequest = new AHttpGetRequest(pool);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        tokenGate.countDown();
+        pool.shutdown();
+        server.stop();
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * The token should be requested once with the client credentials, then
+     * sent with every request.
+     *
+     * @throws Exception
+     */
+    public void testTokenCachedAndSent() throws Exception {
+        AHttpOAuth2TokenProvider tokenProvider = provider(1000);
+        aHttpGetRequest.setAuthProvider(tokenProvider);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Bearer token-1", get());
+        }
+        assertEquals(1, tokenRequests.get());
+        assertEquals(1, tokenProvider.getRefreshCount());
+        assertEquals("grant_type=client_credentials&scope=orders%3Aread+orders%3Awrite",
+                tokenRequestBody);
+
+        // basic auth credentials take precedence over the provider
+        assertTrue(aHttpGetRequest.executeGet(server.url("/api"), "user",
+                "password").getResponseBody().startsWith("Basic "));
+    }
+
+    /**
+     * Concurrent requests without a token should all wait for the same
+     * single token request.
+     *
+     * @throws Exception
+     */
+    public void testSingleFlightFirstToken() throws Exception {
+        aHttpGetRequest.setAuthProvider(provider(1000));
+        tokenGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<Future<String>>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return get();
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            tokenGate.countDown();
+            for (Future<String> response : responses) {
+                assertEquals("Bearer token-1", response.get(10,
+                        TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, tokenRequests.get());
+    }
+
+    /**
+     * A token due for refresh should go on being sent while a single refresh
+     * is in flight, without the requests waiting for it.
+     *
+     * @throws Exception
+     */
+    public void testProactiveRefreshDoesNotBlock() throws Exception {
+        // every token is due for refresh as soon as it is received
+        expiresIn = 60;
+        AHttpOAuth2TokenProvider tokenProvider = provider(60000);
+        aHttpGetRequest.setAuthProvider(tokenProvider);
+        assertEquals("Bearer token-1", get());
+
+        tokenGate = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Bearer token-1", get());
+        }
+        assertEquals(2, tokenProvider.getRefreshCount());
+        tokenGate.countDown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        String authorization = get();
+        while (!"Bearer token-2".equals(authorization)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            authorization = get();
+        }
+        assertEquals("Bearer token-2", authorization);
+    }
+
+    /**
+     * A failed refresh of a valid token should keep the token, and a failed
+     * request for a missing token should fail the request.
+     *
+     * @throws Exception
+     */
+    public void testRefreshFailure() throws Exception {
+        expiresIn = 60;
+        AHttpOAuth2TokenProvider tokenProvider = provider(60000);
+        aHttpGetRequest.setAuthProvider(tokenProvider);
+        assertEquals("Bearer token-1", get());
+
+        tokenStatus = 500;
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Bearer token-1", get());
+            Thread.sleep(20);
+        }
+        // the failed refresh is retried later rather than by every request
+        assertEquals(2, tokenProvider.getRefreshCount());
+
+        tokenProvider.invalidate();
+        try {
+            get();
+            fail("Expected the request to fail without a token");
+        } catch (AHttpClientCallException expected) {
+            assertEquals(500, expected.getStatusCode());
+        }
+        tokenStatus = 200;
+        assertEquals("Bearer token-4", get());
+    }
+
+    /**
+     * The provider should be carried by the {@link SClient} and its builder,
+     * and a provider should not build without a token url or credentials.
+     *
+     * @throws Exception
+     */
+    public void testConfiguration() throws Exception {
+        AHttpOAuth2TokenProvider tokenProvider = provider(1000);
+        SClient sClient = SClient.builder().clientPool(pool)
+                .authProvider(tokenProvider).build();
+        assertSame(tokenProvider, sClient.getAuthProvider());
+        assertSame(tokenProvider, sClient.toBuilder().build()
+                .getAuthProvider());
+        try {
+            AHttpOAuth2TokenProvider.builder().clientCredentials("client",
+                    "secret").build();
+            fail("Expected a provider without a token url to fail");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            AHttpOAuth2TokenProvider.builder().tokenUrl(server.url("/token"))
+                    .build();
+            fail("Expected a provider without credentials to fail");
+        } catch (IllegalArgumentException expected) {
+        }
+        for (String tokenUrl : new String[] { "auth.example.com/token",
+                "ftp://auth.example.com/token", "http://auth example.com/",
+                "https:///token" }) {
+            try {
+                AHttpOAuth2TokenProvider.builder().tokenUrl(tokenUrl)
+                        .clientCredentials("client", "secret").build();
+                fail("Expected the token url " + tokenUrl + " to fail");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    /**
+     * A token request throwing before it is sent should fail the waiting
+     * requests rather than leave them waiting for a refresh which never
+     * completes.
+     *
+     * @throws Exception
+     */
+    public void testTokenRequestFailingSynchronously() throws Exception {
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        AHttpClientPool failingPool = new AHttpClientPool(config) {
+
+            @Override
+            public AHttpBodyLimits getBodyLimits() {
+                throw new IllegalStateException("No body limits");
+            }
+        };
+        final AHttpOAuth2TokenProvider tokenProvider = AHttpOAuth2TokenProvider
+                .builder().tokenUrl(server.url("/token"))
+                .clientCredentials("client", "s:cret").clientPool(failingPool)
+                .build();
+        aHttpGetRequest.setAuthProvider(tokenProvider);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Future<String> response = executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return get();
+                    }
+                });
+                try {
+                    response.get(10, TimeUnit.SECONDS);
+                    fail("Expected the request to fail without a token");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof AHttpClientCallException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            failingPool.shutdown();
+        }
+        assertEquals(2, tokenProvider.getRefreshCount());
+        assertEquals(0, tokenRequests.get());
+    }
+
+    /**
+     * A request should not wait longer than the token wait timeout for a
+     * token endpoint which does not answer.
+     *
+     * @throws Exception
+     */
+    public void testTokenWaitTimeout() throws Exception {
+        aHttpGetRequest.setAuthProvider(AHttpOAuth2TokenProvider.builder()
+                .tokenUrl(server.url("/token"))
+                .clientCredentials("client", "s:cret").tokenWaitTimeout(200)
+                .clientPool(pool).build());
+        tokenGate = new CountDownLatch(1);
+        long start = System.nanoTime();
+        try {
+            get();
+            fail("Expected the request to time out waiting for a token");
+        } catch (AHttpClientCallException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        tokenGate.countDown();
+        // the token request in flight still completes and is then used
+        long deadline = System.currentTimeMillis() + 10000;
+        String authorization = null;
+        while (authorization == null && System.currentTimeMillis() < deadline) {
+            try {
+                authorization = get();
+            } catch (AHttpClientCallException e) {
+                Thread.sleep(20);
+            }
+        }
+        assertEquals("Bearer token-1", authorization);
+    }
+
+    private AHttpOAuth2TokenProvider provider(long refreshBeforeExpiry) {
+        return AHttpOAuth2TokenProvider.builder()
+                .tokenUrl(server.url("/token"))
+                .clientCredentials("client", "s:cret")
+                .scope("orders:read orders:write")
+                .refreshBeforeExpiry(refreshBeforeExpiry).clientPool(pool)
+                .build();
+    }
+
+    private String get() throws AHttpClientCallException {
+        return aHttpGetRequest.executeGet(server.url("/api"))
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,255 @@
+package com.shc.ahttp.client.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>SRequestCoalescerTest</code> contains tests for the class
+ * {@link <code>SRequestCoalescer</code>} used through {@link SClient}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class SRequestCoalescerTest extends TestCase {
+
+    private static final int CALLERS = 8;
+
+    private LocalHttpServer server;
+
+    private AtomicInteger requestCount;
+
+    private CountDownLatch release;
+
+    private SRequestCoalescer requestCoalescer;
+
+    private SClient sClient;
+
+    private ExecutorService executor;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        requestCount = new AtomicInteger();
+        release = new CountDownLatch(1);
+        server = new LocalHttpServer();
+        addBlockingResponse("/get", 200);
+        addBlockingResponse("/error", 503);
+        server.start();
+
+        requestCoalescer = new SRequestCoalescer();
+        sClient = SClient.builder().baseUrl(server.url(""))
+                .requestCoalescer(requestCoalescer).build();
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        release.countDown();
+        executor.shutdownNow();
+        server.stop();
+    }
+
+    /**
+     * Replies with the given status code once the test releases the latch,
+     * so that the request stays in flight until all callers are waiting.
+     */
+    private void addBlockingResponse(final String path, final int statusCode) {
+        server.addHandler(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                LocalHttpServer.respond(exchange, statusCode,
+                        "application/json", "{\"url\":\"" + path + "\"}", null);
+            }
+        });
+    }
+
+    private List<Future<SClientResponse<HttpBinGetResponse>>> getConcurrently(
+            final String path) throws InterruptedException {
+        List<Future<SClientResponse<HttpBinGetResponse>>> futures = new ArrayList<Future<SClientResponse<HttpBinGetResponse>>>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor
+                    .submit(new Callable<SClientResponse<HttpBinGetResponse>>() {
+                        @Override
+                        public SClientResponse<HttpBinGetResponse> call()
+                                throws SClientException {
+                            return sClient.get(path, HttpBinGetResponse.class);
+                        }
+                    }));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requestCoalescer.getCoalescedCount() < CALLERS - 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        return futures;
+    }
+
+    /**
+     * Identical concurrent gets should be answered by a single request, with
+     * every caller receiving the same response.
+     * 
+     * @throws Exception
+     */
+    public void testIdenticalConcurrentGetsAreCoalesced() throws Exception {
+        List<Future<SClientResponse<HttpBinGetResponse>>> futures = getConcurrently("/get");
+        SClientResponse<HttpBinGetResponse> first = futures.get(0).get(10,
+                TimeUnit.SECONDS);
+        assertEquals("/get", first.getResponse().getUrl());
+        for (Future<SClientResponse<HttpBinGetResponse>> future : futures) {
+            assertSame(first, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, requestCount.get());
+        assertEquals(1, requestCoalescer.getExecutedCount());
+        assertEquals(CALLERS - 1, requestCoalescer.getCoalescedCount());
+        assertEquals(0, requestCoalescer.getInFlightCount());
+
+        // once completed, nothing is kept and the next get is sent again
+        sClient.get("/get", HttpBinGetResponse.class);
+        assertEquals(2, requestCount.get());
+    }
+
+    /**
+     * The failure of the coalesced request should be thrown to every caller.
+     * 
+     * @throws Exception
+     */
+    public void testFailureIsSharedWithWaitingCallers() throws Exception {
+        List<Future<SClientResponse<HttpBinGetResponse>>> futures = getConcurrently("/error");
+        for (Future<SClientResponse<HttpBinGetResponse>> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Expected the 503 to fail every caller");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof SClientException);
+            }
+        }
+        assertEquals(1, requestCount.get());
+    }
+
+    /**
+     * Gets differing in their headers should not be coalesced.
+     * 
+     * @throws SClientException
+     */
+    public void testDifferentHeadersAreNotCoalesced() throws SClientException {
+        release.countDown();
+        sClient.get("/get", HttpBinGetResponse.class);
+        sClient.get("/get", HttpBinGetResponse.class,
+                Collections.singletonMap("Accept-Language", "fr"));
+        assertEquals(2, requestCount.get());
+        assertEquals(0, requestCoalescer.getCoalescedCount());
+    }
+
+    /**
+     * Concurrent gets of clients authenticated by different providers should
+     * not be coalesced, so that no client is answered with the response to
+     * the credentials of another.
+     * 
+     * @throws Exception
+     */
+    public void testDifferentAuthProvidersAreNotCoalesced() throws Exception {
+        List<Future<SClientResponse<HttpBinGetResponse>>> futures = new ArrayList<Future<SClientResponse<HttpBinGetResponse>>>();
+        for (final String token : new String[] { "alice", "bob" }) {
+            final SClient tokenClient = sClient.toBuilder().authProvider(
+                    httpRequest -> httpRequest.addHeader("Authorization",
+                            "Bearer " + token)).build();
+            futures.add(executor
+                    .submit(new Callable<SClientResponse<HttpBinGetResponse>>() {
+                        @Override
+                        public SClientResponse<HttpBinGetResponse> call()
+                                throws SClientException {
+                            return tokenClient.get("/get",
+                                    HttpBinGetResponse.class);
+                        }
+                    }));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requestCount.get() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // the server takes one request at a time, so the second get is
+        // either queued behind the first or, if coalesced, waiting for it
+        Thread.sleep(200);
+        assertEquals(0, requestCoalescer.getCoalescedCount());
+        release.countDown();
+        for (Future<SClientResponse<HttpBinGetResponse>> future : futures) {
+            assertEquals("/get", future.get(10, TimeUnit.SECONDS)
+                    .getResponse().getUrl());
+        }
+        assertEquals(2, requestCount.get());
+        assertEquals(0, requestCoalescer.getCoalescedCount());
+    }
+
+    /**
+     * An error thrown while sending the coalesced request should be thrown to
+     * the waiting callers too, rather than leaving them blocked.
+     * 
+     * @throws Exception
+     */
+    public void testErrorIsSharedWithWaitingCallers() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final SRequestCoalescer.Call<HttpBinGetResponse> failingCall = () -> {
+            sending.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("boom");
+        };
+        List<Future<SClientResponse<HttpBinGetResponse>>> futures = new ArrayList<Future<SClientResponse<HttpBinGetResponse>>>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(executor.submit(() -> requestCoalescer.execute("GET",
+                    server.url("/get"), null, null, null, null,
+                    HttpBinGetResponse.class, failingCall)));
+            assertTrue(sending.await(10, TimeUnit.SECONDS));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (requestCoalescer.getCoalescedCount() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for (Future<SClientResponse<HttpBinGetResponse>> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Expected the error to fail every caller");
+            } catch (ExecutionException expected) {
+                assertEquals("boom", expected.getCause().getMessage());
+            }
+        }
+        assertEquals(1, requestCoalescer.getExecutedCount());
+        assertEquals(1, requestCoalescer.getCoalescedCount());
+        assertEquals(0, requestCoalescer.getInFlightCount());
+    }
+}
@@ -0,0 +1,246 @@
+package com.shc.ahttp.client.cache;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.SGetClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>SResponseCacheTest</code> contains tests for the class
+ * {@link <code>SResponseCache</code>} used through {@link SClient} and
+ * {@link SGetClient}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class SResponseCacheTest extends TestCase {
+
+    private static final String ETAG = "\"v1\"";
+
+    private LocalHttpServer server;
+
+    private AtomicInteger requestCount;
+
+    private AtomicInteger conditionalRequestCount;
+
+    private SResponseCache responseCache;
+
+    private SClient sClient;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        requestCount = new AtomicInteger();
+        conditionalRequestCount = new AtomicInteger();
+        server = new LocalHttpServer();
+        addCountingResponse("/fresh", "max-age=60");
+        addCountingResponse("/revalidate", "no-cache");
+        addCountingResponse("/nostore", "no-store");
+        addCountingResponse("/other", "max-age=60");
+        server.addHandler("/private", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Cache-Control",
+                        "max-age=60");
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"url\":\""
+                                + exchange.getRequestHeaders().getFirst(
+                                        "Authorization") + "\"}", null);
+            }
+        });
+        server.start();
+
+        responseCache = new SResponseCache();
+        sClient = SClient.builder().baseUrl(server.url(""))
+                .responseCache(responseCache).build();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * Serves a body with the given Cache-Control and an ETag, replying with
+     * a 304 to a request sending the ETag in If-None-Match.
+     */
+    private void addCountingResponse(final String path,
+            final String cacheControl) {
+        server.addHandler(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Cache-Control",
+                        cacheControl);
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst(
+                        "If-None-Match"))) {
+                    conditionalRequestCount.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"url\":\"" + path + "\"}", null);
+            }
+        });
+    }
+
+    /**
+     * A fresh response should be served from the cache, as the same parsed
+     * object, without sending a request.
+     * 
+     * @throws SClientException
+     */
+    public void testFreshResponseIsServedWithoutRequest()
+            throws SClientException {
+        SClientResponse<HttpBinGetResponse> first = sClient.get("/fresh",
+                HttpBinGetResponse.class);
+        SClientResponse<HttpBinGetResponse> second = sClient.get("/fresh",
+                HttpBinGetResponse.class);
+        assertEquals("/fresh", second.getResponse().getUrl());
+        assertSame(first.getResponse(), second.getResponse());
+        assertEquals(1, requestCount.get());
+        assertEquals(1, responseCache.getHitCount());
+        assertEquals(1, responseCache.getMissCount());
+    }
+
+    /**
+     * A response which must be revalidated should be requested again with
+     * If-None-Match, and the cached object returned on the 304.
+     * 
+     * @throws SClientException
+     */
+    public void testStaleResponseIsRevalidated() throws SClientException {
+        SClientResponse<HttpBinGetResponse> first = sClient.get("/revalidate",
+                HttpBinGetResponse.class);
+        SClientResponse<HttpBinGetResponse> second = sClient.get(
+                "/revalidate", HttpBinGetResponse.class);
+        assertEquals(200, second.getStatusCode());
+        assertSame(first.getResponse(), second.getResponse());
+        assertEquals(2, requestCount.get());
+        assertEquals(1, conditionalRequestCount.get());
+        assertEquals(1, responseCache.getRevalidationCount());
+        assertEquals(0, responseCache.getHitCount());
+    }
+
+    /**
+     * A response marked no-store should never be cached.
+     * 
+     * @throws SClientException
+     */
+    public void testNoStoreResponseIsNotCached() throws SClientException {
+        sClient.get("/nostore", HttpBinGetResponse.class);
+        sClient.get("/nostore", HttpBinGetResponse.class);
+        assertEquals(2, requestCount.get());
+        assertEquals(0, conditionalRequestCount.get());
+        assertEquals(0, responseCache.size());
+    }
+
+    /**
+     * Different request headers, a bounded size and a zero time to live
+     * should each keep a response from being served from the cache.
+     * 
+     * @throws SClientException
+     */
+    public void testKeysAndEviction() throws SClientException {
+        sClient.get("/fresh", HttpBinGetResponse.class);
+        sClient.get("/fresh", HttpBinGetResponse.class,
+                Collections.singletonMap("Accept-Language", "fr"));
+        assertEquals(2, requestCount.get());
+        assertEquals(2, responseCache.size());
+
+        SClient boundedClient = sClient.toBuilder()
+                .responseCache(new SResponseCache(1, 60000)).build();
+        boundedClient.get("/fresh", HttpBinGetResponse.class);
+        boundedClient.get("/other", HttpBinGetResponse.class);
+        boundedClient.get("/fresh", HttpBinGetResponse.class);
+        assertEquals(5, requestCount.get());
+        assertEquals(1, boundedClient.getResponseCache().size());
+
+        SClient expiringClient = sClient.toBuilder()
+                .responseCache(new SResponseCache(10, -1)).build();
+        expiringClient.get("/fresh", HttpBinGetResponse.class);
+        expiringClient.get("/fresh", HttpBinGetResponse.class);
+        assertEquals(7, requestCount.get());
+    }
+
+    /**
+     * Clients of different users sharing a cache should each be served the
+     * response received with their own credentials.
+     * 
+     * @throws SClientException
+     */
+    public void testResponsesAreKeptApartPerUser() throws SClientException {
+        SClient alice = sClient.toBuilder().basicAuth("alice", "secret")
+                .build();
+        SClient bob = sClient.toBuilder().basicAuth("bob", "secret").build();
+        String aliceUrl = alice.get("/private", HttpBinGetResponse.class)
+                .getResponse().getUrl();
+        String bobUrl = bob.get("/private", HttpBinGetResponse.class)
+                .getResponse().getUrl();
+        assertFalse(aliceUrl.equals(bobUrl));
+        assertEquals("null", sClient.get("/private", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertEquals(3, requestCount.get());
+
+        assertEquals(aliceUrl, alice.get("/private", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertEquals(bobUrl, bob.get("/private", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertEquals(3, requestCount.get());
+        assertEquals(3, responseCache.size());
+    }
+
+    /**
+     * Clients authenticated by different providers sharing a cache should
+     * each be served the response received with their own token.
+     * 
+     * @throws SClientException
+     */
+    public void testResponsesAreKeptApartPerAuthProvider()
+            throws SClientException {
+        SClient alice = sClient.toBuilder().authProvider(
+                httpRequest -> httpRequest.addHeader("Authorization",
+                        "Bearer alice")).build();
+        SClient bob = sClient.toBuilder().authProvider(
+                httpRequest -> httpRequest.addHeader("Authorization",
+                        "Bearer bob")).build();
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Bearer alice", alice.get("/private",
+                    HttpBinGetResponse.class).getResponse().getUrl());
+            assertEquals("Bearer bob", bob.get("/private",
+                    HttpBinGetResponse.class).getResponse().getUrl());
+        }
+        assertEquals(2, requestCount.get());
+        assertEquals(2, responseCache.size());
+    }
+
+    /**
+     * An {@link SGetClient} with a cache should reuse the cached response
+     * across calls.
+     * 
+     * @throws SClientException
+     */
+    public void testSGetClientUsesCache() throws SClientException {
+        SGetClient<HttpBinGetResponse> sGetClient = new SGetClient<HttpBinGetResponse>(
+                server.url("/fresh"), HttpBinGetResponse.class);
+        sGetClient.setResponseCache(responseCache);
+        sGetClient.getRequest();
+        assertEquals("/fresh", sGetClient.getRequest().getResponse().getUrl());
+        assertEquals(1, requestCount.get());
+    }
+}
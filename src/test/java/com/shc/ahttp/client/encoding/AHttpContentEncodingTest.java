@@ -0,0 +1,225 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import com.github.luben.zstd.Zstd;
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpContentEncodingTest</code> contains tests for the class
+ * {@link <code>AHttpContentEncoding</code>} used through the pool of an
+ * {@link SClient}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpContentEncodingTest extends TestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String BODY = "{\"url\":\"/encoded\"}";
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    private AtomicReference<String> acceptEncoding;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        acceptEncoding = new AtomicReference<String>();
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        if (pool != null) {
+            pool.shutdown();
+        }
+        server.stop();
+    }
+
+    /**
+     * Serves the given bytes with the given Content-Encoding and remembers the
+     * Accept-Encoding header of the request.
+     */
+    private void addEncodedResponse(String path, final String contentEncoding,
+            final byte[] body) {
+        server.addHandler(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst(
+                        "Accept-Encoding"));
+                Map<String, String> headers = new HashMap<String, String>();
+                headers.put("Content-Encoding", contentEncoding);
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        body, headers);
+            }
+        });
+    }
+
+    private SClient createClient(AHttpClientPoolConfig config)
+            throws SClientException {
+        config.setRegisterShutdownHook(false);
+        pool = AHttpClientPool.create(config);
+        return SClient.builder().baseUrl(server.url("")).clientPool(pool)
+                .build();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        gzipOut.write(data);
+        gzipOut.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Wraps the data in a single uncompressed brotli meta-block, as no brotli
+     * encoder is available to the tests.
+     */
+    private static byte[] brotliStored(byte[] data) {
+        // WBITS=16, ISLAST=0, MNIBBLES=4, MLEN-1, ISUNCOMPRESSED=1
+        long header = ((long) (data.length - 1) & 0xFFFF) << 4 | 1L << 20;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write((int) (header & 0xFF));
+        out.write((int) (header >> 8 & 0xFF));
+        out.write((int) (header >> 16 & 0xFF));
+        out.write(data, 0, data.length);
+        // ISLAST=1, ISLASTEMPTY=1
+        out.write(0x03);
+        return out.toByteArray();
+    }
+
+    /**
+     * By default every available encoding should be accepted in order of
+     * preference, and unknown encodings should be rejected.
+     */
+    public void testNegotiatedEncodings() {
+        assertTrue(AHttpContentEncoding.isAvailable(AHttpContentEncoding.GZIP));
+        assertTrue(AHttpContentEncoding.isAvailable(AHttpContentEncoding.BROTLI));
+        assertTrue(AHttpContentEncoding.isAvailable(AHttpContentEncoding.ZSTD));
+        assertEquals(AHttpContentEncoding.DEFAULT_ENCODINGS,
+                new AHttpContentEncoding(
+                        AHttpContentEncoding.DEFAULT_ENCODINGS, null)
+                        .getEncodings());
+        try {
+            new AHttpContentEncoding(Arrays.asList("compress"), null);
+            fail("Expected an unsupported encoding to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * gzip, brotli and zstd bodies should be decoded as they are parsed, with
+     * every encoding advertised in the Accept-Encoding header.
+     *
+     * @throws Exception
+     */
+    public void testDecodesResponseBodies() throws Exception {
+        byte[] body = BODY.getBytes(UTF_8);
+        addEncodedResponse("/gzip", "gzip", gzip(body));
+        addEncodedResponse("/br", "br", brotliStored(body));
+        addEncodedResponse("/zstd", "zstd", Zstd.compress(body));
+        SClient sClient = createClient(new AHttpClientPoolConfig());
+
+        for (String path : Arrays.asList("/gzip", "/br", "/zstd")) {
+            SClientResponse<HttpBinGetResponse> response = sClient.get(path,
+                    HttpBinGetResponse.class);
+            assertEquals(path, "/encoded", response.getResponse().getUrl());
+        }
+        assertEquals("zstd,br,gzip,deflate", acceptEncoding.get());
+
+        SClientResponse<HttpBinGetResponse> buffered = sClient.toBuilder()
+                .bufferResponseBody(true).build()
+                .get("/gzip", HttpBinGetResponse.class);
+        assertEquals(BODY, buffered.getResponseBody());
+    }
+
+    /**
+     * A zstd body compressed against a dictionary should be decoded with the
+     * dictionary of the pool.
+     *
+     * @throws Exception
+     */
+    public void testZstdDictionary() throws Exception {
+        byte[] dictionary = "{\"url\":\"/encoded\",\"args\":{}}"
+                .getBytes(UTF_8);
+        byte[] body = BODY.getBytes(UTF_8);
+        addEncodedResponse("/zstd", "zstd",
+                Zstd.compressUsingDict(body, dictionary, 3));
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setContentEncodings(Arrays.asList(AHttpContentEncoding.ZSTD));
+        config.setZstdDictionary(dictionary);
+        SClient sClient = createClient(config);
+
+        assertEquals("/encoded", sClient.get("/zstd", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertEquals("zstd", acceptEncoding.get());
+    }
+
+    /**
+     * Asynchronous responses should be decoded before they are parsed.
+     *
+     * @throws Exception
+     */
+    public void testDecodesAsyncResponseBodies() throws Exception {
+        addEncodedResponse("/gzip", "gzip", gzip(BODY.getBytes(UTF_8)));
+        SClient sClient = createClient(new AHttpClientPoolConfig());
+
+        SClientResponse<HttpBinGetResponse> response = sClient
+                .getAsync("/gzip", HttpBinGetResponse.class)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("/encoded", response.getResponse().getUrl());
+        assertEquals("zstd,br,gzip,deflate", acceptEncoding.get());
+    }
+
+    /**
+     * With no encodings configured no Accept-Encoding header should be sent,
+     * and an unexpectedly encoded body should be left alone.
+     *
+     * @throws SClientException
+     */
+    public void testDisabledEncodings() throws SClientException {
+        server.addHandler("/plain", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst(
+                        "Accept-Encoding"));
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        BODY, null);
+            }
+        });
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setContentEncodings(Collections.<String> emptyList());
+        SClient sClient = createClient(config);
+
+        assertEquals("/encoded", sClient.get("/plain", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertNull(acceptEncoding.get());
+    }
+}
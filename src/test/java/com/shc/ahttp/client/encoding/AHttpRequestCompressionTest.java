@@ -0,0 +1,302 @@
+package com.shc.ahttp.client.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.entity.InputStreamEntity;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.SPostClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpRequestCompressionTest</code> contains tests for the
+ * class {@link <code>AHttpRequestCompression</code>} used through
+ * {@link SClient} against a local HTTP server, which decodes the posted body
+ * according to its Content-Encoding and echoes it back.
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpRequestCompressionTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    private AtomicReference<String> contentEncoding;
+
+    private AtomicReference<Integer> receivedLength;
+
+    private HttpBinPostRequest largeRequest;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        contentEncoding = new AtomicReference<String>();
+        receivedLength = new AtomicReference<Integer>();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String encoding = exchange.getRequestHeaders().getFirst(
+                        "Content-Encoding");
+                contentEncoding.set(encoding);
+                byte[] received = readBytes(exchange.getRequestBody());
+                receivedLength.set(received.length);
+                InputStream body = new ByteArrayInputStream(received);
+                if ("gzip".equals(encoding)) {
+                    body = new GZIPInputStream(body);
+                } else if ("zstd".equals(encoding)) {
+                    body = new ZstdInputStream(body);
+                }
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        readBytes(body), null);
+            }
+        });
+        server.start();
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        pool = AHttpClientPool.create(config);
+
+        StringBuilder referenceID = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            referenceID.append((char) ('a' + i % 26));
+        }
+        largeRequest = new HttpBinPostRequest(referenceID.toString(), "1", "US");
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+        server.stop();
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private SClient createClient(String encoding) throws SClientException {
+        return SClient.builder().baseUrl(server.url("")).clientPool(pool)
+                .requestCompression(new AHttpRequestCompression(encoding))
+                .build();
+    }
+
+    /**
+     * A body above the minimum size should be sent compressed with each
+     * encoding, whether it is buffered or streamed from the converter.
+     *
+     * @throws Exception
+     */
+    public void testCompressesLargeBodies() throws Exception {
+        for (String encoding : new String[] { AHttpContentEncoding.GZIP,
+                AHttpContentEncoding.ZSTD }) {
+            SClient sClient = createClient(encoding);
+            for (boolean bufferRequestBody : new boolean[] { true, false }) {
+                SClientResponse<HttpBinPostRequest> response = sClient
+                        .toBuilder().bufferRequestBody(bufferRequestBody)
+                        .build()
+                        .post("/echo", largeRequest, HttpBinPostRequest.class);
+                assertEquals(largeRequest.getReferenceID(), response
+                        .getResponse().getReferenceID());
+                assertEquals(encoding, contentEncoding.get());
+                assertTrue(receivedLength.get() < largeRequest
+                        .getReferenceID().length() / 10);
+            }
+        }
+    }
+
+    /**
+     * A body below the minimum size should be sent as is, whether its length
+     * is known or it is streamed from the converter.
+     *
+     * @throws SClientException
+     */
+    public void testSmallBodiesAreNotCompressed() throws SClientException {
+        HttpBinPostRequest request = new HttpBinPostRequest("SASL", "1", "US");
+        for (boolean bufferRequestBody : new boolean[] { true, false }) {
+            SClient sClient = createClient(AHttpContentEncoding.GZIP)
+                    .toBuilder().bufferRequestBody(bufferRequestBody).build();
+            assertEquals("SASL", sClient.post("/echo", request,
+                    HttpBinPostRequest.class).getResponse().getReferenceID());
+            assertNull(contentEncoding.get());
+        }
+    }
+
+    /**
+     * A one-shot stream of unknown length should be buffered up to the
+     * minimum size, and sent whole whether it is compressed or not.
+     *
+     * @throws Exception
+     */
+    public void testUnknownLengthStreamIsBufferedUpToMinimumSize()
+            throws Exception {
+        AHttpRequestCompression requestCompression = new AHttpRequestCompression(
+                AHttpContentEncoding.GZIP, 1024);
+        byte[] small = new byte[1023];
+        HttpEntity smallEntity = requestCompression
+                .compress(new InputStreamEntity(new ByteArrayInputStream(small),
+                        ContentType.APPLICATION_JSON));
+        assertNull(smallEntity.getContentEncoding());
+        assertEquals(1023, smallEntity.getContentLength());
+        assertEquals(ContentType.APPLICATION_JSON.toString(), smallEntity
+                .getContentType().getValue());
+
+        byte[] large = largeRequest.getReferenceID().getBytes("US-ASCII");
+        HttpEntity largeEntity = requestCompression
+                .compress(new InputStreamEntity(new ByteArrayInputStream(large),
+                        ContentType.APPLICATION_JSON));
+        assertEquals("gzip", largeEntity.getContentEncoding().getValue());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        largeEntity.writeTo(out);
+        assertTrue(Arrays.equals(large, readBytes(new GZIPInputStream(
+                new ByteArrayInputStream(out.toByteArray())))));
+    }
+
+    /**
+     * A repeatable entity of unknown length should be written only once,
+     * whether it ends below the minimum size or is compressed.
+     *
+     * @throws Exception
+     */
+    public void testUnknownLengthEntityIsWrittenOnce() throws Exception {
+        AHttpRequestCompression requestCompression = new AHttpRequestCompression(
+                AHttpContentEncoding.GZIP, 1024);
+        byte[] large = largeRequest.getReferenceID().getBytes("US-ASCII");
+        for (byte[] content : new byte[][] { new byte[1023], large }) {
+            AtomicInteger writeCount = new AtomicInteger();
+            HttpEntity entity = requestCompression.compress(new EntityTemplate(
+                    out -> {
+                        writeCount.incrementAndGet();
+                        // written in small pieces across the minimum size
+                        for (int i = 0; i < content.length; i += 100) {
+                            out.write(content, i,
+                                    Math.min(100, content.length - i));
+                        }
+                    }));
+            assertEquals(1, writeCount.get());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            entity.writeTo(out);
+            assertEquals(1, writeCount.get());
+            byte[] sent = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+            if (content == large) {
+                assertEquals("gzip", entity.getContentEncoding().getValue());
+                sent = readBytes(new GZIPInputStream(new ByteArrayInputStream(
+                        sent)));
+            } else {
+                assertNull(entity.getContentEncoding());
+            }
+            assertTrue(Arrays.equals(content, sent));
+        }
+    }
+
+    /**
+     * The one-shot producer of a streamed post should be compressed without
+     * being asked to write the request objects twice.
+     *
+     * @throws SClientException
+     */
+    public void testStreamedPostIsCompressed() throws SClientException {
+        List<HttpBinPostRequest> requests = new ArrayList<HttpBinPostRequest>();
+        for (int i = 0; i < 1000; i++) {
+            requests.add(new HttpBinPostRequest("ref" + i, "1", "US"));
+        }
+        SClient sClient = SClient
+                .builder()
+                .baseUrl(server.url(""))
+                .clientPool(pool)
+                .requestCompression(
+                        new AHttpRequestCompression(AHttpContentEncoding.GZIP,
+                                1024)).build();
+        HttpBinPostRequest[] echoed = sClient.postStream("/echo",
+                requests.iterator(), HttpBinPostRequest[].class).getResponse();
+        assertEquals(1000, echoed.length);
+        assertEquals("ref999", echoed[999].getReferenceID());
+        assertEquals("gzip", contentEncoding.get());
+    }
+
+    /**
+     * A body sent with an explicit Content-Encoding header is already encoded
+     * by the caller and should not be compressed again.
+     *
+     * @throws SClientException
+     */
+    public void testExplicitContentEncodingIsKept() throws SClientException {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Encoding", "identity");
+        SClient sClient = createClient(AHttpContentEncoding.GZIP);
+        assertEquals(largeRequest.getReferenceID(), sClient.post("/echo",
+                largeRequest, HttpBinPostRequest.class, headers).getResponse()
+                .getReferenceID());
+        assertEquals("identity", contentEncoding.get());
+    }
+
+    /**
+     * The asynchronous post and the {@link SPostClient} should compress the
+     * body as well.
+     *
+     * @throws Exception
+     */
+    public void testAsyncAndSimplePostClient() throws Exception {
+        SClient sClient = createClient(AHttpContentEncoding.ZSTD);
+        assertEquals(largeRequest.getReferenceID(), sClient
+                .postAsync("/echo", largeRequest, HttpBinPostRequest.class)
+                .get(10, TimeUnit.SECONDS).getResponse().getReferenceID());
+        assertEquals("zstd", contentEncoding.get());
+
+        contentEncoding.set(null);
+        SPostClient<HttpBinPostRequest, HttpBinPostRequest> sPostClient = new SPostClient<HttpBinPostRequest, HttpBinPostRequest>(
+                server.url("/echo"), largeRequest, HttpBinPostRequest.class);
+        sPostClient.setRequestCompression(new AHttpRequestCompression(
+                AHttpContentEncoding.GZIP));
+        assertEquals(largeRequest.getReferenceID(), sPostClient
+                .postRequest().getResponse().getReferenceID());
+        assertEquals("gzip", contentEncoding.get());
+    }
+
+    /**
+     * Encodings other than gzip and zstd should be rejected.
+     */
+    public void testUnsupportedEncoding() {
+        try {
+            new AHttpRequestCompression(AHttpContentEncoding.BROTLI);
+            fail("Expected brotli to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
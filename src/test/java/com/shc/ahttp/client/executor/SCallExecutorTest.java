@@ -0,0 +1,205 @@
+package com.shc.ahttp.client.executor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>SCallExecutorTest</code> contains tests for the class
+ * {@link <code>SCallExecutor</code>} used through {@link SClient}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class SCallExecutorTest extends TestCase {
+
+    private static final int CALLERS = 6;
+
+    private static final int MAX_CALLS_PER_ROUTE = 2;
+
+    private LocalHttpServer server;
+
+    private AtomicInteger requestCount;
+
+    private CountDownLatch release;
+
+    private SCallExecutor callExecutor;
+
+    private SClient sClient;
+
+    private HttpHost route;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        requestCount = new AtomicInteger();
+        release = new CountDownLatch(1);
+        server = new LocalHttpServer();
+        server.addHandler("/get", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"url\":\"/get\"}", null);
+            }
+        });
+        server.addResponse("/error", 503, "application/json",
+                "{\"error\":\"unavailable\"}");
+        server.start();
+
+        callExecutor = new SCallExecutor(MAX_CALLS_PER_ROUTE);
+        sClient = SClient.builder().baseUrl(server.url(""))
+                .callExecutor(callExecutor).build();
+        route = URIUtils.extractHost(URI.create(server.url("/")));
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        release.countDown();
+        callExecutor.shutdown();
+        server.stop();
+    }
+
+    /**
+     * No more than the maximum number of calls should be in flight to a
+     * route, the others waiting for a permit until a call completes.
+     *
+     * @throws Exception
+     */
+    public void testCallsPerRouteAreBounded() throws Exception {
+        List<CompletableFuture<SClientResponse<HttpBinGetResponse>>> futures = new ArrayList<CompletableFuture<SClientResponse<HttpBinGetResponse>>>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(sClient.getAsync("/get", HttpBinGetResponse.class));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (callExecutor.getQueueLength(route) < CALLERS
+                - MAX_CALLS_PER_ROUTE
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(MAX_CALLS_PER_ROUTE, callExecutor.getActiveCount(route));
+        assertEquals(CALLERS - MAX_CALLS_PER_ROUTE,
+                callExecutor.getQueueLength(route));
+        assertTrue(requestCount.get() <= MAX_CALLS_PER_ROUTE);
+
+        release.countDown();
+        for (CompletableFuture<SClientResponse<HttpBinGetResponse>> future : futures) {
+            assertEquals("/get", future.get(10, TimeUnit.SECONDS)
+                    .getResponse().getUrl());
+        }
+        assertEquals(CALLERS, requestCount.get());
+        assertEquals(0, callExecutor.getActiveCount(route));
+        assertEquals(0, callExecutor.getQueueLength(route));
+        // the permits of the idle route are dropped
+        assertEquals(0, callExecutor.getRouteCount());
+    }
+
+    /**
+     * A failed asynchronous call should complete its future with the
+     * {@link SClientException} of the call, and release its permit.
+     *
+     * @throws Exception
+     */
+    public void testFailedCallCompletesExceptionally() throws Exception {
+        try {
+            sClient.getAsync("/error", HttpBinGetResponse.class).get(10,
+                    TimeUnit.SECONDS);
+            fail("Expected a 503 to fail the call");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof SClientException);
+        }
+        assertEquals(0, callExecutor.getActiveCount(route));
+
+        try {
+            sClient.get("/error", HttpBinGetResponse.class);
+            fail("Expected a 503 to fail the call");
+        } catch (SClientException expected) {
+            assertEquals(0, callExecutor.getActiveCount(route));
+        }
+    }
+
+    /**
+     * A call run with {@link SCallExecutor#execute(String, SCallExecutor.Call)}
+     * should stay on the calling thread, and the permits of its route be
+     * dropped once it completes.
+     *
+     * @throws Exception
+     */
+    public void testExecuteRunsOnCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        assertSame(caller, callExecutor.execute(server.url("/get"), () -> {
+            assertEquals(1, callExecutor.getActiveCount(route));
+            return Thread.currentThread();
+        }));
+        assertEquals(0, callExecutor.getRouteCount());
+    }
+
+    /**
+     * Virtual threads should be used only when the runtime has them, and
+     * never with a custom executor.
+     */
+    public void testVirtualThreadsDependOnRuntime() {
+        assertEquals(Runtime.version().feature() >= 21,
+                callExecutor.isVirtualThreads());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            SCallExecutor custom = new SCallExecutor(1, executorService);
+            assertFalse(custom.isVirtualThreads());
+            assertEquals(1, custom.getMaxConcurrentCallsPerRoute());
+        } finally {
+            executorService.shutdown();
+        }
+
+        try {
+            new SCallExecutor(0);
+            fail("Expected a non positive bound to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * A submitted call should be rejected with a {@link SClientException}
+     * once the executor is shut down.
+     *
+     * @throws Exception
+     */
+    public void testRejectedCallCompletesExceptionally() throws Exception {
+        callExecutor.shutdown();
+        try {
+            sClient.getAsync("/get", HttpBinGetResponse.class).get(10,
+                    TimeUnit.SECONDS);
+            fail("Expected the shut down executor to reject the call");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof SClientException);
+        }
+    }
+}
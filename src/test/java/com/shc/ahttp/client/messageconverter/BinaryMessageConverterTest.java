@@ -0,0 +1,209 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>BinaryMessageConverterTest</code> contains tests for the
+ * class {@link <code>JacksonBinaryMessageConverter</code>} and its Smile,
+ * CBOR and MessagePack subclasses, on their own and through {@link SClient}
+ * against a local HTTP server echoing the posted body in its content type
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class BinaryMessageConverterTest extends TestCase {
+
+    private static final List<JacksonBinaryMessageConverter> CONVERTERS = Arrays
+            .<JacksonBinaryMessageConverter> asList(
+                    new SmileMessageConverter(), new CborMessageConverter(),
+                    new MessagePackMessageConverter());
+
+    private LocalHttpServer server;
+
+    private volatile List<String> contentTypes;
+
+    private volatile String accept;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                contentTypes = exchange.getRequestHeaders().get(
+                        "Content-Type");
+                accept = exchange.getRequestHeaders().getFirst("Accept");
+                LocalHttpServer.respond(exchange, 200, contentTypes.get(0),
+                        readBytes(exchange.getRequestBody()), null);
+            }
+        });
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * An object should be written in the binary format and read back, the
+     * bytes not being JSON.
+     *
+     * @throws SClientException
+     */
+    public void testWriteAndRead() throws SClientException {
+        HttpBinPostRequest request = new HttpBinPostRequest("ref", "1", "US");
+        for (JacksonBinaryMessageConverter converter : CONVERTERS) {
+            assertTrue(converter.isBinary());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            converter.writeMessageTo(request, out, "UTF-8");
+            byte[] message = out.toByteArray();
+            assertTrue(message.length > 0);
+            assertFalse(converter.getContentType(), message[0] == '{');
+
+            // the encoding does not apply to binary messages
+            HttpBinPostRequest read = converter.getObjectFromMessage(
+                    new ByteArrayInputStream(message), "ISO-8859-1",
+                    HttpBinPostRequest.class);
+            assertEquals("ref", read.getReferenceID());
+            assertEquals("1", read.getBodID());
+            assertEquals("US", read.getCountry());
+        }
+    }
+
+    /**
+     * A sequence of objects should be written as an array and read back one
+     * element at a time, an empty sequence reading back as no elements.
+     *
+     * @throws SClientException
+     */
+    public void testWriteAndReadSequence() throws SClientException {
+        List<HttpBinPostRequest> requests = Arrays.asList(
+                new HttpBinPostRequest("a", "1", "US"),
+                new HttpBinPostRequest("b", "2", "IN"));
+        for (JacksonBinaryMessageConverter converter : CONVERTERS) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            converter.writeMessagesTo(requests.iterator(), out, "UTF-8");
+            try (Stream<HttpBinPostRequest> elements = converter
+                    .getObjectsFromMessage(
+                            new ByteArrayInputStream(out.toByteArray()),
+                            null, HttpBinPostRequest.class)) {
+                assertEquals(Arrays.asList("a", "b"), elements.map(
+                        HttpBinPostRequest::getReferenceID).collect(
+                        Collectors.toList()));
+            }
+
+            out = new ByteArrayOutputStream();
+            converter.writeMessagesTo(
+                    Collections.<HttpBinPostRequest> emptyIterator(), out,
+                    null);
+            try (Stream<HttpBinPostRequest> elements = converter
+                    .getObjectsFromMessage(
+                            new ByteArrayInputStream(out.toByteArray()),
+                            null, HttpBinPostRequest.class)) {
+                assertEquals(0, elements.count());
+            }
+        }
+    }
+
+    /**
+     * A binary message has no String form.
+     */
+    public void testStringMessagesAreNotSupported() {
+        for (JacksonBinaryMessageConverter converter : CONVERTERS) {
+            try {
+                converter.getMessageFrom(new HttpBinPostRequest());
+                fail("Expected a binary message not to be written to a String");
+            } catch (SClientException expected) {
+            }
+            try {
+                converter.getObjectFromMessage("{}", HttpBinPostRequest.class);
+                fail("Expected a binary message not to be read from a String");
+            } catch (SClientException expected) {
+            }
+        }
+    }
+
+    /**
+     * The client should send the media type of its converter as the
+     * Content-Type and Accept headers, and stream the binary bodies even
+     * when asked to buffer them.
+     *
+     * @throws Exception
+     */
+    public void testClientNegotiatesContentType() throws Exception {
+        for (JacksonBinaryMessageConverter converter : CONVERTERS) {
+            SClient sClient = SClient.builder().baseUrl(server.url(""))
+                    .messageConverter(converter).bufferRequestBody(true)
+                    .bufferResponseBody(true).build();
+            assertFalse(sClient.isBufferRequestBody());
+            assertFalse(sClient.isBufferResponseBody());
+
+            SClientResponse<HttpBinPostRequest> response = sClient.post(
+                    "/echo", new HttpBinPostRequest("sync", "1", "US"),
+                    HttpBinPostRequest.class);
+            assertEquals("sync", response.getResponse().getReferenceID());
+            assertEquals(Collections.singletonList(converter
+                    .getContentType()), contentTypes);
+            assertEquals(converter.getContentType(), accept);
+
+            response = sClient.postAsync("/echo",
+                    new HttpBinPostRequest("async", "2", "IN"),
+                    HttpBinPostRequest.class).get(10, TimeUnit.SECONDS);
+            assertEquals("async", response.getResponse().getReferenceID());
+            assertEquals(converter.getContentType(), accept);
+        }
+    }
+
+    /**
+     * A header of the call should replace the negotiated one whatever its
+     * case, rather than being sent alongside it.
+     *
+     * @throws SClientException
+     */
+    public void testCallHeadersOverrideNegotiatedHeaders()
+            throws SClientException {
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .messageConverter(new SmileMessageConverter())
+                .header("accept", "*/*").build();
+        sClient.post("/echo", new HttpBinPostRequest("ref", "1", "US"),
+                HttpBinPostRequest.class, Collections.singletonMap(
+                        "content-type", "application/x-jackson-smile; v=1"));
+        assertEquals(
+                Collections.singletonList("application/x-jackson-smile; v=1"),
+                contentTypes);
+        assertEquals("*/*", accept);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,194 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+
+/**
+ * The class <code>JacksonMessageConverterTest</code> contains tests for the
+ * class {@link <code>JacksonMessageConverter</code>}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class JacksonMessageConverterTest extends TestCase {
+
+    private JacksonMessageConverter converter;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        converter = new JacksonMessageConverter();
+    }
+
+    /**
+     * The reader and writer of a class should be resolved once and reused.
+     * 
+     * @throws SClientException
+     */
+    public void testReadersAndWritersAreCached() throws SClientException {
+        HttpBinPostRequest request = new HttpBinPostRequest("ref", "1", "US");
+        String message = converter.getMessageFrom(request);
+        HttpBinPostRequest parsed = converter.getObjectFromMessage(message,
+                HttpBinPostRequest.class);
+        assertEquals("ref", parsed.getReferenceID());
+
+        assertSame(converter.getReader(HttpBinPostRequest.class),
+                converter.getReader(HttpBinPostRequest.class));
+        assertSame(converter.getWriter(request),
+                converter.getWriter(new HttpBinPostRequest()));
+    }
+
+    /**
+     * Streams in an encoding other than UTF-8 should be written and read
+     * through that encoding.
+     * 
+     * @throws Exception
+     */
+    public void testStreamRoundTripInOtherEncoding() throws Exception {
+        HttpBinPostRequest request = new HttpBinPostRequest("café", "1",
+                "US");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.writeMessageTo(request, out, "ISO-8859-1");
+        assertTrue(out.toString("ISO-8859-1").contains("café"));
+
+        HttpBinPostRequest parsed = converter.getObjectFromMessage(
+                new ByteArrayInputStream(out.toByteArray()), "ISO-8859-1",
+                HttpBinPostRequest.class);
+        assertEquals("café", parsed.getReferenceID());
+    }
+
+    /**
+     * The elements of an array should be parsed one at a time, reading the
+     * stream only as far as the elements consumed.
+     * 
+     * @throws Exception
+     */
+    public void testArrayElementsAreParsedLazily() throws Exception {
+        ArrayInputStream message = new ArrayInputStream(100000);
+        try (Stream<HttpBinPostRequest> elements = converter
+                .getObjectsFromMessage(message, "UTF-8",
+                        HttpBinPostRequest.class)) {
+            Iterator<HttpBinPostRequest> iterator = elements.iterator();
+            assertEquals("0", iterator.next().getReferenceID());
+            assertEquals("1", iterator.next().getReferenceID());
+            // only the first 8 KB buffer of the parser has been read
+            assertTrue(message.generated < 1000);
+
+            int count = 2;
+            while (iterator.hasNext()) {
+                assertEquals(String.valueOf(count), iterator.next()
+                        .getReferenceID());
+                count++;
+            }
+            assertEquals(100000, count);
+        }
+        assertFalse(message.closed);
+    }
+
+    /**
+     * A root value which is not an array should be the only element, and a
+     * malformed element should be thrown while streaming.
+     * 
+     * @throws SClientException
+     */
+    public void testSingleValueAndMalformedElement() throws SClientException {
+        try (Stream<HttpBinPostRequest> elements = converter
+                .getObjectsFromMessage(new ByteArrayInputStream(
+                        "{\"referenceID\":\"ref\"}".getBytes()), null,
+                        HttpBinPostRequest.class)) {
+            assertEquals(1, elements.count());
+        }
+        try (Stream<HttpBinPostRequest> elements = converter
+                .getObjectsFromMessage(new ByteArrayInputStream(
+                        "[{\"referenceID\":\"ref\"},{\"referenceID\":"
+                                .getBytes()), null, HttpBinPostRequest.class)) {
+            elements.count();
+            fail("Expected the truncated element to fail");
+        } catch (UncheckedIOException expected) {
+            assertNotNull(expected.getCause());
+        }
+    }
+
+    /**
+     * The default implementation should parse the whole message as an array.
+     * 
+     * @throws SClientException
+     */
+    public void testDefaultObjectsFromMessage() throws SClientException {
+        MessageConverter stringConverter = new MessageConverter() {
+            @Override
+            public <T> String getMessageFrom(T message)
+                    throws SClientException {
+                return converter.getMessageFrom(message);
+            }
+
+            @Override
+            public <T> T getObjectFromMessage(String message,
+                    Class<T> messageObjectClass) throws SClientException {
+                return converter.getObjectFromMessage(message,
+                        messageObjectClass);
+            }
+        };
+        try (Stream<HttpBinPostRequest> elements = stringConverter
+                .getObjectsFromMessage(new ArrayInputStream(3), "UTF-8",
+                        HttpBinPostRequest.class)) {
+            assertEquals(Arrays.asList("0", "1", "2"), elements
+                    .map(HttpBinPostRequest::getReferenceID)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Generates a JSON array of the given number of elements as it is read
+     */
+    private static class ArrayInputStream extends InputStream {
+
+        private final int size;
+
+        private int generated;
+
+        private byte[] chunk = "[".getBytes();
+
+        private int position;
+
+        private boolean closed;
+
+        ArrayInputStream(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == chunk.length) {
+                if (generated > size) {
+                    return -1;
+                }
+                chunk = (generated == size ? "]" : (generated > 0 ? "," : "")
+                        + "{\"referenceID\":\"" + generated + "\"}")
+                        .getBytes();
+                position = 0;
+                generated++;
+            }
+            return chunk[position++];
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>JsonBackendMessageConverterTest</code> contains tests for
+ * the accelerated JSON converters {@link <code>AfterburnerMessageConverter</code>}
+ * and {@link <code>DslJsonMessageConverter</code>}, which should read and
+ * write the same JSON as the {@link JacksonMessageConverter}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class JsonBackendMessageConverterTest extends TestCase {
+
+    private static final List<MessageConverter> CONVERTERS = Arrays
+            .<MessageConverter> asList(new AfterburnerMessageConverter(),
+                    new DslJsonMessageConverter());
+
+    private LocalHttpServer server;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        readBytes(exchange.getRequestBody()), null);
+            }
+        });
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * The JSON written by each converter should be read by Jackson and the
+     * other way round, through Strings and streams in any encoding.
+     *
+     * @throws Exception
+     */
+    public void testInteroperableWithJackson() throws Exception {
+        JacksonMessageConverter jackson = new JacksonMessageConverter();
+        HttpBinPostRequest request = new HttpBinPostRequest("réf", "1",
+                "US");
+        for (MessageConverter converter : CONVERTERS) {
+            String name = converter.getClass().getSimpleName();
+            assertEquals(name, "réf", jackson.getObjectFromMessage(
+                    converter.getMessageFrom(request),
+                    HttpBinPostRequest.class).getReferenceID());
+            assertEquals(name, "réf", converter.getObjectFromMessage(
+                    jackson.getMessageFrom(request),
+                    HttpBinPostRequest.class).getReferenceID());
+
+            for (String encoding : Arrays.asList("UTF-8", "ISO-8859-1")) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                converter.writeMessageTo(request, out, encoding);
+                assertEquals(name, "réf", jackson.getObjectFromMessage(
+                        new ByteArrayInputStream(out.toByteArray()),
+                        encoding, HttpBinPostRequest.class).getReferenceID());
+                HttpBinPostRequest read = converter.getObjectFromMessage(
+                        new ByteArrayInputStream(out.toByteArray()),
+                        encoding, HttpBinPostRequest.class);
+                assertEquals(name, "réf", read.getReferenceID());
+                assertEquals(name, "US", read.getCountry());
+            }
+        }
+    }
+
+    /**
+     * A sequence should be written as a JSON array and read back one element
+     * at a time.
+     *
+     * @throws SClientException
+     */
+    public void testWriteAndReadSequence() throws SClientException {
+        List<HttpBinPostRequest> requests = Arrays.asList(
+                new HttpBinPostRequest("a", "1", "US"),
+                new HttpBinPostRequest("b", "2", "IN"));
+        for (MessageConverter converter : CONVERTERS) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            converter.writeMessagesTo(requests.iterator(), out, "UTF-8");
+            assertTrue(new String(out.toByteArray()).startsWith("["));
+            try (Stream<HttpBinPostRequest> elements = converter
+                    .getObjectsFromMessage(
+                            new ByteArrayInputStream(out.toByteArray()),
+                            "UTF-8", HttpBinPostRequest.class)) {
+                assertEquals(Arrays.asList("a", "b"), elements.map(
+                        HttpBinPostRequest::getReferenceID).collect(
+                        Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * The DSL-JSON writers should be reused across threads, the pool never
+     * keeping more than its bound nor a writer grown by a large message.
+     *
+     * @throws Exception
+     */
+    public void testDslJsonWritersPooled() throws Exception {
+        final DslJsonMessageConverter converter = new DslJsonMessageConverter();
+        final HttpBinPostRequest request = new HttpBinPostRequest("pooled",
+                "1", "US");
+        converter.getMessageFrom(request);
+        assertEquals(1, converter.getPooledWriters());
+        converter.getMessageFrom(request);
+        assertEquals(1, converter.getPooledWriters());
+
+        ExecutorService executor = Executors
+                .newFixedThreadPool(DslJsonMessageConverter.MAX_POOLED * 2);
+        try {
+            List<Future<String>> messages = new ArrayList<Future<String>>();
+            for (int i = 0; i < DslJsonMessageConverter.MAX_POOLED * 8; i++) {
+                messages.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return converter.getMessageFrom(request);
+                    }
+                }));
+            }
+            for (Future<String> message : messages) {
+                assertTrue(message.get(10, TimeUnit.SECONDS).contains(
+                        "pooled"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(converter.getPooledWriters() <= DslJsonMessageConverter.MAX_POOLED);
+
+        DslJsonMessageConverter large = new DslJsonMessageConverter();
+        char[] reference = new char[DslJsonMessageConverter.MAX_POOLED_WRITER_SIZE];
+        Arrays.fill(reference, 'x');
+        assertTrue(large.getMessageFrom(
+                new HttpBinPostRequest(new String(reference), "1", "US"))
+                .length() > DslJsonMessageConverter.MAX_POOLED_WRITER_SIZE);
+        assertEquals(0, large.getPooledWriters());
+    }
+
+    /**
+     * Malformed JSON should fail with a {@link SClientException}.
+     */
+    public void testMalformedMessage() {
+        for (MessageConverter converter : CONVERTERS) {
+            try {
+                converter.getObjectFromMessage(new ByteArrayInputStream(
+                        "{\"referenceID\":".getBytes()), "UTF-8",
+                        HttpBinPostRequest.class);
+                fail("Expected malformed JSON to fail");
+            } catch (SClientException expected) {
+            }
+        }
+    }
+
+    /**
+     * Each converter should be selectable per client.
+     *
+     * @throws SClientException
+     */
+    public void testSelectablePerClient() throws SClientException {
+        for (MessageConverter converter : CONVERTERS) {
+            SClient sClient = SClient.builder().baseUrl(server.url(""))
+                    .messageConverter(converter).build();
+            assertSame(converter, sClient.getMessageConverter());
+            assertEquals("client", sClient.post("/echo",
+                    new HttpBinPostRequest("client", "1", "US"),
+                    HttpBinPostRequest.class).getResponse().getReferenceID());
+            assertEquals(2, sClient.postStream("/echo", Arrays.asList(
+                    new HttpBinPostRequest("a", "1", "US"),
+                    new HttpBinPostRequest("b", "2", "IN")).iterator(),
+                    HttpBinPostRequest[].class).getResponse().length);
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,173 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.google.protobuf.Struct;
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>MessageConverterRegistryTest</code> contains tests for the
+ * class {@link <code>MessageConverterRegistry</code>}, on its own and picking
+ * the converter of the responses of a {@link SClient}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class MessageConverterRegistryTest extends TestCase {
+
+    private MessageConverterRegistry registry;
+
+    private LocalHttpServer server;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        registry = MessageConverterRegistry.getDefault();
+        server = new LocalHttpServer();
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        new SmileMessageConverter().writeMessageTo(new HttpBinPostRequest(
+                "smile", "1", "US"), smile, null);
+        final byte[] smileBody = smile.toByteArray();
+        server.addHandler("/smile", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200,
+                        SmileMessageConverter.CONTENT_TYPE, smileBody, null);
+            }
+        });
+        server.addResponse("/problem", 200,
+                "application/problem+json; charset=UTF-8",
+                "{\"referenceID\":\"problem\"}");
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * The default registry should hold one shared instance of each built in
+     * converter, looked up by media type whatever its case, parameters or
+     * structured syntax suffix.
+     */
+    public void testDefaultRegistry() {
+        assertSame(registry, MessageConverterRegistry.getDefault());
+        assertTrue(registry.getDefaultConverter() instanceof JacksonMessageConverter);
+        assertSame(registry.getDefaultConverter(),
+                registry.getConverter("application/json"));
+        assertSame(registry.getDefaultConverter(),
+                registry.getConverter("Application/JSON; charset=UTF-8"));
+        assertSame(registry.getDefaultConverter(),
+                registry.getConverter("application/problem+json"));
+        assertTrue(registry.getConverter(NdjsonMessageConverter.CONTENT_TYPE) instanceof NdjsonMessageConverter);
+        assertTrue(registry.getConverter(SmileMessageConverter.CONTENT_TYPE) instanceof SmileMessageConverter);
+        assertTrue(registry.getConverter(CborMessageConverter.CONTENT_TYPE) instanceof CborMessageConverter);
+        assertTrue(registry.getConverter("application/vnd.msgpack") instanceof MessagePackMessageConverter);
+        assertTrue(registry.getConverter("application/protobuf") instanceof ProtobufMessageConverter);
+        assertNull(registry.getConverter("text/html"));
+        assertNull(registry.getConverter(null));
+    }
+
+    /**
+     * The fallback converter should be kept unless another registered
+     * converter reads the Content-Type into the requested class.
+     */
+    public void testFallback() {
+        MessageConverter fallback = new JacksonMessageConverter();
+        assertSame(fallback, registry.getConverter(null,
+                HttpBinPostRequest.class, fallback));
+        assertSame(fallback, registry.getConverter("text/plain",
+                HttpBinPostRequest.class, fallback));
+        assertSame(fallback, registry.getConverter(
+                "application/json; charset=UTF-8", HttpBinPostRequest.class,
+                fallback));
+        assertSame(fallback, registry.getConverter("application/problem+json",
+                HttpBinPostRequest.class, fallback));
+        assertSame(fallback, registry.getConverter(
+                ProtobufMessageConverter.CONTENT_TYPE,
+                HttpBinPostRequest.class, fallback));
+        assertSame(registry.getConverter(ProtobufMessageConverter.CONTENT_TYPE),
+                registry.getConverter(ProtobufMessageConverter.CONTENT_TYPE,
+                        Struct.class, fallback));
+        assertSame(registry.getConverter(CborMessageConverter.CONTENT_TYPE),
+                registry.getConverter(CborMessageConverter.CONTENT_TYPE,
+                        HttpBinPostRequest.class, fallback));
+
+        MessageConverterRegistry custom = new MessageConverterRegistry(
+                fallback).register("application/vnd.example+json",
+                new NdjsonMessageConverter());
+        assertSame(fallback, custom.getDefaultConverter());
+        assertTrue(custom.getConverter("application/vnd.example+json") instanceof NdjsonMessageConverter);
+        assertNull(custom.getConverter(SmileMessageConverter.CONTENT_TYPE));
+    }
+
+    /**
+     * A client should read a response in another format with the converter
+     * of its Content-Type, and keep its own converter for its own format.
+     *
+     * @throws SClientException
+     */
+    public void testClientPicksConverterFromContentType()
+            throws SClientException {
+        final AtomicInteger reads = new AtomicInteger();
+        JacksonMessageConverter counting = new JacksonMessageConverter() {
+            @Override
+            public <T> T getObjectFromMessage(InputStream message,
+                    String encoding, Class<T> messageObjectClass)
+                    throws SClientException {
+                reads.incrementAndGet();
+                return super.getObjectFromMessage(message, encoding,
+                        messageObjectClass);
+            }
+        };
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .messageConverter(counting).build();
+        assertSame(registry, sClient.getConverterRegistry());
+
+        SClientResponse<HttpBinPostRequest> response = sClient.get("/smile",
+                HttpBinPostRequest.class);
+        assertEquals("smile", response.getResponse().getReferenceID());
+        assertEquals(SmileMessageConverter.CONTENT_TYPE,
+                response.getContentType());
+        assertEquals(0, reads.get());
+
+        assertEquals("problem", sClient.get("/problem",
+                HttpBinPostRequest.class).getResponse().getReferenceID());
+        assertEquals(1, reads.get());
+    }
+
+    /**
+     * A client built without a converter should share the default converter
+     * of its registry, and a buffered response should keep its Content-Type.
+     *
+     * @throws SClientException
+     */
+    public void testClientDefaultConverter() throws SClientException {
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .bufferResponseBody(true).build();
+        assertSame(registry.getDefaultConverter(),
+                sClient.getMessageConverter());
+        assertSame(sClient.getMessageConverter(), SClient.builder().build()
+                .getMessageConverter());
+
+        SClientResponse<HttpBinPostRequest> response = sClient.get(
+                "/problem", HttpBinPostRequest.class);
+        assertEquals("problem", response.getResponse().getReferenceID());
+        assertEquals("application/problem+json; charset=UTF-8",
+                response.getContentType());
+    }
+}
@@ -0,0 +1,119 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+
+/**
+ * The class <code>NdjsonMessageConverterTest</code> contains tests for the
+ * class {@link <code>NdjsonMessageConverter</code>}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class NdjsonMessageConverterTest extends TestCase {
+
+    private NdjsonMessageConverter converter;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        converter = new NdjsonMessageConverter();
+    }
+
+    /**
+     * Each line should be handed over as soon as its bytes have arrived,
+     * without waiting for the following lines.
+     * 
+     * @throws Exception
+     */
+    public void testLinesAreParsedAsTheyArrive() throws Exception {
+        PipedOutputStream feed = new PipedOutputStream();
+        PipedInputStream message = new PipedInputStream(feed);
+        // the parser reads the first bytes to detect the encoding
+        feed.write("{\"referenceID\":\"first\"}\n".getBytes("UTF-8"));
+        try (Stream<HttpBinPostRequest> lines = converter
+                .getObjectsFromMessage(message, "UTF-8",
+                        HttpBinPostRequest.class)) {
+            Iterator<HttpBinPostRequest> iterator = lines.iterator();
+            assertEquals("first", iterator.next().getReferenceID());
+
+            feed.write("\n{\"referenceID\":\"second\"}\n".getBytes("UTF-8"));
+            assertEquals("second", iterator.next().getReferenceID());
+
+            feed.close();
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    /**
+     * The objects should be written one per line and read back, a line
+     * holding an array being a single value.
+     * 
+     * @throws SClientException
+     */
+    public void testWriteAndReadLines() throws SClientException {
+        List<HttpBinPostRequest> requests = Arrays.asList(
+                new HttpBinPostRequest("a", "1", "US"),
+                new HttpBinPostRequest("b", "2", "IN"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.writeMessagesTo(requests.iterator(), out, "UTF-8");
+        String[] lines = new String(out.toByteArray()).split("\n", -1);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"a\""));
+        assertTrue(lines[1].contains("\"b\""));
+        assertEquals("", lines[2]);
+
+        try (Stream<HttpBinPostRequest> read = converter
+                .getObjectsFromMessage(
+                        new ByteArrayInputStream(out.toByteArray()), null,
+                        HttpBinPostRequest.class)) {
+            assertEquals(Arrays.asList("a", "b"),
+                    read.map(HttpBinPostRequest::getReferenceID).collect(
+                            Collectors.toList()));
+        }
+
+        @SuppressWarnings("unchecked")
+        Class<List<?>> listClass = (Class<List<?>>) (Class<?>) List.class;
+        try (Stream<List<?>> arrays = converter.getObjectsFromMessage(
+                new ByteArrayInputStream("[1,2]\n[3]\n".getBytes()), null,
+                listClass)) {
+            assertEquals(2, arrays.count());
+        }
+
+        out.reset();
+        converter.writeMessagesTo(Collections.emptyIterator(), out, "UTF-8");
+        assertEquals(0, out.size());
+    }
+
+    /**
+     * The plain JSON converter should write the sequence as an array.
+     * 
+     * @throws SClientException
+     */
+    public void testJacksonWritesSequenceAsArray() throws SClientException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JacksonMessageConverter().writeMessagesTo(
+                Arrays.asList(new HttpBinPostRequest("a", "1", "US"),
+                        new HttpBinPostRequest("b", "2", "IN")).iterator(),
+                out, null);
+        HttpBinPostRequest[] read = converter.getObjectFromMessage(
+                new String(out.toByteArray()), HttpBinPostRequest[].class);
+        assertEquals(2, read.length);
+        assertEquals("b", read[1].getReferenceID());
+    }
+}
@@ -0,0 +1,198 @@
+package com.shc.ahttp.client.messageconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>ProtobufMessageConverterTest</code> contains tests for the
+ * class {@link <code>ProtobufMessageConverter</code>}, using the well known
+ * message types shipped with protobuf-java
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class ProtobufMessageConverterTest extends TestCase {
+
+    private ProtobufMessageConverter converter;
+
+    private LocalHttpServer server;
+
+    private volatile String contentType;
+
+    private volatile String accept;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        converter = new ProtobufMessageConverter();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                contentType = exchange.getRequestHeaders().getFirst(
+                        "Content-Type");
+                accept = exchange.getRequestHeaders().getFirst("Accept");
+                LocalHttpServer.respond(exchange, 200, contentType,
+                        readBytes(exchange.getRequestBody()), null);
+            }
+        });
+        ByteArrayOutputStream values = new ByteArrayOutputStream();
+        StringValue.of("a").writeDelimitedTo(values);
+        StringValue.of("b").writeDelimitedTo(values);
+        final byte[] valuesBody = values.toByteArray();
+        server.addHandler("/values", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200,
+                        ProtobufMessageConverter.CONTENT_TYPE, valuesBody,
+                        null);
+            }
+        });
+        server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    /**
+     * A message should be written and parsed back from a stream.
+     *
+     * @throws SClientException
+     */
+    public void testWriteAndRead() throws SClientException {
+        Struct struct = struct("ref");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.writeMessageTo(struct, out, "UTF-8");
+        assertTrue(Arrays.equals(struct.toByteArray(), out.toByteArray()));
+
+        assertEquals(struct, converter.getObjectFromMessage(
+                new ByteArrayInputStream(out.toByteArray()), null,
+                Struct.class));
+        assertEquals(Struct.getDefaultInstance(), converter
+                .getObjectFromMessage(new ByteArrayInputStream(new byte[0]),
+                        null, Struct.class));
+    }
+
+    /**
+     * Length delimited messages should be read back one at a time.
+     *
+     * @throws SClientException
+     */
+    public void testWriteAndReadSequence() throws SClientException {
+        List<StringValue> values = Arrays.asList(StringValue.of("a"),
+                StringValue.of(""), StringValue.of("c"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.writeMessagesTo(values.iterator(), out, null);
+
+        try (Stream<StringValue> elements = converter.getObjectsFromMessage(
+                new ByteArrayInputStream(out.toByteArray()), null,
+                StringValue.class)) {
+            assertEquals(values, elements.collect(Collectors.toList()));
+        }
+
+        Iterator<StringValue> truncated = converter.getObjectsFromMessage(
+                new ByteArrayInputStream(out.toByteArray(), 0,
+                        out.size() - 1), null, StringValue.class).iterator();
+        assertEquals("a", truncated.next().getValue());
+        assertEquals("", truncated.next().getValue());
+        try {
+            truncated.next();
+            fail("Expected a truncated message to fail the stream");
+        } catch (UncheckedIOException expected) {
+        }
+    }
+
+    /**
+     * Only generated messages can be read and written, and never as Strings.
+     */
+    public void testNonMessagesAreRejected() {
+        try {
+            converter.getObjectFromMessage(new ByteArrayInputStream(
+                    new byte[0]), null, HttpBinPostRequest.class);
+            fail("Expected a class which is not a message to be rejected");
+        } catch (SClientException expected) {
+        }
+        try {
+            converter.writeMessageTo(new HttpBinPostRequest(),
+                    new ByteArrayOutputStream(), null);
+            fail("Expected an object which is not a message to be rejected");
+        } catch (SClientException expected) {
+        }
+        try {
+            converter.getMessageFrom(struct("ref"));
+            fail("Expected a message not to be written to a String");
+        } catch (SClientException expected) {
+        }
+    }
+
+    /**
+     * The client should post and parse protobuf messages with the protobuf
+     * media type, synchronously and asynchronously, and stream length
+     * delimited messages.
+     *
+     * @throws Exception
+     */
+    public void testClientRoundTrip() throws Exception {
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .messageConverter(converter).build();
+        assertEquals(struct("sync"),
+                sClient.post("/echo", struct("sync"), Struct.class)
+                        .getResponse());
+        assertEquals(ProtobufMessageConverter.CONTENT_TYPE, contentType);
+        assertEquals(ProtobufMessageConverter.CONTENT_TYPE, accept);
+
+        assertEquals(struct("async"),
+                sClient.postAsync("/echo", struct("async"), Struct.class)
+                        .get(10, TimeUnit.SECONDS).getResponse());
+
+        try (Stream<StringValue> values = sClient.getStream("/values",
+                StringValue.class)) {
+            assertEquals(Arrays.asList("a", "b"),
+                    values.map(StringValue::getValue).collect(
+                            Collectors.toList()));
+        }
+    }
+
+    private static Struct struct(String referenceID) {
+        return Struct.newBuilder()
+                .putFields("referenceID",
+                        Value.newBuilder().setStringValue(referenceID).build())
+                .putFields("bodID", Value.newBuilder().setNumberValue(1).build())
+                .build();
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
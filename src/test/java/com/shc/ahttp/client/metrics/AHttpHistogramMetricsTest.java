@@ -0,0 +1,162 @@
+package com.shc.ahttp.client.metrics;
+
+import java.net.URI;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+
+/**
+ * The class <code>AHttpHistogramMetricsTest</code> contains tests for the
+ * class {@link <code>AHttpHistogramMetrics</code>} and the
+ * {@link <code>AHttpLatencyHistogram</code>} it records to
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpHistogramMetricsTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private AHttpHistogramMetrics metrics;
+
+    private AHttpClientPool pool;
+
+    private HttpHost route;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addResponse("/get", 200, "application/json",
+                "{\"url\":\"/get\"}");
+        server.addResponse("/missing", 404, "application/json",
+                "{\"error\":\"missing\"}");
+        server.start();
+
+        metrics = new AHttpHistogramMetrics();
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setMetrics(metrics);
+        pool = AHttpClientPool.create(config);
+        route = URIUtils.extractHost(URI.create(server.url("/")));
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * Percentiles should be reported within the precision of the buckets and
+     * never outside the recorded range.
+     */
+    public void testHistogramPercentiles() {
+        AHttpLatencyHistogram histogram = new AHttpLatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000);
+        }
+        AHttpLatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(10000000, snapshot.getMax());
+        assertEquals(5000500.0, snapshot.getMean(), 0.001);
+        assertEquals(5000000, snapshot.getValueAtPercentile(50), 5000000 * 0.07);
+        assertEquals(9900000, snapshot.getValueAtPercentile(99), 9900000 * 0.07);
+        assertEquals(10000000, snapshot.getValueAtPercentile(100));
+        assertEquals(1000, snapshot.getValueAtPercentile(0), 1000 * 0.07);
+
+        AHttpLatencyHistogram.Snapshot empty = new AHttpLatencyHistogram()
+                .getSnapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getValueAtPercentile(99));
+    }
+
+    /**
+     * Every bucket should count the values between its predecessor and its
+     * own highest value.
+     */
+    public void testBucketBoundaries() {
+        for (long value : new long[] { 0, 1, 15, 16, 31, 32, 33, 1000,
+                123456789, Long.MAX_VALUE }) {
+            int index = AHttpLatencyHistogram.bucketIndex(value);
+            assertTrue(value <= AHttpLatencyHistogram.highestValueOf(index));
+            if (index > 0) {
+                assertTrue(value > AHttpLatencyHistogram
+                        .highestValueOf(index - 1));
+            }
+        }
+    }
+
+    /**
+     * A request through a pool with metrics should record the lease, time to
+     * first byte, body read, status code and byte counts of its target host.
+     * 
+     * @throws AHttpClientCallException
+     */
+    public void testRequestMetricsAreRecordedPerHost()
+            throws AHttpClientCallException {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        aHttpGetRequest.executeGet(server.url("/get"));
+        aHttpGetRequest.executeGet(server.url("/get"));
+        try {
+            aHttpGetRequest.executeGet(server.url("/missing"));
+            fail("Expected a 404 to fail the request");
+        } catch (AHttpClientCallException expected) {
+            assertEquals(404, expected.getStatusCode());
+        }
+
+        AHttpRouteMetrics.Snapshot snapshot = metrics.getSnapshot().get(route);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.getStatusCount(200));
+        assertEquals(1, snapshot.getStatusCount(404));
+        assertEquals(3, snapshot.getRequestCount());
+        assertEquals(3, snapshot.getConnectionLease().getCount());
+        assertEquals(3, snapshot.getTimeToFirstByte().getCount());
+        assertEquals(3, snapshot.getBodyRead().getCount());
+        assertEquals(0, snapshot.getDeserialization().getCount());
+        assertTrue(snapshot.getTimeToFirstByte().getMax() > 0);
+        assertTrue(snapshot.getBytesSent() > 0);
+        assertTrue(snapshot.getBytesReceived() > 0);
+        assertEquals(0, snapshot.getFailures());
+    }
+
+    /**
+     * The buffered body parsed by a {@link SClient} should have its
+     * deserialization time recorded, and a refused connection should be
+     * counted as a failure.
+     * 
+     * @throws SClientException
+     */
+    public void testDeserializationAndFailuresAreRecorded()
+            throws SClientException {
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .clientPool(pool).bufferResponseBody(true).build();
+        assertEquals("/get", sClient.get("/get", HttpBinGetResponse.class)
+                .getResponse().getUrl());
+        assertEquals(1, metrics.getSnapshot().get(route).getDeserialization()
+                .getCount());
+
+        HttpHost closedRoute = new HttpHost("127.0.0.1", 1);
+        try {
+            new AHttpGetRequest(pool).executeGet("http://127.0.0.1:1/get");
+            fail("Expected the connection to be refused");
+        } catch (AHttpClientCallException expected) {
+            assertNotNull(expected.getCause());
+        }
+        assertEquals(1, metrics.getSnapshot().get(closedRoute).getFailures());
+    }
+}
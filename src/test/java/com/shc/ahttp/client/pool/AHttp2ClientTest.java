@@ -0,0 +1,335 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIUtils;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.encoding.AHttpContentEncoding;
+import com.shc.ahttp.client.encoding.AHttpRequestCompression;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.metrics.AHttpHistogramMetrics;
+import com.shc.ahttp.client.metrics.AHttpRouteMetrics;
+import com.shc.ahttp.client.response.SClientResponse;
+import com.shc.ahttp.client.testpojo.HttpBinPostRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttp2ClientTest</code> contains tests for the class
+ * {@link <code>AHttp2Client</code>} used through an {@link AHttpClientPool}
+ * with the {@link AHttpTransport#HTTP_2} transport, against a local HTTP/1.1
+ * server which the client falls back to.
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttp2ClientTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private AHttpHistogramMetrics metrics;
+
+    private AHttpClientPool pool;
+
+    private SClient sClient;
+
+    /** Holds the response of /slow back until opened */
+    private final CountDownLatch slowGate = new CountDownLatch(1);
+
+    /** Runs the requests to be aborted, and the server handlers */
+    private ExecutorService executor;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addHandler("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        readBytes(exchange.getRequestBody()), null);
+            }
+        });
+        server.addHandler("/framing", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int length = readBytes(exchange.getRequestBody()).length;
+                String framing = exchange.getRequestHeaders().containsKey(
+                        "Content-Length") ? "length" : exchange
+                        .getRequestHeaders().getFirst("Transfer-Encoding");
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        "{\"referenceID\":\"" + framing + "\",\"bodID\":\""
+                                + length + "\",\"country\":\""
+                                + exchange.getRequestHeaders().getFirst(
+                                        "Content-Encoding") + "\"}", null);
+            }
+        });
+        server.addHandler("/gzip", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+                gzipOut.write("{\"referenceID\":\"gzip\"}".getBytes("UTF-8"));
+                gzipOut.close();
+                Map<String, String> headers = new HashMap<String, String>();
+                headers.put("Content-Encoding", "gzip");
+                LocalHttpServer.respond(exchange, 200, "application/json",
+                        out.toByteArray(), headers);
+            }
+        });
+        server.addResponse("/missing", 404, "text/plain", "missing");
+        server.addHandler("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    slowGate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                LocalHttpServer.respond(exchange, 200, "text/plain", "slow",
+                        null);
+            }
+        });
+        server.addHandler("/large", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                byte[] chunk = new byte[8192];
+                try (OutputStream out = exchange.getResponseBody()) {
+                    for (int i = 0; i < 4096; i++) {
+                        out.write(chunk);
+                    }
+                } catch (IOException e) {
+                    // the client has gone
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        metrics = new AHttpHistogramMetrics();
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setTransport(AHttpTransport.HTTP_2);
+        config.setMetrics(metrics);
+        pool = AHttpClientPool.create(config);
+        sClient = SClient.builder().baseUrl(server.url("")).clientPool(pool)
+                .build();
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        slowGate.countDown();
+        pool.shutdown();
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static HttpBinPostRequest largeRequest() {
+        StringBuilder referenceID = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            referenceID.append((char) ('a' + i % 26));
+        }
+        return new HttpBinPostRequest(referenceID.toString(), "1", "US");
+    }
+
+    /**
+     * The pool should execute its requests on the HTTP/2 client.
+     */
+    public void testPoolUsesHttp2Client() {
+        assertNotNull(pool.getHttp2Client());
+        assertSame(pool.getHttp2Client(), pool.getHttpClient());
+    }
+
+    /**
+     * Buffered bodies should be sent with their length and streamed bodies
+     * written through the pipe, and both echoed back intact.
+     *
+     * @throws SClientException
+     */
+    public void testPostBufferedAndStreamedBodies() throws SClientException {
+        HttpBinPostRequest request = largeRequest();
+        SClient bufferingClient = sClient.toBuilder().bufferRequestBody(true)
+                .build();
+
+        assertEquals(request.getReferenceID(), sClient.post("/echo", request,
+                HttpBinPostRequest.class).getResponse().getReferenceID());
+        assertEquals(request.getReferenceID(), bufferingClient.post("/echo",
+                request, HttpBinPostRequest.class).getResponse()
+                .getReferenceID());
+
+        assertEquals("chunked", sClient.post("/framing", request,
+                HttpBinPostRequest.class).getResponse().getReferenceID());
+        assertEquals("length", bufferingClient.post("/framing", request,
+                HttpBinPostRequest.class).getResponse().getReferenceID());
+    }
+
+    /**
+     * Compressed request and response bodies should be handled as with the
+     * HTTP/1.1 transport, for blocking and asynchronous calls.
+     *
+     * @throws Exception
+     */
+    public void testContentEncodings() throws Exception {
+        assertEquals("gzip", sClient.get("/gzip", HttpBinPostRequest.class)
+                .getResponse().getReferenceID());
+        assertEquals("gzip", sClient
+                .getAsync("/gzip", HttpBinPostRequest.class)
+                .get(10, TimeUnit.SECONDS).getResponse().getReferenceID());
+
+        HttpBinPostRequest request = largeRequest();
+        SClientResponse<HttpBinPostRequest> response = sClient
+                .toBuilder()
+                .requestCompression(
+                        new AHttpRequestCompression(AHttpContentEncoding.GZIP))
+                .build().post("/framing", request, HttpBinPostRequest.class);
+        assertEquals("gzip", response.getResponse().getCountry());
+        assertTrue(Integer.parseInt(response.getResponse().getBodID()) < request
+                .getReferenceID().length() / 10);
+    }
+
+    /**
+     * Asynchronous calls should be sent on the HTTP/2 client, failing with a
+     * {@link SClientException} on an error status.
+     *
+     * @throws Exception
+     */
+    public void testAsyncCalls() throws Exception {
+        HttpBinPostRequest request = new HttpBinPostRequest("SASL", "1", "US");
+        assertEquals("SASL", sClient
+                .postAsync("/echo", request, HttpBinPostRequest.class)
+                .get(10, TimeUnit.SECONDS).getResponse().getReferenceID());
+        try {
+            sClient.getAsync("/missing", HttpBinPostRequest.class).get(10,
+                    TimeUnit.SECONDS);
+            fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SClientException);
+        }
+    }
+
+    /**
+     * Aborting a request should fail it while its response is awaited, and
+     * cut the stream of a body being read. The requests in flight should be
+     * counted in the stats of the pool.
+     *
+     * @throws Exception
+     */
+    public void testAbortAndStats() throws Exception {
+        final HttpGet slowGet = new HttpGet(server.url("/slow"));
+        Future<CloseableHttpResponse> slowResponse = executor
+                .submit(() -> pool.getHttpClient().execute(slowGet));
+        HttpHost host = URIUtils.extractHost(URI.create(server.url("/")));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pool.getTotalStats().getLeased() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getTotalStats().getLeased());
+        assertEquals(1, pool.getStats(host).getLeased());
+        slowGet.abort();
+        try {
+            slowResponse.get(5, TimeUnit.SECONDS);
+            fail("Expected the aborted request to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(0, pool.getTotalStats().getLeased());
+
+        HttpGet largeGet = new HttpGet(server.url("/large"));
+        try (CloseableHttpResponse response = pool.getHttpClient().execute(
+                largeGet)) {
+            InputStream content = response.getEntity().getContent();
+            assertTrue(content.read(new byte[8192]) > 0);
+            assertEquals(1, pool.getStats(host).getLeased());
+            largeGet.abort();
+            try {
+                readBytes(content);
+                fail("Expected the aborted body to fail");
+            } catch (IOException expected) {
+            }
+        }
+        assertEquals(0, pool.getStats(host).getLeased());
+    }
+
+    /**
+     * The deprecated parameters and connection manager should be usable, the
+     * connection manager shutting the client down.
+     *
+     * @throws Exception
+     */
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedAccessors() throws Exception {
+        AHttp2Client http2Client = pool.getHttp2Client();
+        assertNotNull(http2Client.getParams());
+        http2Client.getConnectionManager().closeIdleConnections(0,
+                TimeUnit.MILLISECONDS);
+        http2Client.getConnectionManager().shutdown();
+        try {
+            sClient.get("/echo", HttpBinPostRequest.class);
+            fail("Expected a SClientException");
+        } catch (SClientException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The status and time to first byte of blocking calls should be recorded,
+     * and a shut down pool should fail the calls.
+     *
+     * @throws Exception
+     */
+    public void testMetricsAndShutdown() throws Exception {
+        try {
+            sClient.get("/missing", HttpBinPostRequest.class);
+            fail("Expected a SClientException");
+        } catch (SClientException e) {
+            // expected
+        }
+        AHttpRouteMetrics.Snapshot snapshot = metrics.getSnapshot().get(
+                URIUtils.extractHost(URI.create(server.url("/"))));
+        assertEquals(1, snapshot.getStatusCount(404));
+        assertEquals(1, snapshot.getTimeToFirstByte().getCount());
+
+        pool.shutdown();
+        try {
+            sClient.get("/gzip", HttpBinPostRequest.class);
+            fail("Expected a SClientException");
+        } catch (SClientException e) {
+            // expected
+        }
+    }
+}
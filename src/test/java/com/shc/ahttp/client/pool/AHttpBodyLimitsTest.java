@@ -0,0 +1,199 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.response.AHttpStreamedResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpBodyLimitsTest</code> contains tests for the class
+ * {@link <code>AHttpBodyLimits</code>} enforced on the responses of the
+ * requests executed through an {@link AHttpClientPool}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpBodyLimitsTest extends TestCase {
+
+    private static final int LIMIT = 1024;
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    private CountDownLatch endlessAborted;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        endlessAborted = new CountDownLatch(1);
+        server = new LocalHttpServer();
+        server.addResponse("/limit", 200, "text/plain", body(LIMIT));
+        server.addResponse("/large", 200, "text/plain", body(LIMIT + 1));
+        server.addResponse("/error", 500, "text/plain", body(10 * LIMIT));
+        server.addHandler("/endless", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int status = exchange.getRequestURI().getQuery() != null ? 500
+                        : 200;
+                // a length of 0 makes the body chunked, of unknown length
+                exchange.sendResponseHeaders(status, 0);
+                byte[] chunk = body(64 * 1024).getBytes("UTF-8");
+                try (OutputStream out = exchange.getResponseBody()) {
+                    // far more than the client buffers, unless it aborts
+                    for (int i = 0; i < 16 * 1024; i++) {
+                        out.write(chunk);
+                    }
+                } catch (IOException e) {
+                    endlessAborted.countDown();
+                }
+            }
+        });
+        server.start();
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setMaxResponseBodySize(LIMIT);
+        config.setMaxErrorBodySize(LIMIT);
+        pool = AHttpClientPool.create(config);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * A body of the size of the limit should be read whole, and a larger one
+     * should fail without its connection being kept.
+     *
+     * @throws AHttpClientCallException
+     */
+    public void testSuccessBodyLimit() throws AHttpClientCallException {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        assertEquals(body(LIMIT), aHttpGetRequest.executeGet(
+                server.url("/limit")).getResponseBody());
+        assertEquals(1, pool.getTotalStats().getAvailable());
+        try {
+            aHttpGetRequest.executeGet(server.url("/large"));
+            fail("Expected a body over the limit to fail");
+        } catch (AHttpClientCallException expected) {
+            assertEquals(AHttpBodyLimits.getExceededMessage(LIMIT),
+                    expected.getMessage());
+        }
+        assertEquals(0, pool.getTotalStats().getLeased());
+        assertEquals(0, pool.getTotalStats().getAvailable());
+    }
+
+    /**
+     * A body of unknown length should fail as soon as it crosses the limit,
+     * its connection being aborted rather than drained.
+     *
+     * @throws Exception
+     */
+    public void testEndlessBodyAborted() throws Exception {
+        try {
+            new AHttpGetRequest(pool).executeGet(server.url("/endless"));
+            fail("Expected an endless body to fail");
+        } catch (AHttpClientCallException expected) {
+            assertEquals(AHttpBodyLimits.getExceededMessage(LIMIT),
+                    expected.getMessage());
+        }
+        assertTrue(endlessAborted.await(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * The body of an error response should be truncated at its limit, even
+     * if it is endless.
+     *
+     * @throws Exception
+     */
+    public void testErrorBodyTruncated() throws Exception {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        for (String path : Arrays.asList("/error", "/endless?error")) {
+            try {
+                aHttpGetRequest.executeGet(server.url(path));
+                fail("Expected an error response");
+            } catch (AHttpClientCallException expected) {
+                assertEquals(500, expected.getStatusCode());
+                assertEquals(body(LIMIT), expected.getResponseBody());
+            }
+        }
+        assertTrue(endlessAborted.await(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A streamed body should fail once read past the limit.
+     *
+     * @throws Exception
+     */
+    public void testStreamedBodyLimit() throws Exception {
+        try (AHttpStreamedResponse response = new AHttpGetRequest(pool)
+                .executeGetStream(server.url("/endless"), null, 5000, null,
+                        false)) {
+            InputStream content = response.getContent();
+            byte[] buffer = new byte[256];
+            try {
+                while (content.read(buffer) != -1) {
+                }
+                fail("Expected the content to fail past the limit");
+            } catch (IOException expected) {
+                assertEquals(AHttpBodyLimits.getExceededMessage(LIMIT),
+                        expected.getMessage());
+            }
+        }
+        assertTrue(endlessAborted.await(30, TimeUnit.SECONDS));
+        assertEquals(0, pool.getTotalStats().getAvailable());
+    }
+
+    /**
+     * Asynchronous responses should be received no further than the limits.
+     *
+     * @throws Exception
+     */
+    public void testAsyncBodyLimits() throws Exception {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        assertEquals(body(LIMIT), aHttpGetRequest.executeGetAsync(
+                server.url("/limit")).get(10, TimeUnit.SECONDS)
+                .getResponseBody());
+        try {
+            aHttpGetRequest.executeGetAsync(server.url("/endless")).get(30,
+                    TimeUnit.SECONDS);
+            fail("Expected an endless body to fail");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof AHttpClientCallException);
+            assertEquals(AHttpBodyLimits.getExceededMessage(LIMIT), expected
+                    .getCause().getMessage());
+        }
+        try {
+            aHttpGetRequest.executeGetAsync(server.url("/error")).get(10,
+                    TimeUnit.SECONDS);
+            fail("Expected an error response");
+        } catch (ExecutionException expected) {
+            assertEquals(body(LIMIT),
+                    ((AHttpClientCallException) expected.getCause())
+                            .getResponseBody());
+        }
+    }
+
+    private static String body(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+}
@@ -0,0 +1,209 @@
+package com.shc.ahttp.client.pool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.shc.ahttp.client.SClient;
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.exception.SClientException;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.testpojo.HttpBinGetResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpBufferPoolTest</code> contains tests for the class
+ * {@link <code>AHttpBufferPool</code>}, on its own and reading the response
+ * bodies of the requests of an {@link AHttpClientPool}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpBufferPoolTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    private String largeBody;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'é');
+        largeBody = new String(chars);
+        server = new LocalHttpServer();
+        server.addResponse("/small", 200, "text/plain; charset=UTF-8",
+                "small body");
+        server.addHandler("/chunked", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Content-Type",
+                        "text/plain; charset=UTF-8");
+                // a length of 0 makes the body chunked, of unknown length
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(largeBody.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        server.addResponse("/json", 200, "application/json; charset=UTF-8",
+                "{\"url\":\"" + largeBody + "\"}");
+        server.start();
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setBufferSize(1024);
+        config.setMaxPooledBufferSize(64 * 1024);
+        config.setMaxPooledBuffers(4);
+        pool = AHttpClientPool.create(config);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * A released buffer should be handed out again, and buffers larger than
+     * the maximum pooled size or beyond the maximum count should be dropped.
+     */
+    public void testAcquireAndRelease() {
+        AHttpBufferPool bufferPool = new AHttpBufferPool(1024, 4096, 2);
+        byte[] buffer = bufferPool.acquire(10);
+        assertEquals(1024, buffer.length);
+        bufferPool.release(buffer);
+        assertEquals(1, bufferPool.getPooledBuffers());
+        assertSame(buffer, bufferPool.acquire(512));
+        assertEquals(0, bufferPool.getPooledBuffers());
+
+        bufferPool.release(buffer);
+        byte[] larger = bufferPool.acquire(2048);
+        assertEquals(2048, larger.length);
+        bufferPool.release(larger);
+        bufferPool.release(new byte[1024]);
+        bufferPool.release(new byte[1024]);
+        // the stripe of the thread holds all or part of the two buffers
+        assertTrue(bufferPool.getPooledBuffers() >= 1);
+        assertTrue(bufferPool.getPooledBuffers() <= 2);
+        while (bufferPool.getPooledBuffers() > 0) {
+            bufferPool.acquire(1);
+        }
+        bufferPool.release(new byte[8192]);
+        assertEquals(0, bufferPool.getPooledBuffers());
+
+        AHttpBufferPool noPool = new AHttpBufferPool(1024, 4096, 0);
+        noPool.release(noPool.acquire(10));
+        assertEquals(0, noPool.getPooledBuffers());
+    }
+
+    /**
+     * Streams of known and unknown length, and longer than their declared
+     * length, should be read whole, growing the buffer as needed.
+     *
+     * @throws IOException
+     */
+    public void testReadString() throws IOException {
+        AHttpBufferPool bufferPool = new AHttpBufferPool(16, 1024, 4);
+        byte[] bytes = largeBody.getBytes(StandardCharsets.UTF_8);
+        assertEquals(largeBody, bufferPool.readString(new ByteArrayInputStream(
+                bytes), bytes.length, StandardCharsets.UTF_8));
+        assertEquals(largeBody, bufferPool.readString(new ByteArrayInputStream(
+                bytes), -1, StandardCharsets.UTF_8));
+        assertEquals(largeBody, bufferPool.readString(new ByteArrayInputStream(
+                bytes), 10, StandardCharsets.UTF_8));
+        assertEquals("", bufferPool.readString(new ByteArrayInputStream(
+                new byte[0]), 0, StandardCharsets.UTF_8));
+        assertTrue(bufferPool.getPooledBuffers() >= 1);
+        assertTrue(bufferPool.getPooledBuffers() <= 4);
+        try {
+            bufferPool.readString(new ByteArrayInputStream(bytes),
+                    Integer.MAX_VALUE + 1L, StandardCharsets.UTF_8);
+            fail("Expected a content too large for an array to fail");
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Response bodies should be read through the buffers of the pool, which
+     * are handed back once the body is decoded.
+     *
+     * @throws AHttpClientCallException
+     */
+    public void testResponseBodiesReadIntoPooledBuffers()
+            throws AHttpClientCallException {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        assertEquals("small body", aHttpGetRequest.executeGet(
+                server.url("/small")).getResponseBody());
+        assertEquals(1, pool.getBufferPool().getPooledBuffers());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(largeBody, aHttpGetRequest.executeGet(
+                    server.url("/chunked")).getResponseBody());
+        }
+        assertTrue(pool.getBufferPool().getPooledBuffers() >= 1);
+        assertTrue(pool.getBufferPool().getPooledBuffers() <= 4);
+    }
+
+    /**
+     * The bodies buffered by a {@link SClient} should be read through the
+     * buffers of its pool as well.
+     *
+     * @throws SClientException
+     */
+    public void testSClientBufferedBodiesReadIntoPooledBuffers()
+            throws SClientException {
+        SClient sClient = SClient.builder().baseUrl(server.url(""))
+                .clientPool(pool).bufferResponseBody(true).build();
+        assertEquals(0, pool.getBufferPool().getPooledBuffers());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(largeBody, sClient.get("/json",
+                    HttpBinGetResponse.class).getResponse().getUrl());
+        }
+        assertTrue(pool.getBufferPool().getPooledBuffers() >= 1);
+        assertTrue(pool.getBufferPool().getPooledBuffers() <= 4);
+    }
+
+    /**
+     * The stripes should never hold more buffers than the maximum count, for
+     * counts that do not divide evenly between them.
+     *
+     * @throws InterruptedException
+     */
+    public void testPooledBuffersCappedAtMaxBuffers()
+            throws InterruptedException {
+        for (int maxBuffers = 0; maxBuffers <= 33; maxBuffers++) {
+            final AHttpBufferPool bufferPool = new AHttpBufferPool(16, 16,
+                    maxBuffers);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 32; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < 8; j++) {
+                            bufferPool.release(new byte[16]);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(bufferPool.getPooledBuffers() <= maxBuffers);
+            assertTrue(maxBuffers == 0 || bufferPool.getPooledBuffers() > 0);
+        }
+    }
+}
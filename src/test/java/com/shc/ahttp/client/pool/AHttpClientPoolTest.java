@@ -0,0 +1,148 @@
+package com.shc.ahttp.client.pool;
+
+import junit.framework.TestCase;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.response.AHttpClientResponse;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+
+/**
+ * The class <code>AHttpClientPoolTest</code> contains tests for the class
+ * {@link <code>AHttpClientPool</code>}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpClientPoolTest extends TestCase {
+
+    private LocalHttpServer server;
+
+    private AHttpClientPool pool;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new LocalHttpServer();
+        server.addResponse("/get", 200, "application/json", "{\"ok\":true}");
+        server.start();
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setMaxTotalConnections(4);
+        config.setMaxConnectionsPerRoute(2);
+        config.setRegisterShutdownHook(false);
+        pool = AHttpClientPool.create(config);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+        server.stop();
+    }
+
+    /**
+     * Consecutive requests through the same pool should reuse one kept alive
+     * connection, which is released back to the pool after each call.
+     * 
+     * @throws AHttpClientCallException
+     */
+    public void testConnectionIsReleasedAndReused()
+            throws AHttpClientCallException {
+        AHttpGetRequest aHttpGetRequest = new AHttpGetRequest(pool);
+        for (int i = 0; i < 3; i++) {
+            AHttpClientResponse response = aHttpGetRequest.executeGet(server
+                    .url("/get"));
+            assertEquals(200, response.getStatusCode());
+        }
+        assertEquals(0, pool.getTotalStats().getLeased());
+        assertEquals(1, pool.getTotalStats().getAvailable());
+        assertEquals(4, pool.getTotalStats().getMax());
+    }
+
+    /**
+     * A shut down pool should refuse further requests.
+     */
+    public void testShutdown() {
+        pool.shutdown();
+        assertTrue(pool.isShutdown());
+        try {
+            new AHttpGetRequest(pool).executeGet(server.url("/get"));
+            fail("Expected the request to fail on a shut down pool");
+        } catch (AHttpClientCallException expected) {
+            assertNotNull(expected.getMessage());
+        }
+    }
+
+    /**
+     * The limits and stats of a host should apply to the route the client
+     * plans to it, secure for an https host, whether or not the port is
+     * given.
+     * 
+     * @throws Exception
+     */
+    public void testHostLimitsApplyToPlannedRoutes() throws Exception {
+        DefaultRoutePlanner routePlanner = new DefaultRoutePlanner(
+                DefaultSchemePortResolver.INSTANCE);
+        HttpHost[] hosts = { new HttpHost("httpbin.org", 443, "https"),
+                new HttpHost("httpbin.org", -1, "https"),
+                new HttpHost("httpbin.org", 8443, "https"),
+                new HttpHost("httpbin.org", 80, "http"),
+                new HttpHost("httpbin.org") };
+        for (HttpHost host : hosts) {
+            assertEquals(host.toString(), routePlanner.determineRoute(host,
+                    new HttpGet(host.toURI()), HttpClientContext.create()),
+                    AHttpClientPool.toRoute(host));
+        }
+        assertTrue(AHttpClientPool.toRoute(hosts[0]).isSecure());
+
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setMaxConnectionsForHost(hosts[0], 7);
+        AHttpClientPool httpsPool = AHttpClientPool.create(config);
+        try {
+            assertEquals(7, httpsPool.getStats(hosts[0]).getMax());
+            assertEquals(7, httpsPool.getStats(hosts[1]).getMax());
+            httpsPool.setMaxConnectionsForHost(hosts[1], 9);
+            assertEquals(9, httpsPool.getStats(hosts[0]).getMax());
+        } finally {
+            httpsPool.shutdown();
+        }
+    }
+
+    /**
+     * Test that the per host limits overridden before the first asynchronous
+     * request also apply to the non blocking client.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testHostLimitsApplyToLaterAsyncClient() throws Exception {
+        HttpHost configured = new HttpHost("httpbin.org", 443, "https");
+        HttpHost overridden = new HttpHost("example.org", 80, "http");
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        config.setMaxConnectionsForHost(configured, 7);
+        AHttpClientPool pool = AHttpClientPool.create(config);
+        try {
+            pool.setMaxConnectionsForHost(overridden, 3);
+            pool.setMaxConnectionsForHost(configured, 5);
+            assertNull(pool.getAsyncStats(overridden));
+
+            pool.getHttpAsyncClient();
+            assertEquals(3, pool.getAsyncStats(overridden).getMax());
+            assertEquals(5, pool.getAsyncStats(configured).getMax());
+            assertEquals(config.getMaxConnectionsPerRoute(), pool
+                    .getAsyncStats(new HttpHost("example.com")).getMax());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.shc.ahttp.client.request;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.http.Header;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.auth.BasicScheme;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpBasicAuthHeaderTest</code> contains tests for the class
+ * {@link <code>AHttpBasicAuthHeader</code>} cached by the
+ * {@link ABasicAuthHttpRequestBase}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpBasicAuthHeaderTest extends TestCase {
+
+    private AHttpClientPool pool;
+
+    private AHttpGetRequest aHttpGetRequest;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        pool = AHttpClientPool.create(config);
+        aHttpGetRequest = new AHttpGetRequest(pool);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        pool.shutdown();
+    }
+
+    /**
+     * The header should be the one generated by the BasicScheme, and missing
+     * credentials should be rejected rather than sent as "null".
+     *
+     * @throws Exception
+     */
+    public void testSameAsBasicScheme() throws Exception {
+        assertEquals(basicScheme("user", "pässword"), new AHttpBasicAuthHeader(
+                "user", "pässword").getHeader().getValue());
+        assertEquals("Authorization", new AHttpBasicAuthHeader("user",
+                "password").getHeader().getName());
+        try {
+            new AHttpBasicAuthHeader("user", null);
+            fail("Expected a missing password to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            aHttpGetRequest.getBasicAuthHttpHeader(null, "password");
+            fail("Expected a missing username to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * The header of the same credentials should be computed once, and
+     * replaced when the credentials are rotated.
+     *
+     * @throws AHttpClientCallException
+     */
+    public void testHeaderCachedPerCredentials()
+            throws AHttpClientCallException {
+        Header header = aHttpGetRequest.getBasicAuthHttpHeader("user",
+                "password");
+        assertSame(header, aHttpGetRequest.getBasicAuthHttpHeader("user",
+                new String("password")));
+
+        Header rotated = aHttpGetRequest.getBasicAuthHttpHeader("user",
+                "rotated");
+        assertNotSame(header, rotated);
+        assertFalse(header.getValue().equals(rotated.getValue()));
+        assertSame(rotated, aHttpGetRequest.getBasicAuthHttpHeader("user",
+                "rotated"));
+
+        HttpGet httpGet = new HttpGet("http://127.0.0.1/");
+        assertSame(rotated, aHttpGetRequest.addCachedBasicAuthHttpHeader(
+                httpGet, "user", "rotated"));
+        assertSame(rotated, httpGet.getFirstHeader("Authorization"));
+    }
+
+    /**
+     * Missing credentials should be reported as a failed call by the methods
+     * adding the header to the requests sent.
+     */
+    public void testMissingCredentialsFailTheCall() {
+        for (String[] credentials : new String[][] { { null, "password" },
+                { "user", null } }) {
+            HttpGet httpGet = new HttpGet("http://127.0.0.1/");
+            try {
+                aHttpGetRequest.addCachedBasicAuthHttpHeader(httpGet,
+                        credentials[0], credentials[1]);
+                fail("Expected the missing credentials to fail the call");
+            } catch (AHttpClientCallException expected) {
+                assertTrue(expected.getCause() instanceof IllegalArgumentException);
+            }
+            assertNull(httpGet.getFirstHeader("Authorization"));
+        }
+    }
+
+    /**
+     * The deprecated methods should keep adding the header of the
+     * BasicScheme.
+     *
+     * @throws Exception
+     */
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedMethods() throws Exception {
+        HttpGet httpGet = new HttpGet("http://127.0.0.1/");
+        assertNotNull(aHttpGetRequest.addBasicAuthHttpHeader(httpGet, "user",
+                "password"));
+        assertEquals(basicScheme("user", "password"), httpGet.getFirstHeader(
+                "Authorization").getValue());
+        assertEquals(basicScheme("user", "rotated"), aHttpGetRequest
+                .getBasicAuthHttpHeader(HttpClientContext.create(), httpGet,
+                        "user", "rotated").getValue());
+    }
+
+    /**
+     * The cached header should be sent with the requests.
+     *
+     * @throws Exception
+     */
+    public void testHeaderSent() throws Exception {
+        final AtomicReference<String> received = new AtomicReference<String>();
+        LocalHttpServer server = new LocalHttpServer();
+        server.addHandler("/auth", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                received.set(exchange.getRequestHeaders().getFirst(
+                        "Authorization"));
+                LocalHttpServer.respond(exchange, 200, "text/plain", "ok",
+                        null);
+            }
+        });
+        server.start();
+        try {
+            for (String password : new String[] { "password", "rotated" }) {
+                assertEquals("ok", aHttpGetRequest.executeGet(
+                        server.url("/auth"), "user", password)
+                        .getResponseBody());
+                assertEquals(basicScheme("user", password), received.get());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String basicScheme(String username, String password)
+            throws Exception {
+        HttpGet httpGet = new HttpGet("http://127.0.0.1/");
+        return new BasicScheme().authenticate(
+                new UsernamePasswordCredentials(username, password), httpGet,
+                HttpClientContext.create()).getValue();
+    }
+}
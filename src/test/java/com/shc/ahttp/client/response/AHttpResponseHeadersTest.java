@@ -0,0 +1,168 @@
+package com.shc.ahttp.client.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+import com.shc.ahttp.client.exception.AHttpClientCallException;
+import com.shc.ahttp.client.pool.AHttpClientPool;
+import com.shc.ahttp.client.pool.AHttpClientPoolConfig;
+import com.shc.ahttp.client.request.AHttpGetRequest;
+import com.shc.ahttp.client.testserver.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The class <code>AHttpResponseHeadersTest</code> contains tests for the class
+ * {@link <code>AHttpResponseHeaders</code>}
+ *
+ * @pattern JUnit Test Case
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class AHttpResponseHeadersTest extends TestCase {
+
+    private AHttpResponseHeaders headers;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        headers = new AHttpResponseHeaders(new Header[] {
+                new BasicHeader("Content-Type", "text/plain"),
+                new BasicHeader("Set-Cookie", "a=1"),
+                new BasicHeader("X-Trace", "abc"),
+                new BasicHeader("set-cookie", "b=2") });
+    }
+
+    /**
+     * Headers should be looked up ignoring case, the first value being the
+     * value of the map.
+     */
+    public void testCaseInsensitiveLookup() {
+        assertEquals("text/plain", headers.get("content-type"));
+        assertEquals("text/plain", headers.get("CONTENT-TYPE"));
+        assertEquals("a=1", headers.get("Set-Cookie"));
+        assertTrue(headers.containsKey("x-trace"));
+        assertFalse(headers.containsKey("X-Missing"));
+        assertNull(headers.get("X-Missing"));
+        assertNull(headers.get(null));
+    }
+
+    /**
+     * Every value of a repeated header should be kept.
+     */
+    public void testMultipleValues() {
+        assertEquals(Arrays.asList("a=1", "b=2"), headers.getAll("SET-COOKIE"));
+        assertEquals(Collections.singletonList("abc"), headers.getAll("X-Trace"));
+        assertTrue(headers.getAll("X-Missing").isEmpty());
+
+        Map<String, List<String>> multiValueMap = headers.toMultiValueMap();
+        assertEquals(3, multiValueMap.size());
+        assertEquals(Arrays.asList("a=1", "b=2"), multiValueMap
+                .get("set-cookie"));
+    }
+
+    /**
+     * The view should hold one entry per header name, compare equal to a copy
+     * of it and refuse changes.
+     *
+     * @throws Exception
+     */
+    public void testMapView() throws Exception {
+        assertEquals(3, headers.size());
+        Map<String, String> copy = new HashMap<String, String>(headers);
+        assertEquals("a=1", copy.get("Set-Cookie"));
+        assertEquals(copy, headers);
+        try {
+            headers.put("X-Trace", "def");
+            fail("Expected the view to be read only");
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(headers);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(headers, in.readObject());
+        }
+    }
+
+    /**
+     * Headers set as a plain map should be viewed as single valued headers,
+     * and a view should be returned as is.
+     */
+    public void testViewOfMap() {
+        assertSame(headers, AHttpResponseHeaders.of(headers));
+        assertNull(AHttpResponseHeaders.of((Map<String, String>) null));
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("ETag", "\"v1\"");
+        AHttpClientResponse response = new AHttpClientResponse("body", "OK",
+                200, map);
+        assertEquals("\"v1\"", response.getHeaderView().get("etag"));
+        assertEquals(Collections.singletonList("\"v1\""), response
+                .getHeaderView().getAll("ETAG"));
+        assertNull(new AHttpClientResponse("body", "OK", 200, null)
+                .getHeaderView());
+    }
+
+    /**
+     * The headers of a response should be returned as a view keeping repeated
+     * headers.
+     *
+     * @throws Exception
+     */
+    public void testResponseHeaders() throws Exception {
+        LocalHttpServer server = new LocalHttpServer();
+        server.addResponse("/missing", 404, "text/plain", "missing");
+        server.addHandler("/cookies", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Set-Cookie", "a=1");
+                exchange.getResponseHeaders().add("Set-Cookie", "b=2");
+                LocalHttpServer.respond(exchange, 200, "text/plain", "ok",
+                        null);
+            }
+        });
+        server.start();
+        AHttpClientPoolConfig config = new AHttpClientPoolConfig();
+        config.setRegisterShutdownHook(false);
+        AHttpClientPool pool = AHttpClientPool.create(config);
+        try {
+            AHttpClientResponse response = new AHttpGetRequest(pool)
+                    .executeGet(server.url("/cookies"), null, true);
+            AHttpResponseHeaders responseHeaders = response.getHeaderView();
+            assertSame(response.getResponseHeaders(), responseHeaders);
+            assertEquals(Arrays.asList("a=1", "b=2"), responseHeaders
+                    .getAll("set-cookie"));
+            assertEquals("text/plain", responseHeaders.get("content-type"));
+
+            try {
+                new AHttpGetRequest(pool).executeGet(server.url("/missing"));
+                fail("Expected a missing resource to fail");
+            } catch (AHttpClientCallException expected) {
+                assertSame(expected.getResponseHeaders(),
+                        expected.getHeaderView());
+                assertEquals("text/plain", expected.getHeaderView().get(
+                        "Content-Type"));
+            }
+        } finally {
+            pool.shutdown();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.shc.ahttp.client.testserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small embedded HTTP server bound to an ephemeral local port, so that tests
+ * can exercise the client without depending on a remote service.
+ *
+ * @author vishalk2
+ *
+ * @version $Revision$
+ */
+public class LocalHttpServer {
+
+    private final HttpServer server;
+
+    public LocalHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    }
+
+    /**
+     * Sets the executor handling the exchanges, which are otherwise handled
+     * one at a time. Must be called before {@link #start()}.
+     */
+    public void setExecutor(Executor executor) {
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    public void addHandler(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    public void addResponse(String path, final int statusCode,
+            final String contentType, final String body) {
+        addHandler(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, statusCode, contentType, body, null);
+            }
+        });
+    }
+
+    public static void respond(HttpExchange exchange, int statusCode,
+            String contentType, String body, Map<String, String> headers)
+            throws IOException {
+        respond(exchange, statusCode, contentType, body == null ? null : body
+                .getBytes(Charset.forName("UTF-8")), headers);
+    }
+
+    public static void respond(HttpExchange exchange, int statusCode,
+            String contentType, byte[] body, Map<String, String> headers)
+            throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body;
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                exchange.getResponseHeaders().add(header.getKey(),
+                        header.getValue());
+            }
+        }
+        exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1
+                : bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}